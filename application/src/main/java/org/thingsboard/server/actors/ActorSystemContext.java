@@ -30,7 +30,6 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.MailService;
 import org.thingsboard.rule.engine.api.NotificationCenter;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceStateManager;
@@ -45,7 +44,6 @@ import org.thingsboard.server.cluster.TbClusterService;
 import org.thingsboard.server.common.data.event.ErrorEvent;
 import org.thingsboard.server.common.data.event.LifecycleEvent;
 import org.thingsboard.server.common.data.event.RuleChainDebugEvent;
-import org.thingsboard.server.common.data.event.RuleNodeDebugEvent;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
@@ -55,6 +53,7 @@ import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.dao.alarm.AlarmCommentService;
 import org.thingsboard.server.dao.asset.AssetProfileService;
@@ -112,9 +111,11 @@ import org.thingsboard.server.service.profile.TbDeviceProfileCache;
 import org.thingsboard.server.service.rpc.TbCoreDeviceRpcService;
 import org.thingsboard.server.service.rpc.TbRpcService;
 import org.thingsboard.server.service.rpc.TbRuleEngineDeviceRpcService;
+import org.thingsboard.server.service.rule.RuleNodeDebugEventService;
 import org.thingsboard.server.service.session.DeviceSessionCacheService;
 import org.thingsboard.server.service.sms.SmsExecutorService;
 import org.thingsboard.server.service.state.DeviceStateService;
+import org.thingsboard.server.service.stats.RuleNodeStatsService;
 import org.thingsboard.server.service.telemetry.AlarmSubscriptionService;
 import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
 import org.thingsboard.server.service.transport.TbCoreToTransportService;
@@ -125,6 +126,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -141,19 +143,9 @@ public class ActorSystemContext {
             log.error("Could not save debug Event for Rule Chain", th);
         }
     };
-    private static final FutureCallback<Void> RULE_NODE_DEBUG_EVENT_ERROR_CALLBACK = new FutureCallback<>() {
-        @Override
-        public void onSuccess(@Nullable Void event) {
-
-        }
-
-        @Override
-        public void onFailure(Throwable th) {
-            log.error("Could not save debug Event for Node", th);
-        }
-    };
 
     private final ConcurrentMap<TenantId, DebugTbRateLimits> debugPerTenantLimits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Object> ruleNodeSharedResources = new ConcurrentHashMap<>();
 
     public ConcurrentMap<TenantId, DebugTbRateLimits> getDebugPerTenantLimits() {
         return debugPerTenantLimits;
@@ -339,6 +331,17 @@ public class ActorSystemContext {
     @Getter
     private SharedEventLoopGroupService sharedEventLoopGroupService;
 
+    @Autowired
+    @Getter
+    private StatsFactory statsFactory;
+
+    @Autowired
+    @Getter
+    private RuleNodeStatsService ruleNodeStatsService;
+
+    @Autowired
+    private RuleNodeDebugEventService ruleNodeDebugEventService;
+
     @Autowired
     @Getter
     private MailService mailService;
@@ -484,6 +487,18 @@ public class ActorSystemContext {
     @Getter
     private long ruleChainErrorPersistFrequency;
 
+    @Value("${actors.rule.chain.direct_routing_enabled:true}")
+    @Getter
+    private boolean ruleChainDirectRoutingEnabled;
+
+    @Value("${actors.rule.chain.max_fused_nodes:8}")
+    @Getter
+    private int maxFusedRuleNodes;
+
+    @Value("${actors.rule.chain.local_fan_out_enabled:false}")
+    @Getter
+    private boolean ruleChainLocalFanOutEnabled;
+
     @Value("${actors.rule.node.error_persist_frequency:3000}")
     @Getter
     private long ruleNodeErrorPersistFrequency;
@@ -598,6 +613,10 @@ public class ActorSystemContext {
     @Getter
     private RedisTemplate<String, Object> redisTemplate;
 
+    public <T> T getRuleNodeSharedResource(Class<T> type, Supplier<T> factory) {
+        return type.cast(ruleNodeSharedResources.computeIfAbsent(type, t -> factory.get()));
+    }
+
     public ScheduledExecutorService getScheduler() {
         return actorSystem.getScheduler();
     }
@@ -666,32 +685,8 @@ public class ActorSystemContext {
     }
 
     private void persistDebugAsync(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, String relationType, Throwable error, String failureMessage) {
-        if (checkLimits(tenantId, tbMsg, error)) {
-            try {
-                RuleNodeDebugEvent.RuleNodeDebugEventBuilder event = RuleNodeDebugEvent.builder()
-                        .tenantId(tenantId)
-                        .entityId(entityId.getId())
-                        .serviceId(getServiceId())
-                        .eventType(type)
-                        .eventEntity(tbMsg.getOriginator())
-                        .msgId(tbMsg.getId())
-                        .msgType(tbMsg.getType())
-                        .dataType(tbMsg.getDataType().name())
-                        .relationType(relationType)
-                        .data(tbMsg.getData())
-                        .metadata(JacksonUtil.toString(tbMsg.getMetaData().getData()));
-
-                if (error != null) {
-                    event.error(toString(error));
-                } else if (failureMessage != null) {
-                    event.error(failureMessage);
-                }
-
-                ListenableFuture<Void> future = eventService.saveAsync(event.build());
-                Futures.addCallback(future, RULE_NODE_DEBUG_EVENT_ERROR_CALLBACK, MoreExecutors.directExecutor());
-            } catch (IllegalArgumentException ex) {
-                log.warn("Failed to persist rule node debug message", ex);
-            }
+        if (ruleNodeDebugEventService.isSampled(tbMsg, error != null || failureMessage != null) && checkLimits(tenantId, tbMsg, error)) {
+            ruleNodeDebugEventService.persistAsync(tenantId, entityId, type, tbMsg, relationType, error, failureMessage);
         }
     }
 
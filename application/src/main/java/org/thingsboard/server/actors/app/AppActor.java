@@ -126,11 +126,14 @@ public class AppActor extends ContextAwareActor {
 
     private void initTenantActors() {
         log.info("Starting main system actor.");
+        long startTs = System.currentTimeMillis();
+        int tenantsCount = 0;
         try {
             if (systemContext.isTenantComponentsInitEnabled()) {
                 PageDataIterable<Tenant> tenantIterator = new PageDataIterable<>(tenantService::findTenants, ENTITY_PACK_LIMIT);
                 for (Tenant tenant : tenantIterator) {
                     log.debug("[{}] Creating tenant actor", tenant.getId());
+                    tenantsCount++;
                     getOrCreateTenantActor(tenant.getId()).ifPresentOrElse(tenantActor -> {
                         log.debug("[{}] Tenant actor created.", tenant.getId());
                     }, () -> {
@@ -138,7 +141,7 @@ public class AppActor extends ContextAwareActor {
                     });
                 }
             }
-            log.info("Main system actor started.");
+            log.info("Main system actor started: {} tenant actors created in {} ms.", tenantsCount, System.currentTimeMillis() - startTs);
         } catch (Exception e) {
             log.warn("Unknown failure", e);
         }
@@ -72,6 +72,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.TbMsgProcessingStackItem;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.alarm.AlarmCommentService;
 import org.thingsboard.server.dao.asset.AssetProfileService;
 import org.thingsboard.server.dao.asset.AssetService;
@@ -118,6 +119,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static org.thingsboard.server.common.data.msg.TbMsgType.ATTRIBUTES_DELETED;
 import static org.thingsboard.server.common.data.msg.TbMsgType.ATTRIBUTES_UPDATED;
@@ -159,9 +161,50 @@ class DefaultTbContext implements TbContext {
             relationTypes.forEach(relationType -> mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), msg, relationType, th));
         }
         msg.getCallback().onProcessingEnd(nodeCtx.getSelf().getId());
+        mainCtx.getRuleNodeStatsService().onProcessingEnd(nodeCtx.getSelf().getId(), msg,
+                th != null || relationTypes.contains(TbNodeConnectionType.FAILURE));
+        if (th == null && tellNextDirectly(msg, relationTypes)) {
+            return;
+        }
         nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(nodeCtx.getSelf().getRuleChainId(), nodeCtx.getSelf().getId(), relationTypes, msg, th != null ? th.getMessage() : null));
     }
 
+    /**
+     * Passes the message straight to the next rule node when the relation type leads to the single rule node
+     * of the same chain and the message belongs to the local partition. Stateless rule nodes are executed inline,
+     * others receive the message to their mailbox. Everything else (several targets, other rule chains,
+     * failures without relations, remote partitions, stopped target actors) is still routed by the rule chain actor.
+     */
+    private boolean tellNextDirectly(TbMsg msg, Set<String> relationTypes) {
+        if (!mainCtx.isRuleChainDirectRoutingEnabled() || relationTypes.size() != 1 || !msg.isValid()) {
+            return false;
+        }
+        RuleNodeRoutes routes = nodeCtx.getRoutes();
+        if (routes == null) {
+            return false;
+        }
+        String relationType = relationTypes.iterator().next();
+        RuleNodeCtx targetCtx = routes.getDirectTarget(relationType);
+        if (targetCtx == null) {
+            return false;
+        }
+        TbActorRef targetActor = targetCtx.getSelfActor();
+        if (mainCtx.getActorSystem().getActor(targetActor.getActorId()) != targetActor) {
+            // stale route: the target actor is stopped (e.g. the rule chain is being updated), so the chain actor routes the message
+            return false;
+        }
+        TopicPartitionInfo tpi = mainCtx.resolve(ServiceType.TB_RULE_ENGINE, msg.getQueueName(), nodeCtx.getTenantId(), msg.getOriginator());
+        if (!tpi.isMyPartition()) {
+            return false;
+        }
+        DefaultTbContext targetTbCtx = new DefaultTbContext(mainCtx, ruleChainName, targetCtx);
+        FusedRuleNodeLink fusedLink = targetCtx.getFusedLink();
+        if (fusedLink == null || !fusedLink.tryProcess(targetTbCtx, msg, relationType)) {
+            targetCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(targetTbCtx, msg, relationType));
+        }
+        return true;
+    }
+
     @Override
     public void tellSelf(TbMsg msg, long delayMs) {
         //TODO: add persistence layer
@@ -333,6 +376,7 @@ class DefaultTbContext implements TbContext {
             mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), tbMsg, "ACK", null);
         }
         tbMsg.getCallback().onProcessingEnd(nodeCtx.getSelf().getId());
+        mainCtx.getRuleNodeStatsService().onProcessingEnd(nodeCtx.getSelf().getId(), tbMsg, false);
         tbMsg.getCallback().onSuccess();
     }
 
@@ -350,6 +394,7 @@ class DefaultTbContext implements TbContext {
         if (nodeCtx.getSelf().isDebugMode()) {
             mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), msg, TbNodeConnectionType.FAILURE, th);
         }
+        mainCtx.getRuleNodeStatsService().onProcessingEnd(nodeCtx.getSelf().getId(), msg, true);
         String failureMessage = getFailureMessage(th);
         nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(nodeCtx.getSelf().getRuleChainId(),
                 nodeCtx.getSelf().getId(), Collections.singleton(TbNodeConnectionType.FAILURE),
@@ -783,6 +828,16 @@ class DefaultTbContext implements TbContext {
         return mainCtx.getSharedEventLoopGroupService().getSharedEventLoopGroup();
     }
 
+    @Override
+    public <T> T getSharedResource(Class<T> type, Supplier<T> factory) {
+        return mainCtx.getRuleNodeSharedResource(type, factory);
+    }
+
+    @Override
+    public StatsFactory getStatsFactory() {
+        return mainCtx.getStatsFactory();
+    }
+
     @Override
     public MailService getMailService(boolean isSystem) {
         if (!isSystem || mainCtx.isAllowSystemMailService()) {
@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.RuleNodeInfo;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted callback shared by the copies of the message that is pushed to multiple targets within the local partition.
+ * The original callback is acknowledged once all the copies are processed, or failed on the first failure of any copy.
+ * <p>
+ * Unlike the copies pushed through the queue, the copies are not retried separately: the failure of any copy fails the whole
+ * original message, so the retry strategy of the queue reprocesses all the targets, including the ones already processed.
+ * The remaining copies are skipped as soon as one of them fails, since {@link #isMsgValid()} returns false.
+ * The local fan out is disabled by default, see 'actors.rule.chain.local_fan_out_enabled'.
+ */
+class FanOutTbMsgCallback implements TbMsgCallback {
+
+    private final AtomicInteger pendingCount;
+    private final AtomicBoolean failed = new AtomicBoolean();
+    private final TbMsgCallback callback;
+
+    FanOutTbMsgCallback(int count, TbMsgCallback callback) {
+        this.pendingCount = new AtomicInteger(count);
+        this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess() {
+        if (pendingCount.decrementAndGet() == 0 && !failed.get()) {
+            callback.onSuccess();
+        }
+    }
+
+    @Override
+    public void onFailure(RuleEngineException e) {
+        if (failed.compareAndSet(false, true)) {
+            callback.onFailure(e);
+        }
+    }
+
+    @Override
+    public void onRateLimit(RuleEngineException e) {
+        if (failed.compareAndSet(false, true)) {
+            callback.onRateLimit(e);
+        }
+    }
+
+    @Override
+    public boolean isMsgValid() {
+        return !failed.get() && callback.isMsgValid();
+    }
+
+    @Override
+    public void onProcessingStart(RuleNodeInfo ruleNodeInfo) {
+        callback.onProcessingStart(ruleNodeInfo);
+    }
+
+    @Override
+    public void onProcessingEnd(RuleNodeId ruleNodeId) {
+        callback.onProcessingEnd(ruleNodeId);
+    }
+
+    int getPendingCount() {
+        return pendingCount.get();
+    }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.thingsboard.server.common.msg.TbMsg;
+
+/**
+ * Link between the rule chain and the actor of a stateless rule node (see {@link org.thingsboard.rule.engine.api.RuleNode#stateless()}).
+ * The rule node actor attaches its processor once the node is initialized and detaches it when the node is stopped or restarted.
+ * While attached, the previous rule node may execute the node inline, in its own thread, instead of the mailbox hand-off.
+ */
+final class FusedRuleNodeLink {
+
+    private volatile RuleNodeActorMessageProcessor processor;
+
+    void attach(RuleNodeActorMessageProcessor processor) {
+        this.processor = processor;
+    }
+
+    void detach(RuleNodeActorMessageProcessor processor) {
+        if (this.processor == processor) {
+            this.processor = null;
+        }
+    }
+
+    boolean tryProcess(DefaultTbContext ctx, TbMsg msg, String fromRelationType) {
+        RuleNodeActorMessageProcessor processor = this.processor;
+        return processor != null && processor.onFusedMsg(ctx, msg, fromRelationType);
+    }
+
+}
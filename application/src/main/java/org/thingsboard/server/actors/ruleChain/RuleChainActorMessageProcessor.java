@@ -70,7 +70,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     private final TbActorRef parent;
     private final TbActorRef self;
     private final Map<RuleNodeId, RuleNodeCtx> nodeActors;
-    private final Map<RuleNodeId, List<RuleNodeRelation>> nodeRoutes;
+    private final Map<RuleNodeId, RuleNodeRoutes> nodeRoutes;
     private final RuleChainService service;
     private final TbClusterService clusterService;
     private final TbApiUsageReportClient apiUsageClient;
@@ -107,8 +107,9 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                 // Creating and starting the actors;
                 for (RuleNode ruleNode : ruleNodeList) {
                     log.trace("[{}][{}] Creating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
-                    TbActorRef ruleNodeActor = createRuleNodeActor(context, ruleNode);
-                    nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode));
+                    FusedRuleNodeLink fusedLink = new FusedRuleNodeLink();
+                    TbActorRef ruleNodeActor = createRuleNodeActor(context, ruleNode, fusedLink);
+                    nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode, fusedLink));
                 }
                 initRoutes(ruleChain, ruleNodeList);
                 started = true;
@@ -129,8 +130,9 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                 RuleNodeCtx existing = nodeActors.get(ruleNode.getId());
                 if (existing == null) {
                     log.trace("[{}][{}] Creating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
-                    TbActorRef ruleNodeActor = createRuleNodeActor(context, ruleNode);
-                    nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode));
+                    FusedRuleNodeLink fusedLink = new FusedRuleNodeLink();
+                    TbActorRef ruleNodeActor = createRuleNodeActor(context, ruleNode, fusedLink);
+                    nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode, fusedLink));
                 } else {
                     log.trace("[{}][{}] Updating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
                     existing.setSelf(ruleNode);
@@ -143,6 +145,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             removedRules.forEach(ruleNodeId -> {
                 log.trace("[{}][{}] Removing rule node [{}]", tenantId, entityId, ruleNodeId);
                 RuleNodeCtx removed = nodeActors.remove(ruleNodeId);
+                removed.setRoutes(null);
                 removed.getSelfActor().tellWithHighPriority(new ComponentLifecycleMsg(tenantId, removed.getSelf().getId(), ComponentLifecycleEvent.DELETED));
             });
 
@@ -153,6 +156,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     @Override
     public void stop(TbActorCtx ctx) {
         log.trace("[{}][{}] Stopping rule chain with {} nodes", tenantId, entityId, nodeActors.size());
+        nodeActors.values().forEach(nodeCtx -> nodeCtx.setRoutes(null));
         nodeActors.values().stream().map(RuleNodeCtx::getSelfActor).map(TbActorRef::getActorId).forEach(ctx::stop);
         nodeActors.clear();
         nodeRoutes.clear();
@@ -165,35 +169,40 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         nodeActors.values().stream().map(RuleNodeCtx::getSelfActor).forEach(actorRef -> actorRef.tellWithHighPriority(msg));
     }
 
-    private TbActorRef createRuleNodeActor(TbActorCtx ctx, RuleNode ruleNode) {
+    private TbActorRef createRuleNodeActor(TbActorCtx ctx, RuleNode ruleNode, FusedRuleNodeLink fusedLink) {
         return ctx.getOrCreateChildActor(new TbEntityActorId(ruleNode.getId()),
                 () -> DefaultActorService.RULE_DISPATCHER_NAME,
-                () -> new RuleNodeActor.ActorCreator(systemContext, tenantId, entityId, ruleChainName, ruleNode.getId()),
+                () -> new RuleNodeActor.ActorCreator(systemContext, tenantId, entityId, ruleChainName, ruleNode.getId(), fusedLink),
                 () -> true);
     }
 
     private void initRoutes(RuleChain ruleChain, List<RuleNode> ruleNodeList) {
         nodeRoutes.clear();
+        nodeActors.values().forEach(nodeCtx -> nodeCtx.setRoutes(null));
         // Populating the routes map;
         for (RuleNode ruleNode : ruleNodeList) {
             List<EntityRelation> relations = service.getRuleNodeRelations(TenantId.SYS_TENANT_ID, ruleNode.getId());
             log.trace("[{}][{}][{}] Processing rule node relations [{}]", tenantId, entityId, ruleNode.getId(), relations.size());
-            if (relations.size() == 0) {
-                nodeRoutes.put(ruleNode.getId(), Collections.emptyList());
-            } else {
-                for (EntityRelation relation : relations) {
-                    log.trace("[{}][{}][{}] Processing rule node relation [{}]", tenantId, entityId, ruleNode.getId(), relation.getTo());
-                    if (relation.getTo().getEntityType() == EntityType.RULE_NODE) {
-                        RuleNodeCtx ruleNodeCtx = nodeActors.get(new RuleNodeId(relation.getTo().getId()));
-                        if (ruleNodeCtx == null) {
-                            throw new IllegalArgumentException("Rule Node [" + relation.getFrom() + "] has invalid relation to Rule node [" + relation.getTo() + "]");
-                        }
+            List<RuleNodeRelation> ruleNodeRelations = new ArrayList<>(relations.size());
+            for (EntityRelation relation : relations) {
+                log.trace("[{}][{}][{}] Processing rule node relation [{}]", tenantId, entityId, ruleNode.getId(), relation.getTo());
+                if (relation.getTo().getEntityType() == EntityType.RULE_NODE) {
+                    RuleNodeCtx ruleNodeCtx = nodeActors.get(new RuleNodeId(relation.getTo().getId()));
+                    if (ruleNodeCtx == null) {
+                        throw new IllegalArgumentException("Rule Node [" + relation.getFrom() + "] has invalid relation to Rule node [" + relation.getTo() + "]");
                     }
-                    nodeRoutes.computeIfAbsent(ruleNode.getId(), k -> new ArrayList<>())
-                            .add(new RuleNodeRelation(ruleNode.getId(), relation.getTo(), relation.getType()));
                 }
+                ruleNodeRelations.add(new RuleNodeRelation(ruleNode.getId(), relation.getTo(), relation.getType()));
             }
+            nodeRoutes.put(ruleNode.getId(), new RuleNodeRoutes(ruleNodeRelations, nodeActors::get));
         }
+        // Routes are published to the rule nodes once the whole chain is validated
+        nodeRoutes.forEach((ruleNodeId, routes) -> {
+            RuleNodeCtx nodeCtx = nodeActors.get(ruleNodeId);
+            if (nodeCtx != null) {
+                nodeCtx.setRoutes(routes);
+            }
+        });
 
         firstId = ruleChain.getFirstRuleNodeId();
         firstNode = nodeActors.get(firstId);
@@ -297,15 +306,13 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             EntityId entityId = msg.getOriginator();
             TopicPartitionInfo tpi = systemContext.resolve(ServiceType.TB_RULE_ENGINE, msg.getQueueName(), tenantId, entityId);
 
-            List<RuleNodeRelation> ruleNodeRelations = nodeRoutes.get(originatorNodeId);
-            if (ruleNodeRelations == null) { // When unchecked, this will cause NullPointerException when rule node doesn't exist anymore
+            RuleNodeRoutes ruleNodeRoutes = nodeRoutes.get(originatorNodeId);
+            if (ruleNodeRoutes == null) { // When unchecked, this will cause NullPointerException when rule node doesn't exist anymore
                 log.warn("[{}][{}][{}] No outbound relations (null). Probably rule node does not exist. Probably old message.", tenantId, entityId, msg.getId());
-                ruleNodeRelations = Collections.emptyList();
+                ruleNodeRoutes = RuleNodeRoutes.EMPTY;
             }
 
-            List<RuleNodeRelation> relationsByTypes = ruleNodeRelations.stream()
-                    .filter(r -> contains(relationTypes, r.getType()))
-                    .collect(Collectors.toList());
+            List<RuleNodeRelation> relationsByTypes = ruleNodeRoutes.getRelations(relationTypes);
             int relationsCount = relationsByTypes.size();
             if (relationsCount == 0) {
                 log.trace("[{}][{}][{}] No outbound relations to process", tenantId, entityId, msg.getId());
@@ -325,6 +332,12 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                     log.trace("[{}][{}][{}] Pushing message to single target: [{}]", tenantId, entityId, msg.getId(), relation.getOut());
                     pushToTarget(tpi, msg, relation.getOut(), relation.getType());
                 }
+            } else if (tpi.isMyPartition() && systemContext.isRuleChainLocalFanOutEnabled()) {
+                FanOutTbMsgCallback callback = new FanOutTbMsgCallback(relationsCount, msg.getCallback());
+                log.trace("[{}][{}][{}] Pushing message to multiple local targets: [{}]", tenantId, entityId, msg.getId(), relationsByTypes);
+                for (RuleNodeRelation relation : relationsByTypes) {
+                    pushToTarget(tpi, msg.copyForFanOut(UUID.randomUUID(), callback), relation.getOut(), relation.getType());
+                }
             } else {
                 MultipleTbQueueTbMsgCallbackWrapper callbackWrapper = new MultipleTbQueueTbMsgCallbackWrapper(relationsCount, msg.getCallback());
                 log.trace("[{}][{}][{}] Pushing message to multiple targets: [{}]", tenantId, entityId, msg.getId(), relationsByTypes);
@@ -376,18 +389,6 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         clusterService.pushMsgToRuleEngine(tpi, newMsg.getId(), toQueueMsg, callbackWrapper);
     }
 
-    private boolean contains(Set<String> relationTypes, String type) {
-        if (relationTypes == null) {
-            return true;
-        }
-        for (String relationType : relationTypes) {
-            if (relationType.equalsIgnoreCase(type)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void pushMsgToNode(RuleNodeCtx nodeCtx, TbMsg msg, String fromRelationType) {
         if (nodeCtx != null) {
             nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, ruleChainName, nodeCtx), msg, fromRelationType));
@@ -60,14 +60,18 @@ public abstract class RuleChainManagerActor extends ContextAwareActor {
 
     protected void initRuleChains() {
         log.debug("[{}] Initializing rule chains", tenantId);
+        long startTs = System.currentTimeMillis();
+        int ruleChainsCount = 0;
         for (RuleChain ruleChain : new PageDataIterable<>(link -> ruleChainService.findTenantRuleChainsByType(tenantId, RuleChainType.CORE, link), ContextAwareActor.ENTITY_PACK_LIMIT)) {
             RuleChainId ruleChainId = ruleChain.getId();
             log.debug("[{}|{}] Creating rule chain actor", ruleChainId.getEntityType(), ruleChain.getId());
             TbActorRef actorRef = getOrCreateActor(ruleChainId, id -> ruleChain);
             visit(ruleChain, actorRef);
             log.debug("[{}|{}] Rule Chain actor created.", ruleChainId.getEntityType(), ruleChainId.getId());
+            ruleChainsCount++;
         }
         ruleChainsInitialized = true;
+        log.info("[{}] Created {} rule chain actors in {} ms", tenantId, ruleChainsCount, System.currentTimeMillis() - startTs);
     }
 
     protected void destroyRuleChains() {
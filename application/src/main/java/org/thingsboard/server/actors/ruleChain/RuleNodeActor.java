@@ -36,17 +36,20 @@ public class RuleNodeActor extends RuleEngineComponentActor<RuleNodeId, RuleNode
     private final String ruleChainName;
     private final RuleChainId ruleChainId;
     private final RuleNodeId ruleNodeId;
+    private final FusedRuleNodeLink fusedLink;
 
-    private RuleNodeActor(ActorSystemContext systemContext, TenantId tenantId, RuleChainId ruleChainId, String ruleChainName, RuleNodeId ruleNodeId) {
+    private RuleNodeActor(ActorSystemContext systemContext, TenantId tenantId, RuleChainId ruleChainId, String ruleChainName, RuleNodeId ruleNodeId,
+                          FusedRuleNodeLink fusedLink) {
         super(systemContext, tenantId, ruleNodeId);
         this.ruleChainName = ruleChainName;
         this.ruleChainId = ruleChainId;
         this.ruleNodeId = ruleNodeId;
+        this.fusedLink = fusedLink;
     }
 
     @Override
     protected RuleNodeActorMessageProcessor createProcessor(TbActorCtx ctx) {
-        return new RuleNodeActorMessageProcessor(tenantId, this.ruleChainName, ruleNodeId, systemContext, ctx.getParentRef(), ctx);
+        return new RuleNodeActorMessageProcessor(tenantId, this.ruleChainName, ruleNodeId, systemContext, ctx.getParentRef(), ctx, fusedLink);
     }
 
     @Override
@@ -63,6 +66,9 @@ public class RuleNodeActor extends RuleEngineComponentActor<RuleNodeId, RuleNode
                 onRuleNodeToSelfMsg((RuleNodeToSelfMsg) msg);
                 break;
             case STATS_PERSIST_TICK_MSG:
+                if (processor != null) {
+                    increaseMessagesProcessedCount(processor.getAndResetFusedMsgCount());
+                }
                 onStatsPersistTick(id);
                 break;
             case PARTITION_CHANGE_MSG:
@@ -111,14 +117,16 @@ public class RuleNodeActor extends RuleEngineComponentActor<RuleNodeId, RuleNode
         private final RuleChainId ruleChainId;
         private final String ruleChainName;
         private final RuleNodeId ruleNodeId;
+        private final FusedRuleNodeLink fusedLink;
 
-        public ActorCreator(ActorSystemContext context, TenantId tenantId, RuleChainId ruleChainId, String ruleChainName, RuleNodeId ruleNodeId) {
+        public ActorCreator(ActorSystemContext context, TenantId tenantId, RuleChainId ruleChainId, String ruleChainName, RuleNodeId ruleNodeId,
+                            FusedRuleNodeLink fusedLink) {
             super(context);
             this.tenantId = tenantId;
             this.ruleChainId = ruleChainId;
             this.ruleChainName = ruleChainName;
             this.ruleNodeId = ruleNodeId;
-
+            this.fusedLink = fusedLink;
         }
 
         @Override
@@ -128,7 +136,7 @@ public class RuleNodeActor extends RuleEngineComponentActor<RuleNodeId, RuleNode
 
         @Override
         public TbActor createActor() {
-            return new RuleNodeActor(context, tenantId, ruleChainId, ruleChainName, ruleNodeId);
+            return new RuleNodeActor(context, tenantId, ruleChainId, ruleChainName, ruleNodeId, fusedLink);
         }
     }
 
@@ -36,6 +36,9 @@ import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.service.stats.RuleNodeStats;
+
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Andrew Shvayka
@@ -43,21 +46,34 @@ import org.thingsboard.server.gen.transport.TransportProtos;
 @Slf4j
 public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNodeId> {
 
+    /**
+     * Number of rule nodes that are executing the message in the current thread: 0 outside the rule node actor turn,
+     * 1 while the actor processes the message and +1 for each stateless rule node executed inline.
+     */
+    private static final ThreadLocal<int[]> FUSED_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
     private final String ruleChainName;
     private final TbApiUsageReportClient apiUsageClient;
     private final DefaultTbContext defaultCtx;
+    private final FusedRuleNodeLink fusedLink;
+    private final TbActorRef self;
+    private final LongAdder fusedMsgCount = new LongAdder();
     private RuleNode ruleNode;
     private TbNode tbNode;
     private RuleNodeInfo info;
+    private volatile FusedRuleNode fusedNode;
+    private RuleNodeStats stats;
 
     RuleNodeActorMessageProcessor(TenantId tenantId, String ruleChainName, RuleNodeId ruleNodeId, ActorSystemContext systemContext
-            , TbActorRef parent, TbActorRef self) {
+            , TbActorRef parent, TbActorRef self, FusedRuleNodeLink fusedLink) {
         super(systemContext, tenantId, ruleNodeId);
         this.apiUsageClient = systemContext.getApiUsageClient();
         this.ruleChainName = ruleChainName;
         this.ruleNode = systemContext.getRuleChainService().findRuleNodeById(tenantId, entityId);
         this.defaultCtx = new DefaultTbContext(systemContext, ruleChainName, new RuleNodeCtx(tenantId, parent, self, ruleNode));
         this.info = new RuleNodeInfo(ruleNodeId, ruleChainName, ruleNode != null ? ruleNode.getName() : "Unknown");
+        this.fusedLink = fusedLink;
+        this.self = self;
     }
 
     @Override
@@ -68,6 +84,8 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             if (tbNode != null) {
                 state = ComponentLifecycleState.ACTIVE;
             }
+            stats = systemContext.getRuleNodeStatsService().register(tenantId, ruleChainName, ruleNode, self);
+            updateFusedNode();
         }
     }
 
@@ -81,6 +99,7 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             this.ruleNode = newRuleNode;
             this.defaultCtx.updateSelf(newRuleNode);
             if (restartRequired) {
+                disableFusedNode();
                 if (tbNode != null) {
                     tbNode.destroy();
                 }
@@ -89,6 +108,9 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
                 } catch (Exception e) {
                     throw new TbRuleNodeUpdateException("Failed to update rule node", e);
                 }
+            } else {
+                stats = systemContext.getRuleNodeStatsService().register(tenantId, ruleChainName, ruleNode, self);
+                updateFusedNode();
             }
         } else if (tbNode != null) {
             stop(null);
@@ -99,10 +121,15 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
     @Override
     public void stop(TbActorCtx context) {
         log.debug("[{}][{}] Stopping", tenantId, entityId);
+        disableFusedNode();
         if (tbNode != null) {
             tbNode.destroy();
             state = ComponentLifecycleState.SUSPENDED;
         }
+        if (stats != null) {
+            systemContext.getRuleNodeStatsService().unregister(entityId);
+            stats = null;
+        }
     }
 
     @Override
@@ -130,10 +157,17 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             if (ruleNode.isDebugMode()) {
                 systemContext.persistDebugInput(tenantId, entityId, msg.getMsg(), "Self");
             }
+            if (stats != null) {
+                stats.onProcessingStart(tbMsg);
+            }
+            int[] depth = FUSED_DEPTH.get();
+            depth[0]++;
             try {
                 tbNode.onMsg(defaultCtx, msg.getMsg());
             } catch (Exception e) {
                 defaultCtx.tellFailure(msg.getMsg(), e);
+            } finally {
+                depth[0]--;
             }
         } else {
             tbMsg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, ruleNode));
@@ -154,10 +188,17 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
                 if (ruleNode.isDebugMode()) {
                     systemContext.persistDebugInput(tenantId, entityId, msg.getMsg(), msg.getFromRelationType());
                 }
+                if (stats != null) {
+                    stats.onProcessingStart(tbMsg);
+                }
+                int[] depth = FUSED_DEPTH.get();
+                depth[0]++;
                 try {
                     tbNode.onMsg(msg.getCtx(), msg.getMsg());
                 } catch (Exception e) {
                     msg.getCtx().tellFailure(msg.getMsg(), e);
+                } finally {
+                    depth[0]--;
                 }
             } else {
                 tbMsg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, ruleNode));
@@ -165,6 +206,76 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
         }
     }
 
+    /**
+     * Executes the stateless rule node in the thread of the previous rule node. Called outside the actor,
+     * so only the immutable snapshot of the node is used.
+     *
+     * @return false if the message has to be passed to the rule node actor instead
+     */
+    boolean onFusedMsg(DefaultTbContext ctx, TbMsg tbMsg, String fromRelationType) {
+        FusedRuleNode fusedNode = this.fusedNode;
+        if (fusedNode == null) {
+            return false;
+        }
+        int[] depth = FUSED_DEPTH.get();
+        if (depth[0] == 0 || depth[0] > systemContext.getMaxFusedRuleNodes()) {
+            return false;
+        }
+        tbMsg.getCallback().onProcessingStart(fusedNode.info());
+        int ruleNodeCount = tbMsg.getAndIncrementRuleNodeCounter();
+        int maxRuleNodeExecutionsPerMessage = getTenantProfileConfiguration().getMaxRuleNodeExecsPerMessage();
+        if (maxRuleNodeExecutionsPerMessage == 0 || ruleNodeCount < maxRuleNodeExecutionsPerMessage) {
+            apiUsageClient.report(tenantId, tbMsg.getCustomerId(), ApiUsageRecordKey.RE_EXEC_COUNT);
+            if (fusedNode.ruleNode().isDebugMode()) {
+                systemContext.persistDebugInput(tenantId, entityId, tbMsg, fromRelationType);
+            }
+            if (fusedNode.stats() != null) {
+                fusedNode.stats().onProcessingStart(tbMsg);
+            }
+            depth[0]++;
+            try {
+                fusedNode.tbNode().onMsg(ctx, tbMsg);
+            } catch (Exception e) {
+                ctx.tellFailure(tbMsg, e);
+            } finally {
+                depth[0]--;
+            }
+            fusedMsgCount.increment();
+        } else {
+            tbMsg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, fusedNode.ruleNode()));
+        }
+        return true;
+    }
+
+    long getAndResetFusedMsgCount() {
+        return fusedMsgCount.sumThenReset();
+    }
+
+    private void updateFusedNode() {
+        if (fusedLink == null) {
+            return;
+        }
+        if (state == ComponentLifecycleState.ACTIVE && tbNode != null && ruleNode != null && !ruleNode.isSingletonMode()
+                && isStateless(tbNode.getClass())) {
+            fusedNode = new FusedRuleNode(tbNode, ruleNode, info, stats);
+            fusedLink.attach(this);
+        } else {
+            disableFusedNode();
+        }
+    }
+
+    private void disableFusedNode() {
+        fusedNode = null;
+        if (fusedLink != null) {
+            fusedLink.detach(this);
+        }
+    }
+
+    private static boolean isStateless(Class<?> nodeClass) {
+        org.thingsboard.rule.engine.api.RuleNode annotation = nodeClass.getAnnotation(org.thingsboard.rule.engine.api.RuleNode.class);
+        return annotation != null && annotation.stateless();
+    }
+
     @Override
     public String getComponentName() {
         return ruleNode.getName();
@@ -199,6 +310,9 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
         return result;
     }
 
+    private record FusedRuleNode(TbNode tbNode, RuleNode ruleNode, RuleNodeInfo info, RuleNodeStats stats) {
+    }
+
     //Message will return after processing. See RuleChainActorMessageProcessor.pushToTarget.
     private void putToNodePartition(TbMsg source) {
         TbMsg tbMsg = TbMsg.newMsg(source, source.getQueueName(), source.getRuleChainId(), entityId);
@@ -15,8 +15,9 @@
  */
 package org.thingsboard.server.actors.ruleChain;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.rule.RuleNode;
@@ -25,10 +26,33 @@ import org.thingsboard.server.common.data.rule.RuleNode;
  * Created by ashvayka on 19.03.18.
  */
 @Data
-@AllArgsConstructor
 final class RuleNodeCtx {
     private final TenantId tenantId;
     private final TbActorRef chainActor;
     private final TbActorRef selfActor;
     private RuleNode self;
+    /**
+     * Outbound routes published by the rule chain actor. Null while the rule chain is not active.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile RuleNodeRoutes routes;
+    /**
+     * Link to the processor of the stateless rule node. Null if the context is not created by the rule chain actor.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final FusedRuleNodeLink fusedLink;
+
+    RuleNodeCtx(TenantId tenantId, TbActorRef chainActor, TbActorRef selfActor, RuleNode self) {
+        this(tenantId, chainActor, selfActor, self, null);
+    }
+
+    RuleNodeCtx(TenantId tenantId, TbActorRef chainActor, TbActorRef selfActor, RuleNode self, FusedRuleNodeLink fusedLink) {
+        this.tenantId = tenantId;
+        this.chainActor = chainActor;
+        this.selfActor = selfActor;
+        this.self = self;
+        this.fusedLink = fusedLink;
+    }
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Immutable outbound routes of a single rule node, grouped by the relation type (case-insensitive).
+ * Rebuilt by the rule chain actor each time the chain is (re)initialized.
+ * <p>
+ * Relation types that lead to exactly one rule node of the same chain are resolved to the target node context,
+ * so that the rule node is able to pass the message to the next node without the hop through the rule chain actor.
+ */
+final class RuleNodeRoutes {
+
+    static final RuleNodeRoutes EMPTY = new RuleNodeRoutes(Collections.emptyList(), id -> null);
+
+    private final List<RuleNodeRelation> relations;
+    private final Map<String, List<RuleNodeRelation>> relationsByType;
+    private final Map<String, RuleNodeCtx> directTargets;
+
+    RuleNodeRoutes(List<RuleNodeRelation> relations, Function<RuleNodeId, RuleNodeCtx> ruleNodeResolver) {
+        this.relations = List.copyOf(relations);
+        Map<String, List<RuleNodeRelation>> byType = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (RuleNodeRelation relation : relations) {
+            byType.computeIfAbsent(relation.getType(), type -> new ArrayList<>()).add(relation);
+        }
+        Map<String, List<RuleNodeRelation>> relationsByType = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, RuleNodeCtx> directTargets = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        byType.forEach((type, typeRelations) -> {
+            relationsByType.put(type, List.copyOf(typeRelations));
+            if (typeRelations.size() == 1 && typeRelations.get(0).getOut().getEntityType() == EntityType.RULE_NODE) {
+                RuleNodeCtx target = ruleNodeResolver.apply(new RuleNodeId(typeRelations.get(0).getOut().getId()));
+                if (target != null) {
+                    directTargets.put(type, target);
+                }
+            }
+        });
+        this.relationsByType = Collections.unmodifiableMap(relationsByType);
+        this.directTargets = Collections.unmodifiableMap(directTargets);
+    }
+
+    List<RuleNodeRelation> getRelations(Set<String> relationTypes) {
+        if (relationTypes == null) {
+            return relations;
+        }
+        if (relationTypes.size() == 1) {
+            return relationsByType.getOrDefault(relationTypes.iterator().next(), Collections.emptyList());
+        }
+        List<RuleNodeRelation> result = new ArrayList<>();
+        for (RuleNodeRelation relation : relations) {
+            for (String relationType : relationTypes) {
+                if (relationType.equalsIgnoreCase(relation.getType())) {
+                    result.add(relation);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the context of the only rule node connected with the given relation type,
+     * or null if the message has to be routed by the rule chain actor (no relations, several targets or another rule chain).
+     */
+    RuleNodeCtx getDirectTarget(String relationType) {
+        return directTargets.get(relationType);
+    }
+
+}
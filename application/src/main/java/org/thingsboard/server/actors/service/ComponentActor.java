@@ -156,6 +156,10 @@ public abstract class ComponentActor<T extends EntityId, P extends ComponentMsgP
         messagesProcessed++;
     }
 
+    protected void increaseMessagesProcessedCount(long count) {
+        messagesProcessed += count;
+    }
+
     protected void logAndPersist(String method, Exception e) {
         logAndPersist(method, e, false);
     }
@@ -47,6 +47,7 @@ import org.thingsboard.server.actors.tenant.DebugTbRateLimits;
 import org.thingsboard.server.common.data.EventInfo;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.edge.Edge;
+import org.thingsboard.server.common.data.exception.ThingsboardErrorCode;
 import org.thingsboard.server.common.data.exception.ThingsboardException;
 import org.thingsboard.server.common.data.id.AssetProfileId;
 import org.thingsboard.server.common.data.id.EdgeId;
@@ -76,6 +77,8 @@ import org.thingsboard.server.service.script.RuleNodeJsScriptEngine;
 import org.thingsboard.server.service.script.RuleNodeTbelScriptEngine;
 import org.thingsboard.server.service.security.permission.Operation;
 import org.thingsboard.server.service.security.permission.Resource;
+import org.thingsboard.server.service.stats.RuleNodeStatsInfo;
+import org.thingsboard.server.service.stats.RuleNodeStatsService;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -152,6 +155,9 @@ public class RuleChainController extends BaseController {
     @Autowired(required = false)
     private ActorSystemContext actorContext;
 
+    @Autowired
+    private RuleNodeStatsService ruleNodeStatsService;
+
     @Value("${actors.rule.chain.debug_mode_rate_limits_per_tenant.enabled}")
     private boolean debugPerTenantEnabled;
 
@@ -345,6 +351,31 @@ public class RuleChainController extends BaseController {
                 .map(EventInfo::getBody).orElse(null);
     }
 
+    @ApiOperation(value = "Get rule node stats (getRuleNodeStats)",
+            notes = "Returns the processing stats of the rule nodes of the tenant that are active on this server: " +
+                    "number of invocations and failures, latency histogram and the number of messages in the rule node mailbox. " +
+                    "The latency is measured from the start of the message processing by the rule node till the rule node passes " +
+                    "the message further or acknowledges it, in milliseconds. The stats are accumulated since the start of the rule node." + TENANT_AUTHORITY_PARAGRAPH)
+    @PreAuthorize("hasAuthority('TENANT_ADMIN')")
+    @RequestMapping(value = "/ruleNodes/stats", method = RequestMethod.GET)
+    @ResponseBody
+    public List<RuleNodeStatsInfo> getRuleNodeStats(
+            @Parameter(description = "Property to sort the rule nodes in descending order",
+                    schema = @Schema(allowableValues = {"totalLatency", "avgLatency", "p99Latency", "maxLatency", "invocations", "failures", "queueSize"}))
+            @RequestParam(required = false, defaultValue = "totalLatency") String sortProperty,
+            @Parameter(description = "Max number of the rule nodes to return")
+            @RequestParam(required = false, defaultValue = "20") int limit) throws ThingsboardException {
+        if (!ruleNodeStatsService.getSortProperties().contains(sortProperty)) {
+            throw new ThingsboardException("Unsupported sort property: " + sortProperty + ". Supported: " +
+                    ruleNodeStatsService.getSortProperties(), ThingsboardErrorCode.BAD_REQUEST_PARAMS);
+        }
+        if (limit <= 0) {
+            throw new ThingsboardException("Limit must be positive!", ThingsboardErrorCode.BAD_REQUEST_PARAMS);
+        }
+        TenantId tenantId = getCurrentUser().getTenantId();
+        return ruleNodeStatsService.getStats(tenantId, sortProperty, limit);
+    }
+
     @ApiOperation(value = "Is TBEL script executor enabled",
             notes = "Returns 'True' if the TBEL script execution is enabled" + TENANT_AUTHORITY_PARAGRAPH)
     @PreAuthorize("hasAuthority('TENANT_ADMIN')")
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.controller.plugin;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
@@ -63,10 +64,13 @@ import org.thingsboard.server.service.ws.WebSocketSessionType;
 import org.thingsboard.server.service.ws.WsCommandsWrapper;
 import org.thingsboard.server.service.ws.notification.cmd.NotificationCmdsWrapper;
 import org.thingsboard.server.service.ws.telemetry.cmd.TelemetryCmdsWrapper;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.security.InvalidParameterException;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
@@ -108,6 +112,8 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     private int wsMaxQueueMessagesPerSession;
     @Value("${server.ws.auth_timeout_ms:10000}")
     private int authTimeoutMs;
+    @Value("${server.ws.conflation_queue_messages_per_session:100}")
+    private int wsConflationQueueMessagesPerSession;
 
     private final ConcurrentMap<String, WebSocketSessionRef> blacklistedSessions = new ConcurrentHashMap<>();
 
@@ -118,6 +124,15 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
 
     private Cache<String, SessionMetaData> pendingSessions;
 
+    /**
+     * Serialized telemetry data, shared by the updates of all sessions subscribed to the same entity and keys.
+     * Keys are compared by identity and are weakly referenced, so the entries go away together with the update.
+     */
+    private final Cache<Map<String, List<Object>>, SerializedTelemetryData> serializedTelemetryData = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10000)
+            .build();
+
     @PostConstruct
     private void init() {
         pendingSessions = Caffeine.newBuilder()
@@ -351,6 +366,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         final AtomicBoolean isSending = new AtomicBoolean(false);
         private final Queue<TbWebSocketMsg<?>> outboundMsgQueue = new ConcurrentLinkedQueue<>();
         private final AtomicInteger outboundMsgQueueSize = new AtomicInteger();
+        private final ConcurrentMap<Integer, TbWebSocketTelemetryMsg> pendingTelemetryMsgs = new ConcurrentHashMap<>();
         @Setter
         private int maxMsgQueueSize = wsMaxQueueMessagesPerSession;
 
@@ -390,6 +406,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                 log.trace("{} Session transport error", sessionRef, ioe);
             } finally {
                 outboundMsgQueue.clear();
+                pendingTelemetryMsgs.clear();
             }
         }
 
@@ -412,11 +429,28 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             }
         }
 
+        /**
+         * Once the session falls behind, the update is merged into the not yet sent update of the same subscription
+         * instead of growing the queue. For latest values subscriptions a slow session receives the latest values
+         * rather than every intermediate one, time series subscriptions receive all data points in fewer messages.
+         */
+        void sendTelemetryUpdate(int subscriptionId, TelemetrySubscriptionUpdate update, boolean latestValues) {
+            if (outboundMsgQueueSize.get() >= Math.min(wsConflationQueueMessagesPerSession, maxMsgQueueSize / 2)) {
+                TbWebSocketTelemetryMsg pending = pendingTelemetryMsgs.get(subscriptionId);
+                if (pending != null && pending.merge(update)) {
+                    log.trace("{} Merged update into pending update of subscription [{}]", sessionRef, subscriptionId);
+                    return;
+                }
+            }
+            TbWebSocketTelemetryMsg msg = new TbWebSocketTelemetryMsg(subscriptionId, update, latestValues, TbWebSocketHandler.this::toJson);
+            pendingTelemetryMsgs.put(subscriptionId, msg);
+            sendMsg(msg);
+        }
+
         private void sendMsgInternal(TbWebSocketMsg<?> msg) {
             try {
                 if (TbWebSocketMsgType.TEXT.equals(msg.getType())) {
-                    TbWebSocketTextMsg textMsg = (TbWebSocketTextMsg) msg;
-                    this.asyncRemote.sendText(textMsg.getMsg(), this);
+                    this.asyncRemote.sendText((String) msg.getMsg(), this);
                     // isSending status will be reset in the onResult method by call back
                 } else {
                     TbWebSocketPingMsg pingMsg = (TbWebSocketPingMsg) msg;
@@ -449,6 +483,9 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             TbWebSocketMsg<?> msg = outboundMsgQueue.poll();
             if (msg != null) {
                 outboundMsgQueueSize.decrementAndGet();
+                if (msg instanceof TbWebSocketTelemetryMsg telemetryMsg) {
+                    pendingTelemetryMsgs.remove(telemetryMsg.getSubscriptionId(), telemetryMsg);
+                }
                 sendMsgInternal(msg);
             } else {
                 isSending.set(false);
@@ -481,6 +518,22 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     @Override
     public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
         log.debug("{} Sending {}", sessionRef, msg);
+        SessionMetaData sessionMd = getSessionMdForUpdate(sessionRef, subscriptionId);
+        if (sessionMd != null) {
+            sessionMd.sendMsg(msg);
+        }
+    }
+
+    @Override
+    public void send(WebSocketSessionRef sessionRef, int subscriptionId, TelemetrySubscriptionUpdate update, boolean latestValues) throws IOException {
+        log.debug("{} Sending {}", sessionRef, update);
+        SessionMetaData sessionMd = getSessionMdForUpdate(sessionRef, subscriptionId);
+        if (sessionMd != null) {
+            sessionMd.sendTelemetryUpdate(subscriptionId, update, latestValues);
+        }
+    }
+
+    private SessionMetaData getSessionMdForUpdate(WebSocketSessionRef sessionRef, int subscriptionId) {
         String externalId = sessionRef.getSessionId();
         String internalId = externalSessionMap.get(externalId);
         if (internalId != null) {
@@ -492,20 +545,36 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                         log.info("{} Failed to process session update. Max session updates limit reached", sessionRef);
                         sessionMd.sendMsg("{\"subscriptionId\":" + subscriptionId + ", \"errorCode\":" + ThingsboardErrorCode.TOO_MANY_UPDATES.getErrorCode() + ", \"errorMsg\":\"Too many updates!\"}");
                     }
-                    return;
+                    return null;
                 } else {
                     log.debug("{} Session is no longer blacklisted.", sessionRef);
                     blacklistedSessions.remove(externalId);
                 }
-                sessionMd.sendMsg(msg);
+                return sessionMd;
             } else {
                 log.warn("[{}][{}] Failed to find session by internal id", externalId, internalId);
             }
         } else {
             log.warn("[{}] Failed to find session by external id", externalId);
         }
+        return null;
     }
 
+    String toJson(TelemetrySubscriptionUpdate update) {
+        if (update.getErrorCode() != 0 || update.getData() == null) {
+            return JacksonUtil.toString(update);
+        }
+        SerializedTelemetryData data = serializedTelemetryData.get(update.getData(), tmp ->
+                new SerializedTelemetryData(JacksonUtil.toString(update.getData()), JacksonUtil.toString(update.getLatestValues())));
+        return JacksonUtil.toString(new SerializedTelemetryUpdate(update.getSubscriptionId(), update.getErrorCode(),
+                update.getErrorMsg(), data.data(), data.latestValues()));
+    }
+
+    private record SerializedTelemetryData(String data, String latestValues) {}
+
+    private record SerializedTelemetryUpdate(int subscriptionId, int errorCode, String errorMsg,
+                                             @JsonRawValue String data, @JsonRawValue String latestValues) {}
+
     @Override
     public void sendPing(WebSocketSessionRef sessionRef, long currentTime) throws IOException {
         String externalId = sessionRef.getSessionId();
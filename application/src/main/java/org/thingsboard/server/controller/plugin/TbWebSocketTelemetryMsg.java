@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.controller.plugin;
+
+import lombok.Getter;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Telemetry update that is serialized only when it is sent to the session.
+ * Until then, newer updates of the same subscription may be merged into it. Latest values and attribute
+ * subscriptions keep the latest value per key, time series subscriptions keep all data points.
+ */
+public class TbWebSocketTelemetryMsg implements TbWebSocketMsg<String> {
+
+    @Getter
+    private final int subscriptionId;
+    private final boolean latestValues;
+    private final Function<TelemetrySubscriptionUpdate, String> serializer;
+
+    private TelemetrySubscriptionUpdate update;
+    private boolean taken;
+
+    public TbWebSocketTelemetryMsg(int subscriptionId, TelemetrySubscriptionUpdate update, boolean latestValues,
+                                   Function<TelemetrySubscriptionUpdate, String> serializer) {
+        this.subscriptionId = subscriptionId;
+        this.update = update;
+        this.latestValues = latestValues;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public TbWebSocketMsgType getType() {
+        return TbWebSocketMsgType.TEXT;
+    }
+
+    @Override
+    public String getMsg() {
+        TelemetrySubscriptionUpdate current;
+        synchronized (this) {
+            taken = true;
+            current = update;
+        }
+        return serializer.apply(current);
+    }
+
+    /**
+     * Merges the newer update into this message if the message was not taken for sending yet.
+     *
+     * @return true if the newer update was merged and should not be sent separately
+     */
+    public synchronized boolean merge(TelemetrySubscriptionUpdate newer) {
+        if (taken || !isDataUpdate(update) || !isDataUpdate(newer)) {
+            return false;
+        }
+        Map<String, List<Object>> data = new TreeMap<>(update.getData());
+        if (latestValues) {
+            data.putAll(newer.getData());
+        } else {
+            newer.getData().forEach((key, values) -> data.merge(key, values, (current, added) -> {
+                List<Object> merged = new ArrayList<>(current.size() + added.size());
+                merged.addAll(current);
+                merged.addAll(added);
+                return merged;
+            }));
+        }
+        update = new TelemetrySubscriptionUpdate(subscriptionId, data);
+        return true;
+    }
+
+    private static boolean isDataUpdate(TelemetrySubscriptionUpdate update) {
+        return update.getErrorCode() == 0 && update.getData() != null;
+    }
+
+}
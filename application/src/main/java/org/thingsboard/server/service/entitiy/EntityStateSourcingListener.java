@@ -176,6 +176,7 @@ public class EntityStateSourcingListener {
                 && event.getEntity() instanceof DeviceCredentials) {
             tbClusterService.pushMsgToCore(new DeviceCredentialsUpdateNotificationMsg(event.getTenantId(),
                     (DeviceId) event.getEntityId(), (DeviceCredentials) event.getEntity()), null);
+            tbClusterService.onDeviceCredentialsUpdated(event.getTenantId(), (DeviceId) event.getEntityId(), null);
         } else if (ActionType.ASSIGNED_TO_TENANT.equals(event.getActionType()) && event.getEntity() instanceof Device device) {
             Tenant tenant = JacksonUtil.fromString(event.getBody(), Tenant.class);
             if (tenant != null) {
@@ -24,7 +24,6 @@ import jakarta.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.Customer;
 import org.thingsboard.server.common.data.EntityType;
@@ -42,6 +41,7 @@ import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.page.PageDataIterable;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
 import org.thingsboard.server.dao.attributes.AttributesService;
@@ -71,7 +71,11 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
     private final TelemetrySubscriptionService tsSubService;
     private final TimeseriesService tsService;
 
-    final Map<TenantId, Map<EntityId, List<EntityView>>> localCache = new ConcurrentHashMap<>();
+    /*
+     * Entity views of the tenant by the id of their target entity. Loaded once per tenant on first use
+     * and maintained on entity view changes, so the lookup for entities without views does not hit the database.
+     */
+    final Map<TenantId, ListenableFuture<Map<EntityId, List<EntityView>>>> entityViewsByTenant = new ConcurrentHashMap<>();
 
     @Override
     public EntityView save(EntityView entityView, EntityView existingEntityView, User user) throws Exception {
@@ -83,7 +87,7 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
             autoCommit(user, savedEntityView.getId());
             logEntityActionService.logEntityAction(savedEntityView.getTenantId(), savedEntityView.getId(), savedEntityView,
                     null, actionType, user);
-            localCache.computeIfAbsent(savedEntityView.getTenantId(), (k) -> new ConcurrentReferenceHashMap<>()).clear();
+            onEntityViewUpdated(savedEntityView.getTenantId(), savedEntityView.getId(), savedEntityView);
             return savedEntityView;
         } catch (Exception e) {
             logEntityActionService.logEntityAction(user.getTenantId(), emptyId(EntityType.ENTITY_VIEW), entityView, actionType, user, e);
@@ -131,7 +135,7 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
             logEntityActionService.logEntityAction(tenantId, entityViewId, entityView, entityView.getCustomerId(),
                     ActionType.DELETED, user, entityViewId.toString());
 
-            localCache.computeIfAbsent(tenantId, (k) -> new ConcurrentReferenceHashMap<>()).clear();
+            onEntityViewUpdated(tenantId, entityViewId, null);
         } catch (Exception e) {
             logEntityActionService.logEntityAction(tenantId, emptyId(EntityType.ENTITY_VIEW),
                     ActionType.DELETED, user, e, entityViewId.toString());
@@ -223,47 +227,89 @@ public class DefaultTbEntityViewService extends AbstractTbEntityService implemen
 
     @Override
     public ListenableFuture<List<EntityView>> findEntityViewsByTenantIdAndEntityIdAsync(TenantId tenantId, EntityId entityId) {
-        Map<EntityId, List<EntityView>> localCacheByTenant = localCache.computeIfAbsent(tenantId, (k) -> new ConcurrentReferenceHashMap<>());
-        List<EntityView> fromLocalCache = localCacheByTenant.get(entityId);
-        if (fromLocalCache != null) {
-            return Futures.immediateFuture(fromLocalCache);
+        ListenableFuture<Map<EntityId, List<EntityView>>> entityViewsFuture = entityViewsByTenant.computeIfAbsent(tenantId, this::loadEntityViews);
+        if (entityViewsFuture.isDone()) {
+            try {
+                return Futures.immediateFuture(getEntityViews(Futures.getDone(entityViewsFuture), entityId));
+            } catch (ExecutionException e) {
+                log.warn("[{}] Failed to load entity views", tenantId, e);
+                entityViewsByTenant.remove(tenantId, entityViewsFuture);
+                return entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, entityId);
+            }
         }
-
-        ListenableFuture<List<EntityView>> future = entityViewService.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, entityId);
-
-        return Futures.transform(future, (entityViewList) -> {
-            localCacheByTenant.put(entityId, entityViewList);
-            return entityViewList;
-        }, MoreExecutors.directExecutor());
+        return Futures.transformAsync(entityViewsFuture, entityViews -> Futures.immediateFuture(getEntityViews(entityViews, entityId)),
+                MoreExecutors.directExecutor());
     }
 
     @Override
     public void onComponentLifecycleMsg(ComponentLifecycleMsg componentLifecycleMsg) {
-        Map<EntityId, List<EntityView>> localCacheByTenant = localCache.computeIfAbsent(componentLifecycleMsg.getTenantId(), (k) -> new ConcurrentReferenceHashMap<>());
-        EntityViewId entityViewId = new EntityViewId(componentLifecycleMsg.getEntityId().getId());
-        deleteOldCacheValue(localCacheByTenant, entityViewId);
-        if (componentLifecycleMsg.getEvent() != ComponentLifecycleEvent.DELETED) {
-            EntityView entityView = entityViewService.findEntityViewById(componentLifecycleMsg.getTenantId(), entityViewId);
-            if (entityView != null) {
-                localCacheByTenant.remove(entityView.getEntityId());
+        TenantId tenantId = componentLifecycleMsg.getTenantId();
+        if (EntityType.TENANT.equals(componentLifecycleMsg.getEntityId().getEntityType())) {
+            if (componentLifecycleMsg.getEvent() == ComponentLifecycleEvent.DELETED) {
+                entityViewsByTenant.remove(tenantId);
             }
+            return;
         }
+        EntityViewId entityViewId = new EntityViewId(componentLifecycleMsg.getEntityId().getId());
+        EntityView entityView = null;
+        if (componentLifecycleMsg.getEvent() != ComponentLifecycleEvent.DELETED && entityViewsByTenant.containsKey(tenantId)) {
+            entityView = entityViewService.findEntityViewById(tenantId, entityViewId);
+        }
+        onEntityViewUpdated(tenantId, entityViewId, entityView);
     }
 
-    private void deleteOldCacheValue(Map<EntityId, List<EntityView>> localCacheByTenant, EntityViewId entityViewId) {
-        for (var entry : localCacheByTenant.entrySet()) {
-            EntityView toDelete = null;
-            for (EntityView view : entry.getValue()) {
-                if (entityViewId.equals(view.getId())) {
-                    toDelete = view;
-                    break;
-                }
-            }
-            if (toDelete != null) {
-                entry.getValue().remove(toDelete);
-                break;
+    private ListenableFuture<Map<EntityId, List<EntityView>>> loadEntityViews(TenantId tenantId) {
+        return dbExecutor.executeAsync(() -> {
+            Map<EntityId, List<EntityView>> entityViews = new ConcurrentHashMap<>();
+            for (EntityView entityView : new PageDataIterable<>(pageLink -> entityViewService.findEntityViewByTenantId(tenantId, pageLink), 1024)) {
+                entityViews.compute(entityView.getEntityId(), (id, views) -> addEntityView(views, entityView));
             }
+            log.debug("[{}] Loaded entity views of {} entities", tenantId, entityViews.size());
+            return entityViews;
+        });
+    }
+
+    private void onEntityViewUpdated(TenantId tenantId, EntityViewId entityViewId, EntityView entityView) {
+        ListenableFuture<Map<EntityId, List<EntityView>>> entityViewsFuture = entityViewsByTenant.get(tenantId);
+        if (entityViewsFuture == null) {
+            return;
+        }
+        if (!entityViewsFuture.isDone()) {
+            // the update may be missed by the ongoing load, so the entity views are loaded again on next use
+            entityViewsByTenant.remove(tenantId, entityViewsFuture);
+            return;
+        }
+        Map<EntityId, List<EntityView>> entityViews;
+        try {
+            entityViews = Futures.getDone(entityViewsFuture);
+        } catch (ExecutionException e) {
+            entityViewsByTenant.remove(tenantId, entityViewsFuture);
+            return;
+        }
+        for (EntityId entityId : entityViews.keySet()) {
+            entityViews.computeIfPresent(entityId, (id, views) -> removeEntityView(views, entityViewId));
+        }
+        if (entityView != null) {
+            entityViews.compute(entityView.getEntityId(), (id, views) -> addEntityView(views, entityView));
+        }
+    }
+
+    private static List<EntityView> getEntityViews(Map<EntityId, List<EntityView>> entityViews, EntityId entityId) {
+        return entityViews.getOrDefault(entityId, Collections.emptyList());
+    }
+
+    private static List<EntityView> addEntityView(List<EntityView> views, EntityView entityView) {
+        List<EntityView> result = views != null ? new ArrayList<>(views) : new ArrayList<>(1);
+        result.add(entityView);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static List<EntityView> removeEntityView(List<EntityView> views, EntityViewId entityViewId) {
+        if (views.stream().noneMatch(view -> entityViewId.equals(view.getId()))) {
+            return views;
         }
+        List<EntityView> result = views.stream().filter(view -> !entityViewId.equals(view.getId())).collect(Collectors.toList());
+        return result.isEmpty() ? null : Collections.unmodifiableList(result);
     }
 
     private ListenableFuture<List<Void>> copyAttributesFromEntityToEntityView(EntityView entityView, AttributeScope scope, Collection<String> keys, User user) throws ThingsboardException {
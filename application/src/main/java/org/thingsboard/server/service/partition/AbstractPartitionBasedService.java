@@ -109,6 +109,7 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
     }
 
     private void initStateFromDB(Set<TopicPartitionInfo> partitions) {
+        long startTs = System.currentTimeMillis();
         try {
             log.info("[{}] CURRENT PARTITIONS: {}", getServiceName(), partitionedEntities.keySet());
             log.info("[{}] NEW PARTITIONS: {}", getServiceName(), partitions);
@@ -152,7 +153,7 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
             if (partitionListChanged) {
                 List<ListenableFuture<?>> partitionFetchFutures = new ArrayList<>();
                 partitionedFetchTasks.values().forEach(partitionFetchFutures::addAll);
-                DonAsynchron.withCallback(Futures.allAsList(partitionFetchFutures), t -> logPartitions(), this::logFailure);
+                DonAsynchron.withCallback(Futures.allAsList(partitionFetchFutures), t -> logPartitions(startTs), this::logFailure);
             }
         } catch (Throwable t) {
             log.warn("[{}] Failed to init entities state from DB", getServiceName(), t);
@@ -169,8 +170,8 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
 
     }
 
-    private void logPartitions() {
-        log.info("[{}] Managing following partitions:", getServiceName());
+    private void logPartitions(long startTs) {
+        log.info("[{}] Managing following partitions, initialized in {} ms:", getServiceName(), System.currentTimeMillis() - startTs);
         partitionedEntities.forEach((tpi, entities) -> {
             log.info("[{}][{}]: {} entities", getServiceName(), tpi.getFullTopicName(), entities.size());
         });
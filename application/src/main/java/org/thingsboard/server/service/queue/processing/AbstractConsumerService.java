@@ -172,6 +172,7 @@ public abstract class AbstractConsumerService<N extends com.google.protobuf.Gene
                 } else if (componentLifecycleMsg.getEvent().equals(ComponentLifecycleEvent.DELETED)) {
                     apiUsageStateService.onTenantDelete(tenantId);
                     partitionService.removeTenant(tenantId);
+                    actorContext.getTbEntityViewService().onComponentLifecycleMsg(componentLifecycleMsg);
                 }
             }
         } else if (EntityType.DEVICE_PROFILE.equals(componentLifecycleMsg.getEntityId().getEntityType())) {
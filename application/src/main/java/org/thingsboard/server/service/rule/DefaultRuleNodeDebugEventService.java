@@ -0,0 +1,222 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.event.RuleNodeDebugEvent;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.event.EventService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists the rule node debug events outside the rule engine threads. The rule node only checks the sampling
+ * and puts the snapshot of the message to the bounded buffer. The buffer is drained by the single thread
+ * that builds the events and saves them. The number of the events that are being saved is limited by the buffer size,
+ * so when the database is slow the new events are dropped instead of slowing down the rule engine.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultRuleNodeDebugEventService implements RuleNodeDebugEventService {
+
+    private static final String STATS_KEY = "ruleNodeDebugEvents";
+    private static final double LONG_TO_UNIT = 0x1.0p-53;
+
+    private final EventService eventService;
+    private final TbServiceInfoProvider serviceInfoProvider;
+    private final StatsFactory statsFactory;
+
+    private final ConcurrentLinkedQueue<DebugEventSnapshot> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedCount = new AtomicInteger();
+    private final AtomicInteger savingCount = new AtomicInteger();
+
+    @Value("${actors.rule.chain.debug_events.sampling_mode:ALL}")
+    private RuleNodeDebugSamplingMode samplingMode;
+    @Value("${actors.rule.chain.debug_events.sampling_rate:0.1}")
+    private double samplingRate;
+    @Value("${actors.rule.chain.debug_events.max_payload_size:0}")
+    private int maxPayloadSize;
+    @Value("${actors.rule.chain.debug_events.buffer_size:10000}")
+    private int bufferSize;
+    @Value("${actors.rule.chain.debug_events.poll_interval_ms:100}")
+    private long pollInterval;
+    @Value("${actors.rule.chain.debug_events.stats_print_interval_ms:60000}")
+    private long statsPrintInterval;
+
+    private DefaultCounter savedCounter;
+    private DefaultCounter droppedCounter;
+    private DefaultCounter failedCounter;
+    private ScheduledExecutorService executor;
+    private long lastStatsPrintTime;
+
+    @PostConstruct
+    public void init() {
+        savedCounter = statsFactory.createDefaultCounter(STATS_KEY, "status", "saved");
+        droppedCounter = statsFactory.createDefaultCounter(STATS_KEY, "status", "dropped");
+        failedCounter = statsFactory.createDefaultCounter(STATS_KEY, "status", "failed");
+        lastStatsPrintTime = System.currentTimeMillis();
+        executor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("rule-node-debug-events"));
+        executor.scheduleWithFixedDelay(this::drain, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isSampled(TbMsg tbMsg, boolean failure) {
+        return switch (samplingMode) {
+            case ALL -> true;
+            case MESSAGE -> failure || isSampled(tbMsg.getId());
+            case ORIGINATOR -> failure || isSampled(tbMsg.getOriginator().getId());
+        };
+    }
+
+    private boolean isSampled(UUID id) {
+        long hash = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        // Finalizer of MurmurHash3: time based ids of the messages differ in the few bits only
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * LONG_TO_UNIT < samplingRate;
+    }
+
+    @Override
+    public void persistAsync(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, String relationType, Throwable error, String failureMessage) {
+        if (bufferedCount.incrementAndGet() > bufferSize) {
+            bufferedCount.decrementAndGet();
+            droppedCounter.increment();
+            return;
+        }
+        // The metadata of the message may be changed by the next rule nodes, the data is immutable
+        buffer.add(new DebugEventSnapshot(tenantId, entityId, type, tbMsg, tbMsg.getMetaData().values(), relationType,
+                error, failureMessage, System.currentTimeMillis()));
+    }
+
+    void drain() {
+        try {
+            DebugEventSnapshot snapshot;
+            while (savingCount.get() < bufferSize && (snapshot = buffer.poll()) != null) {
+                bufferedCount.decrementAndGet();
+                save(snapshot);
+            }
+            printStats();
+        } catch (Throwable t) {
+            log.warn("Failed to persist rule node debug events", t);
+        }
+    }
+
+    private void save(DebugEventSnapshot snapshot) {
+        TbMsg tbMsg = snapshot.tbMsg();
+        RuleNodeDebugEvent.RuleNodeDebugEventBuilder event = RuleNodeDebugEvent.builder()
+                .tenantId(snapshot.tenantId())
+                .entityId(snapshot.entityId().getId())
+                .serviceId(serviceInfoProvider.getServiceId())
+                .ts(snapshot.ts())
+                .eventType(snapshot.type())
+                .eventEntity(tbMsg.getOriginator())
+                .msgId(tbMsg.getId())
+                .msgType(tbMsg.getType())
+                .dataType(tbMsg.getDataType().name())
+                .relationType(snapshot.relationType())
+                .data(truncate(tbMsg.getData()))
+                .metadata(truncate(JacksonUtil.toString(snapshot.metadata())));
+        if (snapshot.error() != null) {
+            event.error(ExceptionUtils.getStackTrace(snapshot.error()));
+        } else if (snapshot.failureMessage() != null) {
+            event.error(snapshot.failureMessage());
+        }
+        try {
+            savingCount.incrementAndGet();
+            ListenableFuture<Void> future = eventService.saveAsync(event.build());
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(Void result) {
+                    savingCount.decrementAndGet();
+                    savedCounter.increment();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    savingCount.decrementAndGet();
+                    failedCounter.increment();
+                    log.error("Could not save debug Event for Node", t);
+                }
+            }, MoreExecutors.directExecutor());
+        } catch (IllegalArgumentException e) {
+            savingCount.decrementAndGet();
+            failedCounter.increment();
+            log.warn("Failed to persist rule node debug message", e);
+        }
+    }
+
+    private String truncate(String value) {
+        return maxPayloadSize > 0 ? StringUtils.truncate(value, maxPayloadSize) : value;
+    }
+
+    private void printStats() {
+        long ts = System.currentTimeMillis();
+        if (ts - lastStatsPrintTime < statsPrintInterval) {
+            return;
+        }
+        lastStatsPrintTime = ts;
+        int dropped = droppedCounter.get();
+        if (dropped > 0) {
+            log.warn("Dropped [{}] rule node debug events, saved [{}], failed [{}], buffered [{}], saving [{}]. " +
+                            "Decrease the sampling rate or increase the buffer size",
+                    dropped, savedCounter.get(), failedCounter.get(), bufferedCount.get(), savingCount.get());
+        } else {
+            log.debug("Saved [{}] rule node debug events, failed [{}], buffered [{}], saving [{}]",
+                    savedCounter.get(), failedCounter.get(), bufferedCount.get(), savingCount.get());
+        }
+        droppedCounter.clear();
+        savedCounter.clear();
+        failedCounter.clear();
+    }
+
+    private record DebugEventSnapshot(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, Map<String, String> metadata,
+                                      String relationType, Throwable error, String failureMessage, long ts) {
+    }
+
+}
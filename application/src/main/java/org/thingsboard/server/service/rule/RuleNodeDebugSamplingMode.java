@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule;
+
+public enum RuleNodeDebugSamplingMode {
+
+    /**
+     * Debug events of all messages are persisted
+     */
+    ALL,
+    /**
+     * Debug events of the part of the messages are persisted. The decision depends on the message id,
+     * so the input and output events of the sampled message are persisted by all rule nodes
+     */
+    MESSAGE,
+    /**
+     * Debug events of the part of the message originators are persisted, so the whole history of the sampled
+     * devices, assets, etc. is available
+     */
+    ORIGINATOR
+
+}
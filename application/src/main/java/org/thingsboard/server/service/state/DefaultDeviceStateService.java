@@ -89,7 +89,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -191,10 +190,17 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Getter
     private int telemetryTtl;
 
+    @Value("${state.activityPersistIntervalInSec:10}")
+    @Getter
+    @Setter
+    private int activityPersistIntervalInSec;
+
     private ListeningExecutorService deviceStateExecutor;
     private ListeningExecutorService deviceStateCallbackExecutor;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
+    final DeviceInactivityTimeouts inactivityTimeouts = new DeviceInactivityTimeouts();
+    final ConcurrentMap<DeviceId, Long> pendingActivityTimes = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
@@ -205,10 +211,14 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 Math.max(4, Runtime.getRuntime().availableProcessors()), "device-state-callback"));
         scheduledExecutor.scheduleWithFixedDelay(this::checkStates, new Random().nextInt(defaultStateCheckIntervalInSec), defaultStateCheckIntervalInSec, TimeUnit.SECONDS);
         scheduledExecutor.scheduleWithFixedDelay(this::reportActivityStats, defaultActivityStatsIntervalInSec, defaultActivityStatsIntervalInSec, TimeUnit.SECONDS);
+        if (activityPersistIntervalInSec > 0) {
+            scheduledExecutor.scheduleWithFixedDelay(this::flushActivityTimes, activityPersistIntervalInSec, activityPersistIntervalInSec, TimeUnit.SECONDS);
+        }
     }
 
     @PreDestroy
     public void stop() {
+        flushActivityTimes();
         super.stop();
         if (deviceStateExecutor != null) {
             deviceStateExecutor.shutdownNow();
@@ -246,6 +256,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             return;
         }
         log.trace("[{}][{}] On device connect: processing connect event with ts [{}].", tenantId.getId(), deviceId.getId(), lastConnectTime);
+        flushActivityTime(deviceId);
         stateData.getState().setLastConnectTime(lastConnectTime);
         save(deviceId, LAST_CONNECT_TIME, lastConnectTime);
         pushRuleEngineMessage(stateData, TbMsgType.CONNECT_EVENT);
@@ -267,9 +278,15 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     void updateActivityState(DeviceId deviceId, DeviceStateData stateData, long lastReportedActivity) {
         log.trace("updateActivityState - fetched state {} for device {}, lastReportedActivity {}", stateData, deviceId, lastReportedActivity);
         if (stateData != null) {
-            save(deviceId, LAST_ACTIVITY_TIME, lastReportedActivity);
             DeviceState state = stateData.getState();
+            if (state.isActive()) {
+                saveLastActivityTime(deviceId, lastReportedActivity);
+            } else {
+                pendingActivityTimes.remove(deviceId);
+                save(deviceId, LAST_ACTIVITY_TIME, lastReportedActivity);
+            }
             state.setLastActivityTime(lastReportedActivity);
+            scheduleInactivityCheck(stateData);
             if (!state.isActive()) {
                 state.setActive(true);
                 if (lastReportedActivity <= state.getLastInactivityAlarmTime()) {
@@ -302,6 +319,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             return;
         }
         log.trace("[{}][{}] On device disconnect: processing disconnect event with ts [{}].", tenantId.getId(), deviceId.getId(), lastDisconnectTime);
+        flushActivityTime(deviceId);
         stateData.getState().setLastDisconnectTime(lastDisconnectTime);
         save(deviceId, LAST_DISCONNECT_TIME, lastDisconnectTime);
         pushRuleEngineMessage(stateData, TbMsgType.DISCONNECT_EVENT);
@@ -318,6 +336,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         log.trace("[{}] on Device Activity Timeout Update device id {} inactivityTimeout {}", tenantId.getId(), deviceId.getId(), inactivityTimeout);
         DeviceStateData stateData = getOrFetchDeviceStateData(deviceId);
         stateData.getState().setInactivityTimeout(inactivityTimeout);
+        scheduleInactivityCheck(stateData);
         checkAndUpdateState(deviceId, stateData);
     }
 
@@ -400,11 +419,17 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    /*
+     * Device packs are submitted as soon as they are filled while the device ids are still being fetched,
+     * so the states of the first devices are initialized without waiting for the full scan of the devices.
+     * States of the devices that are not initialized yet are fetched on the first message from the device.
+     */
     @Override
     protected Map<TopicPartitionInfo, List<ListenableFuture<?>>> onAddedPartitions(Set<TopicPartitionInfo> addedPartitions) {
         var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
         PageDataIterable<DeviceIdInfo> deviceIdInfos = new PageDataIterable<>(deviceService::findDeviceIdInfos, initFetchPackSize);
-        Map<TopicPartitionInfo, List<DeviceIdInfo>> tpiDeviceMap = new HashMap<>();
+        Map<TopicPartitionInfo, List<DeviceIdInfo>> tpiDevicePacks = new HashMap<>();
+        Map<TopicPartitionInfo, AtomicInteger> tpiCounters = new HashMap<>();
 
         for (DeviceIdInfo idInfo : deviceIdInfos) {
             TopicPartitionInfo tpi;
@@ -416,43 +441,48 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 continue;
             }
             if (addedPartitions.contains(tpi) && !deviceStates.containsKey(idInfo.getDeviceId())) {
-                tpiDeviceMap.computeIfAbsent(tpi, tmp -> new ArrayList<>()).add(idInfo);
+                List<DeviceIdInfo> devicePack = tpiDevicePacks.computeIfAbsent(tpi, tmp -> new ArrayList<>());
+                devicePack.add(idInfo);
+                // hard-coded limit of 1000 is due to the Entity Data Query limitations and should not be changed.
+                if (devicePack.size() >= 1000) {
+                    tpiDevicePacks.remove(tpi);
+                    submitDevicePack(tpi, devicePack, tpiCounters.computeIfAbsent(tpi, tmp -> new AtomicInteger()), result);
+                }
             }
         }
+        tpiDevicePacks.forEach((tpi, devicePack) ->
+                submitDevicePack(tpi, devicePack, tpiCounters.computeIfAbsent(tpi, tmp -> new AtomicInteger()), result));
+        return result;
+    }
 
-        for (var entry : tpiDeviceMap.entrySet()) {
-            AtomicInteger counter = new AtomicInteger(0);
-            // hard-coded limit of 1000 is due to the Entity Data Query limitations and should not be changed.
-            for (List<DeviceIdInfo> partition : Lists.partition(entry.getValue(), 1000)) {
-                log.info("[{}] Submit task for device states: {}", entry.getKey(), partition.size());
-                DevicePackFutureHolder devicePackFutureHolder = new DevicePackFutureHolder();
-                var devicePackFuture = deviceStateExecutor.submit(() -> {
-                    try {
-                        List<DeviceStateData> states;
-                        if (persistToTelemetry && !dbTypeInfoComponent.isLatestTsDaoStoredToSql()) {
-                            states = fetchDeviceStateDataUsingSeparateRequests(partition);
-                        } else {
-                            states = fetchDeviceStateDataUsingEntityDataQuery(partition);
-                        }
-                        if (devicePackFutureHolder.future == null || !devicePackFutureHolder.future.isCancelled()) {
-                            for (var state : states) {
-                                if (!addDeviceUsingState(entry.getKey(), state)) {
-                                    return;
-                                }
-                                checkAndUpdateState(state.getDeviceId(), state);
-                            }
-                            log.info("[{}] Initialized {} out of {} device states", entry.getKey().getPartition().orElse(0), counter.addAndGet(states.size()), entry.getValue().size());
+    private void submitDevicePack(TopicPartitionInfo tpi, List<DeviceIdInfo> devicePack, AtomicInteger counter,
+                                  Map<TopicPartitionInfo, List<ListenableFuture<?>>> result) {
+        log.info("[{}] Submit task for device states: {}", tpi, devicePack.size());
+        DevicePackFutureHolder devicePackFutureHolder = new DevicePackFutureHolder();
+        var devicePackFuture = deviceStateExecutor.submit(() -> {
+            try {
+                List<DeviceStateData> states;
+                if (persistToTelemetry && !dbTypeInfoComponent.isLatestTsDaoStoredToSql()) {
+                    states = fetchDeviceStateDataUsingSeparateRequests(devicePack);
+                } else {
+                    states = fetchDeviceStateDataUsingEntityDataQuery(devicePack);
+                }
+                if (devicePackFutureHolder.future == null || !devicePackFutureHolder.future.isCancelled()) {
+                    for (var state : states) {
+                        if (!addDeviceUsingState(tpi, state)) {
+                            return;
                         }
-                    } catch (Throwable t) {
-                        log.error("Unexpected exception while device pack fetching", t);
-                        throw t;
+                        checkAndUpdateState(state.getDeviceId(), state);
                     }
-                });
-                devicePackFutureHolder.future = devicePackFuture;
-                result.computeIfAbsent(entry.getKey(), tmp -> new ArrayList<>()).add(devicePackFuture);
+                    log.info("[{}] Initialized {} device states", tpi.getPartition().orElse(0), counter.addAndGet(states.size()));
+                }
+            } catch (Throwable t) {
+                log.error("Unexpected exception while device pack fetching", t);
+                throw t;
             }
-        }
-        return result;
+        });
+        devicePackFutureHolder.future = devicePackFuture;
+        result.computeIfAbsent(tpi, tmp -> new ArrayList<>()).add(devicePackFuture);
     }
 
     private static class DevicePackFutureHolder {
@@ -479,7 +509,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
         if (deviceIds != null) {
             deviceIds.add(state.getDeviceId());
-            deviceStates.putIfAbsent(state.getDeviceId(), state);
+            if (deviceStates.putIfAbsent(state.getDeviceId(), state) == null) {
+                scheduleInactivityCheck(state);
+            }
             return true;
         } else {
             log.debug("[{}] Device belongs to external partition {}", state.getDeviceId(), tpi.getFullTopicName());
@@ -490,34 +522,62 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     void checkStates() {
         try {
             final long ts = getCurrentTimeMillis();
-            partitionedEntities.forEach((tpi, deviceIds) -> {
-                log.debug("Calculating state updates. tpi {} for {} devices", tpi.getFullTopicName(), deviceIds.size());
-                Set<DeviceId> idsFromRemovedTenant = new HashSet<>();
-                for (DeviceId deviceId : deviceIds) {
-                    DeviceStateData stateData;
-                    try {
-                        stateData = getOrFetchDeviceStateData(deviceId);
-                    } catch (Exception e) {
-                        log.error("[{}] Failed to get or fetch device state data", deviceId, e);
-                        continue;
+            fetchMissingDeviceStates();
+            List<DeviceId> expired = inactivityTimeouts.pollExpired(ts);
+            log.debug("Calculating state updates for {} out of {} devices", expired.size(), inactivityTimeouts.size() + expired.size());
+            for (DeviceId deviceId : expired) {
+                DeviceStateData stateData = deviceStates.get(deviceId);
+                if (stateData == null) {
+                    // device was removed or moved to other partition; it is rescheduled once its state is fetched again
+                    continue;
+                }
+                try {
+                    updateInactivityStateIfExpired(ts, deviceId, stateData);
+                    // the deadline of an inactive device is already in the past, so it is scheduled again
+                    // only by the activity or inactivity timeout updates
+                    if (deviceStates.containsKey(deviceId) && stateData.getState().isActive()) {
+                        scheduleInactivityCheck(stateData);
                     }
-                    try {
-                        updateInactivityStateIfExpired(ts, deviceId, stateData);
-                    } catch (Exception e) {
-                        if (e instanceof TenantNotFoundException) {
-                            idsFromRemovedTenant.add(deviceId);
-                        } else {
-                            log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
-                        }
+                } catch (Exception e) {
+                    if (e instanceof TenantNotFoundException) {
+                        partitionedEntities.values().forEach(deviceIds -> deviceIds.remove(deviceId));
+                    } else {
+                        log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
+                        scheduleInactivityCheck(stateData);
                     }
                 }
-                deviceIds.removeAll(idsFromRemovedTenant);
-            });
+            }
         } catch (Throwable t) {
             log.warn("Failed to check devices states", t);
         }
     }
 
+    /**
+     * Fetches the state of the partition devices that are missing in the device states, e.g. after the failed fetch,
+     * so their inactivity checks are scheduled the same way as they were checked by the full scan of the partitions.
+     */
+    private void fetchMissingDeviceStates() {
+        partitionedEntities.forEach((tpi, deviceIds) -> {
+            for (DeviceId deviceId : deviceIds) {
+                if (!deviceStates.containsKey(deviceId)) {
+                    try {
+                        getOrFetchDeviceStateData(deviceId);
+                    } catch (Exception e) {
+                        log.error("[{}] Failed to get or fetch device state data", deviceId, e);
+                    }
+                }
+            }
+        });
+    }
+
+    private void scheduleInactivityCheck(DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        if (state != null) {
+            long deadline = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime()) + state.getInactivityTimeout();
+            inactivityTimeouts.schedule(stateData.getDeviceId(), deadline);
+        }
+    }
+
     void reportActivityStats() {
         try {
             Map<TenantId, Pair<AtomicInteger, AtomicInteger>> stats = new HashMap<>();
@@ -565,6 +625,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void reportInactivity(long ts, DeviceId deviceId, DeviceStateData stateData) {
+        flushActivityTime(deviceId);
         DeviceState state = stateData.getState();
         state.setActive(false);
         state.setLastInactivityAlarmTime(ts);
@@ -578,7 +639,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Nonnull
     DeviceStateData getOrFetchDeviceStateData(DeviceId deviceId) {
-        return deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+        DeviceStateData stateData = deviceStates.get(deviceId);
+        if (stateData == null) {
+            stateData = deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+            scheduleInactivityCheck(stateData);
+        }
+        return stateData;
     }
 
     DeviceStateData fetchDeviceStateDataUsingSeparateRequests(final DeviceId deviceId) {
@@ -620,6 +686,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void onDeviceDeleted(TenantId tenantId, DeviceId deviceId) {
+        pendingActivityTimes.remove(deviceId);
         cleanupEntity(deviceId);
         TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_CORE, tenantId, deviceId);
         Set<DeviceId> deviceIdSet = partitionedEntities.get(tpi);
@@ -634,7 +701,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void cleanupEntity(DeviceId deviceId) {
+        flushActivityTime(deviceId);
         deviceStates.remove(deviceId);
+        inactivityTimeouts.remove(deviceId);
     }
 
 
@@ -673,11 +742,11 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             @Override
             public DeviceStateData apply(@Nullable List<T> data) {
                 try {
-                    long lastActivityTime = getEntryValue(data, LAST_ACTIVITY_TIME, 0L);
                     long inactivityAlarmTime = getEntryValue(data, INACTIVITY_ALARM_TIME, 0L);
                     long inactivityTimeout = getEntryValue(data, INACTIVITY_TIMEOUT, defaultInactivityTimeoutMs);
                     // Actual active state by wall-clock will be updated outside this method. This method is only for fetching persistent state
                     final boolean active = getEntryValue(data, ACTIVITY_STATE, false);
+                    long lastActivityTime = restoreLastActivityTime(active, getEntryValue(data, LAST_ACTIVITY_TIME, 0L));
                     DeviceState deviceState = DeviceState.builder()
                             .active(active)
                             .lastConnectTime(getEntryValue(data, LAST_CONNECT_TIME, 0L))
@@ -753,7 +822,6 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     DeviceStateData toDeviceStateData(EntityData ed, DeviceIdInfo deviceIdInfo) {
-        long lastActivityTime = getEntryValue(ed, getKeyType(), LAST_ACTIVITY_TIME, 0L);
         long inactivityAlarmTime = getEntryValue(ed, getKeyType(), INACTIVITY_ALARM_TIME, 0L);
         long inactivityTimeout = getEntryValue(ed, getKeyType(), INACTIVITY_TIMEOUT, defaultInactivityTimeoutMs);
         if (persistToTelemetry && inactivityTimeout == defaultInactivityTimeoutMs) {
@@ -763,6 +831,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
         // Actual active state by wall-clock will be updated outside this method. This method is only for fetching persistent state
         final boolean active = getEntryValue(ed, getKeyType(), ACTIVITY_STATE, false);
+        long lastActivityTime = restoreLastActivityTime(active, getEntryValue(ed, getKeyType(), LAST_ACTIVITY_TIME, 0L));
         DeviceState deviceState = DeviceState.builder()
                 .active(active)
                 .lastConnectTime(getEntryValue(ed, getKeyType(), LAST_CONNECT_TIME, 0L))
@@ -784,6 +853,18 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 .state(deviceState).build();
     }
 
+    /**
+     * The last activity time of the active device is persisted at most once per activity persist interval,
+     * so the persisted value may be up to one interval behind the actual one if the server was not stopped gracefully.
+     * Shift it by the interval, so that the devices that stayed active are not reported inactive too early.
+     */
+    long restoreLastActivityTime(boolean active, long lastActivityTime) {
+        if (active && activityPersistIntervalInSec > 0 && lastActivityTime > 0) {
+            return Math.min(lastActivityTime + TimeUnit.SECONDS.toMillis(activityPersistIntervalInSec), getCurrentTimeMillis());
+        }
+        return lastActivityTime;
+    }
+
     private EntityKeyType getKeyType() {
         return persistToTelemetry ? EntityKeyType.TIME_SERIES : EntityKeyType.SERVER_ATTRIBUTE;
     }
@@ -861,6 +942,32 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    private void saveLastActivityTime(DeviceId deviceId, long lastActivityTime) {
+        if (activityPersistIntervalInSec > 0) {
+            pendingActivityTimes.merge(deviceId, lastActivityTime, Math::max);
+        } else {
+            save(deviceId, LAST_ACTIVITY_TIME, lastActivityTime);
+        }
+    }
+
+    private void flushActivityTime(DeviceId deviceId) {
+        Long lastActivityTime = pendingActivityTimes.remove(deviceId);
+        if (lastActivityTime != null) {
+            save(deviceId, LAST_ACTIVITY_TIME, lastActivityTime);
+        }
+    }
+
+    void flushActivityTimes() {
+        try {
+            if (!pendingActivityTimes.isEmpty()) {
+                log.debug("Persisting last activity time for {} devices", pendingActivityTimes.size());
+                pendingActivityTimes.keySet().forEach(this::flushActivityTime);
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to persist last activity time", t);
+        }
+    }
+
     private void save(DeviceId deviceId, String key, long value) {
         if (persistToTelemetry) {
             tsSubService.saveAndNotifyInternal(
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Queue of the devices ordered by the time their inactivity timeout is due.
+ * <p>
+ * Every device has at most one valid deadline. Scheduling a later deadline than the current one is a no-op:
+ * the device is re-checked when the earlier deadline is due and rescheduled by the caller if it is still active.
+ * This keeps frequent activity updates cheap, while each check touches only the devices that are due.
+ * Entries superseded by an earlier deadline or removed devices stay in the queue and are skipped on poll.
+ */
+class DeviceInactivityTimeouts {
+
+    private final ConcurrentMap<DeviceId, Long> deadlines = new ConcurrentHashMap<>();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    void schedule(DeviceId deviceId, long deadline) {
+        Long current = deadlines.get(deviceId);
+        if (current != null && current <= deadline) {
+            return;
+        }
+        synchronized (queue) {
+            current = deadlines.get(deviceId);
+            if (current == null || current > deadline) {
+                deadlines.put(deviceId, deadline);
+                queue.add(new Entry(deadline, deviceId));
+            }
+        }
+    }
+
+    void remove(DeviceId deviceId) {
+        deadlines.remove(deviceId);
+    }
+
+    List<DeviceId> pollExpired(long ts) {
+        List<DeviceId> expired = new ArrayList<>();
+        synchronized (queue) {
+            Entry entry;
+            while ((entry = queue.peek()) != null && entry.deadline <= ts) {
+                queue.poll();
+                if (deadlines.remove(entry.deviceId, entry.deadline)) {
+                    expired.add(entry.deviceId);
+                }
+            }
+            if (queue.size() > 2 * deadlines.size() + 1024) {
+                queue.removeIf(e -> !Long.valueOf(e.deadline).equals(deadlines.get(e.deviceId)));
+            }
+        }
+        return expired;
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    private record Entry(long deadline, DeviceId deviceId) implements Comparable<Entry> {
+
+        @Override
+        public int compareTo(Entry o) {
+            return Long.compare(deadline, o.deadline);
+        }
+
+    }
+
+}
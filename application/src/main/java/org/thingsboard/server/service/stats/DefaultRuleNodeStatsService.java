@@ -0,0 +1,155 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.stats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultRuleNodeStatsService implements RuleNodeStatsService {
+
+    private static final String INVOCATIONS = "ruleNode.invocations";
+    private static final String FAILURES = "ruleNode.failures";
+    private static final String LATENCY = "ruleNode.latency";
+    private static final String LATENCY_BUCKETS = "ruleNode.latency.buckets";
+    private static final String QUEUE_SIZE = "ruleNode.queueSize";
+
+    private static final Map<String, Comparator<RuleNodeStatsInfo>> SORT_PROPERTIES = Map.of(
+            "totalLatency", Comparator.comparingDouble(RuleNodeStatsInfo::totalLatency),
+            "avgLatency", Comparator.comparingDouble(RuleNodeStatsInfo::avgLatency),
+            "p99Latency", Comparator.comparingDouble(RuleNodeStatsInfo::p99Latency),
+            "maxLatency", Comparator.comparingDouble(RuleNodeStatsInfo::maxLatency),
+            "invocations", Comparator.comparingLong(RuleNodeStatsInfo::invocations),
+            "failures", Comparator.comparingLong(RuleNodeStatsInfo::failures),
+            "queueSize", Comparator.comparingInt(RuleNodeStatsInfo::queueSize)
+    );
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<RuleNodeId, RuleNodeStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${metrics.enabled:false}")
+    private boolean metricsEnabled;
+
+    @Value("${metrics.rule_nodes.enabled:true}")
+    private boolean ruleNodeStatsEnabled;
+
+    @Override
+    public RuleNodeStats register(TenantId tenantId, String ruleChainName, RuleNode ruleNode, TbActorRef actorRef) {
+        if (!ruleNodeStatsEnabled || ruleNode == null) {
+            return null;
+        }
+        RuleNodeStats nodeStats = stats.computeIfAbsent(ruleNode.getId(), id -> {
+            RuleNodeStats newStats = new RuleNodeStats(tenantId, ruleNode.getRuleChainId(), id, getSimpleType(ruleNode.getType()), actorRef);
+            if (metricsEnabled) {
+                newStats.setMeters(registerMeters(newStats));
+            }
+            log.debug("[{}][{}] Registered rule node stats", tenantId, id);
+            return newStats;
+        });
+        nodeStats.setRuleChainName(ruleChainName);
+        nodeStats.setRuleNodeName(ruleNode.getName());
+        return nodeStats;
+    }
+
+    @Override
+    public void unregister(RuleNodeId ruleNodeId) {
+        RuleNodeStats nodeStats = stats.remove(ruleNodeId);
+        if (nodeStats != null) {
+            nodeStats.getMeters().forEach(meterRegistry::remove);
+            log.debug("[{}][{}] Unregistered rule node stats", nodeStats.getTenantId(), ruleNodeId);
+        }
+    }
+
+    @Override
+    public void onProcessingEnd(RuleNodeId ruleNodeId, TbMsg msg, boolean failure) {
+        if (!ruleNodeStatsEnabled) {
+            return;
+        }
+        RuleNodeStats nodeStats = stats.get(ruleNodeId);
+        if (nodeStats != null) {
+            nodeStats.onProcessingEnd(msg, failure);
+        }
+    }
+
+    @Override
+    public Set<String> getSortProperties() {
+        return SORT_PROPERTIES.keySet();
+    }
+
+    @Override
+    public List<RuleNodeStatsInfo> getStats(TenantId tenantId, String sortProperty, int limit) {
+        Comparator<RuleNodeStatsInfo> comparator = SORT_PROPERTIES.get(sortProperty);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Unsupported sort property: " + sortProperty + ". Supported: " + SORT_PROPERTIES.keySet());
+        }
+        return stats.values().stream()
+                .filter(nodeStats -> nodeStats.getTenantId().equals(tenantId))
+                .map(RuleNodeStatsInfo::of)
+                .sorted(comparator.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private List<Meter> registerMeters(RuleNodeStats nodeStats) {
+        Tags tags = Tags.of(
+                "tenantId", nodeStats.getTenantId().toString(),
+                "ruleChainId", nodeStats.getRuleChainId().toString(),
+                "ruleNodeId", nodeStats.getRuleNodeId().toString(),
+                "ruleNodeType", nodeStats.getRuleNodeType());
+        List<Meter> meters = new ArrayList<>();
+        meters.add(FunctionCounter.builder(INVOCATIONS, nodeStats, RuleNodeStats::getInvocations).tags(tags).register(meterRegistry));
+        meters.add(FunctionCounter.builder(FAILURES, nodeStats, RuleNodeStats::getFailures).tags(tags).register(meterRegistry));
+        meters.add(FunctionTimer.builder(LATENCY, nodeStats, RuleNodeStats::getLatencyCount, RuleNodeStats::getTotalLatencyNanos, TimeUnit.NANOSECONDS)
+                .tags(tags).register(meterRegistry));
+        for (int i = 0; i < RuleNodeStats.LATENCY_BUCKET_NAMES.length; i++) {
+            int bucket = i;
+            // Cumulative counts, like the buckets of the Prometheus histogram
+            meters.add(FunctionCounter.builder(LATENCY_BUCKETS, nodeStats, s -> s.getCumulativeLatencyCount(bucket))
+                    .tags(tags).tag("le", RuleNodeStats.LATENCY_BUCKET_NAMES[i]).register(meterRegistry));
+        }
+        meters.add(Gauge.builder(QUEUE_SIZE, nodeStats, RuleNodeStats::getQueueSize).tags(tags).register(meterRegistry));
+        return meters;
+    }
+
+    private static String getSimpleType(String type) {
+        return type != null ? type.substring(type.lastIndexOf('.') + 1) : "Unknown";
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.stats;
+
+import io.micrometer.core.instrument.Meter;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processing stats of the single rule node. Updated by the rule node actor and by the threads that execute
+ * the node inline, so only the lock-free counters are used.
+ */
+@Getter
+public class RuleNodeStats {
+
+    static final long[] LATENCY_BUCKETS = {
+            TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(5)
+    };
+    static final String[] LATENCY_BUCKET_NAMES = {"100us", "500us", "1ms", "5ms", "10ms", "50ms", "100ms", "500ms", "1s", "5s", "+Inf"};
+
+    private final TenantId tenantId;
+    private final RuleChainId ruleChainId;
+    private final RuleNodeId ruleNodeId;
+    private final String ruleNodeType;
+    @Setter
+    private volatile String ruleChainName;
+    @Setter
+    private volatile String ruleNodeName;
+    @Getter(AccessLevel.NONE)
+    private final TbActorRef actorRef;
+
+    @Getter(AccessLevel.NONE)
+    private final LongAdder invocations = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder failures = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder latencyCount = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder totalLatency = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAccumulator maxLatency = new LongAccumulator(Long::max, 0);
+    @Getter(AccessLevel.NONE)
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private List<Meter> meters = Collections.emptyList();
+
+    RuleNodeStats(TenantId tenantId, RuleChainId ruleChainId, RuleNodeId ruleNodeId, String ruleNodeType, TbActorRef actorRef) {
+        this.tenantId = tenantId;
+        this.ruleChainId = ruleChainId;
+        this.ruleNodeId = ruleNodeId;
+        this.ruleNodeType = ruleNodeType;
+        this.actorRef = actorRef;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    public void onProcessingStart(TbMsg msg) {
+        invocations.increment();
+        msg.setRuleNodeStartTime(System.nanoTime());
+    }
+
+    void onProcessingEnd(TbMsg msg, boolean failure) {
+        long startTime = msg.getRuleNodeStartTime();
+        if (startTime != 0) {
+            // The same message may be acknowledged and passed further by the node, the latency is recorded once
+            msg.setRuleNodeStartTime(0);
+            recordLatency(System.nanoTime() - startTime);
+        }
+        if (failure) {
+            failures.increment();
+        }
+    }
+
+    void recordLatency(long latencyNanos) {
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS.length && latencyNanos > LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets[bucket].increment();
+        latencyCount.increment();
+        totalLatency.add(latencyNanos);
+        maxLatency.accumulate(latencyNanos);
+    }
+
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getLatencyCount() {
+        return latencyCount.sum();
+    }
+
+    public long getTotalLatencyNanos() {
+        return totalLatency.sum();
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatency.get();
+    }
+
+    public int getQueueSize() {
+        return actorRef != null ? actorRef.getQueueSize() : 0;
+    }
+
+    /**
+     * @return number of the latencies that are less than or equal to the upper bound of the bucket with the given index
+     */
+    public long getCumulativeLatencyCount(int bucket) {
+        long count = 0;
+        for (int i = 0; i <= bucket; i++) {
+            count += latencyBuckets[i].sum();
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the latency percentile by the upper bound of the histogram bucket, the max latency is used for the last bucket.
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        long[] counts = getLatencyCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile);
+        long count = 0;
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            count += counts[i];
+            if (count >= threshold) {
+                return Math.min(LATENCY_BUCKETS[i], getMaxLatencyNanos());
+            }
+        }
+        return getMaxLatencyNanos();
+    }
+
+    public Map<String, Long> getLatencyHistogram() {
+        long[] counts = getLatencyCounts();
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(LATENCY_BUCKET_NAMES[i], counts[i]);
+        }
+        return histogram;
+    }
+
+    private long[] getLatencyCounts() {
+        long[] counts = new long[latencyBuckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyBuckets[i].sum();
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.stats;
+
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the rule node stats returned by the REST API. The latencies are in milliseconds,
+ * the percentiles are estimated by the upper bounds of the histogram buckets.
+ */
+public record RuleNodeStatsInfo(RuleChainId ruleChainId, String ruleChainName,
+                                RuleNodeId ruleNodeId, String ruleNodeName, String ruleNodeType,
+                                long invocations, long failures, int queueSize,
+                                double totalLatency, double avgLatency, double p50Latency, double p99Latency, double maxLatency,
+                                Map<String, Long> latencyHistogram) {
+
+    private static final double NANOS_IN_MS = 1_000_000.0;
+
+    public static RuleNodeStatsInfo of(RuleNodeStats stats) {
+        long latencyCount = stats.getLatencyCount();
+        long totalLatency = stats.getTotalLatencyNanos();
+        return new RuleNodeStatsInfo(stats.getRuleChainId(), stats.getRuleChainName(),
+                stats.getRuleNodeId(), stats.getRuleNodeName(), stats.getRuleNodeType(),
+                stats.getInvocations(), stats.getFailures(), stats.getQueueSize(),
+                totalLatency / NANOS_IN_MS, latencyCount > 0 ? totalLatency / NANOS_IN_MS / latencyCount : 0,
+                stats.getLatencyPercentileNanos(0.5) / NANOS_IN_MS, stats.getLatencyPercentileNanos(0.99) / NANOS_IN_MS,
+                stats.getMaxLatencyNanos() / NANOS_IN_MS, stats.getLatencyHistogram());
+    }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.stats;
+
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.List;
+import java.util.Set;
+
+public interface RuleNodeStatsService {
+
+    /**
+     * Returns the stats of the rule node, creates them on the first call.
+     *
+     * @return null if the rule node stats are disabled
+     */
+    RuleNodeStats register(TenantId tenantId, String ruleChainName, RuleNode ruleNode, TbActorRef actorRef);
+
+    void unregister(RuleNodeId ruleNodeId);
+
+    void onProcessingEnd(RuleNodeId ruleNodeId, TbMsg msg, boolean failure);
+
+    Set<String> getSortProperties();
+
+    /**
+     * @param sortProperty one of: totalLatency, avgLatency, p99Latency, maxLatency, invocations, failures, queueSize
+     */
+    List<RuleNodeStatsInfo> getStats(TenantId tenantId, String sortProperty, int limit);
+
+}
@@ -53,6 +53,7 @@ import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpda
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -237,6 +238,7 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
 
     private void onTimeSeriesUpdate(UUID entityId, List<TsKvEntry> data, TbCallback callback) {
         entityUpdates.get(entityId).timeSeriesUpdateTs = System.currentTimeMillis();
+        Map<List<String>, TelemetrySubscriptionUpdate> sharedUpdates = new HashMap<>();
         processSubscriptionData(entityId,
                 sub -> TbSubscriptionType.TIMESERIES.equals(sub.getType()),
                 s -> {
@@ -255,7 +257,7 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
                         }
                     }
                     if (updateData != null) {
-                        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(sub.getSubscriptionId(), updateData);
+                        TelemetrySubscriptionUpdate update = toSharedUpdate(sharedUpdates, sub.getSubscriptionId(), updateData);
                         update.getLatestValues().forEach((key, value) -> sub.getKeyStates().put(key, value));
                         subscriptionUpdateExecutor.submit(() -> sub.getUpdateProcessor().accept(sub, update));
                     }
@@ -274,6 +276,7 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
 
     private void onAttributesUpdate(UUID entityId, String scope, List<TsKvEntry> data, TbCallback callback) {
         entityUpdates.get(entityId).attributesUpdateTs = System.currentTimeMillis();
+        Map<List<String>, TelemetrySubscriptionUpdate> sharedUpdates = new HashMap<>();
         processSubscriptionData(entityId,
                 sub -> TbSubscriptionType.ATTRIBUTES.equals(sub.getType()),
                 s -> {
@@ -293,7 +296,7 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
                             }
                         }
                         if (updateData != null) {
-                            TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(sub.getSubscriptionId(), updateData);
+                            TelemetrySubscriptionUpdate update = toSharedUpdate(sharedUpdates, sub.getSubscriptionId(), updateData);
                             update.getLatestValues().forEach((key, value) -> sub.getKeyStates().put(key, value));
                             subscriptionUpdateExecutor.submit(() -> sub.getUpdateProcessor().accept(sub, update));
                         }
@@ -349,6 +352,16 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
         callback.onSuccess();
     }
 
+    /*
+     * Subscriptions to the same keys of the entity get updates that share the same data,
+     * so that it is serialized only once for all of them.
+     */
+    private TelemetrySubscriptionUpdate toSharedUpdate(Map<List<String>, TelemetrySubscriptionUpdate> sharedUpdates, int subscriptionId, List<TsKvEntry> updateData) {
+        List<String> keys = updateData.stream().map(TsKvEntry::getKey).collect(Collectors.toList());
+        TelemetrySubscriptionUpdate shared = sharedUpdates.computeIfAbsent(keys, k -> new TelemetrySubscriptionUpdate(subscriptionId, updateData));
+        return shared.getSubscriptionId() == subscriptionId ? shared : shared.copyWithNewSubscriptionId(subscriptionId);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> void processSubscriptionData(UUID entityId,
                                              Predicate<TbSubscription<?>> filter,
@@ -24,7 +24,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.EntityType;
@@ -42,6 +41,7 @@ import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
 import org.thingsboard.server.common.msg.queue.TbCallback;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
@@ -62,8 +62,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Created by ashvayka on 27.03.18.
@@ -77,28 +75,34 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     private final TbEntityViewService tbEntityViewService;
     private final TbApiUsageReportClient apiUsageClient;
     private final TbApiUsageStateService apiUsageStateService;
+    private final StatsFactory statsFactory;
 
-    private ExecutorService tsCallBackExecutor;
+    private PartitionedCallbackExecutor tsCallBackExecutor;
 
     @Value("${sql.ts.value_no_xss_validation:false}")
     private boolean valueNoXssValidation;
 
+    @Value("${sql.ts.callback_thread_pool_size:4}")
+    private int tsCallbackThreadPoolSize;
+
     public DefaultTelemetrySubscriptionService(AttributesService attrService,
                                                TimeseriesService tsService,
                                                @Lazy TbEntityViewService tbEntityViewService,
                                                TbApiUsageReportClient apiUsageClient,
-                                               TbApiUsageStateService apiUsageStateService) {
+                                               TbApiUsageStateService apiUsageStateService,
+                                               StatsFactory statsFactory) {
         this.attrService = attrService;
         this.tsService = tsService;
         this.tbEntityViewService = tbEntityViewService;
         this.apiUsageClient = apiUsageClient;
         this.apiUsageStateService = apiUsageStateService;
+        this.statsFactory = statsFactory;
     }
 
     @PostConstruct
     public void initExecutor() {
         super.initExecutor();
-        tsCallBackExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("ts-service-ts-callback"));
+        tsCallBackExecutor = new PartitionedCallbackExecutor("ts-service-ts-callback", "tsCallbackExecutor", tsCallbackThreadPoolSize, statsFactory);
     }
 
     @Override
@@ -109,7 +113,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @PreDestroy
     public void shutdownExecutor() {
         if (tsCallBackExecutor != null) {
-            tsCallBackExecutor.shutdownNow();
+            tsCallBackExecutor.shutdown();
         }
         super.shutdownExecutor();
     }
@@ -176,14 +180,14 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @Override
     public void saveAndNotifyInternal(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, long ttl, FutureCallback<Integer> callback) {
         ListenableFuture<Integer> saveFuture = tsService.save(tenantId, entityId, ts, ttl);
-        addMainCallback(saveFuture, callback);
+        addMainCallback(entityId, saveFuture, callback);
         addWsCallback(saveFuture, success -> onTimeSeriesUpdate(tenantId, entityId, ts));
         addEntityViewCallback(tenantId, entityId, ts);
     }
 
     private void saveWithoutLatestAndNotifyInternal(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, long ttl, FutureCallback<Integer> callback) {
         ListenableFuture<Integer> saveFuture = tsService.saveWithoutLatest(tenantId, entityId, ts, ttl);
-        addMainCallback(saveFuture, callback);
+        addMainCallback(entityId, saveFuture, callback);
         addWsCallback(saveFuture, success -> onTimeSeriesUpdate(tenantId, entityId, ts));
     }
 
@@ -261,14 +265,14 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @Override
     public void saveAndNotifyInternal(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes, boolean notifyDevice, FutureCallback<Void> callback) {
         ListenableFuture<List<String>> saveFuture = attrService.save(tenantId, entityId, scope, attributes);
-        addVoidCallback(saveFuture, callback);
+        addVoidCallback(entityId, saveFuture, callback);
         addWsCallback(saveFuture, success -> onAttributesUpdate(tenantId, entityId, scope, attributes, notifyDevice));
     }
 
     @Override
     public void saveAndNotifyInternal(TenantId tenantId, EntityId entityId, AttributeScope scope, List<AttributeKvEntry> attributes, boolean notifyDevice, FutureCallback<Void> callback) {
         ListenableFuture<List<String>> saveFuture = attrService.save(tenantId, entityId, scope, attributes);
-        addVoidCallback(saveFuture, callback);
+        addVoidCallback(entityId, saveFuture, callback);
         addWsCallback(saveFuture, success -> onAttributesUpdate(tenantId, entityId, scope.name(), attributes, notifyDevice));
     }
 
@@ -281,7 +285,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @Override
     public void saveLatestAndNotifyInternal(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, FutureCallback<Void> callback) {
         ListenableFuture<List<Void>> saveFuture = tsService.saveLatest(tenantId, entityId, ts);
-        addVoidCallback(saveFuture, callback);
+        addVoidCallback(entityId, saveFuture, callback);
         addWsCallback(saveFuture, success -> onTimeSeriesUpdate(tenantId, entityId, ts));
     }
 
@@ -312,14 +316,14 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @Override
     public void deleteAndNotifyInternal(TenantId tenantId, EntityId entityId, String scope, List<String> keys, boolean notifyDevice, FutureCallback<Void> callback) {
         ListenableFuture<List<String>> deleteFuture = attrService.removeAll(tenantId, entityId, scope, keys);
-        addVoidCallback(deleteFuture, callback);
+        addVoidCallback(entityId, deleteFuture, callback);
         addWsCallback(deleteFuture, success -> onAttributesDelete(tenantId, entityId, scope, keys, notifyDevice));
     }
 
     @Override
     public void deleteAndNotifyInternal(TenantId tenantId, EntityId entityId, AttributeScope scope, List<String> keys, boolean notifyDevice, FutureCallback<Void> callback) {
         ListenableFuture<List<String>> deleteFuture = attrService.removeAll(tenantId, entityId, scope, keys);
-        addVoidCallback(deleteFuture, callback);
+        addVoidCallback(entityId, deleteFuture, callback);
         addWsCallback(deleteFuture, success -> onAttributesDelete(tenantId, entityId, scope.name(), keys, notifyDevice));
     }
 
@@ -332,7 +336,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     @Override
     public void deleteLatestInternal(TenantId tenantId, EntityId entityId, List<String> keys, FutureCallback<Void> callback) {
         ListenableFuture<List<TsKvLatestRemovingResult>> deleteFuture = tsService.removeLatest(tenantId, entityId, keys);
-        addVoidCallback(deleteFuture, callback);
+        addVoidCallback(entityId, deleteFuture, callback);
     }
 
     @Override
@@ -348,13 +352,13 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
             public void onFailure(Throwable t) {
                 callback.onFailure(t);
             }
-        }, tsCallBackExecutor);
+        }, tsCallBackExecutor.forEntity(entityId));
     }
 
     @Override
     public void deleteTimeseriesAndNotify(TenantId tenantId, EntityId entityId, List<String> keys, List<DeleteTsKvQuery> deleteTsKvQueries, FutureCallback<Void> callback) {
         ListenableFuture<List<TsKvLatestRemovingResult>> deleteFuture = tsService.remove(tenantId, entityId, deleteTsKvQueries);
-        addVoidCallback(deleteFuture, callback);
+        addVoidCallback(entityId, deleteFuture, callback);
         addWsCallback(deleteFuture, list -> onTimeSeriesDelete(tenantId, entityId, keys, list));
     }
 
@@ -509,7 +513,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
         });
     }
 
-    private <S> void addVoidCallback(ListenableFuture<S> saveFuture, final FutureCallback<Void> callback) {
+    private <S> void addVoidCallback(EntityId entityId, ListenableFuture<S> saveFuture, final FutureCallback<Void> callback) {
         if (callback == null) return;
         Futures.addCallback(saveFuture, new FutureCallback<S>() {
             @Override
@@ -521,10 +525,10 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
             public void onFailure(Throwable t) {
                 callback.onFailure(t);
             }
-        }, tsCallBackExecutor);
+        }, tsCallBackExecutor.forEntity(entityId));
     }
 
-    private <S> void addMainCallback(ListenableFuture<S> saveFuture, final FutureCallback<S> callback) {
+    private <S> void addMainCallback(EntityId entityId, ListenableFuture<S> saveFuture, final FutureCallback<S> callback) {
         Futures.addCallback(saveFuture, new FutureCallback<S>() {
             @Override
             public void onSuccess(@Nullable S result) {
@@ -535,7 +539,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
             public void onFailure(Throwable t) {
                 callback.onFailure(t);
             }
-        }, tsCallBackExecutor);
+        }, tsCallBackExecutor.forEntity(entityId));
     }
 
     private void checkInternalEntity(EntityId entityId) {
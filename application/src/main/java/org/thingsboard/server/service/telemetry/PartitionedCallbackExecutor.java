@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import io.micrometer.core.instrument.Timer;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of single-thread executors for the save/delete callbacks. The callbacks of the same entity are always
+ * executed by the same thread, so their order is preserved, while callbacks of different entities run in parallel.
+ */
+class PartitionedCallbackExecutor {
+
+    private final List<Partition> partitions;
+
+    PartitionedCallbackExecutor(String threadNamePrefix, String statsKey, int size, StatsFactory statsFactory) {
+        int partitionsCount = Math.max(1, size);
+        Timer queueTimer = statsFactory.createTimer(statsKey + ".queueTime");
+        Timer executionTimer = statsFactory.createTimer(statsKey + ".executionTime");
+        this.partitions = new ArrayList<>(partitionsCount);
+        for (int i = 0; i < partitionsCount; i++) {
+            AtomicInteger queueSize = statsFactory.createGauge(statsKey + ".queueSize", new AtomicInteger(), "partition", String.valueOf(i));
+            ExecutorService executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(threadNamePrefix + "-" + i));
+            partitions.add(new Partition(executor, queueSize, queueTimer, executionTimer));
+        }
+    }
+
+    Executor forEntity(EntityId entityId) {
+        return partitions.get(Math.abs(entityId.hashCode() % partitions.size()));
+    }
+
+    int getQueueSize() {
+        int result = 0;
+        for (Partition partition : partitions) {
+            result += partition.queueSize.get();
+        }
+        return result;
+    }
+
+    void shutdown() {
+        partitions.forEach(partition -> partition.executor.shutdownNow());
+    }
+
+    private record Partition(ExecutorService executor, AtomicInteger queueSize, Timer queueTimer, Timer executionTimer) implements Executor {
+
+        @Override
+        public void execute(Runnable command) {
+            long submitTs = System.nanoTime();
+            queueSize.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    queueSize.decrementAndGet();
+                    long startTs = System.nanoTime();
+                    queueTimer.record(startTs - submitTs, TimeUnit.NANOSECONDS);
+                    try {
+                        command.run();
+                    } finally {
+                        executionTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+                    }
+                });
+            } catch (RuntimeException e) {
+                queueSize.decrementAndGet();
+                throw e;
+            }
+        }
+
+    }
+
+}
@@ -91,6 +91,8 @@ import org.thingsboard.server.gen.transport.TransportProtos.GetEntityProfileRequ
 import org.thingsboard.server.gen.transport.TransportProtos.GetEntityProfileResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetResourceRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetSnmpDevicesRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetSnmpDevicesResponseMsg;
@@ -109,6 +111,7 @@ import org.thingsboard.server.service.profile.TbDeviceProfileCache;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -192,6 +195,8 @@ public class DefaultTransportApiService implements TransportApiService {
             result = handlerExecutor.submit(() -> validateOrCreateDeviceX509Certificate(certChain));
         } else if (transportApiRequestMsg.hasGetOrCreateDeviceRequestMsg()) {
             result = handlerExecutor.submit(() -> handle(transportApiRequestMsg.getGetOrCreateDeviceRequestMsg()));
+        } else if (transportApiRequestMsg.hasGetOrCreateDevicesRequestMsg()) {
+            result = handle(transportApiRequestMsg.getGetOrCreateDevicesRequestMsg());
         } else if (transportApiRequestMsg.hasEntityProfileRequestMsg()) {
             result = handle(transportApiRequestMsg.getEntityProfileRequestMsg());
         } else if (transportApiRequestMsg.hasLwM2MRequestMsg()) {
@@ -337,18 +342,51 @@ public class DefaultTransportApiService implements TransportApiService {
     private TransportApiResponseMsg handle(GetOrCreateDeviceFromGatewayRequestMsg requestMsg) {
         DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
         Device gateway = deviceService.findDeviceById(TenantId.SYS_TENANT_ID, gatewayId);
-        Lock deviceCreationLock = deviceCreationLocks.computeIfAbsent(requestMsg.getDeviceName(), id -> new ReentrantLock());
+        return TransportApiResponseMsg.newBuilder()
+                .setGetOrCreateDeviceResponseMsg(getOrCreateDevice(gateway, requestMsg.getDeviceName(), requestMsg.getDeviceType()))
+                .build();
+    }
+
+    /*
+     * The devices of the batch are fetched or created in parallel on the handler executor,
+     * so a large batch does not take as long as the same number of single device requests.
+     */
+    private ListenableFuture<TransportApiResponseMsg> handle(GetOrCreateDevicesFromGatewayRequestMsg requestMsg) {
+        DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
+        ListenableFuture<Device> gatewayFuture = handlerExecutor.submit(() -> deviceService.findDeviceById(TenantId.SYS_TENANT_ID, gatewayId));
+        return Futures.transformAsync(gatewayFuture, gateway -> {
+            List<ListenableFuture<GetOrCreateDeviceFromGatewayResponseMsg>> futures = new ArrayList<>(requestMsg.getDevicesCount());
+            for (TransportProtos.GatewayDeviceNameTypeProto deviceProto : requestMsg.getDevicesList()) {
+                futures.add(handlerExecutor.submit(() -> {
+                    try {
+                        return getOrCreateDevice(gateway, deviceProto.getDeviceName(), deviceProto.getDeviceType());
+                    } catch (Exception e) {
+                        log.warn("[{}] Failed to get or create device [{}] for the gateway", gatewayId, deviceProto.getDeviceName(), e);
+                        return GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
+                                .setError(TransportProtos.TransportApiRequestErrorCode.UNKNOWN_TRANSPORT_API_ERROR).build();
+                    }
+                }));
+            }
+            return Futures.transform(Futures.allAsList(futures), responses -> TransportApiResponseMsg.newBuilder()
+                    .setGetOrCreateDevicesResponseMsg(GetOrCreateDevicesFromGatewayResponseMsg.newBuilder().addAllResponses(responses).build())
+                    .build(), MoreExecutors.directExecutor());
+        }, MoreExecutors.directExecutor());
+    }
+
+    private GetOrCreateDeviceFromGatewayResponseMsg getOrCreateDevice(Device gateway, String deviceName, String deviceType) {
+        DeviceId gatewayId = gateway.getId();
+        Lock deviceCreationLock = deviceCreationLocks.computeIfAbsent(deviceName, id -> new ReentrantLock());
         deviceCreationLock.lock();
         try {
-            Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), requestMsg.getDeviceName());
+            Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), deviceName);
             if (device == null) {
                 TenantId tenantId = gateway.getTenantId();
                 device = new Device();
                 device.setTenantId(tenantId);
-                device.setName(requestMsg.getDeviceName());
-                device.setType(requestMsg.getDeviceType());
+                device.setName(deviceName);
+                device.setType(deviceType);
                 device.setCustomerId(gateway.getCustomerId());
-                DeviceProfile deviceProfile = deviceProfileCache.findOrCreateDeviceProfile(gateway.getTenantId(), requestMsg.getDeviceType());
+                DeviceProfile deviceProfile = deviceProfileCache.findOrCreateDeviceProfile(gateway.getTenantId(), deviceType);
 
                 device.setDeviceProfileId(deviceProfile.getId());
                 ObjectNode additionalInfo = JacksonUtil.newObjectNode();
@@ -390,18 +428,14 @@ public class DefaultTransportApiService implements TransportApiService {
             } else {
                 log.warn("[{}] Failed to find device profile [{}] for device. ", device.getId(), device.getDeviceProfileId());
             }
-            return TransportApiResponseMsg.newBuilder()
-                    .setGetOrCreateDeviceResponseMsg(builder.build())
-                    .build();
+            return builder.build();
         } catch (JsonProcessingException e) {
-            log.warn("[{}] Failed to lookup device by gateway id and name: [{}]", gatewayId, requestMsg.getDeviceName(), e);
+            log.warn("[{}] Failed to lookup device by gateway id and name: [{}]", gatewayId, deviceName, e);
             throw new RuntimeException(e);
         } catch (EntitiesLimitException e) {
             log.warn("[{}][{}] API limit exception: [{}]", e.getTenantId(), gatewayId, e.getMessage());
-            return TransportApiResponseMsg.newBuilder()
-                    .setGetOrCreateDeviceResponseMsg(
-                            GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
-                                    .setError(TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT))
+            return GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
+                    .setError(TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT)
                     .build();
         } finally {
             deviceCreationLock.unlock();
@@ -260,8 +260,15 @@ public class DefaultWebSocketService implements WebSocketService {
 
     @Override
     public void sendUpdate(String sessionId, int cmdId, TelemetrySubscriptionUpdate update) {
-        // We substitute the subscriptionId with cmdId for old-style subscriptions.
-        doSendUpdate(sessionId, cmdId, update.copyWithNewSubscriptionId(cmdId));
+        sendUpdate(sessionId, cmdId, update, true);
+    }
+
+    private void sendUpdate(String sessionId, int cmdId, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        WsSessionMetaData md = wsSessionsMap.get(sessionId);
+        if (md != null) {
+            // We substitute the subscriptionId with cmdId for old-style subscriptions.
+            sendUpdate(md.getSessionRef(), update.copyWithNewSubscriptionId(cmdId), latestValues);
+        }
     }
 
     @Override
@@ -688,6 +695,8 @@ public class DefaultWebSocketService implements WebSocketService {
 
     private FutureCallback<List<TsKvEntry>> getSubscriptionCallback(final WebSocketSessionRef sessionRef, final TimeseriesSubscriptionCmd cmd,
                                                                     final String sessionId, final EntityId entityId, final long queryTs, final long startTs, final List<String> keys) {
+        // time window subscriptions show the history of the keys, so their updates keep all data points
+        boolean latestValues = cmd.getTimeWindow() <= 0;
         return new FutureCallback<>() {
             @Override
             public void onSuccess(List<TsKvEntry> data) {
@@ -705,7 +714,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update, latestValues);
                             } finally {
                                 subLock.unlock();
                             }
@@ -718,7 +727,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub);
-                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data));
+                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data), latestValues);
                 } finally {
                     subLock.unlock();
                 }
@@ -812,7 +821,18 @@ public class DefaultWebSocketService implements WebSocketService {
     }
 
     private void sendUpdate(WebSocketSessionRef sessionRef, TelemetrySubscriptionUpdate update) {
-        sendUpdate(sessionRef, update.getSubscriptionId(), update);
+        sendUpdate(sessionRef, update, true);
+    }
+
+    private void sendUpdate(WebSocketSessionRef sessionRef, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        // serialized by the endpoint, so that the data is serialized once for all sessions subscribed to it
+        executor.submit(() -> {
+            try {
+                msgEndpoint.send(sessionRef, update.getSubscriptionId(), update, latestValues);
+            } catch (IOException e) {
+                log.warn("[{}] Failed to send reply: {}", sessionRef.getSessionId(), update, e);
+            }
+        });
     }
 
     private void sendUpdate(WebSocketSessionRef sessionRef, int cmdId, Object update) {
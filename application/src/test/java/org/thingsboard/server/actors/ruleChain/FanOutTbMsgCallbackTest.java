@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FanOutTbMsgCallbackTest {
+
+    @Test
+    public void givenAllCopiesProcessed_whenOnSuccess_thenOriginalCallbackIsAcknowledgedOnce() {
+        TbMsgCallback original = mock(TbMsgCallback.class);
+        FanOutTbMsgCallback callback = new FanOutTbMsgCallback(3, original);
+
+        callback.onSuccess();
+        callback.onSuccess();
+        verify(original, never()).onSuccess();
+        assertThat(callback.getPendingCount()).isEqualTo(1);
+
+        callback.onSuccess();
+        verify(original, times(1)).onSuccess();
+    }
+
+    @Test
+    public void givenCopyFailed_whenOtherCopiesComplete_thenOriginalCallbackIsFailedOnce() {
+        TbMsgCallback original = mock(TbMsgCallback.class);
+        when(original.isMsgValid()).thenReturn(true);
+        FanOutTbMsgCallback callback = new FanOutTbMsgCallback(2, original);
+
+        assertThat(callback.isMsgValid()).isTrue();
+        callback.onFailure(new RuleEngineException("Failed"));
+        callback.onFailure(new RuleEngineException("Failed"));
+        callback.onSuccess();
+        callback.onSuccess();
+
+        verify(original, times(1)).onFailure(any());
+        verify(original, never()).onSuccess();
+        assertThat(callback.isMsgValid()).isFalse();
+    }
+
+    @Test
+    public void givenOneCopySucceeded_whenOtherCopyFails_thenWholeOriginalMsgIsFailed() {
+        TbMsgCallback original = mock(TbMsgCallback.class);
+        when(original.isMsgValid()).thenReturn(true);
+        FanOutTbMsgCallback callback = new FanOutTbMsgCallback(3, original);
+
+        callback.onSuccess();
+        callback.onRateLimit(new RuleEngineException("Rate limit"));
+
+        // the original message is failed as a whole, so the already processed branch is reprocessed on retry
+        verify(original, times(1)).onRateLimit(any());
+        verify(original, never()).onFailure(any());
+        verify(original, never()).onSuccess();
+        assertThat(callback.isMsgValid()).isFalse();
+
+        callback.onSuccess();
+        verify(original, never()).onSuccess();
+    }
+
+    @Test
+    public void givenMsg_whenCopyForFanOut_thenDataIsSharedAndMetaDataAndProcessingContextAreCopied() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{\"temperature\":42}");
+        FanOutTbMsgCallback callback = new FanOutTbMsgCallback(2, msg.getCallback());
+
+        TbMsg first = msg.copyForFanOut(UUID.randomUUID(), callback);
+        TbMsg second = msg.copyForFanOut(UUID.randomUUID(), callback);
+
+        assertThat(first.getId()).isNotEqualTo(msg.getId()).isNotEqualTo(second.getId());
+        assertThat(first.getData()).isSameAs(msg.getData());
+        assertThat(first.getMetaData()).isNotSameAs(msg.getMetaData()).isNotSameAs(second.getMetaData());
+        first.getMetaData().putValue("result", "42");
+        assertThat(msg.getMetaData().getValue("result")).isNull();
+        assertThat(second.getMetaData().getValue("result")).isNull();
+        assertThat(first.getCallback()).isSameAs(callback);
+        first.getAndIncrementRuleNodeCounter();
+        assertThat(second.getAndIncrementRuleNodeCounter()).isZero();
+    }
+
+}
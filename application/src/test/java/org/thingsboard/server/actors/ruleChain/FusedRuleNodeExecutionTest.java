@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.filter.TbMsgTypeSwitchNode;
+import org.thingsboard.rule.engine.filter.TbOriginatorTypeFilterNode;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbEntityActorId;
+import org.thingsboard.server.common.data.TenantProfile;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
+import org.thingsboard.server.common.data.tenant.profile.TenantProfileData;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.TbApiUsageReportClient;
+import org.thingsboard.server.dao.rule.RuleChainService;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.service.stats.DefaultRuleNodeStatsService;
+import org.thingsboard.server.service.stats.RuleNodeStatsInfo;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FusedRuleNodeExecutionTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final RuleChainId ruleChainId = new RuleChainId(UUID.randomUUID());
+
+    private ActorSystemContext systemContext;
+    private TbActorSystem actorSystem;
+    private RuleChainService ruleChainService;
+    private TbActorRef chainActor;
+    private TbActorRef switchActor;
+    private TbActorRef filterActor;
+    private RuleNodeCtx switchCtx;
+    private RuleNodeCtx filterCtx;
+    private RuleNodeActorMessageProcessor switchProcessor;
+    private RuleNodeActorMessageProcessor filterProcessor;
+    private DefaultRuleNodeStatsService ruleNodeStatsService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        systemContext = mock(ActorSystemContext.class);
+        ruleChainService = mock(RuleChainService.class);
+        TbTenantProfileCache tenantProfileCache = mock(TbTenantProfileCache.class);
+        TenantProfile tenantProfile = new TenantProfile();
+        TenantProfileData profileData = new TenantProfileData();
+        profileData.setConfiguration(DefaultTenantProfileConfiguration.builder().build());
+        tenantProfile.setProfileData(profileData);
+        when(tenantProfileCache.get(tenantId)).thenReturn(tenantProfile);
+        when(systemContext.getTenantProfileCache()).thenReturn(tenantProfileCache);
+        when(systemContext.getRuleChainService()).thenReturn(ruleChainService);
+        when(systemContext.getApiUsageClient()).thenReturn(mock(TbApiUsageReportClient.class));
+        when(systemContext.isRuleChainDirectRoutingEnabled()).thenReturn(true);
+        when(systemContext.getMaxFusedRuleNodes()).thenReturn(8);
+        ruleNodeStatsService = new DefaultRuleNodeStatsService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ruleNodeStatsService, "ruleNodeStatsEnabled", true);
+        when(systemContext.getRuleNodeStatsService()).thenReturn(ruleNodeStatsService);
+        when(systemContext.resolve(any(), any(), any(), any())).thenReturn(new TopicPartitionInfo("tb_rule_engine", tenantId, 0, true));
+
+        chainActor = mock(TbActorRef.class);
+        switchActor = mock(TbActorRef.class);
+        filterActor = mock(TbActorRef.class);
+
+        RuleNode switchNode = newRuleNode(TbMsgTypeSwitchNode.class.getName(), "{}");
+        RuleNode filterNode = newRuleNode(TbOriginatorTypeFilterNode.class.getName(), "{\"originatorTypes\":[\"DEVICE\"]}");
+        actorSystem = mock(TbActorSystem.class);
+        when(systemContext.getActorSystem()).thenReturn(actorSystem);
+        registerActor(switchActor, switchNode);
+        registerActor(filterActor, filterNode);
+
+        FusedRuleNodeLink filterLink = new FusedRuleNodeLink();
+        switchCtx = new RuleNodeCtx(tenantId, chainActor, switchActor, switchNode, new FusedRuleNodeLink());
+        filterCtx = new RuleNodeCtx(tenantId, chainActor, filterActor, filterNode, filterLink);
+        Map<RuleNodeId, RuleNodeCtx> nodes = Map.of(switchNode.getId(), switchCtx, filterNode.getId(), filterCtx);
+        switchCtx.setRoutes(new RuleNodeRoutes(List.of(new RuleNodeRelation(switchNode.getId(), filterNode.getId(),
+                TbMsgType.POST_TELEMETRY_REQUEST.getRuleNodeConnection())), nodes::get));
+        filterCtx.setRoutes(RuleNodeRoutes.EMPTY);
+
+        switchProcessor = new RuleNodeActorMessageProcessor(tenantId, "Root", switchNode.getId(), systemContext, chainActor, switchActor, null);
+        switchProcessor.start(null);
+        filterProcessor = new RuleNodeActorMessageProcessor(tenantId, "Root", filterNode.getId(), systemContext, chainActor, filterActor, filterLink);
+        filterProcessor.start(null);
+    }
+
+    @Test
+    public void givenStatelessNextNode_whenTellNext_thenNodeIsExecutedInline() throws Exception {
+        TbMsg msg = newMsg();
+
+        switchProcessor.onRuleChainToRuleNodeMsg(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, "Root", switchCtx), msg, ""));
+
+        verify(filterActor, never()).tell(any());
+        verify(chainActor).tell(eq(new RuleNodeToRuleChainTellNextMsg(ruleChainId, filterCtx.getSelf().getId(),
+                Collections.singleton(TbNodeConnectionType.TRUE), msg, null)));
+        assertThat(filterProcessor.getAndResetFusedMsgCount()).isEqualTo(1);
+        assertThat(filterProcessor.getAndResetFusedMsgCount()).isZero();
+    }
+
+    @Test
+    public void givenStatelessNextNode_whenTellNext_thenStatsOfBothNodesAreRecorded() throws Exception {
+        switchProcessor.onRuleChainToRuleNodeMsg(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, "Root", switchCtx), newMsg(), ""));
+
+        List<RuleNodeStatsInfo> stats = ruleNodeStatsService.getStats(tenantId, "invocations", 10);
+        assertThat(stats).hasSize(2).allSatisfy(nodeStats -> {
+            assertThat(nodeStats.ruleChainName()).isEqualTo("Root");
+            assertThat(nodeStats.invocations()).isEqualTo(1);
+            assertThat(nodeStats.failures()).isZero();
+            assertThat(nodeStats.latencyHistogram().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(1);
+        });
+
+        filterProcessor.stop(null);
+        assertThat(ruleNodeStatsService.getStats(tenantId, "invocations", 10)).singleElement()
+                .extracting(RuleNodeStatsInfo::ruleNodeId).isEqualTo(switchCtx.getSelf().getId());
+    }
+
+    @Test
+    public void givenFusingDisabled_whenTellNext_thenMessageIsPassedToNodeActor() throws Exception {
+        when(systemContext.getMaxFusedRuleNodes()).thenReturn(0);
+        TbMsg msg = newMsg();
+
+        switchProcessor.onRuleChainToRuleNodeMsg(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, "Root", switchCtx), msg, ""));
+
+        verify(filterActor).tell(any(RuleChainToRuleNodeMsg.class));
+        verify(chainActor, never()).tell(any(TbActorMsg.class));
+        assertThat(filterProcessor.getAndResetFusedMsgCount()).isZero();
+    }
+
+    @Test
+    public void givenStoppedNode_whenTellNext_thenMessageIsPassedToNodeActor() throws Exception {
+        filterProcessor.stop(null);
+        TbMsg msg = newMsg();
+
+        switchProcessor.onRuleChainToRuleNodeMsg(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, "Root", switchCtx), msg, ""));
+
+        verify(filterActor).tell(any(RuleChainToRuleNodeMsg.class));
+    }
+
+    @Test
+    public void givenStoppedNextNodeActor_whenTellNext_thenChainActorRoutesTheMessage() throws Exception {
+        when(actorSystem.getActor(filterActor.getActorId())).thenReturn(null);
+        TbMsg msg = newMsg();
+
+        switchProcessor.onRuleChainToRuleNodeMsg(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, "Root", switchCtx), msg, ""));
+
+        verify(filterActor, never()).tell(any());
+        verify(chainActor).tell(eq(new RuleNodeToRuleChainTellNextMsg(ruleChainId, switchCtx.getSelf().getId(),
+                Collections.singleton(TbMsgType.POST_TELEMETRY_REQUEST.getRuleNodeConnection()), msg, null)));
+        assertThat(filterProcessor.getAndResetFusedMsgCount()).isZero();
+    }
+
+    private void registerActor(TbActorRef actorRef, RuleNode ruleNode) {
+        TbEntityActorId actorId = new TbEntityActorId(ruleNode.getId());
+        when(actorRef.getActorId()).thenReturn(actorId);
+        when(actorSystem.getActor(actorId)).thenReturn(actorRef);
+    }
+
+    private TbMsg newMsg() {
+        TbMsgCallback callback = mock(TbMsgCallback.class);
+        when(callback.isMsgValid()).thenReturn(true);
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), TbMsgMetaData.EMPTY, "{}", callback);
+    }
+
+    private RuleNode newRuleNode(String type, String configuration) {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        ruleNode.setRuleChainId(ruleChainId);
+        ruleNode.setType(type);
+        ruleNode.setName(type);
+        ruleNode.setConfiguration(JacksonUtil.toJsonNode(configuration));
+        when(ruleChainService.findRuleNodeById(tenantId, ruleNode.getId())).thenReturn(ruleNode);
+        return ruleNode;
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RuleNodeRoutesTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final RuleNodeId sourceId = new RuleNodeId(UUID.randomUUID());
+    private final Map<RuleNodeId, RuleNodeCtx> nodes = new HashMap<>();
+
+    @Test
+    public void givenSingleRuleNodeRelation_whenGetDirectTarget_thenTargetIsResolvedIgnoringCase() {
+        RuleNodeCtx target = newNode();
+        RuleNodeRoutes routes = new RuleNodeRoutes(List.of(relation(target.getSelf().getId(), TbNodeConnectionType.SUCCESS)), nodes::get);
+
+        assertThat(routes.getDirectTarget(TbNodeConnectionType.SUCCESS)).isSameAs(target);
+        assertThat(routes.getDirectTarget("success")).isSameAs(target);
+        assertThat(routes.getDirectTarget(TbNodeConnectionType.FAILURE)).isNull();
+        assertThat(routes.getRelations(Set.of("SUCCESS"))).hasSize(1);
+    }
+
+    @Test
+    public void givenSeveralTargetsOrRuleChainTarget_whenGetDirectTarget_thenChainActorRoutesTheMessage() {
+        RuleNodeCtx first = newNode();
+        RuleNodeCtx second = newNode();
+        RuleNodeRoutes routes = new RuleNodeRoutes(List.of(
+                relation(first.getSelf().getId(), TbNodeConnectionType.SUCCESS),
+                relation(second.getSelf().getId(), TbNodeConnectionType.SUCCESS),
+                new RuleNodeRelation(sourceId, new RuleChainId(UUID.randomUUID()), TbNodeConnectionType.OTHER)), nodes::get);
+
+        assertThat(routes.getDirectTarget(TbNodeConnectionType.SUCCESS)).isNull();
+        assertThat(routes.getDirectTarget(TbNodeConnectionType.OTHER)).isNull();
+        assertThat(routes.getRelations(Set.of(TbNodeConnectionType.SUCCESS))).hasSize(2);
+        assertThat(routes.getRelations(Set.of(TbNodeConnectionType.SUCCESS, TbNodeConnectionType.OTHER))).hasSize(3);
+        assertThat(routes.getRelations(null)).hasSize(3);
+        assertThat(routes.getRelations(Set.of(TbNodeConnectionType.TRUE))).isEmpty();
+    }
+
+    private RuleNodeCtx newNode() {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        RuleNodeCtx nodeCtx = new RuleNodeCtx(tenantId, mock(TbActorRef.class), mock(TbActorRef.class), ruleNode);
+        nodes.put(ruleNode.getId(), nodeCtx);
+        return nodeCtx;
+    }
+
+    private RuleNodeRelation relation(RuleNodeId target, String type) {
+        return new RuleNodeRelation(sourceId, target, type);
+    }
+
+}
@@ -22,15 +22,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.service.ws.WebSocketSessionRef;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
 
 import jakarta.websocket.RemoteEndpoint;
 import jakarta.websocket.SendHandler;
 import jakarta.websocket.SendResult;
 import jakarta.websocket.Session;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
@@ -163,6 +170,79 @@ class TbWebSocketHandlerTest {
         verify(asyncRemote, times(1)).sendText(anyString(), any());
     }
 
+    @Test
+    void toJson_sameAsDefaultSerialization() {
+        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(5, List.of(
+                new BasicTsKvEntry(1000L, new DoubleDataEntry("temperature", 21.5)),
+                new BasicTsKvEntry(2000L, new LongDataEntry("humidity", 40L))));
+
+        assertThat(JacksonUtil.toJsonNode(wsHandler.toJson(update))).isEqualTo(JacksonUtil.toJsonNode(JacksonUtil.toString(update)));
+        assertThat(JacksonUtil.toJsonNode(wsHandler.toJson(update.copyWithNewSubscriptionId(7))))
+                .isEqualTo(JacksonUtil.toJsonNode(JacksonUtil.toString(update.copyWithNewSubscriptionId(7))));
+    }
+
+    @Test
+    void sendHandler_sendTelemetryUpdate_conflatedWhenSessionIsSlow() {
+        ReflectionTestUtils.setField(wsHandler, "wsConflationQueueMessagesPerSession", 2);
+        List<String> outputs = new ArrayList<>();
+        List<SendHandler> handlers = new ArrayList<>();
+        willAnswer(invocation -> {
+            outputs.add(invocation.getArgument(0));
+            handlers.add(invocation.getArgument(1));
+            return null;
+        }).given(asyncRemote).sendText(anyString(), any());
+
+        sendHandler.sendMsg("in-flight");
+        sendHandler.sendTelemetryUpdate(1, telemetryUpdate(1, "temperature", 1000L, 20), true);
+        sendHandler.sendMsg("other");
+        sendHandler.sendTelemetryUpdate(1, telemetryUpdate(1, "temperature", 2000L, 21), true);
+        sendHandler.sendTelemetryUpdate(1, telemetryUpdate(1, "humidity", 2000L, 50), true);
+        for (int i = 0; i < handlers.size(); i++) {
+            handlers.get(i).onResult(new SendResult());
+        }
+
+        assertThat(outputs).hasSize(3);
+        assertThat(outputs.get(0)).isEqualTo("in-flight");
+        assertThat(outputs.get(2)).isEqualTo("other");
+        TelemetrySubscriptionUpdate expected = new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(2000L, new LongDataEntry("temperature", 21L)),
+                new BasicTsKvEntry(2000L, new LongDataEntry("humidity", 50L))));
+        assertThat(JacksonUtil.toJsonNode(outputs.get(1))).isEqualTo(JacksonUtil.toJsonNode(JacksonUtil.toString(expected)));
+        verify(sendHandler, never()).closeSession(any());
+    }
+
+    @Test
+    void sendHandler_sendTelemetryUpdate_timeSeriesDataPointsKeptWhenConflated() {
+        ReflectionTestUtils.setField(wsHandler, "wsConflationQueueMessagesPerSession", 2);
+        List<String> outputs = new ArrayList<>();
+        List<SendHandler> handlers = new ArrayList<>();
+        willAnswer(invocation -> {
+            outputs.add(invocation.getArgument(0));
+            handlers.add(invocation.getArgument(1));
+            return null;
+        }).given(asyncRemote).sendText(anyString(), any());
+
+        sendHandler.sendMsg("in-flight");
+        sendHandler.sendTelemetryUpdate(1, telemetryUpdate(1, "temperature", 1000L, 20), false);
+        sendHandler.sendMsg("other");
+        sendHandler.sendTelemetryUpdate(1, telemetryUpdate(1, "temperature", 2000L, 21), false);
+        sendHandler.sendTelemetryUpdate(1, telemetryUpdate(1, "humidity", 2000L, 50), false);
+        for (int i = 0; i < handlers.size(); i++) {
+            handlers.get(i).onResult(new SendResult());
+        }
+
+        assertThat(outputs).hasSize(3);
+        TelemetrySubscriptionUpdate expected = new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(1000L, new LongDataEntry("temperature", 20L)),
+                new BasicTsKvEntry(2000L, new LongDataEntry("temperature", 21L)),
+                new BasicTsKvEntry(2000L, new LongDataEntry("humidity", 50L))));
+        assertThat(JacksonUtil.toJsonNode(outputs.get(1))).isEqualTo(JacksonUtil.toJsonNode(JacksonUtil.toString(expected)));
+    }
+
+    private TelemetrySubscriptionUpdate telemetryUpdate(int subscriptionId, String key, long ts, long value) {
+        return new TelemetrySubscriptionUpdate(subscriptionId, List.of(new BasicTsKvEntry(ts, new LongDataEntry(key, value))));
+    }
+
     @Test
     void sendHandler_onMsg_allProcessed() throws Exception {
         Deque<String> msgs = new ConcurrentLinkedDeque<>();
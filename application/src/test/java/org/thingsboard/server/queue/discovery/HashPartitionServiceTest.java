@@ -16,6 +16,8 @@
 package org.thingsboard.server.queue.discovery;
 
 import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.ListUtils;
@@ -115,6 +117,33 @@ public class HashPartitionServiceTest {
         testDevicesDispersion(devices);
     }
 
+    @Test
+    public void testMurmur3HashIsSameAsGuava() {
+        HashFunction hashFunction = Hashing.murmur3_128();
+        Random random = new Random();
+        for (int i = 0; i < 100000; i++) {
+            long msb = random.nextLong();
+            long lsb = random.nextLong();
+            assertThat(HashPartitionService.murmur3_128AsInt(msb, lsb))
+                    .isEqualTo(hashFunction.newHasher().putLong(msb).putLong(lsb).hash().asInt());
+        }
+    }
+
+    @Test
+    public void testResolveReturnsPrebuiltTopicPartitionInfo() {
+        List<Integer> myPartitions = partitionService.getMyPartitions(new QueueKey(ServiceType.TB_CORE));
+        for (int i = 0; i < 100; i++) {
+            DeviceId deviceId = new DeviceId(UUID.randomUUID());
+            TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, deviceId);
+            int partition = partitionService.resolvePartitionIndex(deviceId.getId(), 10);
+
+            assertThat(partitionService.resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, deviceId)).isSameAs(tpi);
+            assertThat(tpi.getPartition()).contains(partition);
+            assertThat(tpi.getTopic()).isEqualTo("tb.core");
+            assertThat(tpi.isMyPartition()).isEqualTo(myPartitions.contains(partition));
+        }
+    }
+
     private void testDevicesDispersion(List<DeviceId> devices) {
         long start = System.currentTimeMillis();
         Map<Integer, Integer> map = new HashMap<>();
@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.entitiy.entityview;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.EntityView;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityViewId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
+import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.entityview.EntityViewService;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.service.executors.DbCallbackExecutorService;
+import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+public class DefaultTbEntityViewServiceTest {
+
+    @Mock
+    EntityViewService entityViewService;
+    @Mock
+    AttributesService attributesService;
+    @Mock
+    TelemetrySubscriptionService tsSubService;
+    @Mock
+    TimeseriesService tsService;
+    @Mock
+    DbCallbackExecutorService dbExecutor;
+
+    DefaultTbEntityViewService service;
+
+    TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @BeforeEach
+    public void setUp() {
+        service = new DefaultTbEntityViewService(entityViewService, attributesService, tsSubService, tsService);
+        ReflectionTestUtils.setField(service, "dbExecutor", dbExecutor);
+        given(dbExecutor.executeAsync(any(Callable.class))).willAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            return Futures.immediateFuture(task.call());
+        });
+    }
+
+    @Test
+    public void givenEntityViews_whenFindByEntityId_thenTenantEntityViewsAreLoadedOnce() throws Exception {
+        EntityView entityView = entityView(deviceId);
+        given(entityViewService.findEntityViewByTenantId(eq(tenantId), any())).willReturn(new PageData<>(List.of(entityView), 1, 1, false));
+
+        assertThat(service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId).get()).containsExactly(entityView);
+        assertThat(service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, new DeviceId(UUID.randomUUID())).get()).isEmpty();
+
+        then(entityViewService).should(times(1)).findEntityViewByTenantId(eq(tenantId), any());
+    }
+
+    @Test
+    public void givenLoadedEntityViews_whenEntityViewUpdatedAndDeleted_thenIndexIsUpdated() throws Exception {
+        EntityView entityView = entityView(deviceId);
+        given(entityViewService.findEntityViewByTenantId(eq(tenantId), any())).willReturn(new PageData<>(List.of(entityView), 1, 1, false));
+        service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId).get();
+
+        DeviceId newDeviceId = new DeviceId(UUID.randomUUID());
+        EntityView updated = entityView(newDeviceId);
+        updated.setId(entityView.getId());
+        given(entityViewService.findEntityViewById(tenantId, entityView.getId())).willReturn(updated);
+        service.onComponentLifecycleMsg(new ComponentLifecycleMsg(tenantId, entityView.getId(), ComponentLifecycleEvent.UPDATED));
+
+        assertThat(service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId).get()).isEmpty();
+        assertThat(service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, newDeviceId).get()).containsExactly(updated);
+
+        service.onComponentLifecycleMsg(new ComponentLifecycleMsg(tenantId, entityView.getId(), ComponentLifecycleEvent.DELETED));
+        assertThat(service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, newDeviceId).get()).isEmpty();
+        then(entityViewService).should(times(1)).findEntityViewByTenantId(eq(tenantId), any());
+    }
+
+    @Test
+    public void givenLoadedEntityViews_whenTenantDeleted_thenTenantIndexIsRemoved() throws Exception {
+        given(entityViewService.findEntityViewByTenantId(eq(tenantId), any())).willReturn(new PageData<>(List.of(entityView(deviceId)), 1, 1, false));
+        service.findEntityViewsByTenantIdAndEntityIdAsync(tenantId, deviceId).get();
+        assertThat(service.entityViewsByTenant).containsKey(tenantId);
+
+        service.onComponentLifecycleMsg(new ComponentLifecycleMsg(tenantId, tenantId, ComponentLifecycleEvent.DELETED));
+
+        assertThat(service.entityViewsByTenant).isEmpty();
+    }
+
+    private EntityView entityView(DeviceId deviceId) {
+        EntityView entityView = new EntityView(new EntityViewId(UUID.randomUUID()));
+        entityView.setTenantId(tenantId);
+        entityView.setEntityId(deviceId);
+        return entityView;
+    }
+
+}
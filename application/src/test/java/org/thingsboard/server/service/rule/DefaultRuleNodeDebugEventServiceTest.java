@@ -0,0 +1,169 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.event.Event;
+import org.thingsboard.server.common.data.event.RuleNodeDebugEvent;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.event.EventService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultRuleNodeDebugEventServiceTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+
+    private EventService eventService;
+    private DefaultRuleNodeDebugEventService service;
+
+    @BeforeEach
+    public void setUp() {
+        eventService = mock(EventService.class);
+        when(eventService.saveAsync(any())).thenReturn(Futures.immediateFuture(null));
+        TbServiceInfoProvider serviceInfoProvider = mock(TbServiceInfoProvider.class);
+        when(serviceInfoProvider.getServiceId()).thenReturn("tb-edge");
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createDefaultCounter(anyString(), any(String[].class)))
+                .thenAnswer(invocation -> new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+        service = new DefaultRuleNodeDebugEventService(eventService, serviceInfoProvider, statsFactory);
+        ReflectionTestUtils.setField(service, "samplingMode", RuleNodeDebugSamplingMode.ALL);
+        ReflectionTestUtils.setField(service, "samplingRate", 1.0);
+        ReflectionTestUtils.setField(service, "bufferSize", 100);
+        // The buffer is drained by the test
+        ReflectionTestUtils.setField(service, "pollInterval", 3600000L);
+        ReflectionTestUtils.setField(service, "statsPrintInterval", 3600000L);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void givenSamplingByMessage_whenIsSampled_thenRateIsRespectedAndFailuresAreSampled() {
+        ReflectionTestUtils.setField(service, "samplingMode", RuleNodeDebugSamplingMode.MESSAGE);
+        ReflectionTestUtils.setField(service, "samplingRate", 0.1);
+
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            TbMsg msg = newMsg(new DeviceId(UUID.randomUUID()), "{}");
+            if (service.isSampled(msg, false)) {
+                sampled++;
+                assertThat(service.isSampled(msg, false)).isTrue();
+            }
+            assertThat(service.isSampled(msg, true)).isTrue();
+        }
+        assertThat(sampled).isBetween(800, 1200);
+    }
+
+    @Test
+    public void givenSamplingByOriginator_whenIsSampled_thenAllMessagesOfOriginatorAreSampled() {
+        ReflectionTestUtils.setField(service, "samplingMode", RuleNodeDebugSamplingMode.ORIGINATOR);
+        ReflectionTestUtils.setField(service, "samplingRate", 0.5);
+
+        int sampledOriginators = 0;
+        for (int i = 0; i < 1000; i++) {
+            DeviceId deviceId = new DeviceId(UUID.randomUUID());
+            boolean sampled = service.isSampled(newMsg(deviceId, "{}"), false);
+            for (int j = 0; j < 5; j++) {
+                assertThat(service.isSampled(newMsg(deviceId, "{}"), false)).isEqualTo(sampled);
+            }
+            sampledOriginators += sampled ? 1 : 0;
+        }
+        assertThat(sampledOriginators).isBetween(400, 600);
+    }
+
+    @Test
+    public void givenEvent_whenDrain_thenEventIsSavedWithTruncatedPayloadAndMetadataSnapshot() {
+        ReflectionTestUtils.setField(service, "maxPayloadSize", 30);
+        TbMsgMetaData metaData = new TbMsgMetaData(Map.of("deviceName", "Thermostat"));
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), metaData, "{\"temperature\":42.5,\"humidity\":60.1}");
+
+        service.persistAsync(tenantId, ruleNodeId, "OUT", msg, "Success", null, "Failed to save");
+        metaData.putValue("deviceName", "Changed by the next node");
+        service.drain();
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventService).saveAsync(captor.capture());
+        RuleNodeDebugEvent event = (RuleNodeDebugEvent) captor.getValue();
+        assertThat(event.getEntityId()).isEqualTo(ruleNodeId.getId());
+        assertThat(event.getServiceId()).isEqualTo("tb-edge");
+        assertThat(event.getEventType()).isEqualTo("OUT");
+        assertThat(event.getMsgId()).isEqualTo(msg.getId());
+        assertThat(event.getRelationType()).isEqualTo("Success");
+        assertThat(event.getData()).startsWith("{\"temperature\":42.5,\"humidity\"...[truncated");
+        assertThat(event.getMetadata()).isEqualTo("{\"deviceName\":\"Thermostat\"}");
+        assertThat(event.getError()).isEqualTo("Failed to save");
+        assertThat(event.getCreatedTime()).isPositive();
+    }
+
+    @Test
+    public void givenFullBuffer_whenPersistAsync_thenEventsAreDropped() {
+        for (int i = 0; i < 150; i++) {
+            service.persistAsync(tenantId, ruleNodeId, "IN", newMsg(new DeviceId(UUID.randomUUID()), "{}"), "Success", null, null);
+        }
+        service.drain();
+
+        verify(eventService, times(100)).saveAsync(any());
+        assertThat(((DefaultCounter) ReflectionTestUtils.getField(service, "droppedCounter")).get()).isEqualTo(50);
+    }
+
+    @Test
+    public void givenSlowDatabase_whenDrain_thenNumberOfSavingEventsIsLimited() {
+        when(eventService.saveAsync(any())).thenReturn(SettableFuture.create());
+        for (int i = 0; i < 100; i++) {
+            service.persistAsync(tenantId, ruleNodeId, "IN", newMsg(new DeviceId(UUID.randomUUID()), "{}"), "Success", null, null);
+        }
+        service.drain();
+        service.persistAsync(tenantId, ruleNodeId, "IN", newMsg(new DeviceId(UUID.randomUUID()), "{}"), "Success", null, null);
+        service.drain();
+
+        verify(eventService, times(100)).saveAsync(any());
+    }
+
+    private static TbMsg newMsg(DeviceId deviceId, String data) {
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, data);
+    }
+
+}
@@ -77,6 +77,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.thingsboard.server.common.data.DataConstants.SERVER_SCOPE;
@@ -584,6 +585,70 @@ public class DefaultDeviceStateServiceTest {
         activityVerify(false);
     }
 
+    @Test
+    public void givenDeviceReportedInactive_whenCheckStates_thenDeviceIsNotCheckedAgainUntilActivity() throws Exception {
+        final long defaultTimeout = 1;
+        initStateService(defaultTimeout);
+        DeviceState deviceState = DeviceState.builder().build();
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build();
+
+        service.deviceStates.put(deviceId, deviceStateData);
+        service.getPartitionedEntities(tpi).add(deviceId);
+
+        long activityTime = System.currentTimeMillis();
+        service.onDeviceActivity(tenantId, deviceId, activityTime);
+        activityVerify(true);
+        long checkTime = activityTime + defaultTimeout + 5;
+        doReturn(checkTime).when(service).getCurrentTimeMillis();
+        service.checkStates();
+        activityVerify(false);
+        assertThat(service.inactivityTimeouts.size()).isZero();
+
+        service.checkStates();
+        service.checkStates();
+        verify(service, times(1)).updateInactivityStateIfExpired(anyLong(), eq(deviceId), any());
+
+        reset(telemetrySubscriptionService);
+
+        service.onDeviceActivity(tenantId, deviceId, checkTime);
+        activityVerify(true);
+        assertThat(service.inactivityTimeouts.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenPartitionDeviceWithoutStateData_whenCheckStates_thenStateIsFetchedAndChecked() throws Exception {
+        final long defaultTimeout = 1000;
+        initStateService(defaultTimeout);
+        long activityTime = System.currentTimeMillis();
+        DeviceState deviceState = DeviceState.builder()
+                .active(true)
+                .lastActivityTime(activityTime)
+                .inactivityTimeout(defaultTimeout)
+                .build();
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build();
+        willReturn(deviceStateData).given(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        service.getPartitionedEntities(tpi).add(deviceId);
+        service.deviceStates.remove(deviceId);
+        service.inactivityTimeouts.remove(deviceId);
+
+        doReturn(activityTime + defaultTimeout + 5).when(service).getCurrentTimeMillis();
+        service.checkStates();
+
+        verify(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        assertThat(service.deviceStates.get(deviceId)).isEqualTo(deviceStateData);
+        activityVerify(false);
+    }
+
     @Test
     public void increaseInactivityForActiveDeviceTest() throws Exception {
         final long defaultTimeout = 1000;
@@ -731,6 +796,64 @@ public class DefaultDeviceStateServiceTest {
     }
 
 
+    @Test
+    public void givenActivityPersistInterval_whenUpdateActivityStateOfActiveDevice_thenLastActivityTimeIsPersistedOnFlush() {
+        // GIVEN
+        service.setActivityPersistIntervalInSec(10);
+        DeviceState deviceState = DeviceState.builder()
+                .active(true)
+                .lastActivityTime(100L)
+                .inactivityTimeout(10000)
+                .build();
+
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build();
+
+        // WHEN
+        service.updateActivityState(deviceId, deviceStateData, 200L);
+        service.updateActivityState(deviceId, deviceStateData, 300L);
+
+        // THEN
+        assertThat(deviceState.getLastActivityTime()).isEqualTo(300L);
+        then(telemetrySubscriptionService).shouldHaveNoInteractions();
+
+        service.flushActivityTimes();
+        then(telemetrySubscriptionService).should().saveAttrAndNotify(
+                any(), eq(deviceId), any(AttributeScope.class), eq(LAST_ACTIVITY_TIME), eq(300L), any()
+        );
+        then(telemetrySubscriptionService).shouldHaveNoMoreInteractions();
+        assertThat(service.pendingActivityTimes).isEmpty();
+    }
+
+    @Test
+    public void givenActivityPersistInterval_whenRestoringStateOfActiveDevice_thenLastActivityTimeIsShiftedByInterval() {
+        // GIVEN
+        service.setActivityPersistIntervalInSec(10);
+        long currentTime = System.currentTimeMillis();
+        doReturn(currentTime).when(service).getCurrentTimeMillis();
+        long persistedActivityTime = currentTime - 60000L;
+        var deviceUuid = deviceId.getId();
+
+        // WHEN
+        DeviceStateData activeState = service.toDeviceStateData(new EntityData(deviceId, Map.of(EntityKeyType.SERVER_ATTRIBUTE, Map.of(
+                ACTIVITY_STATE, new TsValue(0, "true"),
+                LAST_ACTIVITY_TIME, new TsValue(0, Long.toString(persistedActivityTime)))), Map.of()),
+                new DeviceIdInfo(tenantId.getId(), null, deviceUuid));
+        DeviceStateData inactiveState = service.toDeviceStateData(new EntityData(deviceId, Map.of(EntityKeyType.SERVER_ATTRIBUTE, Map.of(
+                ACTIVITY_STATE, new TsValue(0, "false"),
+                LAST_ACTIVITY_TIME, new TsValue(0, Long.toString(persistedActivityTime)))), Map.of()),
+                new DeviceIdInfo(tenantId.getId(), null, deviceUuid));
+
+        // THEN
+        assertThat(activeState.getState().getLastActivityTime()).isEqualTo(persistedActivityTime + 10000L);
+        assertThat(inactiveState.getState().getLastActivityTime()).isEqualTo(persistedActivityTime);
+        assertThat(service.restoreLastActivityTime(true, currentTime - 1000L)).isEqualTo(currentTime);
+    }
+
     @ParameterizedTest
     @MethodSource("provideParametersForUpdateActivityState")
     public void givenTestParameters_whenUpdateActivityState_thenShouldBeInTheExpectedStateAndPerformExpectedActions(
@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeviceInactivityTimeoutsTest {
+
+    private final DeviceInactivityTimeouts timeouts = new DeviceInactivityTimeouts();
+
+    @Test
+    public void givenScheduledDevices_whenPollExpired_thenReturnOnlyDueDevicesInDeadlineOrder() {
+        DeviceId first = new DeviceId(UUID.randomUUID());
+        DeviceId second = new DeviceId(UUID.randomUUID());
+        DeviceId notDue = new DeviceId(UUID.randomUUID());
+        timeouts.schedule(second, 200);
+        timeouts.schedule(first, 100);
+        timeouts.schedule(notDue, 1000);
+
+        assertThat(timeouts.pollExpired(500)).containsExactly(first, second);
+        assertThat(timeouts.pollExpired(500)).isEmpty();
+        assertThat(timeouts.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenEarlierDeadline_whenScheduleLaterDeadline_thenEarlierDeadlineIsKept() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        timeouts.schedule(deviceId, 100);
+        timeouts.schedule(deviceId, 500);
+
+        assertThat(timeouts.pollExpired(100)).containsExactly(deviceId);
+        assertThat(timeouts.pollExpired(500)).isEmpty();
+    }
+
+    @Test
+    public void givenLaterDeadline_whenScheduleEarlierDeadline_thenDeviceIsReturnedOnce() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        timeouts.schedule(deviceId, 500);
+        timeouts.schedule(deviceId, 100);
+
+        assertThat(timeouts.pollExpired(100)).containsExactly(deviceId);
+        assertThat(timeouts.pollExpired(1000)).isEmpty();
+    }
+
+    @Test
+    public void givenRemovedDevice_whenPollExpired_thenDeviceIsSkipped() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        timeouts.schedule(deviceId, 100);
+        timeouts.remove(deviceId);
+
+        assertThat(timeouts.pollExpired(1000)).isEmpty();
+    }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultRuleNodeStatsServiceTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final RuleChainId ruleChainId = new RuleChainId(UUID.randomUUID());
+
+    private SimpleMeterRegistry meterRegistry;
+    private DefaultRuleNodeStatsService service;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new DefaultRuleNodeStatsService(meterRegistry);
+        ReflectionTestUtils.setField(service, "ruleNodeStatsEnabled", true);
+        ReflectionTestUtils.setField(service, "metricsEnabled", true);
+    }
+
+    @Test
+    public void givenLatencies_whenGetStats_thenHistogramAndPercentilesAreReturned() {
+        RuleNodeStats stats = service.register(tenantId, "Root", newRuleNode("Save Timeseries"), null);
+        for (int i = 0; i < 98; i++) {
+            stats.recordLatency(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        stats.recordLatency(TimeUnit.MILLISECONDS.toNanos(3));
+        stats.recordLatency(TimeUnit.SECONDS.toNanos(7));
+
+        RuleNodeStatsInfo info = service.getStats(tenantId, "totalLatency", 10).get(0);
+        assertThat(info.ruleNodeName()).isEqualTo("Save Timeseries");
+        assertThat(info.ruleNodeType()).isEqualTo("TbMsgTimeseriesNode");
+        assertThat(info.latencyHistogram()).containsEntry("100us", 98L).containsEntry("5ms", 1L).containsEntry("+Inf", 1L);
+        assertThat(info.p50Latency()).isEqualTo(0.1);
+        assertThat(info.p99Latency()).isEqualTo(5.0);
+        assertThat(info.maxLatency()).isEqualTo(7000.0);
+        assertThat(stats.getCumulativeLatencyCount(3)).isEqualTo(99);
+    }
+
+    @Test
+    public void givenMessage_whenProcessingEnd_thenLatencyIsRecordedOnce() {
+        RuleNode ruleNode = newRuleNode("Filter");
+        RuleNodeStats stats = service.register(tenantId, "Root", ruleNode, null);
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), TbMsgMetaData.EMPTY, "{}");
+
+        stats.onProcessingStart(msg);
+        service.onProcessingEnd(ruleNode.getId(), msg, false);
+        service.onProcessingEnd(ruleNode.getId(), msg, true);
+
+        assertThat(stats.getInvocations()).isEqualTo(1);
+        assertThat(stats.getLatencyCount()).isEqualTo(1);
+        assertThat(stats.getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenMetricsEnabled_whenRegister_thenMetersAreExportedAndRemovedOnUnregister() {
+        TbActorRef actorRef = mock(TbActorRef.class);
+        when(actorRef.getQueueSize()).thenReturn(42);
+        RuleNode ruleNode = newRuleNode("Filter");
+        RuleNodeStats stats = service.register(tenantId, "Root", ruleNode, actorRef);
+        stats.recordLatency(TimeUnit.MILLISECONDS.toNanos(2));
+
+        String ruleNodeId = ruleNode.getId().toString();
+        assertThat(meterRegistry.get("ruleNode.queueSize").tag("ruleNodeId", ruleNodeId).gauge().value()).isEqualTo(42);
+        assertThat(meterRegistry.get("ruleNode.latency").tag("ruleNodeId", ruleNodeId).functionTimer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ruleNode.latency.buckets").tag("le", "1ms").functionCounter().count()).isZero();
+        assertThat(meterRegistry.get("ruleNode.latency.buckets").tag("le", "5ms").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ruleNode.latency.buckets").tag("le", "+Inf").functionCounter().count()).isEqualTo(1);
+
+        service.unregister(ruleNode.getId());
+
+        assertThat(meterRegistry.find("ruleNode.invocations").meters()).isEmpty();
+        assertThat(service.getStats(tenantId, "invocations", 10)).isEmpty();
+    }
+
+    @Test
+    public void givenSeveralNodes_whenGetStats_thenSortedAndFilteredByTenant() {
+        RuleNodeStats slow = service.register(tenantId, "Root", newRuleNode("Slow"), null);
+        RuleNodeStats fast = service.register(tenantId, "Root", newRuleNode("Fast"), null);
+        service.register(TenantId.fromUUID(UUID.randomUUID()), "Root", newRuleNode("Other tenant"), null);
+        slow.recordLatency(TimeUnit.MILLISECONDS.toNanos(100));
+        fast.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        fast.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+
+        List<RuleNodeStatsInfo> stats = service.getStats(tenantId, "avgLatency", 10);
+        assertThat(stats).extracting(RuleNodeStatsInfo::ruleNodeName).containsExactly("Slow", "Fast");
+        assertThat(service.getStats(tenantId, "avgLatency", 1)).extracting(RuleNodeStatsInfo::ruleNodeName).containsExactly("Slow");
+        assertThatThrownBy(() -> service.getStats(tenantId, "name", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.getSortProperties()).contains("avgLatency").doesNotContain("name");
+    }
+
+    private RuleNode newRuleNode(String name) {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        ruleNode.setRuleChainId(ruleChainId);
+        ruleNode.setType("org.thingsboard.rule.engine.telemetry.TbMsgTimeseriesNode");
+        ruleNode.setName(name);
+        return ruleNode;
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class PartitionedCallbackExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PartitionedCallbackExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        DefaultStatsFactory statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", meterRegistry);
+        executor = new PartitionedCallbackExecutor("test-callback", "testCallback", 4, statsFactory);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void givenCallbacksOfSameEntity_whenExecute_thenOrderIsPreserved() throws InterruptedException {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int idx = i;
+            executor.forEntity(deviceId).execute(() -> {
+                executed.add(idx);
+                latch.countDown();
+            });
+        }
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executed).isSorted().hasSize(1000);
+        assertThat(executor.getQueueSize()).isZero();
+    }
+
+    @Test
+    public void givenBlockedEntity_whenExecuteForOtherEntity_thenCallbackIsNotDelayed() throws InterruptedException {
+        DeviceId blockedId = new DeviceId(UUID.randomUUID());
+        DeviceId otherId = new DeviceId(UUID.randomUUID());
+        while (executor.forEntity(otherId) == executor.forEntity(blockedId)) {
+            otherId = new DeviceId(UUID.randomUUID());
+        }
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.forEntity(blockedId).execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        executor.forEntity(blockedId).execute(() -> {});
+
+        CountDownLatch otherExecuted = new CountDownLatch(1);
+        executor.forEntity(otherId).execute(otherExecuted::countDown);
+
+        assertThat(otherExecuted.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.getQueueSize()).isEqualTo(1);
+        blocker.countDown();
+    }
+
+    @Test
+    public void givenExecutedCallbacks_whenGetTimers_thenQueueAndExecutionTimeAreRecorded() throws InterruptedException {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.forEntity(deviceId).execute(() -> {});
+        executor.forEntity(deviceId).execute(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            latch.countDown();
+        });
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        await().atMost(10, TimeUnit.SECONDS)
+                .until(() -> meterRegistry.timer("testCallback.executionTime").count() == 2);
+        assertThat(meterRegistry.timer("testCallback.queueTime").count()).isEqualTo(2);
+        assertThat(meterRegistry.timer("testCallback.executionTime").max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+        assertThat(meterRegistry.find("testCallback.queueSize").gauges()).hasSize(4);
+    }
+
+}
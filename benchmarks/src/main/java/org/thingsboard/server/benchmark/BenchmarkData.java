@@ -0,0 +1,61 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+/**
+ * Deterministic payloads shared by the benchmarks, so that the results of different runs are comparable.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Telemetry JSON with the given number of keys of the long, double, boolean and string types.
+     */
+    static String telemetryJson(int keysCount) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < keysCount; i++) {
+            appendKey(json, i);
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Telemetry JSON of about the given size in bytes.
+     */
+    static String telemetryJsonOfSize(int size) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; json.length() < size; i++) {
+            appendKey(json, i);
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendKey(StringBuilder json, int i) {
+        if (json.length() > 1) {
+            json.append(',');
+        }
+        json.append("\"key").append(i).append("\":");
+        switch (i % 4) {
+            case 0 -> json.append(i * 31L);
+            case 1 -> json.append(i * 0.5);
+            case 2 -> json.append(i % 3 == 0);
+            default -> json.append("\"value").append(i).append('"');
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.QueueId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.gen.transport.TransportProtos.ServiceInfo;
+import org.thingsboard.server.queue.discovery.HashPartitionService;
+import org.thingsboard.server.queue.discovery.QueueRoutingInfo;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.discovery.TopicService;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of the topic partition of the entity, which is done for almost every message
+ * by the transports, the actors and the cluster service. Use {@code -prof gc} to check the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashPartitionServiceBenchmark {
+
+    private static final int ENTITIES_COUNT = 1024;
+
+    @Param({"10", "100"})
+    private int partitions;
+
+    private final HashFunction guavaMurmur3 = Hashing.murmur3_128();
+
+    private HashPartitionService partitionService;
+    private DeviceId[] entityIds;
+    private int idx;
+
+    @Setup
+    public void setup() {
+        ServiceInfo serviceInfo = ServiceInfo.newBuilder()
+                .setServiceId("monolith")
+                .addServiceTypes(ServiceType.TB_CORE.name())
+                .addServiceTypes(ServiceType.TB_RULE_ENGINE.name())
+                .build();
+        Queue mainQueue = new Queue();
+        mainQueue.setId(new QueueId(UUID.randomUUID()));
+        mainQueue.setTenantId(TenantId.SYS_TENANT_ID);
+        mainQueue.setName(DataConstants.MAIN_QUEUE_NAME);
+        mainQueue.setTopic(DataConstants.MAIN_QUEUE_TOPIC);
+        mainQueue.setPartitions(partitions);
+        TopicService topicService = new TopicService();
+        setField(topicService, "prefix", "");
+
+        partitionService = new HashPartitionService(new MonolithServiceInfoProvider(serviceInfo), tenantId -> null,
+                event -> {}, () -> List.of(new QueueRoutingInfo(mainQueue)), topicService);
+        setField(partitionService, "coreTopic", "tb_core");
+        setField(partitionService, "corePartitions", partitions);
+        setField(partitionService, "vcTopic", "tb_version_control");
+        setField(partitionService, "vcPartitions", 10);
+        setField(partitionService, "hashFunctionName", "murmur3_128");
+        partitionService.init();
+        partitionService.recalculatePartitions(serviceInfo, List.of());
+
+        Random random = new Random(42);
+        entityIds = new DeviceId[ENTITIES_COUNT];
+        for (int i = 0; i < ENTITIES_COUNT; i++) {
+            entityIds[i] = new DeviceId(new UUID(random.nextLong(), random.nextLong()));
+        }
+    }
+
+    @Benchmark
+    public TopicPartitionInfo resolveCore() {
+        return partitionService.resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, nextEntityId());
+    }
+
+    @Benchmark
+    public TopicPartitionInfo resolveRuleEngine() {
+        return partitionService.resolve(ServiceType.TB_RULE_ENGINE, DataConstants.MAIN_QUEUE_NAME, TenantId.SYS_TENANT_ID, nextEntityId());
+    }
+
+    @Benchmark
+    public int resolvePartitionIndex() {
+        return partitionService.resolvePartitionIndex(nextEntityId().getId(), partitions);
+    }
+
+    @Benchmark
+    public int guavaMurmur3PartitionIndex() {
+        UUID id = nextEntityId().getId();
+        int hash = guavaMurmur3.newHasher().putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).hash().asInt();
+        return Math.abs(hash % partitions);
+    }
+
+    private DeviceId nextEntityId() {
+        return entityIds[idx++ & (ENTITIES_COUNT - 1)];
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    private record MonolithServiceInfoProvider(ServiceInfo serviceInfo) implements TbServiceInfoProvider {
+
+        @Override
+        public String getServiceId() {
+            return serviceInfo.getServiceId();
+        }
+
+        @Override
+        public String getServiceType() {
+            return "monolith";
+        }
+
+        @Override
+        public ServiceInfo getServiceInfo() {
+            return serviceInfo;
+        }
+
+        @Override
+        public boolean isService(ServiceType serviceType) {
+            return serviceInfo.getServiceTypesList().contains(serviceType.name());
+        }
+
+        @Override
+        public ServiceInfo generateNewServiceInfoWithCurrentSystemInfo() {
+            return serviceInfo;
+        }
+
+        @Override
+        public Set<UUID> getAssignedTenantProfiles() {
+            return Collections.emptySet();
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of the device telemetry and attributes JSON, which is done by the transports for every uplink message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConverterBenchmark {
+
+    private static final long TS = 1700000000000L;
+
+    @Param({"10", "100", "1000"})
+    private int keysCount;
+
+    private String json;
+    private JsonElement jsonElement;
+
+    @Setup
+    public void setup() {
+        json = BenchmarkData.telemetryJson(keysCount);
+        jsonElement = JsonParser.parseString(json);
+    }
+
+    @Benchmark
+    public PostTelemetryMsg parseAndConvertToTelemetryProto() {
+        return JsonConverter.convertToTelemetryProto(JsonParser.parseString(json), TS);
+    }
+
+    @Benchmark
+    public PostTelemetryMsg convertToTelemetryProto() {
+        return JsonConverter.convertToTelemetryProto(jsonElement, TS);
+    }
+
+    @Benchmark
+    public Map<Long, List<KvEntry>> convertToTelemetry() {
+        return JsonConverter.convertToTelemetry(jsonElement, TS);
+    }
+
+    @Benchmark
+    public PostAttributeMsg convertToAttributesProto() {
+        return JsonConverter.convertToAttributesProto(jsonElement);
+    }
+
+    @Benchmark
+    public Set<AttributeKvEntry> convertToAttributes() {
+        return JsonConverter.convertToAttributes(jsonElement);
+    }
+
+}
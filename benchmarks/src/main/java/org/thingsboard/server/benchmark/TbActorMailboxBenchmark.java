@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbStringActorId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling of the actor mailboxes on the dispatcher: every message is told to one of the actors
+ * and the invocation completes once all the messages are processed.
+ * <p>
+ * The number of the threads that tell the messages is set with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class TbActorMailboxBenchmark {
+
+    private static final String DISPATCHER = "benchmark-dispatcher";
+    private static final int MESSAGES_PER_INVOCATION = 10000;
+
+    @Param({"1", "100", "10000"})
+    private int actorsCount;
+
+    @Param({"1", "4"})
+    private int dispatcherThreads;
+
+    @Param({"5"})
+    private int actorThroughput;
+
+    private TbActorSystem actorSystem;
+    private ExecutorService dispatcherExecutor;
+    private TbActorRef[] actors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(actorThroughput, 1, 1));
+        dispatcherExecutor = ThingsBoardExecutors.newWorkStealingPool(dispatcherThreads, getClass());
+        actorSystem.createDispatcher(DISPATCHER, dispatcherExecutor);
+        actors = new TbActorRef[actorsCount];
+        for (int i = 0; i < actorsCount; i++) {
+            actors[i] = actorSystem.createRootActor(DISPATCHER, new CountingActorCreator(new TbStringActorId("actor-" + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+        dispatcherExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+    public void tell() throws InterruptedException {
+        CountDownLatch processed = new CountDownLatch(MESSAGES_PER_INVOCATION);
+        LatchMsg msg = new LatchMsg(processed);
+        for (int i = 0; i < MESSAGES_PER_INVOCATION; i++) {
+            actors[i % actorsCount].tell(msg);
+        }
+        processed.await();
+    }
+
+    private record LatchMsg(CountDownLatch latch) implements TbActorMsg {
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+        }
+
+    }
+
+    private static class CountingActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            ((LatchMsg) msg).latch().countDown();
+            return true;
+        }
+
+    }
+
+    private record CountingActorCreator(TbActorId actorId) implements TbActorCreator {
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new CountingActor();
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueue;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Batching of the entities saved through the SQL queue, e.g. the attributes and the latest telemetry.
+ * Every producer thread adds the entities and waits until they are saved; the save is simulated by the fixed delay.
+ * <p>
+ * The number of the producer threads is set with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class TbSqlBlockingQueueBenchmark {
+
+    private static final int ENTITIES_PER_INVOCATION = 100;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    @Param({"1", "10"})
+    private long maxDelay;
+
+    @Param({"0", "500"})
+    private long saveLatencyMicros;
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlBlockingQueue<Long> queue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Benchmark")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .statsNamePrefix("benchmark")
+                .batchSortEnabled(false)
+                .build();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        queue = new TbSqlBlockingQueue<>(params, new SimpleMessagesStats(), new LongAdder(),
+                meterRegistry.timer("saveTime"), meterRegistry.summary("batchSize"));
+        queue.init(logExecutor, this::save, Comparator.naturalOrder(), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.destroy();
+        logExecutor.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES_PER_INVOCATION)
+    public void addAndAwaitSave() throws ExecutionException, InterruptedException {
+        List<ListenableFuture<Void>> futures = new ArrayList<>(ENTITIES_PER_INVOCATION);
+        for (long i = 0; i < ENTITIES_PER_INVOCATION; i++) {
+            futures.add(queue.add(i));
+        }
+        Futures.allAsList(futures).get();
+    }
+
+    private void save(List<Long> entities) {
+        if (saveLatencyMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(saveLatencyMicros));
+        }
+    }
+
+    private static class SimpleMessagesStats implements MessagesStats {
+
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger successful = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void incrementTotal(int amount) {
+            total.addAndGet(amount);
+        }
+
+        @Override
+        public void incrementSuccessful(int amount) {
+            successful.addAndGet(amount);
+        }
+
+        @Override
+        public void incrementFailed(int amount) {
+            failed.addAndGet(amount);
+        }
+
+        @Override
+        public int getTotal() {
+            return total.get();
+        }
+
+        @Override
+        public int getSuccessful() {
+            return successful.get();
+        }
+
+        @Override
+        public int getFailed() {
+            return failed.get();
+        }
+
+        @Override
+        public void reset() {
+            total.set(0);
+            successful.set(0);
+            failed.set(0);
+        }
+
+    }
+
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -52,6 +53,8 @@ public final class TbActorMailbox implements TbActorCtx {
     private final Dispatcher dispatcher;
     private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final LongAdder enqueuedMsgs = new LongAdder();
+    private final LongAdder dequeuedMsgs = new LongAdder();
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
@@ -110,6 +113,7 @@ public final class TbActorMailbox implements TbActorCtx {
             } else {
                 normalPriorityMsgs.add(msg);
             }
+            enqueuedMsgs.increment();
             tryProcessQueue(true);
         } else {
             if (highPriority && msg.getMsgType().equals(MsgType.RULE_NODE_UPDATED_MSG)) {
@@ -152,6 +156,7 @@ public final class TbActorMailbox implements TbActorCtx {
                 msg = normalPriorityMsgs.poll();
             }
             if (msg != null) {
+                dequeuedMsgs.increment();
                 try {
                     log.debug("[{}] Going to process message: {}", selfId, msg);
                     actor.process(msg);
@@ -260,4 +265,10 @@ public final class TbActorMailbox implements TbActorCtx {
         enqueue(actorMsg, HIGH_PRIORITY);
     }
 
+    @Override
+    public int getQueueSize() {
+        // ConcurrentLinkedQueue.size() traverses the queue, so the counters are used instead
+        return (int) Math.max(0, enqueuedMsgs.sum() - dequeuedMsgs.sum());
+    }
+
 }
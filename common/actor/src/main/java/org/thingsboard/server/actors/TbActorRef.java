@@ -25,4 +25,9 @@ public interface TbActorRef {
 
     void tellWithHighPriority(TbActorMsg actorMsg);
 
+    /**
+     * @return approximate number of messages waiting in the mailbox of the actor
+     */
+    int getQueueSize();
+
 }
@@ -0,0 +1,255 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.thingsboard.server.common.data.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the OTA package data in the local files mapped into memory, so that the packages are not held on the heap
+ * and the chunks are served as views of the mapped files without copying.
+ * <p>
+ * The SHA-256 checksum of the mapped file is verified when the package is stored, the file size is verified
+ * before the package is served. Least recently used files are removed once the total size exceeds the limit.
+ * Files of the previous run are removed on startup: the packages are loaded from the database on demand.
+ * If the package file can not be written, the package is served from the heap instead.
+ * <p>
+ * The files are stored in the 'ota' subdirectory of the installation data directory by default,
+ * since the temporary directory may be cleaned up by the OS while the files are mapped.
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("'${cache.ota.storage:cache}'=='file'")
+public class FileOtaPackageDataCache implements OtaPackageDataCache {
+
+    private static final String FILE_SUFFIX = ".bin";
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    private final Map<String, PackageFile> packages = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+
+    @Value("${cache.ota.dir:}")
+    private String dirPath;
+
+    @Value("${install.data_dir:}")
+    private String dataDir;
+
+    @Value("${cache.ota.max_size_mb:1024}")
+    private long maxSizeMb;
+
+    private Path dir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (StringUtils.isNotBlank(dirPath)) {
+            dir = Paths.get(dirPath);
+        } else {
+            dir = StringUtils.isNotBlank(dataDir) ? Paths.get(dataDir, "ota") : Paths.get("data", "ota").toAbsolutePath();
+        }
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(this::deleteFile);
+        }
+        log.info("Storing OTA package data in {}, max size {} MB", dir, maxSizeMb);
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return get(key, 0, 0);
+    }
+
+    @Override
+    public byte[] get(String key, int chunkSize, int chunk) {
+        ByteBuffer data = getChunk(key, chunkSize, chunk);
+        if (data == null) {
+            return null;
+        }
+        byte[] result = new byte[data.remaining()];
+        data.get(result);
+        return result;
+    }
+
+    @Override
+    public ByteBuffer getChunk(String key, int chunkSize, int chunk) {
+        PackageFile packageFile = getPackageFile(key);
+        if (packageFile == null) {
+            return null;
+        }
+        ByteBuffer data = packageFile.data().duplicate();
+        if (chunkSize < 1) {
+            return data;
+        }
+        long startIndex = (long) chunkSize * chunk;
+        if (startIndex >= data.limit()) {
+            return EMPTY;
+        }
+        int size = (int) Math.min(data.limit() - startIndex, chunkSize);
+        return data.slice((int) startIndex, size);
+    }
+
+    @Override
+    public boolean has(String key) {
+        return getPackageFile(key) != null;
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        synchronized (packages) {
+            if (packages.containsKey(key)) {
+                return;
+            }
+        }
+        PackageFile packageFile;
+        try {
+            packageFile = writePackageFile(key, value);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to store OTA package data in the file, keeping it on the heap", key, e);
+            packageFile = new PackageFile(null, ByteBuffer.wrap(value).asReadOnlyBuffer(), value.length);
+        }
+        synchronized (packages) {
+            PackageFile existing = packages.putIfAbsent(key, packageFile);
+            if (existing != null) {
+                return;
+            }
+            totalSize += packageFile.size();
+            evictLeastRecentlyUsed(key);
+        }
+    }
+
+    @Override
+    public void evict(String key) {
+        PackageFile packageFile;
+        synchronized (packages) {
+            packageFile = packages.remove(key);
+            if (packageFile != null) {
+                totalSize -= packageFile.size();
+            }
+        }
+        if (packageFile != null && packageFile.file() != null) {
+            deleteFile(packageFile.file());
+        }
+    }
+
+    private PackageFile getPackageFile(String key) {
+        PackageFile packageFile;
+        synchronized (packages) {
+            packageFile = packages.get(key);
+        }
+        if (packageFile == null || packageFile.file() == null) {
+            return packageFile;
+        }
+        // reading the mapped file that was truncated or removed crashes the process, so it is never served
+        long fileSize;
+        try {
+            fileSize = Files.size(packageFile.file());
+        } catch (IOException e) {
+            fileSize = -1;
+        }
+        if (fileSize != packageFile.size()) {
+            log.warn("[{}] OTA package file {} was modified, expected size {} but was {}", key, packageFile.file(), packageFile.size(), fileSize);
+            evict(key);
+            return null;
+        }
+        return packageFile;
+    }
+
+    private PackageFile writePackageFile(String key, byte[] value) throws IOException {
+        Path tmpFile = dir.resolve(key + "." + UUID.randomUUID() + ".tmp");
+        Path file = dir.resolve(key + "." + UUID.randomUUID() + FILE_SUFFIX);
+        try {
+            Files.write(tmpFile, value);
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+            MappedByteBuffer data;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (data.limit() != value.length || !Arrays.equals(sha256(data.duplicate()), sha256(ByteBuffer.wrap(value)))) {
+                throw new IOException("Checksum of the OTA package file " + file + " does not match the package data");
+            }
+            return new PackageFile(file, data.asReadOnlyBuffer(), value.length);
+        } catch (IOException | RuntimeException e) {
+            deleteFile(tmpFile);
+            deleteFile(file);
+            throw e;
+        }
+    }
+
+    private void evictLeastRecentlyUsed(String newKey) {
+        long maxSize = maxSizeMb * 1024 * 1024;
+        Iterator<Map.Entry<String, PackageFile>> iterator = packages.entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            Map.Entry<String, PackageFile> entry = iterator.next();
+            if (entry.getKey().equals(newKey)) {
+                continue;
+            }
+            iterator.remove();
+            totalSize -= entry.getValue().size();
+            if (entry.getValue().file() != null) {
+                deleteFile(entry.getValue().file());
+            }
+            log.debug("[{}] Removed least recently used OTA package file", entry.getKey());
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete OTA package file {}", file, e);
+        }
+    }
+
+    private static byte[] sha256(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * The mapped buffer stays valid after the file is deleted and is unmapped once it is garbage collected,
+     * so the chunks that are being sent are not affected by the eviction.
+     * The file is null if the package data is kept on the heap.
+     */
+    private record PackageFile(Path file, ByteBuffer data, long size) {
+    }
+
+}
@@ -15,12 +15,23 @@
  */
 package org.thingsboard.server.cache.ota;
 
+import java.nio.ByteBuffer;
+
 public interface OtaPackageDataCache {
 
     byte[] get(String key);
 
     byte[] get(String key, int chunkSize, int chunk);
 
+    /**
+     * Returns the chunk of the package data. Depending on the implementation the buffer may be a read-only view
+     * of the stored data rather than a copy, so it must be sent as is.
+     */
+    default ByteBuffer getChunk(String key, int chunkSize, int chunk) {
+        byte[] data = get(key, chunkSize, chunk);
+        return data != null ? ByteBuffer.wrap(data) : null;
+    }
+
     void put(String key, byte[] value);
 
     void evict(String key);
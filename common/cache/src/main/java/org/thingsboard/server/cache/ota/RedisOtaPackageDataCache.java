@@ -16,7 +16,7 @@
 package org.thingsboard.server.cache.ota;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.stereotype.Service;
@@ -24,7 +24,7 @@ import org.springframework.stereotype.Service;
 import static org.thingsboard.server.common.data.CacheConstants.OTA_PACKAGE_DATA_CACHE;
 
 @Service
-@ConditionalOnProperty(prefix = "cache", value = "type", havingValue = "redis")
+@ConditionalOnExpression("'${cache.type:caffeine}'=='redis' && '${cache.ota.storage:cache}'=='cache'")
 @RequiredArgsConstructor
 public class RedisOtaPackageDataCache implements OtaPackageDataCache {
 
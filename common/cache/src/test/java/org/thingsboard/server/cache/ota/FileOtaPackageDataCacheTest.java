@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileOtaPackageDataCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private FileOtaPackageDataCache cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.write(dir.resolve("stale.bin"), new byte[]{1, 2, 3});
+        cache = new FileOtaPackageDataCache();
+        ReflectionTestUtils.setField(cache, "dirPath", dir.toString());
+        ReflectionTestUtils.setField(cache, "maxSizeMb", 2);
+        cache.init();
+    }
+
+    @Test
+    public void givenStoredPackage_whenGetChunk_thenChunkIsViewOfMappedFile() {
+        byte[] data = newData(100, 1);
+        cache.put("firmware", data);
+
+        assertThat(cache.has("firmware")).isTrue();
+        assertThat(cache.get("firmware")).isEqualTo(data);
+        assertThat(cache.get("firmware", 30, 3)).hasSize(10).containsExactly(Arrays.copyOfRange(data, 90, 100));
+        assertThat(cache.get("firmware", 30, 4)).isEmpty();
+
+        ByteBuffer chunk = cache.getChunk("firmware", 30, 1);
+        assertThat(chunk.isDirect()).isTrue();
+        assertThat(chunk.isReadOnly()).isTrue();
+        assertThat(chunk.remaining()).isEqualTo(30);
+        assertThat(chunk.get(0)).isEqualTo(data[30]);
+
+        assertThat(cache.get("unknown")).isNull();
+        assertThat(cache.get("unknown", 30, 0)).isNull();
+        assertThat(cache.has("unknown")).isFalse();
+    }
+
+    @Test
+    public void givenStaleFiles_whenInit_thenFilesAreRemoved() throws IOException {
+        assertThat(listFiles()).isEmpty();
+        cache.put("firmware", newData(10, 1));
+        assertThat(listFiles()).hasSize(1);
+        cache.evict("firmware");
+        assertThat(listFiles()).isEmpty();
+        assertThat(cache.has("firmware")).isFalse();
+    }
+
+    @Test
+    public void givenMaxSizeExceeded_whenPut_thenLeastRecentlyUsedPackageIsRemoved() throws IOException {
+        cache.put("first", newData(MB, 1));
+        cache.put("second", newData(MB / 2, 2));
+        assertThat(cache.has("first")).isTrue();
+
+        cache.put("third", newData(MB, 3));
+
+        assertThat(cache.has("first")).isTrue();
+        assertThat(cache.has("second")).isFalse();
+        assertThat(cache.has("third")).isTrue();
+        assertThat(listFiles()).hasSize(2);
+    }
+
+    @Test
+    public void givenTruncatedFile_whenHas_thenPackageIsNotServed() throws IOException {
+        cache.put("firmware", newData(100, 1));
+        Path file = listFiles().get(0);
+        Files.write(file, new byte[10]);
+
+        assertThat(cache.has("firmware")).isFalse();
+        assertThat(cache.get("firmware")).isNull();
+        assertThat(listFiles()).isEmpty();
+    }
+
+    @Test
+    public void givenFileCanNotBeWritten_whenPut_thenPackageIsServedFromHeap() throws IOException {
+        Files.delete(dir);
+        Files.write(dir, new byte[0]);
+        try {
+            byte[] data = newData(100, 1);
+            cache.put("firmware", data);
+
+            assertThat(cache.has("firmware")).isTrue();
+            assertThat(cache.get("firmware")).isEqualTo(data);
+            assertThat(cache.get("firmware", 30, 3)).containsExactly(Arrays.copyOfRange(data, 90, 100));
+            cache.evict("firmware");
+            assertThat(cache.getChunk("firmware", 30, 0)).isNull();
+        } finally {
+            Files.delete(dir);
+            Files.createDirectory(dir);
+        }
+    }
+
+    @Test
+    public void givenNoDir_whenInit_thenFilesAreStoredInDataDir() throws IOException {
+        FileOtaPackageDataCache dataDirCache = new FileOtaPackageDataCache();
+        ReflectionTestUtils.setField(dataDirCache, "dataDir", dir.toString());
+        ReflectionTestUtils.setField(dataDirCache, "maxSizeMb", 2);
+        dataDirCache.init();
+
+        dataDirCache.put("firmware", newData(10, 1));
+
+        try (Stream<Path> files = Files.list(dir.resolve("ota"))) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.toList();
+        }
+    }
+
+    private static byte[] newData(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+
+}
@@ -25,6 +25,7 @@ import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.edge.EdgeEventType;
+import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EdgeId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -89,6 +90,8 @@ public interface TbClusterService extends TbQueueClusterService {
 
     void onDeviceAssignedToTenant(TenantId oldTenantId, Device device);
 
+    void onDeviceCredentialsUpdated(TenantId tenantId, DeviceId deviceId, TbQueueCallback callback);
+
     void onResourceChange(TbResourceInfo resource, TbQueueCallback callback);
 
     void onResourceDeleted(TbResourceInfo resource, TbQueueCallback callback);
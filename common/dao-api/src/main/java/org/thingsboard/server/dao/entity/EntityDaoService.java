@@ -20,12 +20,22 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.HasId;
 import org.thingsboard.server.common.data.id.TenantId;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public interface EntityDaoService {
 
     Optional<HasId<?>> findEntity(TenantId tenantId, EntityId entityId);
 
+    default List<HasId<?>> findEntities(TenantId tenantId, List<EntityId> entityIds) {
+        List<HasId<?>> entities = new ArrayList<>(entityIds.size());
+        for (EntityId entityId : entityIds) {
+            findEntity(tenantId, entityId).ifPresent(entities::add);
+        }
+        return entities;
+    }
+
     default long countByTenantId(TenantId tenantId) {
         throw new IllegalArgumentException("Not implemented for " + getEntityType());
     }
@@ -24,12 +24,16 @@ import org.thingsboard.server.common.data.query.EntityCountQuery;
 import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityDataQuery;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public interface EntityService {
 
     Optional<String> fetchEntityName(TenantId tenantId, EntityId entityId);
 
+    Map<EntityId, String> fetchEntityNames(TenantId tenantId, Collection<EntityId> entityIds);
+
     Optional<String> fetchEntityLabel(TenantId tenantId, EntityId entityId);
 
     Optional<CustomerId> fetchEntityCustomerId(TenantId tenantId, EntityId entityId);
@@ -448,6 +448,16 @@ public final class TbMsg implements Serializable {
                 this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx.copy(), TbMsgCallback.EMPTY);
     }
 
+    /**
+     * Creates a copy of the message for one of the multiple targets of the rule node output.
+     * Data is shared with the original message, while the metadata and the processing context are copied,
+     * since some rule nodes modify the metadata in place and each copy may be routed through the different rule chains.
+     */
+    public TbMsg copyForFanOut(UUID msgId, TbMsgCallback callback) {
+        return new TbMsg(this.queueName, msgId, this.ts, this.internalType, this.type, this.originator, this.customerId,
+                this.metaData.copy(), this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx.copy(), callback);
+    }
+
     public TbMsgCallback getCallback() {
         // May be null in case of deserialization;
         return Objects.requireNonNullElse(callback, TbMsgCallback.EMPTY);
@@ -461,6 +471,15 @@ public final class TbMsg implements Serializable {
         return ctx.pop();
     }
 
+    @JsonIgnore
+    public long getRuleNodeStartTime() {
+        return ctx.getRuleNodeStartTime();
+    }
+
+    public void setRuleNodeStartTime(long ruleNodeStartTime) {
+        ctx.setRuleNodeStartTime(ruleNodeStartTime);
+    }
+
     /**
      * Checks if the message is still valid for processing. May be invalid if the message pack is timed-out or canceled.
      * @return 'true' if message is valid for processing, 'false' otherwise.
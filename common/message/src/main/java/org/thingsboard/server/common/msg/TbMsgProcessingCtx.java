@@ -30,6 +30,11 @@ public final class TbMsgProcessingCtx implements Serializable {
 
     private final AtomicInteger ruleNodeExecCounter;
     private volatile LinkedList<TbMsgProcessingStackItem> stack;
+    /**
+     * {@link System#nanoTime()} when the current rule node started to process the message, 0 if unknown.
+     * Used by the rule node stats only, so it is neither serialized nor passed to the queue.
+     */
+    private transient long ruleNodeStartTime;
 
     public TbMsgProcessingCtx() {
         this(0);
@@ -48,12 +53,23 @@ public final class TbMsgProcessingCtx implements Serializable {
         return ruleNodeExecCounter.getAndIncrement();
     }
 
+    public long getRuleNodeStartTime() {
+        return ruleNodeStartTime;
+    }
+
+    public void setRuleNodeStartTime(long ruleNodeStartTime) {
+        this.ruleNodeStartTime = ruleNodeStartTime;
+    }
+
     public TbMsgProcessingCtx copy() {
+        TbMsgProcessingCtx copy;
         if (stack == null || stack.isEmpty()) {
-            return new TbMsgProcessingCtx(ruleNodeExecCounter.get());
+            copy = new TbMsgProcessingCtx(ruleNodeExecCounter.get());
         } else {
-            return new TbMsgProcessingCtx(ruleNodeExecCounter.get(), new LinkedList<>(stack));
+            copy = new TbMsgProcessingCtx(ruleNodeExecCounter.get(), new LinkedList<>(stack));
         }
+        copy.ruleNodeStartTime = ruleNodeStartTime;
+        return copy;
     }
 
     public void push(RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
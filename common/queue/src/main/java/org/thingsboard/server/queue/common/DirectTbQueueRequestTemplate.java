@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.queue.TbQueueHandler;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueRequestTemplate;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Request template that passes requests directly to the handler running in the same JVM,
+ * without the request and response queues. Used when the requesting and the handling services
+ * are deployed in the same process.
+ */
+@Slf4j
+public class DirectTbQueueRequestTemplate<Request extends TbQueueMsg, Response extends TbQueueMsg> implements TbQueueRequestTemplate<Request, Response> {
+
+    private final Supplier<TbQueueHandler<Request, Response>> handlerSupplier;
+    private final SchedulerComponent scheduler;
+    private final long maxRequestTimeoutNs;
+    private final long maxPendingRequests;
+    private final AtomicLong pendingRequests = new AtomicLong();
+
+    private volatile TbQueueHandler<Request, Response> handler;
+    private volatile boolean stopped;
+    private MessagesStats messagesStats;
+
+    public DirectTbQueueRequestTemplate(Supplier<TbQueueHandler<Request, Response>> handlerSupplier, SchedulerComponent scheduler,
+                                        long maxRequestTimeout, long maxPendingRequests) {
+        this.handlerSupplier = handlerSupplier;
+        this.scheduler = scheduler;
+        this.maxRequestTimeoutNs = TimeUnit.MILLISECONDS.toNanos(maxRequestTimeout);
+        this.maxPendingRequests = maxPendingRequests;
+    }
+
+    @Override
+    public void init() {
+        stopped = false;
+    }
+
+    @Override
+    public ListenableFuture<Response> send(Request request) {
+        return send(request, maxRequestTimeoutNs);
+    }
+
+    @Override
+    public ListenableFuture<Response> send(Request request, long requestTimeoutNs) {
+        if (stopped) {
+            return Futures.immediateFailedFuture(new IllegalStateException("Request template is stopped!"));
+        }
+        if (pendingRequests.get() >= maxPendingRequests) {
+            log.warn("Pending requests limit is reached [{}]! Consider to increase maxPendingRequests or increase processing performance. Request is {}", maxPendingRequests, request);
+            return Futures.immediateFailedFuture(new RuntimeException("Pending request map is full!"));
+        }
+        if (messagesStats != null) {
+            messagesStats.incrementTotal();
+        }
+        pendingRequests.incrementAndGet();
+        ListenableFuture<Response> responseFuture;
+        try {
+            responseFuture = getHandler().handle(request);
+        } catch (Throwable t) {
+            responseFuture = Futures.immediateFailedFuture(t);
+        }
+        SettableFuture<Response> future = SettableFuture.create();
+        ScheduledFuture<?> timeoutFuture = scheduler.schedule(() -> {
+            if (future.setException(new TimeoutException())) {
+                log.debug("Request timeout detected, request {}", request);
+            }
+        }, requestTimeoutNs, TimeUnit.NANOSECONDS);
+        Futures.addCallback(responseFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(Response response) {
+                timeoutFuture.cancel(false);
+                pendingRequests.decrementAndGet();
+                if (messagesStats != null) {
+                    messagesStats.incrementSuccessful();
+                }
+                future.set(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                timeoutFuture.cancel(false);
+                pendingRequests.decrementAndGet();
+                if (messagesStats != null) {
+                    messagesStats.incrementFailed();
+                }
+                future.setException(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private TbQueueHandler<Request, Response> getHandler() {
+        TbQueueHandler<Request, Response> result = handler;
+        if (result == null) {
+            result = handlerSupplier.get();
+            handler = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void setMessagesStats(MessagesStats messagesStats) {
+        this.messagesStats = messagesStats;
+    }
+
+}
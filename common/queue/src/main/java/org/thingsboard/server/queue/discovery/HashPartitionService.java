@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -85,6 +86,9 @@ public class HashPartitionService implements PartitionService {
     private volatile Map<TenantProfileId, List<ServiceInfo>> responsibleServices = Collections.emptyMap();
 
     private HashFunction hashFunction;
+    private boolean murmur3_128;
+
+    private volatile RoutingTable routingTable = RoutingTable.EMPTY;
 
     public HashPartitionService(TbServiceInfoProvider serviceInfoProvider,
                                 TenantRoutingInfoService tenantRoutingInfoService,
@@ -101,6 +105,7 @@ public class HashPartitionService implements PartitionService {
     @PostConstruct
     public void init() {
         this.hashFunction = forName(hashFunctionName);
+        this.murmur3_128 = "murmur3_128".equals(hashFunctionName);
         QueueKey coreKey = new QueueKey(ServiceType.TB_CORE);
         partitionSizesMap.put(coreKey, corePartitions);
         partitionTopicsMap.put(coreKey, coreTopic);
@@ -112,12 +117,14 @@ public class HashPartitionService implements PartitionService {
         if (!isTransport(serviceInfoProvider.getServiceType())) {
             doInitRuleEnginePartitions();
         }
+        rebuildRoutingTable();
     }
 
     @AfterStartUp(order = AfterStartUp.QUEUE_INFO_INITIALIZATION)
     public void partitionsInit() {
         if (isTransport(serviceInfoProvider.getServiceType())) {
             doInitRuleEnginePartitions();
+            rebuildRoutingTable();
         }
     }
 
@@ -182,6 +189,7 @@ public class HashPartitionService implements PartitionService {
                 tenantRoutingInfoMap.remove(tenantId);
             }
         }
+        rebuildRoutingTable();
     }
 
     @Override
@@ -198,6 +206,7 @@ public class HashPartitionService implements PartitionService {
             partitionSizesMap.remove(queueKey);
             evictTenantInfo(queueKey.getTenantId());
         });
+        rebuildRoutingTable();
         if (serviceInfoProvider.isService(ServiceType.TB_RULE_ENGINE)) {
             publishPartitionChangeEvent(ServiceType.TB_RULE_ENGINE, queueKeys.stream()
                     .collect(Collectors.toMap(k -> k, k -> Collections.emptySet())));
@@ -214,6 +223,7 @@ public class HashPartitionService implements PartitionService {
             partitionTopicsMap.remove(queueKey);
             partitionSizesMap.remove(queueKey);
         });
+        rebuildRoutingTable();
         evictTenantInfo(tenantId);
     }
 
@@ -258,6 +268,11 @@ public class HashPartitionService implements PartitionService {
         if (queueName == null) {
             queueName = MAIN_QUEUE_NAME;
         }
+        RoutingTable routingTable = this.routingTable;
+        TopicPartitionInfo[] partitions = routingTable.get(serviceType, isolatedOrSystemTenantId, queueName);
+        if (partitions != null) {
+            return partitions[resolvePartitionIndex(entityId.getId(), partitions.length)];
+        }
         QueueKey queueKey = new QueueKey(serviceType, queueName, isolatedOrSystemTenantId);
         if (!partitionSizesMap.containsKey(queueKey)) {
             if (isolatedOrSystemTenantId.isSysTenantId()) {
@@ -270,7 +285,7 @@ public class HashPartitionService implements PartitionService {
                 log.warn("Using queue {} instead of isolated {} for tenant {}", queueKey, queueName, isolatedOrSystemTenantId);
             }
         }
-        return resolve(queueKey, entityId);
+        return resolve(routingTable, queueKey, entityId);
     }
 
     @Override
@@ -288,16 +303,38 @@ public class HashPartitionService implements PartitionService {
         }
     }
 
-    private TopicPartitionInfo resolve(QueueKey queueKey, EntityId entityId) {
+    private TopicPartitionInfo resolve(RoutingTable routingTable, QueueKey queueKey, EntityId entityId) {
+        TopicPartitionInfo[] partitions = routingTable.get(queueKey.getType(), queueKey.getTenantId(), queueKey.getQueueName());
+        if (partitions != null) {
+            return partitions[resolvePartitionIndex(entityId.getId(), partitions.length)];
+        }
         Integer partitionSize = partitionSizesMap.get(queueKey);
         if (partitionSize == null) {
             throw new IllegalStateException("Partitions info for queue " + queueKey + " is missing");
         }
+        return buildTopicPartitionInfo(queueKey, resolvePartitionIndex(entityId.getId(), partitionSize));
+    }
 
-        int hash = hash(entityId.getId());
-        int partition = Math.abs(hash % partitionSize);
-
-        return buildTopicPartitionInfo(queueKey, partition);
+    /**
+     * Rebuilds the immutable snapshot of the topic partitions used by {@link #resolve(ServiceType, String, TenantId, EntityId)},
+     * so that resolving the partition of the entity does not allocate anything. Must be called after any change
+     * of the queues or of the partitions assigned to the current service.
+     */
+    private synchronized void rebuildRoutingTable() {
+        Map<ServiceType, Map<TenantId, Map<String, TopicPartitionInfo[]>>> tables = new EnumMap<>(ServiceType.class);
+        partitionSizesMap.forEach((queueKey, size) -> {
+            if (size == null || size <= 0 || !partitionTopicsMap.containsKey(queueKey)) {
+                return;
+            }
+            TopicPartitionInfo[] partitions = new TopicPartitionInfo[size];
+            for (int i = 0; i < size; i++) {
+                partitions[i] = buildTopicPartitionInfo(queueKey, i);
+            }
+            tables.computeIfAbsent(queueKey.getType(), type -> new HashMap<>())
+                    .computeIfAbsent(queueKey.getTenantId(), tenantId -> new HashMap<>())
+                    .put(queueKey.getQueueName(), partitions);
+        });
+        routingTable = new RoutingTable(tables);
     }
 
     @Override
@@ -334,6 +371,7 @@ public class HashPartitionService implements PartitionService {
 
         final ConcurrentMap<QueueKey, List<Integer>> oldPartitions = myPartitions;
         myPartitions = newPartitions;
+        rebuildRoutingTable();
 
         Map<QueueKey, Set<TopicPartitionInfo>> changedPartitionsMap = new HashMap<>();
 
@@ -596,12 +634,53 @@ public class HashPartitionService implements PartitionService {
     }
 
     private int hash(UUID key) {
+        if (murmur3_128) {
+            return murmur3_128AsInt(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        }
         return hashFunction.newHasher()
                 .putLong(key.getMostSignificantBits())
                 .putLong(key.getLeastSignificantBits())
                 .hash().asInt();
     }
 
+    /**
+     * Same as {@code Hashing.murmur3_128().newHasher().putLong(msb).putLong(lsb).hash().asInt()},
+     * but without allocation of the hasher, its buffer and the hash code.
+     */
+    static int murmur3_128AsInt(long msb, long lsb) {
+        long c1 = 0x87c37b91114253d5L;
+        long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+
+        long k1 = Long.rotateLeft(msb * c1, 31) * c2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27) + h2;
+        h1 = h1 * 5 + 0x52dce729;
+        long k2 = Long.rotateLeft(lsb * c2, 33) * c1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        h1 ^= Long.BYTES * 2;
+        h2 ^= Long.BYTES * 2;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        return (int) h1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
     public static HashFunction forName(String name) {
         switch (name) {
             case "murmur3_32":
@@ -619,4 +698,19 @@ public class HashPartitionService implements PartitionService {
         return serviceInfos.stream().map(ServiceInfo::getServiceId).collect(Collectors.toList());
     }
 
+    private record RoutingTable(Map<ServiceType, Map<TenantId, Map<String, TopicPartitionInfo[]>>> tables) {
+
+        static final RoutingTable EMPTY = new RoutingTable(Collections.emptyMap());
+
+        TopicPartitionInfo[] get(ServiceType serviceType, TenantId tenantId, String queueName) {
+            Map<TenantId, Map<String, TopicPartitionInfo[]>> tenantTables = tables.get(serviceType);
+            if (tenantTables == null) {
+                return null;
+            }
+            Map<String, TopicPartitionInfo[]> queueTables = tenantTables.get(tenantId);
+            return queueTables != null ? queueTables.get(queueName) : null;
+        }
+
+    }
+
 }
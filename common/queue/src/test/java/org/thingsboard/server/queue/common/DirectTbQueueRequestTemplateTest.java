@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.queue.TbQueueHandler;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.scheduler.DefaultSchedulerComponent;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DirectTbQueueRequestTemplateTest {
+
+    private DefaultSchedulerComponent scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new DefaultSchedulerComponent();
+        scheduler.init();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    public void givenHandlerResponse_whenSend_thenResponseReturnedWithoutQueue() throws Exception {
+        TbQueueMsg request = new TbProtoQueueMsg<>(UUID.randomUUID(), null);
+        TbQueueMsg response = new TbProtoQueueMsg<>(UUID.randomUUID(), null);
+        TbQueueHandler<TbQueueMsg, TbQueueMsg> handler = mock(TbQueueHandler.class);
+        when(handler.handle(any())).thenReturn(Futures.immediateFuture(response));
+        DirectTbQueueRequestTemplate<TbQueueMsg, TbQueueMsg> template = new DirectTbQueueRequestTemplate<>(() -> handler, scheduler, 1000, 10);
+        template.init();
+
+        assertThat(template.send(request).get(1, TimeUnit.SECONDS)).isSameAs(response);
+    }
+
+    @Test
+    public void givenSlowHandler_whenSend_thenTimeoutException() {
+        TbQueueHandler<TbQueueMsg, TbQueueMsg> handler = mock(TbQueueHandler.class);
+        when(handler.handle(any())).thenReturn(SettableFuture.create());
+        DirectTbQueueRequestTemplate<TbQueueMsg, TbQueueMsg> template = new DirectTbQueueRequestTemplate<>(() -> handler, scheduler, 10, 10);
+        template.init();
+
+        ListenableFuture<TbQueueMsg> future = template.send(new TbProtoQueueMsg<>(UUID.randomUUID(), null));
+        assertThatThrownBy(() -> future.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    public void givenPendingRequestsLimit_whenSend_thenRequestRejected() {
+        TbQueueHandler<TbQueueMsg, TbQueueMsg> handler = mock(TbQueueHandler.class);
+        when(handler.handle(any())).thenReturn(SettableFuture.create());
+        DirectTbQueueRequestTemplate<TbQueueMsg, TbQueueMsg> template = new DirectTbQueueRequestTemplate<>(() -> handler, scheduler, 10000, 1);
+        template.init();
+
+        template.send(new TbProtoQueueMsg<>(UUID.randomUUID(), null));
+        ListenableFuture<TbQueueMsg> rejected = template.send(new TbProtoQueueMsg<>(UUID.randomUUID(), null));
+        assertThat(rejected.isDone()).isTrue();
+        assertThatThrownBy(rejected::get).hasCauseInstanceOf(RuntimeException.class);
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.common.stats;
 
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
 
 public interface StatsFactory {
@@ -29,4 +30,8 @@ public interface StatsFactory {
 
     Timer createTimer(String key, String... tags);
 
+    DistributionSummary createDistributionSummary(String key, String... tags);
+
+    void removeMeters(String key, String... tags);
+
 }
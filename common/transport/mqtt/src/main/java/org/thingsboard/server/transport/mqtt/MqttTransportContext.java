@@ -26,6 +26,7 @@ import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.transport.TransportContext;
 import org.thingsboard.server.transport.mqtt.adaptors.JsonMqttAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.ProtoMqttAdaptor;
+import org.thingsboard.server.transport.mqtt.session.GatewayDevicesSnapshotCache;
 
 import jakarta.annotation.PostConstruct;
 import java.net.InetSocketAddress;
@@ -75,11 +76,25 @@ public class MqttTransportContext extends TransportContext {
     @Value("${transport.mqtt.proxy_enabled:false}")
     private boolean proxyEnabled;
 
+    @Getter
+    @Value("${transport.mqtt.gateway.devices_batch_size:500}")
+    private int gatewayDevicesBatchSize;
+
+    @Value("${transport.mqtt.gateway.devices_snapshot_ttl_in_minutes:60}")
+    private long gatewayDevicesSnapshotTtlInMinutes;
+
+    @Value("${transport.mqtt.gateway.devices_snapshot_max_size:10000}")
+    private int gatewayDevicesSnapshotMaxSize;
+
+    @Getter
+    private GatewayDevicesSnapshotCache gatewayDevicesSnapshotCache;
+
     private final AtomicInteger connectionsCounter = new AtomicInteger();
 
     @PostConstruct
     public void init() {
         super.init();
+        gatewayDevicesSnapshotCache = new GatewayDevicesSnapshotCache(gatewayDevicesSnapshotTtlInMinutes, gatewayDevicesSnapshotMaxSize);
         transportService.createGaugeStats("openConnections", connectionsCounter);
     }
 
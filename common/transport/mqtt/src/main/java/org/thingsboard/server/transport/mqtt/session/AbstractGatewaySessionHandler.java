@@ -19,6 +19,7 @@ package org.thingsboard.server.transport.mqtt.session;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -48,6 +49,7 @@ import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
 import org.thingsboard.server.gen.transport.TransportApiProtos;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
 import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
@@ -59,9 +61,12 @@ import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugConnectionS
 
 import jakarta.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -70,6 +75,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 import static org.thingsboard.server.common.data.DataConstants.DEFAULT_DEVICE_TYPE;
@@ -97,6 +103,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     private final ConcurrentMap<String, Lock> deviceCreationLockMap;
     private final ConcurrentMap<String, T> devices;
     private final ConcurrentMap<String, ListenableFuture<T>> deviceFutures;
+    private final ConcurrentMap<String, ListenableFuture<GetOrCreateDeviceFromGatewayResponse>> warmUpFutures;
     protected final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
     protected final ChannelHandlerContext channel;
     protected final DeviceSessionCtx deviceSessionCtx;
@@ -109,6 +116,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         this.sessionId = sessionId;
         this.devices = new ConcurrentHashMap<>();
         this.deviceFutures = new ConcurrentHashMap<>();
+        this.warmUpFutures = new ConcurrentHashMap<>();
         this.deviceCreationLockMap = createWeakMap();
         this.mqttQoSMap = deviceSessionCtx.getMqttQoSMap();
         this.channel = deviceSessionCtx.getChannel();
@@ -165,13 +173,82 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     }
 
     public void onDevicesDisconnect() {
+        Map<String, String> snapshot = new HashMap<>(devices.size());
+        devices.forEach((deviceName, deviceCtx) -> snapshot.put(deviceName, deviceCtx.getDeviceInfo().getDeviceType()));
+        context.getGatewayDevicesSnapshotCache().put(gateway.getDeviceId(), snapshot);
         devices.forEach(this::deregisterSession);
     }
 
     public void onDeviceDeleted(String deviceName) {
+        context.getGatewayDevicesSnapshotCache().remove(gateway.getDeviceId(), deviceName);
+        warmUpFutures.remove(deviceName);
         deregisterSession(deviceName);
     }
 
+    /**
+     * Resolves the devices that were connected during the previous session of the gateway in batches,
+     * so that telemetry from the reconnected gateway does not wait for a get-or-create request per device.
+     * The device sessions are not opened here: a device is registered only when the gateway reports it again.
+     */
+    public void warmUpDevices() {
+        Map<String, String> snapshot = context.getGatewayDevicesSnapshotCache().get(gateway.getDeviceId());
+        Map<String, SettableFuture<GetOrCreateDeviceFromGatewayResponse>> futuresToSet = new LinkedHashMap<>();
+        for (String deviceName : snapshot.keySet()) {
+            if (devices.containsKey(deviceName) || deviceFutures.containsKey(deviceName)) {
+                continue;
+            }
+            SettableFuture<GetOrCreateDeviceFromGatewayResponse> futureToSet = SettableFuture.create();
+            if (warmUpFutures.putIfAbsent(deviceName, futureToSet) == null) {
+                futuresToSet.put(deviceName, futureToSet);
+            }
+        }
+        if (futuresToSet.isEmpty()) {
+            return;
+        }
+        log.debug("[{}][{}][{}] Resolving [{}] devices from the previous gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, futuresToSet.size());
+        List<String> deviceNames = new ArrayList<>(futuresToSet.keySet());
+        int batchSize = Math.max(1, context.getGatewayDevicesBatchSize());
+        for (int i = 0; i < deviceNames.size(); i += batchSize) {
+            List<String> batch = new ArrayList<>(deviceNames.subList(i, Math.min(i + batchSize, deviceNames.size())));
+            try {
+                processDevicesWarmUp(batch, snapshot, futuresToSet);
+            } catch (Throwable e) {
+                log.warn("[{}][{}][{}] Failed to resolve devices from the previous gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, e);
+                onDevicesWarmUpFailure(deviceNames.subList(i, deviceNames.size()), futuresToSet, e);
+                return;
+            }
+        }
+    }
+
+    private void processDevicesWarmUp(List<String> deviceNames, Map<String, String> deviceNamesAndTypes,
+                                      Map<String, SettableFuture<GetOrCreateDeviceFromGatewayResponse>> futuresToSet) {
+        transportService.process(gateway.getTenantId(), toGetOrCreateDevicesRequest(deviceNames, deviceNamesAndTypes),
+                new TransportServiceCallback<>() {
+                    @Override
+                    public void onSuccess(List<GetOrCreateDeviceFromGatewayResponse> responses) {
+                        for (int i = 0; i < deviceNames.size(); i++) {
+                            GetOrCreateDeviceFromGatewayResponse response = i < responses.size() ? responses.get(i) : null;
+                            // the device is resolved with a separate request when it is reported if the warm up did not succeed
+                            futuresToSet.get(deviceNames.get(i)).set(response != null && response.getDeviceInfo() != null ? response : null);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        log.debug("[{}][{}][{}] Failed to resolve [{}] devices from the previous gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceNames.size(), t);
+                        onDevicesWarmUpFailure(deviceNames, futuresToSet, t);
+                    }
+                });
+    }
+
+    private void onDevicesWarmUpFailure(List<String> deviceNames, Map<String, SettableFuture<GetOrCreateDeviceFromGatewayResponse>> futuresToSet, Throwable t) {
+        deviceNames.forEach(deviceName -> {
+            SettableFuture<GetOrCreateDeviceFromGatewayResponse> futureToSet = futuresToSet.get(deviceName);
+            warmUpFutures.remove(deviceName, futureToSet);
+            futureToSet.setException(t);
+        });
+    }
+
     public String getNodeId() {
         return context.getNodeId();
     }
@@ -247,6 +324,52 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         if (future != null) {
             return future;
         }
+        ListenableFuture<GetOrCreateDeviceFromGatewayResponse> warmUpFuture = warmUpFutures.remove(deviceName);
+        if (warmUpFuture != null) {
+            registerWarmedUpDevice(deviceName, deviceType, warmUpFuture, futureToSet);
+            return futureToSet;
+        }
+        return requestDevice(deviceName, deviceType, futureToSet);
+    }
+
+    /*
+     * Registers the device resolved by the warm up, or falls back to the get-or-create request if the warm up failed.
+     */
+    private void registerWarmedUpDevice(String deviceName, String deviceType, ListenableFuture<GetOrCreateDeviceFromGatewayResponse> warmUpFuture, SettableFuture<T> futureToSet) {
+        Futures.addCallback(warmUpFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable GetOrCreateDeviceFromGatewayResponse response) {
+                if (response != null) {
+                    try {
+                        futureToSet.set(registerDevice(deviceName, deviceType, response));
+                    } catch (Throwable e) {
+                        log.warn("[{}][{}][{}] Failed to register warmed up device [{}]", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName, e);
+                        futureToSet.setException(e);
+                    } finally {
+                        deviceFutures.remove(deviceName);
+                    }
+                } else {
+                    requestDeviceSafely(deviceName, deviceType, futureToSet);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                requestDeviceSafely(deviceName, deviceType, futureToSet);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void requestDeviceSafely(String deviceName, String deviceType, SettableFuture<T> futureToSet) {
+        try {
+            requestDevice(deviceName, deviceType, futureToSet);
+        } catch (Throwable e) {
+            logDeviceCreationError(e, deviceName);
+            futureToSet.setException(e);
+        }
+    }
+
+    private ListenableFuture<T> requestDevice(String deviceName, String deviceType, SettableFuture<T> futureToSet) {
         try {
             transportService.process(gateway.getTenantId(),
                     GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
@@ -258,19 +381,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
                     new TransportServiceCallback<>() {
                         @Override
                         public void onSuccess(GetOrCreateDeviceFromGatewayResponse msg) {
-                            T deviceSessionCtx = newDeviceSessionCtx(msg);
-                            if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
-                                log.trace("[{}][{}][{}] First got or created device [{}], type [{}] for the gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName, deviceType);
-                                SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
-                                transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
-                                transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
-                                        .setSessionInfo(deviceSessionInfo)
-                                        .setSessionEvent(SESSION_EVENT_MSG_OPEN)
-                                        .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
-                                        .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
-                                        .build(), null);
-                            }
-                            futureToSet.set(devices.get(deviceName));
+                            futureToSet.set(registerDevice(deviceName, deviceType, msg));
                             deviceFutures.remove(deviceName);
                         }
 
@@ -288,6 +399,118 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         }
     }
 
+    Map<String, ListenableFuture<T>> onDevicesConnect(Map<String, String> deviceNamesAndTypes) {
+        Map<String, ListenableFuture<T>> result = new HashMap<>(deviceNamesAndTypes.size());
+        Map<String, SettableFuture<T>> futuresToSet = new LinkedHashMap<>();
+        for (String deviceName : deviceNamesAndTypes.keySet()) {
+            T deviceCtx = devices.get(deviceName);
+            if (deviceCtx != null) {
+                result.put(deviceName, Futures.immediateFuture(deviceCtx));
+                continue;
+            }
+            SettableFuture<T> futureToSet = SettableFuture.create();
+            ListenableFuture<T> future = deviceFutures.putIfAbsent(deviceName, futureToSet);
+            if (future != null) {
+                result.put(deviceName, future);
+                continue;
+            }
+            deviceCtx = devices.get(deviceName);
+            ListenableFuture<GetOrCreateDeviceFromGatewayResponse> warmUpFuture;
+            if (deviceCtx != null) {
+                futureToSet.set(deviceCtx);
+                deviceFutures.remove(deviceName);
+            } else if ((warmUpFuture = warmUpFutures.remove(deviceName)) != null) {
+                registerWarmedUpDevice(deviceName, deviceNamesAndTypes.get(deviceName), warmUpFuture, futureToSet);
+            } else {
+                futuresToSet.put(deviceName, futureToSet);
+            }
+            result.put(deviceName, futureToSet);
+        }
+        if (!futuresToSet.isEmpty()) {
+            List<String> deviceNames = new ArrayList<>(futuresToSet.keySet());
+            int batchSize = Math.max(1, context.getGatewayDevicesBatchSize());
+            for (int i = 0; i < deviceNames.size(); i += batchSize) {
+                List<String> batch = new ArrayList<>(deviceNames.subList(i, Math.min(i + batchSize, deviceNames.size())));
+                try {
+                    processDevicesCreation(batch, deviceNamesAndTypes, futuresToSet);
+                } catch (Throwable e) {
+                    // the futures of this and all remaining batches would never be completed otherwise
+                    onDevicesCreationFailure(deviceNames.subList(i, deviceNames.size()), futuresToSet, e);
+                    throw e;
+                }
+            }
+        }
+        return result;
+    }
+
+    private GetOrCreateDevicesFromGatewayRequestMsg toGetOrCreateDevicesRequest(List<String> deviceNames, Map<String, String> deviceNamesAndTypes) {
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder requestMsg = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getDeviceId().getId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getDeviceId().getId().getLeastSignificantBits());
+        deviceNames.forEach(deviceName -> requestMsg.addDevices(TransportProtos.GatewayDeviceNameTypeProto.newBuilder()
+                .setDeviceName(deviceName)
+                .setDeviceType(deviceNamesAndTypes.get(deviceName))
+                .build()));
+        return requestMsg.build();
+    }
+
+    private void processDevicesCreation(List<String> deviceNames, Map<String, String> deviceNamesAndTypes, Map<String, SettableFuture<T>> futuresToSet) {
+        transportService.process(gateway.getTenantId(), toGetOrCreateDevicesRequest(deviceNames, deviceNamesAndTypes),
+                new TransportServiceCallback<>() {
+                    @Override
+                    public void onSuccess(List<GetOrCreateDeviceFromGatewayResponse> responses) {
+                        for (int i = 0; i < deviceNames.size(); i++) {
+                            String deviceName = deviceNames.get(i);
+                            SettableFuture<T> futureToSet = futuresToSet.get(deviceName);
+                            GetOrCreateDeviceFromGatewayResponse response = i < responses.size() ? responses.get(i) : null;
+                            if (response != null && response.getDeviceInfo() != null) {
+                                futureToSet.set(registerDevice(deviceName, deviceNamesAndTypes.get(deviceName), response));
+                            } else {
+                                Throwable t = new RuntimeException(response != null && response.isEntityLimitReached() ?
+                                        DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED : "Failed to get or create device [" + deviceName + "]");
+                                logDeviceCreationError(t, deviceName);
+                                futureToSet.setException(t);
+                            }
+                            deviceFutures.remove(deviceName);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        if (DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED.equals(t.getMessage())) {
+                            log.info("[{}][{}][{}] Failed to process connect command for [{}] devices due to [{}]", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceNames.size(),
+                                    DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED);
+                        } else {
+                            log.warn("[{}][{}][{}] Failed to process connect command for [{}] devices", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceNames.size(), t);
+                        }
+                        onDevicesCreationFailure(deviceNames, futuresToSet, t);
+                    }
+                });
+    }
+
+    private void onDevicesCreationFailure(List<String> deviceNames, Map<String, SettableFuture<T>> futuresToSet, Throwable t) {
+        deviceNames.forEach(deviceName -> {
+            futuresToSet.get(deviceName).setException(t);
+            deviceFutures.remove(deviceName);
+        });
+    }
+
+    private T registerDevice(String deviceName, String deviceType, GetOrCreateDeviceFromGatewayResponse msg) {
+        T deviceSessionCtx = newDeviceSessionCtx(msg);
+        if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
+            log.trace("[{}][{}][{}] First got or created device [{}], type [{}] for the gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName, deviceType);
+            SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
+            transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
+            transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                    .setSessionInfo(deviceSessionInfo)
+                    .setSessionEvent(SESSION_EVENT_MSG_OPEN)
+                    .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
+                    .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
+                    .build(), null);
+        }
+        return devices.get(deviceName);
+    }
+
     private void logDeviceCreationError(Throwable t, String deviceName) {
         if (DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED.equals(t.getMessage())) {
             log.info("[{}][{}][{}] Failed to process device connect command: [{}] due to [{}]", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName,
@@ -345,9 +568,10 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         if (json.isJsonObject()) {
             JsonObject jsonObj = json.getAsJsonObject();
+            Map<String, ListenableFuture<T>> connectedDevices = checkDevicesConnected(jsonObj.keySet());
             for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
                 String deviceName = deviceEntry.getKey();
-                Futures.addCallback(checkDeviceConnected(deviceName),
+                Futures.addCallback(connectedDevices.get(deviceName),
                         new FutureCallback<>() {
                             @Override
                             public void onSuccess(@Nullable T deviceCtx) {
@@ -379,9 +603,11 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
             TransportApiProtos.GatewayTelemetryMsg telemetryMsgProto = TransportApiProtos.GatewayTelemetryMsg.parseFrom(getBytes(payload));
             List<TransportApiProtos.TelemetryMsg> deviceMsgList = telemetryMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(deviceMsgList)) {
+                Map<String, ListenableFuture<T>> connectedDevices = checkDevicesConnected(deviceMsgList.stream()
+                        .map(telemetryMsg -> checkDeviceName(telemetryMsg.getDeviceName())).collect(Collectors.toList()));
                 deviceMsgList.forEach(telemetryMsg -> {
-                    String deviceName = checkDeviceName(telemetryMsg.getDeviceName());
-                    Futures.addCallback(checkDeviceConnected(deviceName),
+                    String deviceName = telemetryMsg.getDeviceName();
+                    Futures.addCallback(connectedDevices.get(deviceName),
                             new FutureCallback<>() {
                                 @Override
                                 public void onSuccess(@Nullable T deviceCtx) {
@@ -429,9 +655,10 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         if (json.isJsonObject()) {
             JsonObject jsonObj = json.getAsJsonObject();
+            Map<String, ListenableFuture<T>> connectedDevices = checkDevicesConnected(jsonObj.keySet());
             for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
                 String deviceName = deviceEntry.getKey();
-                Futures.addCallback(checkDeviceConnected(deviceName),
+                Futures.addCallback(connectedDevices.get(deviceName),
                         new FutureCallback<>() {
                             @Override
                             public void onSuccess(@Nullable T deviceCtx) {
@@ -505,9 +732,10 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         if (json.isJsonObject()) {
             JsonObject jsonObj = json.getAsJsonObject();
+            Map<String, ListenableFuture<T>> connectedDevices = checkDevicesConnected(jsonObj.keySet());
             for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
                 String deviceName = deviceEntry.getKey();
-                Futures.addCallback(checkDeviceConnected(deviceName),
+                Futures.addCallback(connectedDevices.get(deviceName),
                         new FutureCallback<>() {
                             @Override
                             public void onSuccess(@Nullable T deviceCtx) {
@@ -534,9 +762,11 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
             TransportApiProtos.GatewayAttributesMsg attributesMsgProto = TransportApiProtos.GatewayAttributesMsg.parseFrom(getBytes(payload));
             List<TransportApiProtos.AttributesMsg> attributesMsgList = attributesMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(attributesMsgList)) {
+                Map<String, ListenableFuture<T>> connectedDevices = checkDevicesConnected(attributesMsgList.stream()
+                        .map(attributesMsg -> checkDeviceName(attributesMsg.getDeviceName())).collect(Collectors.toList()));
                 attributesMsgList.forEach(attributesMsg -> {
-                    String deviceName = checkDeviceName(attributesMsg.getDeviceName());
-                    Futures.addCallback(checkDeviceConnected(deviceName),
+                    String deviceName = attributesMsg.getDeviceName();
+                    Futures.addCallback(connectedDevices.get(deviceName),
                             new FutureCallback<>() {
                                 @Override
                                 public void onSuccess(@Nullable T deviceCtx) {
@@ -704,6 +934,24 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         }
     }
 
+    protected Map<String, ListenableFuture<T>> checkDevicesConnected(Collection<String> deviceNames) {
+        Map<String, ListenableFuture<T>> result = new HashMap<>(deviceNames.size());
+        Map<String, String> missingDevices = new LinkedHashMap<>();
+        for (String deviceName : deviceNames) {
+            T ctx = devices.get(deviceName);
+            if (ctx == null) {
+                missingDevices.putIfAbsent(deviceName, DEFAULT_DEVICE_TYPE);
+            } else {
+                result.put(deviceName, Futures.immediateFuture(ctx));
+            }
+        }
+        if (!missingDevices.isEmpty()) {
+            log.debug("[{}][{}][{}] Missing [{}] devices for the gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, missingDevices.size());
+            result.putAll(onDevicesConnect(missingDevices));
+        }
+        return result;
+    }
+
     protected String checkDeviceName(String deviceName) {
         if (StringUtils.isEmpty(deviceName)) {
             throw new RuntimeException("Device name is empty!");
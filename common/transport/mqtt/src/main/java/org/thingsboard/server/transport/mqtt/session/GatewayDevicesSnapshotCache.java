@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the names and types of the devices that were connected through a gateway session,
+ * so that a reconnecting gateway can resolve all of them with a few batched requests
+ * instead of one get-or-create request per device.
+ * The snapshot is kept in memory only, so it survives the reconnects of the gateway but not the restart of the transport.
+ */
+public class GatewayDevicesSnapshotCache {
+
+    private final Cache<DeviceId, Map<String, String>> cache;
+
+    public GatewayDevicesSnapshotCache(long ttlInMinutes, int maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttlInMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public void put(DeviceId gatewayId, Map<String, String> devices) {
+        if (devices.isEmpty()) {
+            cache.invalidate(gatewayId);
+        } else {
+            cache.put(gatewayId, Collections.unmodifiableMap(devices));
+        }
+    }
+
+    public Map<String, String> get(DeviceId gatewayId) {
+        Map<String, String> devices = cache.getIfPresent(gatewayId);
+        return devices != null ? devices : Collections.emptyMap();
+    }
+
+    public void remove(DeviceId gatewayId, String deviceName) {
+        cache.asMap().computeIfPresent(gatewayId, (id, devices) -> {
+            if (!devices.containsKey(deviceName)) {
+                return devices;
+            }
+            Map<String, String> updated = new HashMap<>(devices);
+            updated.remove(deviceName);
+            return updated.isEmpty() ? null : Collections.unmodifiableMap(updated);
+        });
+    }
+
+}
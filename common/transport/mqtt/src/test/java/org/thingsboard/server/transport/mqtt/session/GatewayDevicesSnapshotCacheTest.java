@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.session;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GatewayDevicesSnapshotCacheTest {
+
+    private final GatewayDevicesSnapshotCache cache = new GatewayDevicesSnapshotCache(60, 100);
+
+    @Test
+    public void givenSnapshot_whenGet_thenReturnDevices() {
+        DeviceId gatewayId = new DeviceId(UUID.randomUUID());
+        cache.put(gatewayId, Map.of("Device A", "default", "Device B", "thermostat"));
+
+        assertThat(cache.get(gatewayId)).containsOnly(Map.entry("Device A", "default"), Map.entry("Device B", "thermostat"));
+        assertThat(cache.get(new DeviceId(UUID.randomUUID()))).isEmpty();
+    }
+
+    @Test
+    public void givenSnapshot_whenRemoveDevice_thenDeviceIsNotReturned() {
+        DeviceId gatewayId = new DeviceId(UUID.randomUUID());
+        cache.put(gatewayId, Map.of("Device A", "default", "Device B", "default"));
+
+        cache.remove(gatewayId, "Device A");
+        assertThat(cache.get(gatewayId)).containsOnlyKeys("Device B");
+
+        cache.remove(gatewayId, "Device B");
+        assertThat(cache.get(gatewayId)).isEmpty();
+    }
+
+    @Test
+    public void givenEmptySnapshot_whenPut_thenPreviousSnapshotIsRemoved() {
+        DeviceId gatewayId = new DeviceId(UUID.randomUUID());
+        cache.put(gatewayId, Map.of("Device A", "default"));
+
+        cache.put(gatewayId, Map.of());
+        assertThat(cache.get(gatewayId)).isEmpty();
+    }
+
+}
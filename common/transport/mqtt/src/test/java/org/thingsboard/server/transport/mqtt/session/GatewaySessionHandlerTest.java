@@ -15,12 +15,43 @@
  */
 package org.thingsboard.server.transport.mqtt.session;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.jupiter.api.Test;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGatewayResponse;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.transport.mqtt.MqttTransportContext;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willCallRealMethod;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class GatewaySessionHandlerTest {
 
@@ -32,4 +63,104 @@ public class GatewaySessionHandlerTest {
         assertThat(gsh.createWeakMap()).isInstanceOf(ConcurrentReferenceHashMap.class);
     }
 
+    @Test
+    public void givenSecondBatchFails_whenDevicesConnect_thenAllPendingFuturesAreFailed() {
+        TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+        TransportDeviceInfo gateway = new TransportDeviceInfo();
+        gateway.setTenantId(tenantId);
+        gateway.setDeviceId(new DeviceId(UUID.randomUUID()));
+        TransportService transportService = mock(TransportService.class);
+        MqttTransportContext context = mock(MqttTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService);
+        when(context.getGatewayDevicesBatchSize()).thenReturn(1);
+        DeviceSessionCtx deviceSessionCtx = mock(DeviceSessionCtx.class);
+        when(deviceSessionCtx.getContext()).thenReturn(context);
+        when(deviceSessionCtx.getDeviceInfo()).thenReturn(gateway);
+        when(deviceSessionCtx.getMqttQoSMap()).thenReturn(new ConcurrentHashMap<>());
+        GatewaySessionHandler handler = new GatewaySessionHandler(deviceSessionCtx, UUID.randomUUID());
+
+        Map<String, String> devices = new LinkedHashMap<>();
+        devices.put("Device A", "default");
+        devices.put("Device B", "default");
+        devices.put("Device C", "default");
+        Map<String, ListenableFuture<GatewayDeviceSessionContext>> pendingFutures = new HashMap<>();
+        doAnswer(invocation -> {
+            // pending requests return the futures of the devices that are being created
+            pendingFutures.putAll(handler.onDevicesConnect(Map.of("Device A", "default")));
+            TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback = invocation.getArgument(2);
+            callback.onSuccess(List.of(GetOrCreateDeviceFromGatewayResponse.builder().entityLimitReached(true).build()));
+            return null;
+        }).doAnswer(invocation -> {
+            pendingFutures.putAll(handler.onDevicesConnect(Map.of("Device B", "default", "Device C", "default")));
+            throw new IllegalStateException("Queue is full");
+        }).doNothing().when(transportService).process(eq(tenantId), any(GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+
+        assertThatThrownBy(() -> handler.onDevicesConnect(devices)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(pendingFutures).hasSize(3).allSatisfy((deviceName, future) -> assertThat(future).isDone());
+        assertThatThrownBy(() -> pendingFutures.get("Device A").get()).isInstanceOf(ExecutionException.class)
+                .hasMessageContaining(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED);
+        assertThatThrownBy(() -> pendingFutures.get("Device B").get()).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> pendingFutures.get("Device C").get()).hasCauseInstanceOf(IllegalStateException.class);
+
+        handler.onDevicesConnect(Map.of("Device C", "default"));
+        verify(transportService, times(3)).process(eq(tenantId), any(GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+    }
+
+    @Test
+    public void givenDevicesOfPreviousSession_whenWarmUp_thenOnlyReportedDevicesAreRegistered() throws Exception {
+        TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+        TransportDeviceInfo gateway = new TransportDeviceInfo();
+        gateway.setTenantId(tenantId);
+        gateway.setDeviceId(new DeviceId(UUID.randomUUID()));
+        TransportService transportService = mock(TransportService.class);
+        MqttTransportContext context = mock(MqttTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService);
+        when(context.getGatewayDevicesBatchSize()).thenReturn(10);
+        when(context.getNodeId()).thenReturn("test-node");
+        GatewayDevicesSnapshotCache snapshotCache = new GatewayDevicesSnapshotCache(60, 10);
+        snapshotCache.put(gateway.getDeviceId(), new HashMap<>(Map.of("Device A", "default", "Device B", "default")));
+        when(context.getGatewayDevicesSnapshotCache()).thenReturn(snapshotCache);
+        DeviceSessionCtx deviceSessionCtx = mock(DeviceSessionCtx.class);
+        when(deviceSessionCtx.getContext()).thenReturn(context);
+        when(deviceSessionCtx.getDeviceInfo()).thenReturn(gateway);
+        when(deviceSessionCtx.getMqttQoSMap()).thenReturn(new ConcurrentHashMap<>());
+        GatewaySessionHandler handler = new GatewaySessionHandler(deviceSessionCtx, UUID.randomUUID());
+
+        doAnswer(invocation -> {
+            GetOrCreateDevicesFromGatewayRequestMsg request = invocation.getArgument(1);
+            TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback = invocation.getArgument(2);
+            callback.onSuccess(request.getDevicesList().stream()
+                    .map(device -> GetOrCreateDeviceFromGatewayResponse.builder()
+                            .deviceInfo(newDeviceInfo(tenantId, device.getDeviceName()))
+                            .deviceProfile(new DeviceProfile())
+                            .build())
+                    .toList());
+            return null;
+        }).when(transportService).process(eq(tenantId), any(GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+
+        handler.warmUpDevices();
+        verify(transportService, times(1)).process(eq(tenantId), any(GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+        verify(transportService, never()).process(any(TransportProtos.TransportToDeviceActorMsg.class), any());
+
+        Map<String, ListenableFuture<GatewayDeviceSessionContext>> connectedDevices = handler.onDevicesConnect(Map.of("Device A", "default"));
+        GatewayDeviceSessionContext deviceCtx = connectedDevices.get("Device A").get(10, TimeUnit.SECONDS);
+
+        assertThat(deviceCtx.getDeviceInfo().getDeviceName()).isEqualTo("Device A");
+        verify(transportService, times(1)).process(eq(tenantId), any(GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+        verify(transportService, times(1)).registerAsyncSession(any(), any());
+        verify(transportService, times(1)).process(any(TransportProtos.TransportToDeviceActorMsg.class), any());
+    }
+
+    private TransportDeviceInfo newDeviceInfo(TenantId tenantId, String deviceName) {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(tenantId);
+        deviceInfo.setCustomerId(new CustomerId(CustomerId.NULL_UUID));
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        deviceInfo.setDeviceName(deviceName);
+        deviceInfo.setDeviceType("default");
+        return deviceInfo;
+    }
+
 }
@@ -0,0 +1,38 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+
+public interface TransportDeviceCredentialsCache {
+
+    ValidateDeviceCredentialsResponseMsg get(TransportApiRequestMsg request);
+
+    /**
+     * @return the current generation of the cache, to be captured before the validation request is sent
+     */
+    long getGeneration();
+
+    /**
+     * Caches the response unless the device was evicted after the given generation was captured.
+     */
+    void put(TransportApiRequestMsg request, ValidateDeviceCredentialsResponseMsg response, long generation);
+
+    void evict(DeviceId deviceId);
+
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.transport.DeviceDeletedEvent;
+import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateBasicMqttCredRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+import org.thingsboard.server.queue.util.TbTransportComponent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches successful device credentials validation responses, so that reconnecting devices
+ * are authenticated without a transport API request. Entries are keyed by the credentials id
+ * (access token, certificate hash or hash of the MQTT client id and user name), so secrets are not
+ * kept in memory as cache keys. Entries are evicted when the device or its credentials are updated or deleted.
+ * <p>
+ * The response of the validation request that was sent before the eviction of the device is not cached,
+ * since it may contain the revoked credentials: the caller captures the {@link #getGeneration() generation}
+ * before the request and the put is skipped if the device was evicted after that.
+ */
+@Slf4j
+@Component
+@TbTransportComponent
+public class DefaultTransportDeviceCredentialsCache implements TransportDeviceCredentialsCache {
+
+    private final boolean enabled;
+    private final Cache<String, CachedCredentials> cache;
+    private final ConcurrentMap<UUID, Set<String>> deviceKeys = new ConcurrentHashMap<>();
+    private final Cache<UUID, Long> evictions;
+    private final AtomicLong generation = new AtomicLong();
+
+    public DefaultTransportDeviceCredentialsCache(@Value("${transport.credentials_cache.enabled:true}") boolean enabled,
+                                                  @Value("${transport.credentials_cache.time_to_live_in_minutes:60}") int ttl,
+                                                  @Value("${transport.credentials_cache.max_size:100000}") int maxSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                // index is updated asynchronously, since the cache is modified within the compute of the index
+                .removalListener((String key, CachedCredentials value, RemovalCause cause) -> {
+                    if (key != null && value != null) {
+                        removeDeviceKey(value.deviceId(), key);
+                    }
+                })
+                .build();
+        // in-flight validation requests are expected to complete well before the cached entries expire
+        this.evictions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    public ValidateDeviceCredentialsResponseMsg get(TransportApiRequestMsg request) {
+        if (!enabled) {
+            return null;
+        }
+        String key = toKey(request);
+        if (key == null) {
+            return null;
+        }
+        CachedCredentials cached = cache.getIfPresent(key);
+        if (cached == null || !Objects.equals(cached.passwordHash(), getPasswordHash(request))) {
+            return null;
+        }
+        return cached.response();
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    @Override
+    public void put(TransportApiRequestMsg request, ValidateDeviceCredentialsResponseMsg response, long requestGeneration) {
+        if (!enabled || !response.hasDeviceInfo()) {
+            return;
+        }
+        String key = toKey(request);
+        if (key == null) {
+            return;
+        }
+        DeviceInfoProto deviceInfo = response.getDeviceInfo();
+        UUID deviceId = new UUID(deviceInfo.getDeviceIdMSB(), deviceInfo.getDeviceIdLSB());
+        CachedCredentials credentials = new CachedCredentials(deviceId, getPasswordHash(request), response);
+        deviceKeys.compute(deviceId, (id, keys) -> {
+            Long evictedGeneration = evictions.getIfPresent(id);
+            if (evictedGeneration != null && evictedGeneration > requestGeneration) {
+                log.trace("[{}] Device was evicted while the credentials were validated, skipping put", id);
+                return keys;
+            }
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+            }
+            keys.add(key);
+            cache.put(key, credentials);
+            return keys;
+        });
+    }
+
+    @Override
+    public void evict(DeviceId deviceId) {
+        if (!enabled) {
+            return;
+        }
+        deviceKeys.compute(deviceId.getId(), (id, keys) -> {
+            evictions.put(id, generation.incrementAndGet());
+            if (keys != null) {
+                cache.invalidateAll(keys);
+                log.trace("[{}] Evicted [{}] device credentials from cache", deviceId, keys.size());
+            }
+            return null;
+        });
+    }
+
+    @EventListener(DeviceUpdatedEvent.class)
+    public void onDeviceUpdated(DeviceUpdatedEvent event) {
+        evict(event.getDevice().getId());
+    }
+
+    @EventListener(DeviceDeletedEvent.class)
+    public void onDeviceDeleted(DeviceDeletedEvent event) {
+        evict(event.getDeviceId());
+    }
+
+    int size() {
+        cache.cleanUp();
+        return (int) cache.estimatedSize();
+    }
+
+    int indexSize() {
+        return deviceKeys.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void removeDeviceKey(UUID deviceId, String key) {
+        deviceKeys.computeIfPresent(deviceId, (id, keys) -> {
+            CachedCredentials current = cache.getIfPresent(key);
+            // the key may be already put again for the same device
+            if (current == null || !current.deviceId().equals(id)) {
+                keys.remove(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static String toKey(TransportApiRequestMsg request) {
+        if (request.hasValidateTokenRequestMsg()) {
+            return "ACCESS_TOKEN|" + request.getValidateTokenRequestMsg().getToken();
+        } else if (request.hasValidateX509CertRequestMsg()) {
+            return "X509_CERTIFICATE|" + request.getValidateX509CertRequestMsg().getHash();
+        } else if (request.hasValidateBasicMqttCredRequestMsg()) {
+            ValidateBasicMqttCredRequestMsg msg = request.getValidateBasicMqttCredRequestMsg();
+            return "MQTT_BASIC|" + Hashing.sha256().newHasher()
+                    .putInt(msg.getClientId().length()).putString(msg.getClientId(), StandardCharsets.UTF_8)
+                    .putInt(msg.getUserName().length()).putString(msg.getUserName(), StandardCharsets.UTF_8)
+                    .hash();
+        }
+        return null;
+    }
+
+    private static String getPasswordHash(TransportApiRequestMsg request) {
+        if (request.hasValidateBasicMqttCredRequestMsg()) {
+            return Hashing.sha256().hashString(request.getValidateBasicMqttCredRequestMsg().getPassword(), StandardCharsets.UTF_8).toString();
+        }
+        return null;
+    }
+
+    private record CachedCredentials(UUID deviceId, String passwordHash, ValidateDeviceCredentialsResponseMsg response) {
+    }
+
+}
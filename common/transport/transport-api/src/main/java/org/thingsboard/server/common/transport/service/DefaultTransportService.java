@@ -22,6 +22,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
@@ -67,6 +68,7 @@ import org.thingsboard.server.common.transport.DeviceDeletedEvent;
 import org.thingsboard.server.common.transport.DeviceProfileUpdatedEvent;
 import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
 import org.thingsboard.server.common.transport.SessionMsgListener;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
 import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
 import org.thingsboard.server.common.transport.TransportResourceCache;
 import org.thingsboard.server.common.transport.TransportService;
@@ -91,10 +93,12 @@ import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponse
 import org.thingsboard.server.gen.transport.TransportProtos.TransportToDeviceActorMsg;
 import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.TbQueueHandler;
 import org.thingsboard.server.queue.TbQueueMsgMetadata;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.TbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.AsyncCallbackTemplate;
+import org.thingsboard.server.queue.common.DirectTbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
@@ -107,6 +111,7 @@ import org.thingsboard.server.queue.util.TbTransportComponent;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -152,6 +157,17 @@ public class DefaultTransportService extends TransportActivityManager implements
     private int notificationsPollDuration;
     @Value("${transport.stats.enabled:false}")
     private boolean statsEnabled;
+    @Value("${transport.api_local_enabled:true}")
+    private boolean localTransportApiEnabled;
+    @Value("${queue.transport_api.max_pending_requests:10000}")
+    private long transportApiMaxPendingRequests;
+    @Value("${queue.transport_api.max_requests_timeout:10000}")
+    private long transportApiMaxRequestsTimeout;
+
+    @Autowired
+    private ObjectProvider<TbQueueHandler<TbProtoQueueMsg<TransportApiRequestMsg>, TbProtoQueueMsg<TransportApiResponseMsg>>> localTransportApiHandler;
+    @Autowired
+    private TransportDeviceCredentialsCache deviceCredentialsCache;
 
     @Autowired
     @Lazy
@@ -228,7 +244,13 @@ public class DefaultTransportService extends TransportActivityManager implements
         this.transportApiStats = statsFactory.createMessagesStats(StatsType.TRANSPORT.getName() + ".producer");
         this.transportCallbackExecutor = ThingsBoardExecutors.newWorkStealingPool(20, getClass());
         this.scheduler.scheduleAtFixedRate(this::invalidateRateLimits, new Random().nextInt((int) sessionReportTimeout), sessionReportTimeout, TimeUnit.MILLISECONDS);
-        transportApiRequestTemplate = queueProvider.createTransportApiRequestTemplate();
+        if (localTransportApiEnabled && serviceInfoProvider.isService(ServiceType.TB_CORE)) {
+            log.info("Transport API requests will be handled in-process by the core service");
+            transportApiRequestTemplate = new DirectTbQueueRequestTemplate<>(localTransportApiHandler::getObject, scheduler,
+                    transportApiMaxRequestsTimeout, transportApiMaxPendingRequests);
+        } else {
+            transportApiRequestTemplate = queueProvider.createTransportApiRequestTemplate();
+        }
         transportApiRequestTemplate.setMessagesStats(transportApiStats);
         ruleEngineMsgProducer = producerProvider.getRuleEngineMsgProducer();
         tbCoreMsgProducer = producerProvider.getTbCoreMsgProducer();
@@ -391,7 +413,7 @@ public class DefaultTransportService extends TransportActivityManager implements
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateTokenRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, true, callback);
     }
 
     @Override
@@ -400,7 +422,7 @@ public class DefaultTransportService extends TransportActivityManager implements
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateBasicMqttCredRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, true, callback);
     }
 
     @Override
@@ -428,20 +450,33 @@ public class DefaultTransportService extends TransportActivityManager implements
     public void process(DeviceTransportType transportType, TransportProtos.ValidateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, true, callback);
     }
 
     @Override
     public void process(DeviceTransportType transportType, TransportProtos.ValidateOrCreateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateOrCreateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, false, callback);
     }
 
-    private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
+    private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg, boolean cacheable,
                            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
-        ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
-            TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
+        ListenableFuture<TransportProtos.ValidateDeviceCredentialsResponseMsg> responseMsg;
+        TransportProtos.ValidateDeviceCredentialsResponseMsg cachedResponseMsg = cacheable ? deviceCredentialsCache.get(protoMsg.getValue()) : null;
+        if (cachedResponseMsg != null) {
+            responseMsg = Futures.immediateFuture(cachedResponseMsg);
+        } else {
+            long cacheGeneration = cacheable ? deviceCredentialsCache.getGeneration() : 0L;
+            responseMsg = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
+                TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
+                if (cacheable) {
+                    deviceCredentialsCache.put(protoMsg.getValue(), msg, cacheGeneration);
+                }
+                return msg;
+            }, MoreExecutors.directExecutor());
+        }
+        ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(responseMsg, msg -> {
             ValidateDeviceCredentialsResponse.ValidateDeviceCredentialsResponseBuilder result = ValidateDeviceCredentialsResponse.builder();
             if (msg.hasDeviceInfo()) {
                 result.credentials(msg.getCredentialsBody());
@@ -472,23 +507,78 @@ public class DefaultTransportService extends TransportActivityManager implements
         } else {
             ListenableFuture<GetOrCreateDeviceFromGatewayResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
                 TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg = tmp.getValue().getGetOrCreateDeviceResponseMsg();
-                GetOrCreateDeviceFromGatewayResponse.GetOrCreateDeviceFromGatewayResponseBuilder result = GetOrCreateDeviceFromGatewayResponse.builder();
-                if (msg.hasDeviceInfo()) {
-                    TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
-                    result.deviceInfo(tdi);
-                    if (msg.hasDeviceProfile()) {
-                        result.deviceProfile(deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), msg.getDeviceProfile()));
-                    }
-                } else if (TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT.equals(msg.getError())) {
+                if (!msg.hasDeviceInfo() && TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT.equals(msg.getError())) {
                     entityLimitsCache.put(key, true);
                     throw new RuntimeException(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED);
                 }
-                return result.build();
+                return toGetOrCreateDeviceFromGatewayResponse(msg);
             }, MoreExecutors.directExecutor());
             AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
         }
     }
 
+    @Override
+    public void process(TenantId tenantId, TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg requestMsg, TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback) {
+        log.trace("Processing msg: {}", requestMsg);
+        int devicesCount = requestMsg.getDevicesCount();
+        List<EntityLimitKey> keys = new ArrayList<>(devicesCount);
+        boolean[] limited = new boolean[devicesCount];
+        TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.Builder filteredRequest = TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(requestMsg.getGatewayIdMSB())
+                .setGatewayIdLSB(requestMsg.getGatewayIdLSB());
+        for (int i = 0; i < devicesCount; i++) {
+            TransportProtos.GatewayDeviceNameTypeProto device = requestMsg.getDevices(i);
+            var key = new EntityLimitKey(tenantId, StringUtils.truncate(device.getDeviceName(), 256));
+            keys.add(key);
+            if (entityLimitsCache.get(key)) {
+                limited[i] = true;
+            } else {
+                filteredRequest.addDevices(device);
+            }
+        }
+        if (filteredRequest.getDevicesCount() == 0) {
+            List<GetOrCreateDeviceFromGatewayResponse> result = new ArrayList<>(devicesCount);
+            for (int i = 0; i < devicesCount; i++) {
+                result.add(GetOrCreateDeviceFromGatewayResponse.builder().entityLimitReached(true).build());
+            }
+            transportCallbackExecutor.submit(() -> callback.onSuccess(result));
+            return;
+        }
+        TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(filteredRequest).build());
+        ListenableFuture<List<GetOrCreateDeviceFromGatewayResponse>> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
+            List<TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg> msgs = tmp.getValue().getGetOrCreateDevicesResponseMsg().getResponsesList();
+            List<GetOrCreateDeviceFromGatewayResponse> result = new ArrayList<>(devicesCount);
+            int responseIdx = 0;
+            for (int i = 0; i < devicesCount; i++) {
+                if (limited[i] || responseIdx >= msgs.size()) {
+                    result.add(GetOrCreateDeviceFromGatewayResponse.builder().entityLimitReached(limited[i]).build());
+                    continue;
+                }
+                TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg = msgs.get(responseIdx++);
+                if (!msg.hasDeviceInfo() && TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT.equals(msg.getError())) {
+                    entityLimitsCache.put(keys.get(i), true);
+                    result.add(GetOrCreateDeviceFromGatewayResponse.builder().entityLimitReached(true).build());
+                } else {
+                    result.add(toGetOrCreateDeviceFromGatewayResponse(msg));
+                }
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+        AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
+    }
+
+    private GetOrCreateDeviceFromGatewayResponse toGetOrCreateDeviceFromGatewayResponse(TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg) {
+        GetOrCreateDeviceFromGatewayResponse.GetOrCreateDeviceFromGatewayResponseBuilder result = GetOrCreateDeviceFromGatewayResponse.builder();
+        if (msg.hasDeviceInfo()) {
+            TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
+            result.deviceInfo(tdi);
+            if (msg.hasDeviceProfile()) {
+                result.deviceProfile(deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), msg.getDeviceProfile()));
+            }
+        }
+        return result.build();
+    }
+
     @Override
     public void process(TransportProtos.LwM2MRequestMsg msg, TransportServiceCallback<TransportProtos.LwM2MResponseMsg> callback) {
         log.trace("Processing msg: {}", msg);
@@ -935,6 +1025,9 @@ public class DefaultTransportService extends TransportActivityManager implements
                     rateLimitService.remove(new DeviceId(entityUuid));
                     onDeviceDeleted(new DeviceId(entityUuid));
                 }
+            } else if (toSessionMsg.hasDeviceCredentialsUpdateMsg()) {
+                TransportProtos.DeviceCredentialsUpdateMsgProto msg = toSessionMsg.getDeviceCredentialsUpdateMsg();
+                deviceCredentialsCache.evict(new DeviceId(new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB())));
             } else if (toSessionMsg.hasResourceUpdateMsg()) {
                 TransportProtos.ResourceUpdateMsg msg = toSessionMsg.getResourceUpdateMsg();
                 TenantId tenantId = TenantId.fromUUID(new UUID(msg.getTenantIdMSB(), msg.getTenantIdLSB()));
@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateBasicMqttCredRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultTransportDeviceCredentialsCacheTest {
+
+    private final DefaultTransportDeviceCredentialsCache cache = new DefaultTransportDeviceCredentialsCache(true, 60, 1000);
+
+    @Test
+    public void givenBasicMqttCredentials_whenPasswordDiffers_thenCacheMiss() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        ValidateDeviceCredentialsResponseMsg response = response(deviceId);
+        cache.put(basicMqttRequest("client", "user", "secret"), response, cache.getGeneration());
+
+        assertThat(cache.get(basicMqttRequest("client", "user", "secret"))).isEqualTo(response);
+        assertThat(cache.get(basicMqttRequest("client", "user", "wrong"))).isNull();
+        assertThat(cache.get(basicMqttRequest("client|user", "", "secret"))).isNull();
+
+        cache.put(basicMqttRequest("client", "user", "secret"), response, cache.getGeneration());
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenCachedCredentials_whenDeviceEvicted_thenOnlyItsEntriesAreRemoved() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        DeviceId otherDeviceId = new DeviceId(UUID.randomUUID());
+        cache.put(tokenRequest("token1"), response(deviceId), cache.getGeneration());
+        cache.put(basicMqttRequest("client", "user", "secret"), response(deviceId), cache.getGeneration());
+        cache.put(tokenRequest("token2"), response(otherDeviceId), cache.getGeneration());
+        assertThat(cache.indexSize()).isEqualTo(3);
+
+        cache.evict(deviceId);
+
+        assertThat(cache.get(tokenRequest("token1"))).isNull();
+        assertThat(cache.get(basicMqttRequest("client", "user", "secret"))).isNull();
+        assertThat(cache.get(tokenRequest("token2"))).isNotNull();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.indexSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenValidationInFlight_whenDeviceEvicted_thenResponseIsNotCached() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        DeviceId otherDeviceId = new DeviceId(UUID.randomUUID());
+        long generation = cache.getGeneration();
+
+        cache.evict(deviceId);
+        cache.put(tokenRequest("revoked"), response(deviceId), generation);
+        cache.put(tokenRequest("token2"), response(otherDeviceId), generation);
+
+        assertThat(cache.get(tokenRequest("revoked"))).isNull();
+        assertThat(cache.get(tokenRequest("token2"))).isNotNull();
+        assertThat(cache.indexSize()).isEqualTo(1);
+
+        cache.put(tokenRequest("rotated"), response(deviceId), cache.getGeneration());
+        assertThat(cache.get(tokenRequest("rotated"))).isNotNull();
+    }
+
+    private static TransportApiRequestMsg tokenRequest(String token) {
+        return TransportApiRequestMsg.newBuilder()
+                .setValidateTokenRequestMsg(ValidateDeviceTokenRequestMsg.newBuilder().setToken(token))
+                .build();
+    }
+
+    private static TransportApiRequestMsg basicMqttRequest(String clientId, String userName, String password) {
+        return TransportApiRequestMsg.newBuilder()
+                .setValidateBasicMqttCredRequestMsg(ValidateBasicMqttCredRequestMsg.newBuilder()
+                        .setClientId(clientId).setUserName(userName).setPassword(password))
+                .build();
+    }
+
+    private static ValidateDeviceCredentialsResponseMsg response(DeviceId deviceId) {
+        return ValidateDeviceCredentialsResponseMsg.newBuilder()
+                .setDeviceInfo(DeviceInfoProto.newBuilder()
+                        .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                        .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits()))
+                .build();
+    }
+
+}
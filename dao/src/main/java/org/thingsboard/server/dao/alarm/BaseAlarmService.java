@@ -24,7 +24,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
+import org.thingsboard.server.cache.TbTransactionalCache;
 import org.thingsboard.server.common.data.EntitySubtype;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.alarm.Alarm;
@@ -95,6 +97,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     private final AlarmDao alarmDao;
     private final EntityService entityService;
     private final DataValidator<Alarm> alarmDataValidator;
+    private final TbTransactionalCache<ActiveAlarmCacheKey, Alarm> activeAlarmCache;
 
     @TransactionalEventListener(classes = AlarmTypesCacheEvictEvent.class)
     @Override
@@ -103,11 +106,21 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
         cache.evict(tenantId);
     }
 
+    @TransactionalEventListener(classes = ActiveAlarmCacheEvent.class)
+    public void handleActiveAlarmCacheEvent(ActiveAlarmCacheEvent event) {
+        if (event.getAlarm() != null) {
+            activeAlarmCache.put(event.getCacheKey(), event.getAlarm());
+        } else {
+            activeAlarmCache.evict(event.getCacheKey());
+        }
+    }
+
     @Override
     public AlarmApiCallResult updateAlarm(AlarmUpdateRequest request) {
         validateAlarmRequest(request);
         AlarmApiCallResult result = withPropagated(alarmDao.updateAlarm(request));
         if (result.getAlarm() != null) {
+            updateActiveAlarm(result.getAlarm());
             eventPublisher.publishEvent(SaveEntityEvent.builder().tenantId(result.getAlarm().getTenantId()).entity(result)
                     .entityId(result.getAlarm().getId()).build());
         }
@@ -129,7 +142,24 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
             throw new DataValidationException("Can't assign alarm to customer. Originator belongs to different customer!");
         }
         request.setCustomerId(customerId);
-        AlarmApiCallResult result = alarmDao.createOrUpdateActiveAlarm(request, alarmCreationEnabled);
+        ActiveAlarmCacheKey cacheKey = new ActiveAlarmCacheKey(request.getOriginator(), request.getType());
+        activeAlarmCache.evict(cacheKey);
+        var cacheTransaction = activeAlarmCache.newTransactionForKey(cacheKey);
+        AlarmApiCallResult result;
+        try {
+            result = alarmDao.createOrUpdateActiveAlarm(request, alarmCreationEnabled);
+        } catch (Throwable e) {
+            cacheTransaction.rollback();
+            throw e;
+        }
+        if (result.getAlarm() != null && !result.getAlarm().isCleared()) {
+            cacheTransaction.putIfAbsent(cacheKey, new Alarm(result.getAlarm()));
+            if (!cacheTransaction.commit()) {
+                activeAlarmCache.evict(cacheKey);
+            }
+        } else {
+            cacheTransaction.rollback();
+        }
         if (!result.isSuccessful() && !alarmCreationEnabled) {
             throw new ApiUsageLimitsExceededException("Alarms creation is disabled");
         }
@@ -145,6 +175,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     public AlarmApiCallResult acknowledgeAlarm(TenantId tenantId, AlarmId alarmId, long ackTs) {
         var result = withPropagated(alarmDao.acknowledgeAlarm(tenantId, alarmId, ackTs));
         if (result.getAlarm() != null) {
+            updateActiveAlarm(result.getAlarm());
             eventPublisher.publishEvent(ActionEntityEvent.builder().tenantId(tenantId).entityId(result.getAlarm().getId())
                     .actionType(ActionType.ALARM_ACK).build());
         }
@@ -155,6 +186,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     public AlarmApiCallResult clearAlarm(TenantId tenantId, AlarmId alarmId, long clearTs, JsonNode details) {
         var result = withPropagated(alarmDao.clearAlarm(tenantId, alarmId, clearTs, details));
         if (result.getAlarm() != null) {
+            evictActiveAlarm(result.getAlarm());
             eventPublisher.publishEvent(ActionEntityEvent.builder().tenantId(tenantId).entityId(result.getAlarm().getId())
                     .actionType(ActionType.ALARM_CLEAR).build());
         }
@@ -163,7 +195,9 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
 
     @Override
     public Alarm findLatestActiveByOriginatorAndType(TenantId tenantId, EntityId originator, String type) {
-        return alarmDao.findLatestActiveByOriginatorAndType(tenantId, originator, type);
+        return activeAlarmCache.getAndPutInTransaction(new ActiveAlarmCacheKey(originator, type),
+                () -> alarmDao.findLatestActiveByOriginatorAndType(tenantId, originator, type),
+                BaseAlarmService::copyOf, BaseAlarmService::copyOf, true);
     }
 
     @Override
@@ -191,6 +225,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
             var propagationIds = getPropagationEntityIdsList(alarm);
             deleteEntityRelations(tenantId, alarm.getId());
             alarmDao.removeById(tenantId, alarm.getUuidId());
+            evictActiveAlarm(alarm);
             eventPublisher.publishEvent(DeleteEntityEvent.builder().tenantId(tenantId)
                     .entityId(alarmId).entity(alarm).build());
             if (checkAndDeleteAlarmType) {
@@ -242,6 +277,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     public AlarmApiCallResult assignAlarm(TenantId tenantId, AlarmId alarmId, UserId assigneeId, long assignTime) {
         var result = withPropagated(alarmDao.assignAlarm(tenantId, alarmId, assigneeId, assignTime));
         if (result.getAlarm() != null) {
+            updateActiveAlarm(result.getAlarm());
             eventPublisher.publishEvent(ActionEntityEvent.builder().tenantId(tenantId).entityId(result.getAlarm().getId())
                     .actionType(ActionType.ALARM_ASSIGNED).build());
         }
@@ -252,6 +288,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     public AlarmApiCallResult unassignAlarm(TenantId tenantId, AlarmId alarmId, long unassignTime) {
         var result = withPropagated(alarmDao.unassignAlarm(tenantId, alarmId, unassignTime));
         if (result.getAlarm() != null) {
+            updateActiveAlarm(result.getAlarm());
             eventPublisher.publishEvent(ActionEntityEvent.builder().tenantId(tenantId).entityId(result.getAlarm().getId())
                     .actionType(ActionType.ALARM_UNASSIGNED).build());
         }
@@ -357,6 +394,33 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
         return alarmDao.findTenantAlarmTypes(tenantId.getId(), pageLink);
     }
 
+    /*
+     * Evicts after commit when called in a transaction, otherwise a concurrent lookup could cache the not yet committed state.
+     */
+    private void updateActiveAlarm(Alarm alarm) {
+        publishActiveAlarmCacheEvent(alarm, alarm.isCleared() ? null : new Alarm(alarm));
+    }
+
+    private void evictActiveAlarm(Alarm alarm) {
+        publishActiveAlarmCacheEvent(alarm, null);
+    }
+
+    private void publishActiveAlarmCacheEvent(Alarm alarm, Alarm activeAlarm) {
+        ActiveAlarmCacheEvent event = new ActiveAlarmCacheEvent(new ActiveAlarmCacheKey(alarm.getOriginator(), alarm.getType()), activeAlarm);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            eventPublisher.publishEvent(event);
+        } else {
+            handleActiveAlarmCacheEvent(event);
+        }
+    }
+
+    /*
+     * The rule nodes modify the returned alarm before they update it, so the cached instance is never shared.
+     */
+    private static Alarm copyOf(Alarm alarm) {
+        return alarm != null ? new Alarm(alarm) : null;
+    }
+
     private Alarm merge(Alarm existing, Alarm alarm) {
         if (alarm.getStartTs() > existing.getEndTs()) {
             existing.setEndTs(alarm.getStartTs());
@@ -112,6 +112,15 @@ public interface AssetDao extends Dao<Asset>, TenantEntityDao, ExportableEntityD
      */
     ListenableFuture<List<Asset>> findAssetsByTenantIdAndIdsAsync(UUID tenantId, List<UUID> assetIds);
 
+    /**
+     * Find assets by tenantId and assets Ids.
+     *
+     * @param tenantId the tenantId
+     * @param assetIds the asset Ids
+     * @return the list of asset objects
+     */
+    List<Asset> findAssetsByTenantIdAndIds(UUID tenantId, List<UUID> assetIds);
+
     /**
      * Find assets by tenantId, customerId and page link.
      *
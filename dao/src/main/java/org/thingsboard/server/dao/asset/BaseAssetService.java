@@ -467,6 +467,11 @@ public class BaseAssetService extends AbstractCachedEntityService<AssetCacheKey,
         return Optional.ofNullable(findAssetById(tenantId, new AssetId(entityId.getId())));
     }
 
+    @Override
+    public List<HasId<?>> findEntities(TenantId tenantId, List<EntityId> entityIds) {
+        return new ArrayList<>(assetDao.findAssetsByTenantIdAndIds(tenantId.getId(), entityIds.stream().map(EntityId::getId).toList()));
+    }
+
     @Override
     public long countByTenantId(TenantId tenantId) {
         return assetDao.countByTenantId(tenantId);
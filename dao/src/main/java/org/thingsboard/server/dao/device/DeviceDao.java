@@ -101,6 +101,15 @@ public interface DeviceDao extends Dao<Device>, TenantEntityDao, ExportableEntit
      */
     ListenableFuture<List<Device>> findDevicesByTenantIdAndIdsAsync(UUID tenantId, List<UUID> deviceIds);
 
+    /**
+     * Find devices by tenantId and devices Ids.
+     *
+     * @param tenantId the tenantId
+     * @param deviceIds the device Ids
+     * @return the list of device objects
+     */
+    List<Device> findDevicesByTenantIdAndIds(UUID tenantId, List<UUID> deviceIds);
+
     /**
      * Find devices by devices Ids.
      *
@@ -685,6 +685,11 @@ public class DeviceServiceImpl extends AbstractCachedEntityService<DeviceCacheKe
         return Optional.ofNullable(findDeviceById(tenantId, new DeviceId(entityId.getId())));
     }
 
+    @Override
+    public List<HasId<?>> findEntities(TenantId tenantId, List<EntityId> entityIds) {
+        return new ArrayList<>(deviceDao.findDevicesByTenantIdAndIds(tenantId.getId(), entityIds.stream().map(EntityId::getId).toList()));
+    }
+
     @Override
     public EntityType getEntityType() {
         return EntityType.DEVICE;
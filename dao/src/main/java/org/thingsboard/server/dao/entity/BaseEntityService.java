@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.entity;
 
+import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -45,11 +46,16 @@ import org.thingsboard.server.common.data.query.RelationsQueryFilter;
 import org.thingsboard.server.dao.exception.IncorrectParameterException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -116,6 +122,28 @@ public class BaseEntityService extends AbstractEntityService implements EntitySe
         return fetchAndConvert(tenantId, entityId, this::getName);
     }
 
+    @Override
+    public Map<EntityId, String> fetchEntityNames(TenantId tenantId, Collection<EntityId> entityIds) {
+        log.trace("Executing fetchEntityNames [{}]", entityIds);
+        Map<EntityType, Map<UUID, EntityId>> idsByType = new EnumMap<>(EntityType.class);
+        for (EntityId entityId : entityIds) {
+            idsByType.computeIfAbsent(entityId.getEntityType(), type -> new HashMap<>()).put(entityId.getId(), entityId);
+        }
+        Map<EntityId, String> names = new HashMap<>();
+        idsByType.forEach((entityType, ids) -> {
+            EntityDaoService entityDaoService = entityServiceRegistry.getServiceByEntityType(entityType);
+            for (List<EntityId> partition : Lists.partition(new ArrayList<>(ids.values()), MAX_ENTITY_IDS_SIZE)) {
+                for (HasId<?> entity : entityDaoService.findEntities(tenantId, partition)) {
+                    String name = getName(entity);
+                    if (name != null) {
+                        names.put(ids.get(((EntityId) entity.getId()).getId()), name);
+                    }
+                }
+            }
+        });
+        return names;
+    }
+
     @Override
     public Optional<String> fetchEntityLabel(TenantId tenantId, EntityId entityId) {
         log.trace("Executing fetchEntityLabel [{}]", entityId);
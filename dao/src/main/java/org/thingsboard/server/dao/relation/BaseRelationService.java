@@ -15,7 +15,6 @@
  */
 package org.thingsboard.server.dao.relation;
 
-import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -57,6 +56,7 @@ import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -66,7 +66,6 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiConsumer;
 
 import static org.thingsboard.server.dao.service.Validator.validateId;
 
@@ -88,6 +87,9 @@ public class BaseRelationService implements RelationService {
     @Value("${sql.relations.query_timeout:20}")
     private Integer relationQueryTimeout;
 
+    @Value("${sql.relations.max_level:50}")
+    private int maxRelationLevel;
+
     public BaseRelationService(RelationDao relationDao, @Lazy EntityService entityService,
                                TbTransactionalCache<RelationCacheKey, RelationCacheValue> cache,
                                ApplicationEventPublisher eventPublisher, JpaExecutorService executor,
@@ -339,16 +341,7 @@ public class BaseRelationService implements RelationService {
         validate(from);
         validateTypeGroup(typeGroup);
         ListenableFuture<List<EntityRelation>> relations = executor.submit(() -> relationDao.findAllByFrom(tenantId, from, typeGroup));
-        return Futures.transformAsync(relations,
-                relations1 -> {
-                    List<ListenableFuture<EntityRelationInfo>> futures = new ArrayList<>();
-                    relations1.forEach(relation ->
-                            futures.add(fetchRelationInfoAsync(tenantId, relation,
-                                    EntityRelation::getTo,
-                                    EntityRelationInfo::setToName))
-                    );
-                    return Futures.successfulAsList(futures);
-                }, MoreExecutors.directExecutor());
+        return Futures.transform(relations, relations1 -> toRelationInfos(tenantId, relations1, EntitySearchDirection.FROM), MoreExecutors.directExecutor());
     }
 
     @Override
@@ -395,25 +388,29 @@ public class BaseRelationService implements RelationService {
         validate(to);
         validateTypeGroup(typeGroup);
         ListenableFuture<List<EntityRelation>> relations = findByToAsync(tenantId, to, typeGroup);
-        return Futures.transformAsync(relations,
-                relations1 -> {
-                    List<ListenableFuture<EntityRelationInfo>> futures = new ArrayList<>();
-                    relations1.forEach(relation ->
-                            futures.add(fetchRelationInfoAsync(tenantId, relation,
-                                    EntityRelation::getFrom,
-                                    EntityRelationInfo::setFromName))
-                    );
-                    return Futures.successfulAsList(futures);
-                }, MoreExecutors.directExecutor());
-    }
-
-    private ListenableFuture<EntityRelationInfo> fetchRelationInfoAsync(TenantId tenantId, EntityRelation relation,
-                                                                        Function<EntityRelation, EntityId> entityIdGetter,
-                                                                        BiConsumer<EntityRelationInfo, String> entityNameSetter) {
-        EntityRelationInfo relationInfo = new EntityRelationInfo(relation);
-        entityNameSetter.accept(relationInfo,
-                entityService.fetchEntityName(tenantId, entityIdGetter.apply(relation)).orElse("N/A"));
-        return Futures.immediateFuture(relationInfo);
+        return Futures.transform(relations, relations1 -> toRelationInfos(tenantId, relations1, EntitySearchDirection.TO), MoreExecutors.directExecutor());
+    }
+
+    private List<EntityRelationInfo> toRelationInfos(TenantId tenantId, List<EntityRelation> relations, EntitySearchDirection direction) {
+        if (relations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<EntityId> entityIds = new HashSet<>();
+        for (EntityRelation relation : relations) {
+            entityIds.add(direction == EntitySearchDirection.FROM ? relation.getTo() : relation.getFrom());
+        }
+        Map<EntityId, String> entityNames = entityService.fetchEntityNames(tenantId, entityIds);
+        List<EntityRelationInfo> relationInfos = new ArrayList<>(relations.size());
+        for (EntityRelation relation : relations) {
+            EntityRelationInfo relationInfo = new EntityRelationInfo(relation);
+            if (direction == EntitySearchDirection.FROM) {
+                relationInfo.setToName(entityNames.getOrDefault(relation.getTo(), "N/A"));
+            } else {
+                relationInfo.setFromName(entityNames.getOrDefault(relation.getFrom(), "N/A"));
+            }
+            relationInfos.add(relationInfo);
+        }
+        return relationInfos;
     }
 
     @Override
@@ -477,22 +474,7 @@ public class BaseRelationService implements RelationService {
         log.trace("Executing findInfoByQuery [{}]", query);
         ListenableFuture<List<EntityRelation>> relations = findByQuery(tenantId, query);
         EntitySearchDirection direction = query.getParameters().getDirection();
-        return Futures.transformAsync(relations,
-                relations1 -> {
-                    List<ListenableFuture<EntityRelationInfo>> futures = new ArrayList<>();
-                    relations1.forEach(relation ->
-                            futures.add(fetchRelationInfoAsync(tenantId, relation,
-                                    relation2 -> direction == EntitySearchDirection.FROM ? relation2.getTo() : relation2.getFrom(),
-                                    (EntityRelationInfo relationInfo, String entityName) -> {
-                                        if (direction == EntitySearchDirection.FROM) {
-                                            relationInfo.setToName(entityName);
-                                        } else {
-                                            relationInfo.setFromName(entityName);
-                                        }
-                                    }))
-                    );
-                    return Futures.successfulAsList(futures);
-                }, MoreExecutors.directExecutor());
+        return Futures.transform(relations, relations1 -> toRelationInfos(tenantId, relations1, direction), MoreExecutors.directExecutor());
     }
 
     @Override
@@ -581,8 +563,11 @@ public class BaseRelationService implements RelationService {
         final SettableFuture<Set<EntityRelation>> future = SettableFuture.create();
         final Set<EntityRelation> result = ConcurrentHashMap.newKeySet();
         final Queue<RelationTask> tasks = new ConcurrentLinkedQueue<>();
+        final Map<EntityId, List<EntityRelation>> prefetchedRelations = new HashMap<>();
+        int prefetchedLvl;
 
         final TenantId tenantId;
+        final EntityId rootId;
         final EntitySearchDirection direction;
         final RelationTypeGroup relationTypeGroup;
         final boolean fetchLastLevelOnly;
@@ -598,10 +583,36 @@ public class BaseRelationService implements RelationService {
         private final List<EntityRelation> prevRelations;
     }
 
+    /**
+     * Loads the relations of the whole subgraph that is reachable within the query levels (capped by sql.relations.max_level)
+     * with one recursive query. The BFS below then resolves the children of these levels from memory
+     * and falls back to the per-entity lookups only for the deeper levels. Used for the multi-level queries only.
+     */
+    private void prefetchRelations(RelationQueueCtx ctx) {
+        int lvl = Math.min(ctx.maxLvl, maxRelationLevel);
+        RelationTypeGroup relationTypeGroup = ctx.relationTypeGroup != null ? ctx.relationTypeGroup : RelationTypeGroup.COMMON;
+        try {
+            List<EntityRelation> relations = relationDao.findAllRecursively(ctx.tenantId, ctx.rootId, ctx.direction, relationTypeGroup, lvl);
+            for (EntityRelation relation : relations) {
+                EntityId parentId = ctx.direction == EntitySearchDirection.FROM ? relation.getFrom() : relation.getTo();
+                ctx.prefetchedRelations.computeIfAbsent(parentId, id -> new ArrayList<>()).add(relation);
+            }
+            ctx.prefetchedLvl = lvl;
+        } catch (Exception e) {
+            log.debug("[{}][{}] Failed to fetch relations recursively, falling back to per-entity lookups", ctx.tenantId, ctx.rootId, e);
+        }
+    }
+
     private void processQueue(RelationQueueCtx ctx) {
+        // single level queries are served by the relation cache
+        if (ctx.maxLvl > 1 || ctx.fetchLastLevelOnly) {
+            prefetchRelations(ctx);
+        }
         RelationTask task = ctx.tasks.poll();
         while (task != null) {
-            List<EntityRelation> relations = findRelations(ctx.tenantId, task.root, ctx.direction, ctx.relationTypeGroup);
+            List<EntityRelation> relations = task.currentLvl <= ctx.prefetchedLvl ?
+                    ctx.prefetchedRelations.getOrDefault(task.root, Collections.emptyList()) :
+                    findRelations(ctx.tenantId, task.root, ctx.direction, ctx.relationTypeGroup);
             Map<EntityId, List<EntityRelation>> newChildrenRelations = new HashMap<>();
             for (EntityRelation childRelation : relations) {
                 log.trace("Found Relation: {}", childRelation);
@@ -643,7 +654,7 @@ public class BaseRelationService implements RelationService {
         if (lvl == 0) {
             return Futures.immediateFuture(Collections.emptySet());
         }
-        var relationQueueCtx = new RelationQueueCtx(tenantId, direction, relationTypeGroup, fetchLastLevelOnly, lvl, uniqueMap);
+        var relationQueueCtx = new RelationQueueCtx(tenantId, rootId, direction, relationTypeGroup, fetchLastLevelOnly, lvl, uniqueMap);
         relationQueueCtx.tasks.add(new RelationTask(1, rootId, Collections.emptyList()));
         relationsExecutor.submit(() -> processQueue(relationQueueCtx));
         return Futures.withTimeout(relationQueueCtx.future, relationQueryTimeout, TimeUnit.SECONDS, timeoutExecutorService);
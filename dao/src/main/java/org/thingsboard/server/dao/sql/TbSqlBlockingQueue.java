@@ -17,6 +17,8 @@ package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.stats.MessagesStats;
@@ -24,65 +26,91 @@ import org.thingsboard.server.common.stats.MessagesStats;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+/**
+ * Saves the entities in batches by the single thread.
+ * <p>
+ * The batch contains all the entities that were added while the previous batch was being saved, up to the batch size.
+ * While the batch is not full, the thread keeps collecting the new entities for up to the max delay since the first one,
+ * so the low rate of the entities does not end up in the single-row transactions. The full batch is saved without delay.
+ */
 @Slf4j
 public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
-    private final BlockingQueue<TbSqlQueueElement<E>> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<TbSqlQueueElement<E>> queue = new ConcurrentLinkedQueue<>();
     private final TbSqlBlockingQueueParams params;
 
     private ExecutorService executor;
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
     private final MessagesStats stats;
+    private final LongAdder size;
+    private final Timer saveTimer;
+    private final DistributionSummary batchSizes;
 
-    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, LongAdder size, Timer saveTimer, DistributionSummary batchSizes) {
         this.params = params;
         this.stats = stats;
+        this.size = size;
+        this.saveTimer = saveTimer;
+        this.batchSizes = batchSizes;
     }
 
     @Override
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int index) {
         executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
         executor.submit(() -> {
+            consumer = Thread.currentThread();
             String logName = params.getLogName();
             int batchSize = params.getBatchSize();
-            long maxDelay = params.getMaxDelay();
+            long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(params.getMaxDelay());
             final List<TbSqlQueueElement<E>> entities = new ArrayList<>(batchSize);
             while (!Thread.interrupted()) {
                 try {
-                    long currentTs = System.currentTimeMillis();
-                    TbSqlQueueElement<E> attr = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
+                    TbSqlQueueElement<E> attr = poll(maxDelayNanos);
                     if (attr == null) {
                         continue;
                     } else {
                         entities.add(attr);
                     }
-                    queue.drainTo(entities, batchSize - 1);
-                    boolean fullPack = entities.size() == batchSize;
+                    long lingerDeadline = System.nanoTime() + maxDelayNanos;
+                    drain(entities, batchSize);
+                    while (entities.size() < batchSize) {
+                        long lingerNanos = lingerDeadline - System.nanoTime();
+                        if (lingerNanos <= 0) {
+                            break;
+                        }
+                        attr = poll(lingerNanos);
+                        if (attr != null) {
+                            entities.add(attr);
+                            drain(entities, batchSize);
+                        }
+                    }
+                    size.add(-entities.size());
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Going to save {} entities", logName, entities.size());
                         log.trace("[{}] Going to save entities: {}", logName, entities);
                     }
-                    Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
-                    saveFunction.accept(
-                            (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
-                                    .collect(Collectors.toList())
-                    );
+                    List<E> batch = new ArrayList<>(entities.size());
+                    for (TbSqlQueueElement<E> entity : entities) {
+                        batch.add(entity.getEntity());
+                    }
+                    if (params.isBatchSortEnabled()) {
+                        batch.sort(batchUpdateComparator);
+                    }
+                    long startTime = System.nanoTime();
+                    saveFunction.accept(batch);
+                    saveTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                    batchSizes.record(entities.size());
                     entities.forEach(v -> v.getFuture().set(null));
                     stats.incrementSuccessful(entities.size());
-                    if (!fullPack) {
-                        long remainingDelay = maxDelay - (System.currentTimeMillis() - currentTs);
-                        if (remainingDelay > 0) {
-                            Thread.sleep(remainingDelay);
-                        }
-                    }
                 } catch (Throwable t) {
                     if (t instanceof InterruptedException) {
                         log.info("[{}] Queue polling was interrupted", logName);
@@ -104,14 +132,48 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
         });
 
         logExecutor.scheduleAtFixedRate(() -> {
-            if (queue.size() > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
+            long queueSize = size.sum();
+            if (queueSize > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
                 log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
-                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                        params.getLogName(), queueSize, stats.getTotal(), stats.getSuccessful(), stats.getFailed());
                 stats.reset();
             }
         }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
     }
 
+    private void drain(List<TbSqlQueueElement<E>> entities, int batchSize) {
+        TbSqlQueueElement<E> attr;
+        while (entities.size() < batchSize && (attr = queue.poll()) != null) {
+            entities.add(attr);
+        }
+    }
+
+    /**
+     * Waits for the element up to the timeout. The producers unpark the consumer only when it is waiting,
+     * so the queue is lock-free while the consumer is busy with the save.
+     */
+    private TbSqlQueueElement<E> poll(long timeoutNanos) throws InterruptedException {
+        TbSqlQueueElement<E> element = queue.poll();
+        if (element != null) {
+            return element;
+        }
+        consumerWaiting = true;
+        try {
+            // The element may have been added before the producer saw the flag
+            element = queue.poll();
+            if (element == null) {
+                LockSupport.parkNanos(this, timeoutNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                element = queue.poll();
+            }
+            return element;
+        } finally {
+            consumerWaiting = false;
+        }
+    }
+
     @Override
     public void destroy() {
         if (executor != null) {
@@ -123,7 +185,14 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
     public ListenableFuture<Void> add(E element) {
         SettableFuture<Void> future = SettableFuture.create();
         queue.add(new TbSqlQueueElement<>(future, element));
+        size.increment();
         stats.incrementTotal();
+        if (consumerWaiting) {
+            Thread thread = consumer;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
         return future;
     }
 }
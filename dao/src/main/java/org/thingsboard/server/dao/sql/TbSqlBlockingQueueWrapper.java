@@ -16,6 +16,8 @@
 package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.stats.MessagesStats;
@@ -24,12 +26,17 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @Slf4j
 @Data
 public class TbSqlBlockingQueueWrapper<E> {
+    private static final String QUEUE_SIZE_KEY = "sqlQueue.size";
+    private static final String SAVE_TIME_KEY = "sqlQueue.saveTime";
+    private static final String BATCH_SIZE_KEY = "sqlQueue.batchSize";
+
     private final CopyOnWriteArrayList<TbSqlBlockingQueue<E>> queues = new CopyOnWriteArrayList<>();
     private final TbSqlBlockingQueueParams params;
     private ScheduledLogExecutorComponent logExecutor;
@@ -48,7 +55,11 @@ public class TbSqlBlockingQueueWrapper<E> {
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
         for (int i = 0; i < maxThreads; i++) {
             MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats);
+            String[] tags = {"queue", params.getStatsNamePrefix(), "index", String.valueOf(i)};
+            LongAdder size = statsFactory.createGauge(QUEUE_SIZE_KEY, new LongAdder(), tags);
+            Timer saveTimer = statsFactory.createTimer(SAVE_TIME_KEY, tags);
+            DistributionSummary batchSizes = statsFactory.createDistributionSummary(BATCH_SIZE_KEY, tags);
+            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats, size, saveTimer, batchSizes);
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, i);
         }
@@ -93,8 +93,12 @@ public class JpaAssetDao extends JpaAbstractDao<AssetEntity, Asset> implements A
 
     @Override
     public ListenableFuture<List<Asset>> findAssetsByTenantIdAndIdsAsync(UUID tenantId, List<UUID> assetIds) {
-        return service.submit(() ->
-                DaoUtil.convertDataList(assetRepository.findByTenantIdAndIdIn(tenantId, assetIds)));
+        return service.submit(() -> findAssetsByTenantIdAndIds(tenantId, assetIds));
+    }
+
+    @Override
+    public List<Asset> findAssetsByTenantIdAndIds(UUID tenantId, List<UUID> assetIds) {
+        return DaoUtil.convertDataList(assetRepository.findByTenantIdAndIdIn(tenantId, assetIds));
     }
 
     @Override
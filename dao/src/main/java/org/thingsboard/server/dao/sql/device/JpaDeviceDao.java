@@ -122,7 +122,12 @@ public class JpaDeviceDao extends JpaAbstractDao<DeviceEntity, Device> implement
 
     @Override
     public ListenableFuture<List<Device>> findDevicesByTenantIdAndIdsAsync(UUID tenantId, List<UUID> deviceIds) {
-        return service.submit(() -> DaoUtil.convertDataList(deviceRepository.findDevicesByTenantIdAndIdIn(tenantId, deviceIds)));
+        return service.submit(() -> findDevicesByTenantIdAndIds(tenantId, deviceIds));
+    }
+
+    @Override
+    public List<Device> findDevicesByTenantIdAndIds(UUID tenantId, List<UUID> deviceIds) {
+        return DaoUtil.convertDataList(deviceRepository.findDevicesByTenantIdAndIdIn(tenantId, deviceIds));
     }
 
     @Override
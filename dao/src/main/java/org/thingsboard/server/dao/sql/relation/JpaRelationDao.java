@@ -25,6 +25,7 @@ import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
 import org.thingsboard.server.common.data.relation.RelationTypeGroup;
 import org.thingsboard.server.common.data.rule.RuleChainType;
 import org.thingsboard.server.dao.DaoUtil;
@@ -117,6 +118,17 @@ public class JpaRelationDao extends JpaAbstractDaoListeningExecutorService imple
                         typeGroup.name()));
     }
 
+    @Override
+    public List<EntityRelation> findAllRecursively(TenantId tenantId, EntityId root, EntitySearchDirection direction, RelationTypeGroup typeGroup, int maxLvl) {
+        if (direction == EntitySearchDirection.FROM) {
+            return DaoUtil.convertDataList(relationRepository.findAllRecursivelyByFrom(
+                    root.getId(), root.getEntityType().name(), typeGroup.name(), maxLvl));
+        } else {
+            return DaoUtil.convertDataList(relationRepository.findAllRecursivelyByTo(
+                    root.getId(), root.getEntityType().name(), typeGroup.name(), maxLvl));
+        }
+    }
+
     @Override
     public ListenableFuture<Boolean> checkRelationAsync(TenantId tenantId, EntityId from, EntityId to, String relationType, RelationTypeGroup typeGroup) {
         return service.submit(() -> checkRelation(tenantId, from, to, relationType, typeGroup));
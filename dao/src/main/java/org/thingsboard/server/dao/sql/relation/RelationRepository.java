@@ -61,6 +61,34 @@ public interface RelationRepository
     List<RelationEntity> findAllByFromIdAndFromType(UUID fromId,
                                                     String fromType);
 
+    @Query(value = "WITH RECURSIVE related_entities(id, type, lvl) AS (" +
+            "SELECT CAST(:rootId AS uuid), CAST(:rootType AS varchar), 0 " +
+            "UNION " +
+            "SELECT r.to_id, r.to_type, re.lvl + 1 FROM relation r " +
+            "INNER JOIN related_entities re ON r.from_id = re.id AND r.from_type = re.type " +
+            "WHERE r.relation_type_group = :relationTypeGroup AND re.lvl < :maxLvl - 1) " +
+            "SELECT r.* FROM relation r WHERE r.relation_type_group = :relationTypeGroup " +
+            "AND (r.from_id, r.from_type) IN (SELECT DISTINCT id, type FROM related_entities)",
+            nativeQuery = true)
+    List<RelationEntity> findAllRecursivelyByFrom(@Param("rootId") UUID rootId,
+                                                  @Param("rootType") String rootType,
+                                                  @Param("relationTypeGroup") String relationTypeGroup,
+                                                  @Param("maxLvl") int maxLvl);
+
+    @Query(value = "WITH RECURSIVE related_entities(id, type, lvl) AS (" +
+            "SELECT CAST(:rootId AS uuid), CAST(:rootType AS varchar), 0 " +
+            "UNION " +
+            "SELECT r.from_id, r.from_type, re.lvl + 1 FROM relation r " +
+            "INNER JOIN related_entities re ON r.to_id = re.id AND r.to_type = re.type " +
+            "WHERE r.relation_type_group = :relationTypeGroup AND re.lvl < :maxLvl - 1) " +
+            "SELECT r.* FROM relation r WHERE r.relation_type_group = :relationTypeGroup " +
+            "AND (r.to_id, r.to_type) IN (SELECT DISTINCT id, type FROM related_entities)",
+            nativeQuery = true)
+    List<RelationEntity> findAllRecursivelyByTo(@Param("rootId") UUID rootId,
+                                                @Param("rootType") String rootType,
+                                                @Param("relationTypeGroup") String relationTypeGroup,
+                                                @Param("maxLvl") int maxLvl);
+
     @Query("SELECT r FROM RelationEntity r WHERE " +
             "r.relationTypeGroup = 'RULE_NODE' AND r.toType = 'RULE_CHAIN' " +
             "AND r.toId in (SELECT id from RuleChainEntity where type = :ruleChainType )")
@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.common.data.alarm.Alarm;
+import org.thingsboard.server.common.data.alarm.AlarmCreateOrUpdateActiveRequest;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.alarm.AlarmUpdateRequest;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.dao.alarm.ActiveAlarmCacheKey;
+import org.thingsboard.server.dao.alarm.AlarmDao;
+import org.thingsboard.server.dao.alarm.AlarmService;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.thingsboard.server.common.data.CacheConstants.ACTIVE_ALARMS_CACHE;
+
+@DaoSqlTest
+public class ActiveAlarmCacheTest extends AbstractServiceTest {
+
+    private static final String ALARM_TYPE = "High Temperature";
+
+    @Autowired
+    private AlarmService alarmService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @SpyBean
+    private AlarmDao alarmDao;
+
+    private final EntityId originatorId = new DeviceId(UUID.randomUUID());
+
+    @After
+    public void cleanup() {
+        cacheManager.getCache(ACTIVE_ALARMS_CACHE).clear();
+    }
+
+    @Test
+    public void testFindLatestActiveByOriginatorAndType_Cached() {
+        Alarm created = createAlarm();
+
+        Alarm first = alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+        first.setSeverity(AlarmSeverity.MINOR);
+        Alarm second = alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+
+        verify(alarmDao, never()).findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+        assertThat(second.getId()).isEqualTo(created.getId());
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getSeverity()).isEqualTo(AlarmSeverity.CRITICAL);
+    }
+
+    @Test
+    public void testFindLatestActiveByOriginatorAndType_NoActiveAlarmCached() {
+        assertThat(alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE)).isNull();
+        assertThat(alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE)).isNull();
+
+        verify(alarmDao, times(1)).findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+    }
+
+    @Test
+    public void testClearAlarm_EvictsCache() {
+        Alarm alarm = createAlarm();
+        assertThat(alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE)).isNotNull();
+
+        alarmService.clearAlarm(tenantId, alarm.getId(), System.currentTimeMillis(), null);
+
+        assertThat(alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE)).isNull();
+        verify(alarmDao, times(1)).findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+    }
+
+    @Test
+    public void testUpdateAlarm_PutsUpdatedAlarmAfterCommit() {
+        Alarm alarm = createAlarm();
+        ActiveAlarmCacheKey cacheKey = new ActiveAlarmCacheKey(originatorId, ALARM_TYPE);
+        assertThat(alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE)).isNotNull();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            AlarmUpdateRequest request = AlarmUpdateRequest.fromAlarm(alarm);
+            request.setSeverity(AlarmSeverity.MAJOR);
+            alarmService.updateAlarm(request);
+            Alarm cached = (Alarm) cacheManager.getCache(ACTIVE_ALARMS_CACHE).get(cacheKey).get();
+            assertThat(cached.getSeverity()).isEqualTo(AlarmSeverity.CRITICAL);
+        });
+
+        Alarm updated = alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+        assertThat(updated.getId()).isEqualTo(alarm.getId());
+        assertThat(updated.getSeverity()).isEqualTo(AlarmSeverity.MAJOR);
+        verify(alarmDao, never()).findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+    }
+
+    @Test
+    public void testDeleteAlarm_EvictsCacheAfterCommit() {
+        Alarm alarm = createAlarm();
+        ActiveAlarmCacheKey cacheKey = new ActiveAlarmCacheKey(originatorId, ALARM_TYPE);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            alarmService.delAlarm(tenantId, alarm.getId());
+            assertThat(cacheManager.getCache(ACTIVE_ALARMS_CACHE).get(cacheKey)).isNotNull();
+        });
+
+        assertThat(cacheManager.getCache(ACTIVE_ALARMS_CACHE).get(cacheKey)).isNull();
+        assertThat(alarmService.findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE)).isNull();
+        verify(alarmDao, times(1)).findLatestActiveByOriginatorAndType(tenantId, originatorId, ALARM_TYPE);
+    }
+
+    private Alarm createAlarm() {
+        return alarmService.createAlarm(AlarmCreateOrUpdateActiveRequest.builder()
+                .tenantId(tenantId)
+                .originator(originatorId)
+                .type(ALARM_TYPE)
+                .severity(AlarmSeverity.CRITICAL)
+                .startTs(System.currentTimeMillis())
+                .build()).getAlarm();
+    }
+
+}
@@ -24,22 +24,30 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.asset.Asset;
 import org.thingsboard.server.common.data.id.AssetId;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntityRelationInfo;
 import org.thingsboard.server.common.data.relation.EntityRelationsQuery;
 import org.thingsboard.server.common.data.relation.EntitySearchDirection;
 import org.thingsboard.server.common.data.relation.RelationEntityTypeFilter;
 import org.thingsboard.server.common.data.relation.RelationTypeGroup;
 import org.thingsboard.server.common.data.relation.RelationsSearchParameters;
+import org.thingsboard.server.dao.asset.AssetService;
+import org.thingsboard.server.dao.device.DeviceService;
 import org.thingsboard.server.dao.exception.DataValidationException;
 import org.thingsboard.server.dao.relation.RelationService;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 @DaoSqlTest
@@ -48,6 +56,12 @@ public class RelationServiceTest extends AbstractServiceTest {
     @Autowired
     RelationService relationService;
 
+    @Autowired
+    AssetService assetService;
+
+    @Autowired
+    DeviceService deviceService;
+
     @Before
     public void before() {
     }
@@ -661,6 +675,51 @@ public class RelationServiceTest extends AbstractServiceTest {
         Assert.assertTrue(relations.containsAll(expectedRelations));
     }
 
+    @Test
+    public void testFindInfoByQueryResolvesEntityNames() throws Exception {
+        Asset building = new Asset();
+        building.setName("Building");
+        building.setType("default");
+        building.setTenantId(tenantId);
+        building = assetService.saveAsset(building);
+
+        Asset floor = new Asset();
+        floor.setName("Floor");
+        floor.setType("default");
+        floor.setTenantId(tenantId);
+        floor = assetService.saveAsset(floor);
+
+        Device sensor = new Device();
+        sensor.setName("Sensor");
+        sensor.setType("default");
+        sensor.setTenantId(tenantId);
+        sensor = deviceService.saveDevice(sensor);
+
+        DeviceId missingDevice = new DeviceId(Uuids.timeBased());
+        saveRelation(new EntityRelation(building.getId(), floor.getId(), EntityRelation.CONTAINS_TYPE));
+        saveRelation(new EntityRelation(floor.getId(), sensor.getId(), EntityRelation.CONTAINS_TYPE));
+        saveRelation(new EntityRelation(floor.getId(), missingDevice, EntityRelation.CONTAINS_TYPE));
+
+        EntityRelationsQuery query = new EntityRelationsQuery();
+        query.setParameters(new RelationsSearchParameters(building.getId(), EntitySearchDirection.FROM, -1, false));
+        List<EntityRelationInfo> relationInfos = relationService.findInfoByQuery(tenantId, query).get();
+
+        Assert.assertEquals(3, relationInfos.size());
+        Map<EntityId, String> names = new HashMap<>();
+        relationInfos.forEach(relationInfo -> names.put(relationInfo.getTo(), relationInfo.getToName()));
+        Assert.assertEquals("Floor", names.get(floor.getId()));
+        Assert.assertEquals("Sensor", names.get(sensor.getId()));
+        Assert.assertEquals("N/A", names.get(missingDevice));
+
+        query.setParameters(new RelationsSearchParameters(sensor.getId(), EntitySearchDirection.TO, -1, false));
+        relationInfos = relationService.findInfoByQuery(tenantId, query).get();
+        Assert.assertEquals(2, relationInfos.size());
+        names.clear();
+        relationInfos.forEach(relationInfo -> names.put(relationInfo.getFrom(), relationInfo.getFromName()));
+        Assert.assertEquals("Floor", names.get(floor.getId()));
+        Assert.assertEquals("Building", names.get(building.getId()));
+    }
+
     private void createAssetRelationsRecursively(AssetId rootAsset, int lvl, List<EntityRelation> entityRelations, boolean lastLvlOnly) throws Exception {
         if (lvl == 0) return;
 
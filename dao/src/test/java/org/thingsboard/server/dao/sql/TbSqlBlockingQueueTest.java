@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class TbSqlBlockingQueueTest {
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private LongAdder size;
+    private DistributionSummary batchSizes;
+    private TbSqlBlockingQueue<Integer> queue;
+
+    @BeforeEach
+    void setUp() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        meterRegistry = new SimpleMeterRegistry();
+        size = new LongAdder();
+        batchSizes = meterRegistry.summary("batchSize");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        logExecutor.stop();
+    }
+
+    @Test
+    void givenLowRate_whenAdd_thenEntitiesAreBatchedWithinMaxDelay() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        initQueue(100, TimeUnit.SECONDS.toMillis(1), false, batches::add);
+
+        ListenableFuture<Void> first = queue.add(1);
+        ListenableFuture<Void> second = queue.add(2);
+        Futures.allAsList(first, second).get(10, TimeUnit.SECONDS);
+
+        assertThat(batches).containsExactly(List.of(1, 2));
+        assertThat(size.sum()).isZero();
+    }
+
+    @Test
+    void givenFullBatch_whenAdd_thenBatchIsSavedWithoutMaxDelay() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        initQueue(2, TimeUnit.MINUTES.toMillis(1), false, batches::add);
+
+        ListenableFuture<Void> first = queue.add(1);
+        ListenableFuture<Void> second = queue.add(2);
+        Futures.allAsList(first, second).get(10, TimeUnit.SECONDS);
+
+        assertThat(batches).containsExactly(List.of(1, 2));
+        assertThat(size.sum()).isZero();
+    }
+
+    @Test
+    void givenSlowSave_whenAdd_thenEntitiesAddedDuringSaveAreBatched() throws Exception {
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch saveAllowed = new CountDownLatch(1);
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        initQueue(100, 100, true, batch -> {
+            saveStarted.countDown();
+            await(saveAllowed);
+            batches.add(batch);
+        });
+
+        ListenableFuture<Void> first = queue.add(0);
+        await(saveStarted);
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 250; i > 0; i--) {
+            futures.add(queue.add(i));
+        }
+        assertThat(size.sum()).isEqualTo(250);
+        saveAllowed.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        Futures.allAsList(futures).get(10, TimeUnit.SECONDS);
+
+        assertThat(batches).extracting(List::size).containsExactly(1, 100, 100, 50);
+        assertThat(batches.get(1)).isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(batchSizes.count()).isEqualTo(4);
+        assertThat(batchSizes.max()).isEqualTo(100);
+        assertThat(meterRegistry.timer("saveTime").count()).isEqualTo(4);
+        assertThat(size.sum()).isZero();
+    }
+
+    @Test
+    void givenSaveFailure_whenAdd_thenFutureFails() {
+        initQueue(100, 100, false, batch -> {
+            throw new IllegalStateException("Database is not available");
+        });
+
+        assertThatThrownBy(() -> queue.add(1).get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Database is not available");
+    }
+
+    private void initQueue(int batchSize, long maxDelay, boolean batchSortEnabled, Consumer<List<Integer>> saveFunction) {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .statsNamePrefix("test")
+                .batchSortEnabled(batchSortEnabled)
+                .build();
+        queue = new TbSqlBlockingQueue<>(params, mock(MessagesStats.class), size, meterRegistry.timer("saveTime"), batchSizes);
+        queue.init(logExecutor, saveFunction, Comparator.naturalOrder(), 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
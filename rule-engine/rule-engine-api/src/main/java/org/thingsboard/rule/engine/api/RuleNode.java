@@ -66,6 +66,13 @@ public @interface RuleNode {
 
     boolean ruleChainNode() default false;
 
+    /**
+     * Marks the node that completes the processing synchronously (tells the next node before onMsg returns)
+     * and keeps no mutable state besides the configuration parsed in init. Such nodes may be executed
+     * by the rule engine in the thread of the previous rule node instead of their own actor.
+     */
+    boolean stateless() default false;
+
     // TODO: voba - merge comment
     //RuleChainType[] ruleChainTypes() default {RuleChainType.CORE, RuleChainType.EDGE};
 
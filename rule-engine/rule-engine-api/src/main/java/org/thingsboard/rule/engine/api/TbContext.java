@@ -44,6 +44,7 @@ import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.alarm.AlarmCommentService;
 import org.thingsboard.server.dao.asset.AssetProfileService;
 import org.thingsboard.server.dao.asset.AssetService;
@@ -84,6 +85,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Created by ashvayka on 13.01.18.
@@ -374,6 +376,14 @@ public interface TbContext {
 
     EventLoopGroup getSharedEventLoop();
 
+    /**
+     * Returns the resource of the given type that is shared by all rule nodes of the rule engine, e.g. a pool of connections.
+     * The resource is created with the factory on the first call and lives as long as the rule engine.
+     */
+    <T> T getSharedResource(Class<T> type, Supplier<T> factory);
+
+    StatsFactory getStatsFactory();
+
     CassandraCluster getCassandraCluster();
 
     TbResultSetFuture submitCassandraReadTask(CassandraStatementTask task);
@@ -15,31 +15,181 @@
  */
 package org.thingsboard.rule.engine.deduplication;
 
-import lombok.Data;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.Getter;
+import lombok.Setter;
 import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
-import java.util.LinkedList;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
-@Data
+/**
+ * Pending messages of the single deduplication id. Messages are kept serialized in the direct memory buffer,
+ * so that long deduplication intervals do not retain the message objects on the heap. The buffer is sized
+ * to its content and is released once all messages are removed.
+ * <p>
+ * Each entry is written as: message ts (8 bytes), queue name length (2 bytes, -1 for null), queue name,
+ * message length (4 bytes) and the message bytes.
+ */
 public class DeduplicationData {
 
-    private final List<TbMsg> msgList;
-    private boolean tickScheduled;
+    private ByteBuf buffer;
+    private int size;
 
-    public DeduplicationData() {
-        msgList = new LinkedList<>();
-    }
+    @Getter
+    @Setter
+    private boolean timeoutScheduled;
 
     public int size() {
-        return msgList.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
     }
 
     public void add(TbMsg msg) {
-        msgList.add(msg);
+        byte[] msgBytes = TbMsg.toByteArray(msg);
+        byte[] queueName = msg.getQueueName() != null ? msg.getQueueName().getBytes(StandardCharsets.UTF_8) : null;
+        int entryLength = Long.BYTES + Short.BYTES + (queueName != null ? queueName.length : 0) + Integer.BYTES + msgBytes.length;
+        if (buffer == null) {
+            buffer = PooledByteBufAllocator.DEFAULT.directBuffer(entryLength);
+        } else {
+            buffer.ensureWritable(entryLength);
+        }
+        buffer.writeLong(msg.getMetaDataTs());
+        if (queueName != null) {
+            buffer.writeShort(queueName.length);
+            buffer.writeBytes(queueName);
+        } else {
+            buffer.writeShort(-1);
+        }
+        buffer.writeInt(msgBytes.length);
+        buffer.writeBytes(msgBytes);
+        size++;
     }
 
-    public boolean isEmpty() {
-        return msgList.isEmpty();
+    public long getMinTs() {
+        long minTs = Long.MAX_VALUE;
+        for (int offset = 0; offset < writerIndex(); offset = nextOffset(offset)) {
+            minTs = Math.min(minTs, buffer.getLong(offset));
+        }
+        return minTs;
+    }
+
+    /**
+     * Removes the messages with ts in the [startTs, endTs) range and returns them in the order of arrival.
+     */
+    public List<TbMsg> removePack(long startTs, long endTs) {
+        List<TbMsg> pack = new ArrayList<>();
+        for (int offset = 0; offset < writerIndex(); offset = nextOffset(offset)) {
+            long ts = buffer.getLong(offset);
+            if (ts >= startTs && ts < endTs) {
+                pack.add(readMsg(offset));
+            }
+        }
+        removeRange(startTs, endTs);
+        return pack;
+    }
+
+    /**
+     * Removes the messages with ts in the [startTs, endTs) range and returns the earliest or the latest of them.
+     * Only the returned message is deserialized.
+     */
+    public TbMsg removePack(long startTs, long endTs, boolean searchMin) {
+        int resultOffset = -1;
+        long resultTs = 0;
+        for (int offset = 0; offset < writerIndex(); offset = nextOffset(offset)) {
+            long ts = buffer.getLong(offset);
+            if (ts >= startTs && ts < endTs) {
+                if (resultOffset == -1 || (searchMin && ts < resultTs) || (!searchMin && ts > resultTs)) {
+                    resultOffset = offset;
+                    resultTs = ts;
+                }
+            }
+        }
+        TbMsg result = resultOffset != -1 ? readMsg(resultOffset) : null;
+        removeRange(startTs, endTs);
+        return result;
+    }
+
+    public byte[] toByteArray() {
+        return buffer != null ? ByteBufUtil.getBytes(buffer) : new byte[0];
     }
+
+    public static DeduplicationData fromByteArray(byte[] data) {
+        DeduplicationData deduplicationData = new DeduplicationData();
+        if (data.length > 0) {
+            deduplicationData.buffer = PooledByteBufAllocator.DEFAULT.directBuffer(data.length);
+            deduplicationData.buffer.writeBytes(data);
+            for (int offset = 0; offset < deduplicationData.writerIndex(); offset = deduplicationData.nextOffset(offset)) {
+                deduplicationData.size++;
+            }
+        }
+        return deduplicationData;
+    }
+
+    public void release() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        size = 0;
+    }
+
+    private void removeRange(long startTs, long endTs) {
+        int remainingLength = 0;
+        int remainingSize = 0;
+        for (int offset = 0; offset < writerIndex(); offset = nextOffset(offset)) {
+            long ts = buffer.getLong(offset);
+            if (ts < startTs || ts >= endTs) {
+                remainingLength += nextOffset(offset) - offset;
+                remainingSize++;
+            }
+        }
+        if (remainingSize == size) {
+            return;
+        }
+        ByteBuf remaining = null;
+        if (remainingSize > 0) {
+            remaining = PooledByteBufAllocator.DEFAULT.directBuffer(remainingLength);
+            for (int offset = 0; offset < writerIndex(); ) {
+                int nextOffset = nextOffset(offset);
+                long ts = buffer.getLong(offset);
+                if (ts < startTs || ts >= endTs) {
+                    remaining.writeBytes(buffer, offset, nextOffset - offset);
+                }
+                offset = nextOffset;
+            }
+        }
+        release();
+        buffer = remaining;
+        size = remainingSize;
+    }
+
+    private TbMsg readMsg(int offset) {
+        int queueNameLength = buffer.getShort(offset + Long.BYTES);
+        String queueName = null;
+        int msgOffset = offset + Long.BYTES + Short.BYTES;
+        if (queueNameLength >= 0) {
+            queueName = buffer.toString(msgOffset, queueNameLength, StandardCharsets.UTF_8);
+            msgOffset += queueNameLength;
+        }
+        int msgLength = buffer.getInt(msgOffset);
+        return TbMsg.fromBytes(queueName, ByteBufUtil.getBytes(buffer, msgOffset + Integer.BYTES, msgLength), TbMsgCallback.EMPTY);
+    }
+
+    private int nextOffset(int offset) {
+        int msgOffset = offset + Long.BYTES + Short.BYTES + Math.max(0, buffer.getShort(offset + Long.BYTES));
+        return msgOffset + Integer.BYTES + buffer.getInt(msgOffset);
+    }
+
+    private int writerIndex() {
+        return buffer != null ? buffer.writerIndex() : 0;
+    }
+
 }
@@ -18,6 +18,8 @@ package org.thingsboard.rule.engine.deduplication;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
@@ -29,18 +31,26 @@ import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.plugin.ComponentType;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -67,27 +77,42 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     public static final int TB_MSG_DEDUPLICATION_RETRY_DELAY = 10;
 
+    static final long STATE_PERSIST_INTERVAL_MS = 1000;
+    private static final int MAX_STATE_DATA_LENGTH = 16384;
+
     private TbMsgDeduplicationNodeConfiguration config;
+    private TbContext ctx;
 
     private final Map<EntityId, DeduplicationData> deduplicationMap;
+    private final Queue<DeduplicationTimeout> timeouts;
+    private final Set<EntityId> changedStates;
+    private final Map<EntityId, RuleNodeState> persistedStates;
     private long deduplicationInterval;
     private String queueName;
+    private long nextTickTs = Long.MAX_VALUE;
+    private long lastPersistTs;
+    private ListenableFuture<Void> persistFuture = Futures.immediateVoidFuture();
 
     public TbMsgDeduplicationNode() {
         this.deduplicationMap = new HashMap<>();
+        this.timeouts = new PriorityQueue<>(Comparator.comparingLong(DeduplicationTimeout::ts));
+        this.changedStates = new LinkedHashSet<>();
+        this.persistedStates = new ConcurrentHashMap<>();
     }
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbMsgDeduplicationNodeConfiguration.class);
+        this.ctx = ctx;
         this.deduplicationInterval = TimeUnit.SECONDS.toMillis(config.getInterval());
         this.queueName = ctx.getQueueName();
+        initPendingMsgs(ctx);
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         if (msg.isTypeOf(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG)) {
-            processDeduplication(ctx, msg.getOriginator());
+            processDeduplication(ctx, msg);
         } else {
             processOnRegularMsg(ctx, msg);
         }
@@ -95,7 +120,14 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     @Override
     public void destroy() {
+        if (config != null && config.isPersistPendingMsgs()) {
+            // the states are encoded before the buffers are released, so they are saved without blocking the actor
+            persistChangedStates();
+        }
+        deduplicationMap.values().forEach(DeduplicationData::release);
         deduplicationMap.clear();
+        timeouts.clear();
+        changedStates.clear();
     }
 
     @Override
@@ -121,97 +153,126 @@ public class TbMsgDeduplicationNode implements TbNode {
             log.trace("[{}][{}] Adding msg: [{}][{}] to the pending msgs map ...", ctx.getSelfId(), id, msg.getId(), msg.getMetaDataTs());
             deduplicationMsgs.add(msg);
             ctx.ack(msg);
-            scheduleTickMsg(ctx, id, deduplicationMsgs);
+            if (!deduplicationMsgs.isTimeoutScheduled()) {
+                // wait at least for the deduplication interval, so that the messages with the older ts can join the pack
+                long now = System.currentTimeMillis();
+                scheduleTimeout(id, deduplicationMsgs, Math.max(now + deduplicationInterval + 1, msg.getMetaDataTs() + deduplicationInterval));
+            }
+            if (config.isPersistPendingMsgs()) {
+                changedStates.add(id);
+            }
+            scheduleTickMsg(ctx);
         } else {
             log.trace("[{}] Max limit of pending messages reached for deduplication id: [{}]", ctx.getSelfId(), id);
             ctx.tellFailure(msg, new RuntimeException("[" + ctx.getSelfId() + "] Max limit of pending messages reached for deduplication id: [" + id + "]"));
         }
     }
 
-    private void processDeduplication(TbContext ctx, EntityId deduplicationId) {
-        DeduplicationData data = deduplicationMap.get(deduplicationId);
-        if (data == null) {
-            return;
-        }
-        data.setTickScheduled(false);
-        if (data.isEmpty()) {
-            return;
+    /*
+     * All deduplication ids share the single timer: the timeouts are ordered by ts
+     * and only the tick for the earliest of them is scheduled.
+     */
+    private void processDeduplication(TbContext ctx, TbMsg tickMsg) {
+        if (getTickTs(tickMsg) == nextTickTs) {
+            nextTickTs = Long.MAX_VALUE;
         }
         long deduplicationTimeoutMs = System.currentTimeMillis();
         try {
-            List<TbMsg> deduplicationResults = new ArrayList<>();
-            List<TbMsg> msgList = data.getMsgList();
-            Optional<TbPair<Long, Long>> packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
-            while (packBoundsOpt.isPresent()) {
-                TbPair<Long, Long> packBounds = packBoundsOpt.get();
-                if (DeduplicationStrategy.ALL.equals(config.getStrategy())) {
-                    List<TbMsg> pack = new ArrayList<>();
-                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
-                        TbMsg msg = iterator.next();
-                        long msgTs = msg.getMetaDataTs();
-                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
-                            pack.add(msg);
-                            iterator.remove();
-                        }
-                    }
-                    deduplicationResults.add(TbMsg.newMsg(
-                            queueName,
-                            config.getOutMsgType(),
-                            deduplicationId,
-                            getMetadata(),
-                            getMergedData(pack)));
-                } else {
-                    TbMsg resultMsg = null;
-                    boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
-                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
-                        TbMsg msg = iterator.next();
-                        long msgTs = msg.getMetaDataTs();
-                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
-                            iterator.remove();
-                            if (resultMsg == null
-                                    || (searchMin && msg.getMetaDataTs() < resultMsg.getMetaDataTs())
-                                    || (!searchMin && msg.getMetaDataTs() > resultMsg.getMetaDataTs())) {
-                                resultMsg = msg;
-                            }
-                        }
-                    }
-                    if (resultMsg != null) {
-                        deduplicationResults.add(TbMsg.newMsg(
-                                queueName != null ? queueName : resultMsg.getQueueName(),
-                                resultMsg.getType(),
-                                resultMsg.getOriginator(),
-                                resultMsg.getCustomerId(),
-                                resultMsg.getMetaData(),
-                                resultMsg.getData()));
+            while (!timeouts.isEmpty() && timeouts.peek().ts() <= deduplicationTimeoutMs) {
+                EntityId deduplicationId = timeouts.poll().id();
+                DeduplicationData data = deduplicationMap.get(deduplicationId);
+                if (data == null) {
+                    continue;
+                }
+                data.setTimeoutScheduled(false);
+                try {
+                    processDeduplication(ctx, deduplicationId, data, deduplicationTimeoutMs);
+                } finally {
+                    if (data.isEmpty()) {
+                        deduplicationMap.remove(deduplicationId);
+                        data.release();
+                    } else {
+                        scheduleTimeout(deduplicationId, data, Math.max(deduplicationTimeoutMs + 1, data.getMinTs() + deduplicationInterval));
                     }
                 }
-                packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
             }
-            deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
+            if (!changedStates.isEmpty() && deduplicationTimeoutMs >= lastPersistTs + STATE_PERSIST_INTERVAL_MS) {
+                persistChangedStates();
+            }
         } finally {
-            if (!data.isEmpty()) {
-                scheduleTickMsg(ctx, deduplicationId, data);
+            scheduleTickMsg(ctx);
+        }
+    }
+
+    private void processDeduplication(TbContext ctx, EntityId deduplicationId, DeduplicationData data, long deduplicationTimeoutMs) {
+        List<TbMsg> deduplicationResults = new ArrayList<>();
+        Optional<TbPair<Long, Long>> packBoundsOpt = findValidPack(data, deduplicationTimeoutMs);
+        while (packBoundsOpt.isPresent()) {
+            TbPair<Long, Long> packBounds = packBoundsOpt.get();
+            if (DeduplicationStrategy.ALL.equals(config.getStrategy())) {
+                List<TbMsg> pack = data.removePack(packBounds.getFirst(), packBounds.getSecond());
+                deduplicationResults.add(TbMsg.newMsg(
+                        queueName,
+                        config.getOutMsgType(),
+                        deduplicationId,
+                        getMetadata(),
+                        getMergedData(pack)));
+            } else {
+                boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
+                TbMsg resultMsg = data.removePack(packBounds.getFirst(), packBounds.getSecond(), searchMin);
+                if (resultMsg != null) {
+                    deduplicationResults.add(TbMsg.newMsg(
+                            queueName != null ? queueName : resultMsg.getQueueName(),
+                            resultMsg.getType(),
+                            resultMsg.getOriginator(),
+                            resultMsg.getCustomerId(),
+                            resultMsg.getMetaData(),
+                            resultMsg.getData()));
+                }
             }
+            packBoundsOpt = findValidPack(data, deduplicationTimeoutMs);
+        }
+        if (config.isPersistPendingMsgs() && !deduplicationResults.isEmpty()) {
+            changedStates.add(deduplicationId);
         }
+        deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
+    }
+
+    private void scheduleTimeout(EntityId deduplicationId, DeduplicationData data, long timeoutTs) {
+        timeouts.add(new DeduplicationTimeout(timeoutTs, deduplicationId));
+        data.setTimeoutScheduled(true);
     }
 
-    private void scheduleTickMsg(TbContext ctx, EntityId deduplicationId, DeduplicationData data) {
-        if (!data.isTickScheduled()) {
-            scheduleTickMsg(ctx, deduplicationId);
-            data.setTickScheduled(true);
+    private void scheduleTickMsg(TbContext ctx) {
+        long tickTs = timeouts.isEmpty() ? Long.MAX_VALUE : timeouts.peek().ts();
+        if (!changedStates.isEmpty()) {
+            tickTs = Math.min(tickTs, lastPersistTs + STATE_PERSIST_INTERVAL_MS);
+        }
+        if (tickTs < nextTickTs) {
+            nextTickTs = tickTs;
+            long delay = Math.max(1, tickTs - System.currentTimeMillis());
+            ctx.tellSelf(ctx.newMsg(null, TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG, ctx.getSelfId(), TbMsgMetaData.EMPTY, Long.toString(tickTs)), delay);
         }
     }
 
-    private Optional<TbPair<Long, Long>> findValidPack(List<TbMsg> msgs, long deduplicationTimeoutMs) {
-        Optional<TbMsg> min = msgs.stream().min(Comparator.comparing(TbMsg::getMetaDataTs));
-        return min.map(minTsMsg -> {
-            long packStartTs = minTsMsg.getMetaDataTs();
-            long packEndTs = packStartTs + deduplicationInterval;
-            if (packEndTs <= deduplicationTimeoutMs) {
-                return new TbPair<>(packStartTs, packEndTs);
-            }
-            return null;
-        });
+    private long getTickTs(TbMsg tickMsg) {
+        try {
+            return Long.parseLong(tickMsg.getData());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Optional<TbPair<Long, Long>> findValidPack(DeduplicationData data, long deduplicationTimeoutMs) {
+        if (data.isEmpty()) {
+            return Optional.empty();
+        }
+        long packStartTs = data.getMinTs();
+        long packEndTs = packStartTs + deduplicationInterval;
+        if (packEndTs <= deduplicationTimeoutMs) {
+            return Optional.of(new TbPair<>(packStartTs, packEndTs));
+        }
+        return Optional.empty();
     }
 
     private void enqueueForTellNextWithRetry(TbContext ctx, TbMsg msg, int retryAttempt) {
@@ -229,8 +290,86 @@ public class TbMsgDeduplicationNode implements TbNode {
         }
     }
 
-    private void scheduleTickMsg(TbContext ctx, EntityId deduplicationId) {
-        ctx.tellSelf(ctx.newMsg(null, TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG, deduplicationId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING), deduplicationInterval + 1);
+    private void initPendingMsgs(TbContext ctx) {
+        if (config.isPersistPendingMsgs()) {
+            log.info("[{}] Fetching pending deduplication messages", ctx.getSelfId());
+            int fetchCount = 0;
+            long now = System.currentTimeMillis();
+            PageLink pageLink = new PageLink(1024);
+            while (true) {
+                PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
+                for (RuleNodeState rns : states.getData()) {
+                    if (!ctx.isLocalEntity(rns.getEntityId())) {
+                        continue;
+                    }
+                    persistedStates.put(rns.getEntityId(), rns);
+                    DeduplicationData data = DeduplicationData.fromByteArray(Base64.getDecoder().decode(rns.getStateData()));
+                    if (data.isEmpty() || deduplicationMap.putIfAbsent(rns.getEntityId(), data) != null) {
+                        data.release();
+                        continue;
+                    }
+                    fetchCount += data.size();
+                    scheduleTimeout(rns.getEntityId(), data, Math.max(now + 1, data.getMinTs() + deduplicationInterval));
+                }
+                if (!states.hasNext()) {
+                    break;
+                } else {
+                    pageLink = pageLink.nextPageLink();
+                }
+            }
+            log.info("[{}] Fetched {} pending deduplication messages", ctx.getSelfId(), fetchCount);
+            scheduleTickMsg(ctx);
+        } else if (ctx.isLocalEntity(ctx.getSelfId())) {
+            log.debug("[{}] Going to cleanup rule node states", ctx.getSelfId());
+            ctx.clearRuleNodeStates();
+        }
+    }
+
+    /*
+     * The changed states are saved on the DB callback executor. The save tasks are chained,
+     * so that the states of the same deduplication id are saved in order.
+     */
+    private void persistChangedStates() {
+        if (changedStates.isEmpty()) {
+            return;
+        }
+        Map<EntityId, String> states = new HashMap<>();
+        for (EntityId id : changedStates) {
+            DeduplicationData data = deduplicationMap.get(id);
+            states.put(id, data != null && !data.isEmpty() ? Base64.getEncoder().encodeToString(data.toByteArray()) : null);
+        }
+        changedStates.clear();
+        lastPersistTs = System.currentTimeMillis();
+        persistFuture = Futures.transform(persistFuture, v -> {
+            states.forEach((id, stateData) -> persistState(id, stateData));
+            return null;
+        }, ctx.getDbCallbackExecutor());
+    }
+
+    private void persistState(EntityId id, String stateData) {
+        try {
+            if (stateData != null && stateData.length() > MAX_STATE_DATA_LENGTH) {
+                log.warn("[{}][{}] Pending deduplication messages exceed the max state size and are not persisted", ctx.getSelfId(), id);
+                stateData = null;
+            }
+            RuleNodeState state = persistedStates.get(id);
+            if (stateData == null) {
+                if (state != null) {
+                    persistedStates.remove(id);
+                    ctx.removeRuleNodeStateForEntity(id);
+                }
+                return;
+            }
+            if (state == null) {
+                state = new RuleNodeState();
+                state.setRuleNodeId(ctx.getSelfId());
+                state.setEntityId(id);
+            }
+            state.setStateData(stateData);
+            persistedStates.put(id, ctx.saveRuleNodeState(state));
+        } catch (Exception e) {
+            log.warn("[{}][{}] Failed to persist pending deduplication messages", ctx.getSelfId(), id, e);
+        }
     }
 
     private String getMergedData(List<TbMsg> msgs) {
@@ -250,4 +389,7 @@ public class TbMsgDeduplicationNode implements TbNode {
         return metaData;
     }
 
+    private record DeduplicationTimeout(long ts, EntityId id) {
+    }
+
 }
@@ -30,6 +30,7 @@ public class TbMsgDeduplicationNodeConfiguration implements NodeConfiguration<Tb
     // Advanced settings:
     private int maxPendingMsgs;
     private int maxRetries;
+    private boolean persistPendingMsgs;
 
     @Override
     public TbMsgDeduplicationNodeConfiguration defaultConfiguration() {
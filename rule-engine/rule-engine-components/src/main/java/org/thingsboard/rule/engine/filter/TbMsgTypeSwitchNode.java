@@ -37,7 +37,8 @@ import org.thingsboard.server.common.msg.TbMsg;
                 " etc. via corresponding chain, otherwise <b>Other</b> chain is used.<br><br>" +
                 "Output connections: <i>Message type connection</i>, <code>Other</code> - if message type is custom or <code>Failure</code>",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
-        configDirective = "tbNodeEmptyConfig")
+        configDirective = "tbNodeEmptyConfig",
+        stateless = true)
 public class TbMsgTypeSwitchNode implements TbNode {
 
     EmptyNodeConfiguration config;
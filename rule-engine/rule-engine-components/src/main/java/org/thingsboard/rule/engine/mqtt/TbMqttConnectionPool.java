@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.MqttClient;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the MQTT broker connections shared by the MQTT rule nodes of the same tenant with identical connection settings.
+ * The pool is a resource shared by the rule nodes of the rule engine, see {@link org.thingsboard.rule.engine.api.TbContext#getSharedResource}.
+ * The connection is closed when the last node that uses it is destroyed. The owner id of the client lists the nodes
+ * that currently use the connection, so that the client errors are not attributed to the node that created it.
+ * <p>
+ * Publishes with QoS greater than 0 are limited by the in-flight window: the rest are queued and sent once
+ * the broker acknowledges the previous ones. The window also keeps the number of in-flight messages
+ * well below the range of the MQTT packet identifiers. The queue of the waiting publishes is bounded as well:
+ * when it is full, the publish is failed right away, so a stalled broker does not exhaust the memory.
+ */
+@Slf4j
+class TbMqttConnectionPool {
+
+    static final int DEFAULT_MAX_IN_FLIGHT_PUBLISHES = 1000;
+    static final int DEFAULT_MAX_PENDING_PUBLISHES = 10000;
+
+    private final ConcurrentMap<ConnectionKey, SharedConnection> connections = new ConcurrentHashMap<>();
+    private final int maxInFlightPublishes;
+    private final int maxPendingPublishes;
+
+    TbMqttConnectionPool() {
+        this(DEFAULT_MAX_IN_FLIGHT_PUBLISHES, DEFAULT_MAX_PENDING_PUBLISHES);
+    }
+
+    TbMqttConnectionPool(int maxInFlightPublishes, int maxPendingPublishes) {
+        this.maxInFlightPublishes = maxInFlightPublishes;
+        this.maxPendingPublishes = maxPendingPublishes;
+    }
+
+    SharedConnection acquire(ConnectionKey key, String ownerId, Callable<MqttClient> clientFactory) throws Exception {
+        while (true) {
+            SharedConnection connection = connections.computeIfAbsent(key, SharedConnection::new);
+            if (connection.retain(ownerId, clientFactory)) {
+                return connection;
+            }
+            connections.remove(key, connection);
+        }
+    }
+
+    void release(SharedConnection connection, String ownerId) {
+        if (connection.release(ownerId)) {
+            connections.remove(connection.key, connection);
+        }
+    }
+
+    int getConnectionsCount() {
+        return connections.size();
+    }
+
+    record ConnectionKey(TenantId tenantId, String nodeType, String host, int port, int connectTimeoutSec, String clientId,
+                         boolean cleanSession, boolean ssl, String credentials) {
+    }
+
+    class SharedConnection {
+
+        private final ConnectionKey key;
+        private final AtomicInteger inFlightPublishes = new AtomicInteger();
+        private final AtomicInteger pendingPublishesCount = new AtomicInteger();
+        private final Queue<PendingPublish> pendingPublishes = new ConcurrentLinkedQueue<>();
+
+        private final List<String> ownerIds = new ArrayList<>();
+
+        private MqttClient client;
+        private volatile boolean closed;
+
+        private SharedConnection(ConnectionKey key) {
+            this.key = key;
+        }
+
+        private synchronized boolean retain(String ownerId, Callable<MqttClient> clientFactory) throws Exception {
+            if (closed) {
+                return false;
+            }
+            if (client == null) {
+                try {
+                    client = clientFactory.call();
+                } catch (Exception e) {
+                    if (ownerIds.isEmpty()) {
+                        closed = true;
+                        connections.remove(key, this);
+                    }
+                    throw e;
+                }
+            }
+            ownerIds.add(ownerId);
+            updateOwnerId();
+            return true;
+        }
+
+        private synchronized boolean release(String ownerId) {
+            if (closed || !ownerIds.remove(ownerId)) {
+                return false;
+            }
+            if (!ownerIds.isEmpty()) {
+                updateOwnerId();
+                return false;
+            }
+            closed = true;
+            client.disconnect();
+            PendingPublish pendingPublish;
+            while ((pendingPublish = pendingPublishes.poll()) != null) {
+                pendingPublishesCount.decrementAndGet();
+                pendingPublish.payload().release();
+                pendingPublish.promise().tryFailure(new IllegalStateException("MQTT connection is closed!"));
+            }
+            return true;
+        }
+
+        Future<Void> publish(String topic, ByteBuf payload, MqttQoS qos, boolean retain) {
+            if (qos == MqttQoS.AT_MOST_ONCE) {
+                return client.publish(topic, payload, qos, retain);
+            }
+            Promise<Void> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+            if (pendingPublishesCount.incrementAndGet() > maxPendingPublishes) {
+                pendingPublishesCount.decrementAndGet();
+                payload.release();
+                return promise.setFailure(new IllegalStateException("Max pending publishes count of " + maxPendingPublishes + " reached!"));
+            }
+            pendingPublishes.add(new PendingPublish(topic, payload, qos, retain, promise));
+            processPendingPublishes();
+            return promise;
+        }
+
+        String getOwnerId() {
+            return client.getClientConfig().getOwnerId();
+        }
+
+        private void updateOwnerId() {
+            client.getClientConfig().setOwnerId(String.join(",", ownerIds));
+        }
+
+        int getInFlightPublishes() {
+            return inFlightPublishes.get();
+        }
+
+        int getPendingPublishes() {
+            return pendingPublishesCount.get();
+        }
+
+        private void processPendingPublishes() {
+            while (!pendingPublishes.isEmpty() && !closed) {
+                int inFlight = inFlightPublishes.get();
+                if (inFlight >= maxInFlightPublishes) {
+                    return;
+                }
+                if (!inFlightPublishes.compareAndSet(inFlight, inFlight + 1)) {
+                    continue;
+                }
+                PendingPublish pendingPublish = pendingPublishes.poll();
+                if (pendingPublish == null) {
+                    inFlightPublishes.decrementAndGet();
+                    continue;
+                }
+                pendingPublishesCount.decrementAndGet();
+                try {
+                    client.publish(pendingPublish.topic(), pendingPublish.payload(), pendingPublish.qos(), pendingPublish.retain())
+                            .addListener(future -> {
+                                inFlightPublishes.decrementAndGet();
+                                if (future.isSuccess()) {
+                                    pendingPublish.promise().trySuccess(null);
+                                } else {
+                                    pendingPublish.promise().tryFailure(future.cause());
+                                }
+                                processPendingPublishes();
+                            });
+                } catch (Exception e) {
+                    log.debug("[{}][{}:{}] Failed to publish message", key.tenantId(), key.host(), key.port(), e);
+                    inFlightPublishes.decrementAndGet();
+                    pendingPublish.promise().tryFailure(e);
+                }
+            }
+        }
+
+    }
+
+    private record PendingPublish(String topic, ByteBuf payload, MqttQoS qos, boolean retain, Promise<Void> promise) {
+    }
+
+}
@@ -68,14 +68,16 @@ public class TbMqttNode extends TbAbstractExternalNode {
 
     protected TbMqttNodeConfiguration mqttNodeConfiguration;
 
-    protected MqttClient mqttClient;
+    private TbMqttConnectionPool connectionPool;
+    private TbMqttConnectionPool.SharedConnection connection;
+    private String ownerId;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         super.init(ctx);
         this.mqttNodeConfiguration = TbNodeUtils.convert(configuration, TbMqttNodeConfiguration.class);
         try {
-            this.mqttClient = initClient(ctx);
+            initConnection(ctx);
         } catch (Exception e) {
             throw new TbNodeException(e);
         }
@@ -85,7 +87,7 @@ public class TbMqttNode extends TbAbstractExternalNode {
     public void onMsg(TbContext ctx, TbMsg msg) {
         String topic = TbNodeUtils.processPattern(this.mqttNodeConfiguration.getTopicPattern(), msg);
         var tbMsg = ackIfNeeded(ctx, msg);
-        this.mqttClient.publish(topic, Unpooled.wrappedBuffer(getData(tbMsg, mqttNodeConfiguration.isParseToPlainText()).getBytes(UTF8)),
+        this.connection.publish(topic, Unpooled.wrappedBuffer(getData(tbMsg, mqttNodeConfiguration.isParseToPlainText()).getBytes(UTF8)),
                         MqttQoS.AT_LEAST_ONCE, mqttNodeConfiguration.isRetainedMessage())
                 .addListener(future -> {
                             if (future.isSuccess()) {
@@ -105,8 +107,9 @@ public class TbMqttNode extends TbAbstractExternalNode {
 
     @Override
     public void destroy() {
-        if (this.mqttClient != null) {
-            this.mqttClient.disconnect();
+        if (this.connection != null) {
+            connectionPool.release(this.connection, this.ownerId);
+            this.connection = null;
         }
     }
 
@@ -114,12 +117,33 @@ public class TbMqttNode extends TbAbstractExternalNode {
         return "Tenant[" + ctx.getTenantId().getId() + "]RuleNode[" + ctx.getSelf().getId().getId() + "]";
     }
 
+    /*
+     * Nodes of the same tenant with identical connection settings share one broker connection.
+     * The key holds every setting that is used to create the client.
+     */
+    protected void initConnection(TbContext ctx) throws Exception {
+        TbMqttConnectionPool.ConnectionKey key = new TbMqttConnectionPool.ConnectionKey(ctx.getTenantId(), getClass().getName(),
+                mqttNodeConfiguration.getHost(), mqttNodeConfiguration.getPort(), mqttNodeConfiguration.getConnectTimeoutSec(),
+                getClientId(ctx), mqttNodeConfiguration.isCleanSession(), mqttNodeConfiguration.isSsl(),
+                JacksonUtil.toString(mqttNodeConfiguration.getCredentials()));
+        this.connectionPool = ctx.getSharedResource(TbMqttConnectionPool.class, TbMqttConnectionPool::new);
+        this.ownerId = getOwnerId(ctx);
+        this.connection = connectionPool.acquire(key, ownerId, () -> initClient(ctx));
+    }
+
+    private String getClientId(TbContext ctx) {
+        if (StringUtils.isEmpty(this.mqttNodeConfiguration.getClientId())) {
+            return null;
+        }
+        return this.mqttNodeConfiguration.isAppendClientIdSuffix() ?
+                this.mqttNodeConfiguration.getClientId() + "_" + ctx.getServiceId() : this.mqttNodeConfiguration.getClientId();
+    }
+
     protected MqttClient initClient(TbContext ctx) throws Exception {
         MqttClientConfig config = new MqttClientConfig(getSslContext());
-        config.setOwnerId(getOwnerId(ctx));
-        if (!StringUtils.isEmpty(this.mqttNodeConfiguration.getClientId())) {
-            config.setClientId(this.mqttNodeConfiguration.isAppendClientIdSuffix() ?
-                    this.mqttNodeConfiguration.getClientId() + "_" + ctx.getServiceId() : this.mqttNodeConfiguration.getClientId());
+        String clientId = getClientId(ctx);
+        if (clientId != null) {
+            config.setClientId(clientId);
         }
         config.setCleanSession(this.mqttNodeConfiguration.isCleanSession());
 
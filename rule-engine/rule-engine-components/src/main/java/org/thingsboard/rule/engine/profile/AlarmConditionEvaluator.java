@@ -0,0 +1,482 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.device.profile.AlarmCondition;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilter;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
+import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.DynamicValue;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.thingsboard.server.common.data.StringUtils.equalsAny;
+import static org.thingsboard.server.common.data.StringUtils.splitByCommaWithoutQuotes;
+
+/**
+ * Alarm condition compiled into a tree of predicates.
+ * <p>
+ * The predicate types, operations, constant values, lower-cased and split string values are resolved once
+ * per device profile version instead of on every evaluation. Only the values from the data snapshot and
+ * the dynamic values are looked up at evaluation time.
+ * <p>
+ * The evaluators are cached by the identity of the alarm condition, so all devices that share the same cached
+ * device profile also share its evaluators. The profile update replaces the conditions, and the evaluators of
+ * the previous version are collected together with them.
+ */
+@Slf4j
+class AlarmConditionEvaluator {
+
+    private static final ValuePredicate ALWAYS_FALSE = (data, ctx, value) -> false;
+
+    private static final LoadingCache<AlarmCondition, AlarmConditionEvaluator> evaluators = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(AlarmConditionEvaluator::compile));
+
+    private final KeyCondition[] conditions;
+
+    private AlarmConditionEvaluator(KeyCondition[] conditions) {
+        this.conditions = conditions;
+    }
+
+    static AlarmConditionEvaluator of(AlarmCondition condition) {
+        return evaluators.getUnchecked(condition);
+    }
+
+    static AlarmConditionEvaluator compile(AlarmCondition condition) {
+        List<AlarmConditionFilter> filters = condition.getCondition() != null ? condition.getCondition() : Collections.emptyList();
+        KeyCondition[] conditions = new KeyCondition[filters.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = compile(filters.get(i));
+        }
+        return new AlarmConditionEvaluator(conditions);
+    }
+
+    boolean eval(DataSnapshot data, DynamicPredicateValueCtx ctx) {
+        for (KeyCondition condition : conditions) {
+            EntityKeyValue value = condition.constantValue != null ? condition.constantValue : data.getValue(condition.key);
+            if (value == null || !condition.predicate.test(data, ctx, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static KeyCondition compile(AlarmConditionFilter filter) {
+        boolean constantKey = filter.getKey().getType() == AlarmConditionKeyType.CONSTANT;
+        EntityKeyValue constantValue = null;
+        if (constantKey) {
+            try {
+                constantValue = getConstantValue(filter);
+            } catch (RuntimeException e) {
+                log.warn("Failed to parse constant value from filter: {}", filter, e);
+                return new KeyCondition(filter.getKey(), null, ALWAYS_FALSE);
+            }
+        }
+        return new KeyCondition(filter.getKey(), constantValue, compile(filter.getPredicate(), constantKey));
+    }
+
+    private static EntityKeyValue getConstantValue(AlarmConditionFilter filter) {
+        EntityKeyValue value = new EntityKeyValue();
+        String valueStr = filter.getValue().toString();
+        switch (filter.getValueType()) {
+            case STRING:
+                value.setStrValue(valueStr);
+                break;
+            case DATE_TIME:
+                value.setLngValue(Long.valueOf(valueStr));
+                break;
+            case NUMERIC:
+                value.setDblValue(Double.valueOf(valueStr));
+                break;
+            case BOOLEAN:
+                value.setBoolValue(Boolean.valueOf(valueStr));
+                break;
+        }
+        return value;
+    }
+
+    private static ValuePredicate compile(KeyFilterPredicate predicate, boolean constantKey) {
+        switch (predicate.getType()) {
+            case STRING:
+                return compileStrPredicate((StringFilterPredicate) predicate, constantKey);
+            case NUMERIC:
+                return compileNumPredicate((NumericFilterPredicate) predicate, constantKey);
+            case BOOLEAN:
+                return compileBoolPredicate((BooleanFilterPredicate) predicate, constantKey);
+            case COMPLEX:
+                return compileComplexPredicate((ComplexFilterPredicate) predicate, constantKey);
+            default:
+                return ALWAYS_FALSE;
+        }
+    }
+
+    private static ValuePredicate compileComplexPredicate(ComplexFilterPredicate predicate, boolean constantKey) {
+        ComplexFilterPredicate.ComplexOperation operation = predicate.getOperation();
+        List<KeyFilterPredicate> predicates = predicate.getPredicates();
+        ValuePredicate[] children = new ValuePredicate[predicates.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compile(predicates.get(i), constantKey);
+        }
+        if (operation == ComplexFilterPredicate.ComplexOperation.OR) {
+            return (data, ctx, value) -> {
+                for (ValuePredicate child : children) {
+                    if (child.test(data, ctx, value)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        } else if (operation == ComplexFilterPredicate.ComplexOperation.AND) {
+            return (data, ctx, value) -> {
+                for (ValuePredicate child : children) {
+                    if (!child.test(data, ctx, value)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        } else {
+            return (data, ctx, value) -> {
+                throw new RuntimeException("Operation not supported: " + operation);
+            };
+        }
+    }
+
+    private static ValuePredicate compileBoolPredicate(BooleanFilterPredicate predicate, boolean constantKey) {
+        BooleanFilterPredicate.BooleanOperation operation = predicate.getOperation();
+        PredicateValue<Boolean> predicateValue = new PredicateValue<>(predicate.getValue(), constantKey, AlarmConditionEvaluator::getBoolValue);
+        if (predicateValue.isStatic()) {
+            if (predicateValue.staticValue == null) {
+                return ALWAYS_FALSE;
+            }
+            Predicate<Boolean> matcher = toBoolMatcher(operation, predicateValue.staticValue);
+            return (data, ctx, value) -> {
+                Boolean val = getBoolValue(value);
+                return val != null && matcher.test(val);
+            };
+        }
+        return (data, ctx, value) -> {
+            Boolean val = getBoolValue(value);
+            if (val == null) {
+                return false;
+            }
+            Boolean resolvedValue = predicateValue.resolve(data, ctx);
+            return resolvedValue != null && toBoolMatcher(operation, resolvedValue).test(val);
+        };
+    }
+
+    private static Predicate<Boolean> toBoolMatcher(BooleanFilterPredicate.BooleanOperation operation, Boolean predicateValue) {
+        if (operation == BooleanFilterPredicate.BooleanOperation.EQUAL) {
+            return predicateValue::equals;
+        } else if (operation == BooleanFilterPredicate.BooleanOperation.NOT_EQUAL) {
+            return val -> !predicateValue.equals(val);
+        } else {
+            return val -> {
+                throw new RuntimeException("Operation not supported: " + operation);
+            };
+        }
+    }
+
+    private static ValuePredicate compileNumPredicate(NumericFilterPredicate predicate, boolean constantKey) {
+        NumericComparison comparison = toNumComparison(predicate.getOperation());
+        PredicateValue<Double> predicateValue = new PredicateValue<>(predicate.getValue(), constantKey, AlarmConditionEvaluator::getDblValue);
+        if (predicateValue.isStatic()) {
+            if (predicateValue.staticValue == null) {
+                return ALWAYS_FALSE;
+            }
+            double threshold = predicateValue.staticValue;
+            return (data, ctx, value) -> {
+                Double val = getDblValue(value);
+                return val != null && comparison.test(val, threshold);
+            };
+        }
+        return (data, ctx, value) -> {
+            Double val = getDblValue(value);
+            if (val == null) {
+                return false;
+            }
+            Double resolvedValue = predicateValue.resolve(data, ctx);
+            return resolvedValue != null && comparison.test(val, resolvedValue);
+        };
+    }
+
+    private static NumericComparison toNumComparison(NumericFilterPredicate.NumericOperation operation) {
+        if (operation == null) {
+            return (val, predicateValue) -> {
+                throw new RuntimeException("Operation not supported: " + operation);
+            };
+        }
+        switch (operation) {
+            case NOT_EQUAL:
+                return (val, predicateValue) -> Double.compare(val, predicateValue) != 0;
+            case EQUAL:
+                return (val, predicateValue) -> Double.compare(val, predicateValue) == 0;
+            case GREATER:
+                return (val, predicateValue) -> val > predicateValue;
+            case GREATER_OR_EQUAL:
+                return (val, predicateValue) -> val >= predicateValue;
+            case LESS:
+                return (val, predicateValue) -> val < predicateValue;
+            case LESS_OR_EQUAL:
+                return (val, predicateValue) -> val <= predicateValue;
+            default:
+                return (val, predicateValue) -> {
+                    throw new RuntimeException("Operation not supported: " + operation);
+                };
+        }
+    }
+
+    private static ValuePredicate compileStrPredicate(StringFilterPredicate predicate, boolean constantKey) {
+        StringFilterPredicate.StringOperation operation = predicate.getOperation();
+        boolean ignoreCase = predicate.isIgnoreCase();
+        PredicateValue<String> predicateValue = new PredicateValue<>(predicate.getValue(), constantKey, AlarmConditionEvaluator::getStrValue);
+        if (predicateValue.isStatic()) {
+            if (predicateValue.staticValue == null) {
+                return ALWAYS_FALSE;
+            }
+            Predicate<String> matcher = toStrMatcher(operation, ignoreCase ? predicateValue.staticValue.toLowerCase() : predicateValue.staticValue);
+            return (data, ctx, value) -> {
+                String val = getStrValue(value);
+                return val != null && matcher.test(ignoreCase ? val.toLowerCase() : val);
+            };
+        }
+        return (data, ctx, value) -> {
+            String val = getStrValue(value);
+            if (val == null) {
+                return false;
+            }
+            String resolvedValue = predicateValue.resolve(data, ctx);
+            if (resolvedValue == null) {
+                return false;
+            }
+            if (ignoreCase) {
+                val = val.toLowerCase();
+                resolvedValue = resolvedValue.toLowerCase();
+            }
+            return toStrMatcher(operation, resolvedValue).test(val);
+        };
+    }
+
+    private static Predicate<String> toStrMatcher(StringFilterPredicate.StringOperation operation, String predicateValue) {
+        if (operation == null) {
+            return val -> {
+                throw new RuntimeException("Operation not supported: " + operation);
+            };
+        }
+        switch (operation) {
+            case CONTAINS:
+                return val -> val.contains(predicateValue);
+            case EQUAL:
+                return predicateValue::equals;
+            case STARTS_WITH:
+                return val -> val.startsWith(predicateValue);
+            case ENDS_WITH:
+                return val -> val.endsWith(predicateValue);
+            case NOT_EQUAL:
+                return val -> !val.equals(predicateValue);
+            case NOT_CONTAINS:
+                return val -> !val.contains(predicateValue);
+            case IN:
+                List<String> values = splitByCommaWithoutQuotes(predicateValue);
+                return val -> equalsAny(val, values);
+            case NOT_IN:
+                List<String> excludedValues = splitByCommaWithoutQuotes(predicateValue);
+                return val -> !equalsAny(val, excludedValues);
+            default:
+                return val -> {
+                    throw new RuntimeException("Operation not supported: " + operation);
+                };
+        }
+    }
+
+    static EntityKeyValue getDynamicPredicateValue(DataSnapshot data, DynamicPredicateValueCtx ctx, DynamicValue<?> value) {
+        EntityKeyValue ekv = null;
+        if (value != null) {
+            switch (value.getSourceType()) {
+                case CURRENT_DEVICE:
+                    ekv = data.getValue(new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, value.getSourceAttribute()));
+                    if (ekv != null || !value.isInherit()) {
+                        break;
+                    }
+                case CURRENT_CUSTOMER:
+                    ekv = ctx.getCustomerValue(value.getSourceAttribute());
+                    if (ekv != null || !value.isInherit()) {
+                        break;
+                    }
+                case CURRENT_TENANT:
+                    ekv = ctx.getTenantValue(value.getSourceAttribute());
+            }
+        }
+        return ekv;
+    }
+
+    static String getStrValue(EntityKeyValue ekv) {
+        switch (ekv.getDataType()) {
+            case LONG:
+                return ekv.getLngValue() != null ? ekv.getLngValue().toString() : null;
+            case DOUBLE:
+                return ekv.getDblValue() != null ? ekv.getDblValue().toString() : null;
+            case BOOLEAN:
+                return ekv.getBoolValue() != null ? ekv.getBoolValue().toString() : null;
+            case STRING:
+                return ekv.getStrValue();
+            case JSON:
+                return ekv.getJsonValue();
+            default:
+                return null;
+        }
+    }
+
+    static Double getDblValue(EntityKeyValue ekv) {
+        switch (ekv.getDataType()) {
+            case LONG:
+                return ekv.getLngValue() != null ? ekv.getLngValue().doubleValue() : null;
+            case DOUBLE:
+                return ekv.getDblValue() != null ? ekv.getDblValue() : null;
+            case BOOLEAN:
+                return ekv.getBoolValue() != null ? (ekv.getBoolValue() ? 1.0 : 0.0) : null;
+            case STRING:
+                try {
+                    return Double.parseDouble(ekv.getStrValue());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            case JSON:
+                try {
+                    return Double.parseDouble(ekv.getJsonValue());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    static Boolean getBoolValue(EntityKeyValue ekv) {
+        switch (ekv.getDataType()) {
+            case LONG:
+                return ekv.getLngValue() != null ? ekv.getLngValue() > 0 : null;
+            case DOUBLE:
+                return ekv.getDblValue() != null ? ekv.getDblValue() > 0 : null;
+            case BOOLEAN:
+                return ekv.getBoolValue();
+            case STRING:
+                try {
+                    return Boolean.parseBoolean(ekv.getStrValue());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            case JSON:
+                try {
+                    return Boolean.parseBoolean(ekv.getJsonValue());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    static Long getLongValue(EntityKeyValue ekv) {
+        switch (ekv.getDataType()) {
+            case LONG:
+                return ekv.getLngValue();
+            case DOUBLE:
+                return ekv.getDblValue() != null ? ekv.getDblValue().longValue() : null;
+            case BOOLEAN:
+                return ekv.getBoolValue() != null ? (ekv.getBoolValue() ? 1 : 0L) : null;
+            case STRING:
+                try {
+                    return Long.parseLong(ekv.getStrValue());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            case JSON:
+                try {
+                    return Long.parseLong(ekv.getJsonValue());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ValuePredicate {
+
+        boolean test(DataSnapshot data, DynamicPredicateValueCtx ctx, EntityKeyValue value);
+
+    }
+
+    private record KeyCondition(AlarmConditionFilterKey key, EntityKeyValue constantValue, ValuePredicate predicate) {
+    }
+
+    /**
+     * Value of the predicate: the dynamic value if it is set and convertible, otherwise the default value.
+     * The default value is not used for the constant keys.
+     */
+    private static class PredicateValue<T> {
+
+        private final DynamicValue<T> dynamicValue;
+        private final T staticValue;
+        private final Function<EntityKeyValue, T> transformFunction;
+
+        private PredicateValue(FilterPredicateValue<T> value, boolean constantKey, Function<EntityKeyValue, T> transformFunction) {
+            this.dynamicValue = value.getDynamicValue();
+            this.staticValue = constantKey ? null : value.getDefaultValue();
+            this.transformFunction = transformFunction;
+        }
+
+        boolean isStatic() {
+            return dynamicValue == null;
+        }
+
+        T resolve(DataSnapshot data, DynamicPredicateValueCtx ctx) {
+            EntityKeyValue ekv = getDynamicPredicateValue(data, ctx, dynamicValue);
+            if (ekv != null) {
+                T result = transformFunction.apply(ekv);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return staticValue;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface NumericComparison {
+
+        boolean test(double val, double predicateValue);
+
+    }
+
+}
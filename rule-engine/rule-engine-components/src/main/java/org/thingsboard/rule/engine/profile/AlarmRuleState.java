@@ -19,8 +19,6 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.profile.state.PersistedAlarmRuleState;
 import org.thingsboard.server.common.data.alarm.AlarmSeverity;
-import org.thingsboard.server.common.data.device.profile.AlarmCondition;
-import org.thingsboard.server.common.data.device.profile.AlarmConditionFilter;
 import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
 import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
 import org.thingsboard.server.common.data.device.profile.AlarmConditionSpec;
@@ -33,13 +31,8 @@ import org.thingsboard.server.common.data.device.profile.DurationAlarmConditionS
 import org.thingsboard.server.common.data.device.profile.RepeatingAlarmConditionSpec;
 import org.thingsboard.server.common.data.device.profile.SimpleAlarmConditionSpec;
 import org.thingsboard.server.common.data.device.profile.SpecificTimeSchedule;
-import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
-import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
 import org.thingsboard.server.common.data.query.DynamicValue;
 import org.thingsboard.server.common.data.query.FilterPredicateValue;
-import org.thingsboard.server.common.data.query.KeyFilterPredicate;
-import org.thingsboard.server.common.data.query.NumericFilterPredicate;
-import org.thingsboard.server.common.data.query.StringFilterPredicate;
 import org.thingsboard.server.common.msg.tools.SchedulerUtils;
 import org.thingsboard.server.common.adaptor.JsonConverter;
 
@@ -48,10 +41,6 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
-
-import static org.thingsboard.server.common.data.StringUtils.equalsAny;
-import static org.thingsboard.server.common.data.StringUtils.splitByCommaWithoutQuotes;
 
 @Data
 @Slf4j
@@ -61,6 +50,8 @@ class AlarmRuleState {
     private final AlarmRule alarmRule;
     private final AlarmConditionSpec spec;
     private final Set<AlarmConditionFilterKey> entityKeys;
+    private final boolean timeSeriesKeysPresent;
+    private final AlarmConditionEvaluator conditionEvaluator;
     private PersistedAlarmRuleState state;
     private boolean updateFlag;
     private final DynamicPredicateValueCtx dynamicPredicateValueCtx;
@@ -69,6 +60,8 @@ class AlarmRuleState {
         this.severity = severity;
         this.alarmRule = alarmRule;
         this.entityKeys = entityKeys;
+        this.timeSeriesKeysPresent = entityKeys != null && entityKeys.stream().anyMatch(key -> key.getType() == AlarmConditionKeyType.TIME_SERIES);
+        this.conditionEvaluator = AlarmConditionEvaluator.of(alarmRule.getCondition());
         if (state != null) {
             this.state = state;
         } else {
@@ -89,10 +82,8 @@ class AlarmRuleState {
 
     public boolean validateAttrUpdate(Set<AlarmConditionFilterKey> changedKeys) {
         //If the attribute was updated, but no new telemetry arrived - we ignore this until new telemetry is there.
-        for (AlarmConditionFilterKey key : entityKeys) {
-            if (key.getType().equals(AlarmConditionKeyType.TIME_SERIES)) {
-                return false;
-            }
+        if (timeSeriesKeysPresent) {
+            return false;
         }
         for (AlarmConditionFilterKey key : changedKeys) {
             if (entityKeys.contains(key)) {
@@ -123,7 +114,7 @@ class AlarmRuleState {
         boolean active = isActive(data, data.getTs());
         switch (spec.getType()) {
             case SIMPLE:
-                return (active && eval(alarmRule.getCondition(), data)) ? AlarmEvalResult.TRUE : AlarmEvalResult.FALSE;
+                return (active && evalCondition(data)) ? AlarmEvalResult.TRUE : AlarmEvalResult.FALSE;
             case DURATION:
                 return evalDuration(data, active);
             case REPEATING:
@@ -225,7 +216,7 @@ class AlarmRuleState {
     }
 
     private AlarmEvalResult evalRepeating(DataSnapshot data, boolean active) {
-        if (active && eval(alarmRule.getCondition(), data)) {
+        if (active && evalCondition(data)) {
             state.setEventCount(state.getEventCount() + 1);
             updateFlag = true;
             long requiredRepeats = resolveRequiredRepeats(data);
@@ -236,7 +227,7 @@ class AlarmRuleState {
     }
 
     private AlarmEvalResult evalDuration(DataSnapshot data, boolean active) {
-        if (active && eval(alarmRule.getCondition(), data)) {
+        if (active && evalCondition(data)) {
             if (state.getLastEventTs() > 0) {
                 if (data.getTs() > state.getLastEventTs()) {
                     state.setDuration(state.getDuration() + (data.getTs() - state.getLastEventTs()));
@@ -292,10 +283,10 @@ class AlarmRuleState {
             return defaultValue;
         }
 
-        var longValue = getLongValue(keyValue);
+        var longValue = AlarmConditionEvaluator.getLongValue(keyValue);
         if (longValue == null) {
             String sourceAttribute = dynamicValue.getSourceAttribute();
-            throw new NumericParseException(String.format("Could not convert attribute '%s' with value '%s' to numeric value!", sourceAttribute, getStrValue(keyValue)));
+            throw new NumericParseException(String.format("Could not convert attribute '%s' with value '%s' to numeric value!", sourceAttribute, AlarmConditionEvaluator.getStrValue(keyValue)));
         }
         return longValue;
     }
@@ -320,290 +311,11 @@ class AlarmRuleState {
         }
     }
 
-    private boolean eval(AlarmCondition condition, DataSnapshot data) {
-        boolean eval = true;
-        for (var filter : condition.getCondition()) {
-            EntityKeyValue value;
-            if (filter.getKey().getType().equals(AlarmConditionKeyType.CONSTANT)) {
-                try {
-                    value = getConstantValue(filter);
-                } catch (RuntimeException e) {
-                    log.warn("Failed to parse constant value from filter: {}", filter, e);
-                    value = null;
-                }
-            } else {
-                value = data.getValue(filter.getKey());
-            }
-            if (value == null) {
-                return false;
-            }
-            eval = eval && eval(data, value, filter.getPredicate(), filter);
-        }
-        return eval;
-    }
-
-    private EntityKeyValue getConstantValue(AlarmConditionFilter filter) {
-        EntityKeyValue value = new EntityKeyValue();
-        String valueStr = filter.getValue().toString();
-        switch (filter.getValueType()) {
-            case STRING:
-                value.setStrValue(valueStr);
-                break;
-            case DATE_TIME:
-                value.setLngValue(Long.valueOf(valueStr));
-                break;
-            case NUMERIC:
-                value.setDblValue(Double.valueOf(valueStr));
-                break;
-            case BOOLEAN:
-                value.setBoolValue(Boolean.valueOf(valueStr));
-                break;
-        }
-        return value;
+    private boolean evalCondition(DataSnapshot data) {
+        return conditionEvaluator.eval(data, dynamicPredicateValueCtx);
     }
 
-    private boolean eval(DataSnapshot data, EntityKeyValue value, KeyFilterPredicate predicate, AlarmConditionFilter filter) {
-        switch (predicate.getType()) {
-            case STRING:
-                return evalStrPredicate(data, value, (StringFilterPredicate) predicate, filter);
-            case NUMERIC:
-                return evalNumPredicate(data, value, (NumericFilterPredicate) predicate, filter);
-            case BOOLEAN:
-                return evalBoolPredicate(data, value, (BooleanFilterPredicate) predicate, filter);
-            case COMPLEX:
-                return evalComplexPredicate(data, value, (ComplexFilterPredicate) predicate, filter);
-            default:
-                return false;
-        }
-    }
-
-    private boolean evalComplexPredicate(DataSnapshot data, EntityKeyValue ekv, ComplexFilterPredicate predicate, AlarmConditionFilter filter) {
-        switch (predicate.getOperation()) {
-            case OR:
-                for (KeyFilterPredicate kfp : predicate.getPredicates()) {
-                    if (eval(data, ekv, kfp, filter)) {
-                        return true;
-                    }
-                }
-                return false;
-            case AND:
-                for (KeyFilterPredicate kfp : predicate.getPredicates()) {
-                    if (!eval(data, ekv, kfp, filter)) {
-                        return false;
-                    }
-                }
-                return true;
-            default:
-                throw new RuntimeException("Operation not supported: " + predicate.getOperation());
-        }
-    }
-
-    private boolean evalBoolPredicate(DataSnapshot data, EntityKeyValue ekv, BooleanFilterPredicate predicate, AlarmConditionFilter filter) {
-        Boolean val = getBoolValue(ekv);
-        if (val == null) {
-            return false;
-        }
-        Boolean predicateValue = getPredicateValue(data, predicate.getValue(), filter, AlarmRuleState::getBoolValue);
-        if (predicateValue == null) {
-            return false;
-        }
-        switch (predicate.getOperation()) {
-            case EQUAL:
-                return val.equals(predicateValue);
-            case NOT_EQUAL:
-                return !val.equals(predicateValue);
-            default:
-                throw new RuntimeException("Operation not supported: " + predicate.getOperation());
-        }
-    }
-
-    private boolean evalNumPredicate(DataSnapshot data, EntityKeyValue ekv, NumericFilterPredicate predicate, AlarmConditionFilter filter) {
-        Double val = getDblValue(ekv);
-        if (val == null) {
-            return false;
-        }
-        Double predicateValue = getPredicateValue(data, predicate.getValue(), filter, AlarmRuleState::getDblValue);
-        if (predicateValue == null) {
-            return false;
-        }
-        switch (predicate.getOperation()) {
-            case NOT_EQUAL:
-                return !val.equals(predicateValue);
-            case EQUAL:
-                return val.equals(predicateValue);
-            case GREATER:
-                return val > predicateValue;
-            case GREATER_OR_EQUAL:
-                return val >= predicateValue;
-            case LESS:
-                return val < predicateValue;
-            case LESS_OR_EQUAL:
-                return val <= predicateValue;
-            default:
-                throw new RuntimeException("Operation not supported: " + predicate.getOperation());
-        }
-    }
-
-    private boolean evalStrPredicate(DataSnapshot data, EntityKeyValue ekv, StringFilterPredicate predicate, AlarmConditionFilter filter) {
-        String val = getStrValue(ekv);
-        if (val == null) {
-            return false;
-        }
-        String predicateValue = getPredicateValue(data, predicate.getValue(), filter, AlarmRuleState::getStrValue);
-        if (predicateValue == null) {
-            return false;
-        }
-        if (predicate.isIgnoreCase()) {
-            val = val.toLowerCase();
-            predicateValue = predicateValue.toLowerCase();
-        }
-        switch (predicate.getOperation()) {
-            case CONTAINS:
-                return val.contains(predicateValue);
-            case EQUAL:
-                return val.equals(predicateValue);
-            case STARTS_WITH:
-                return val.startsWith(predicateValue);
-            case ENDS_WITH:
-                return val.endsWith(predicateValue);
-            case NOT_EQUAL:
-                return !val.equals(predicateValue);
-            case NOT_CONTAINS:
-                return !val.contains(predicateValue);
-            case IN:
-                return equalsAny(val, splitByCommaWithoutQuotes(predicateValue));
-            case NOT_IN:
-                return !equalsAny(val, splitByCommaWithoutQuotes(predicateValue));
-            default:
-                throw new RuntimeException("Operation not supported: " + predicate.getOperation());
-        }
-    }
-
-    private <T> T getPredicateValue(DataSnapshot data, FilterPredicateValue<T> value, AlarmConditionFilter filter, Function<EntityKeyValue, T> transformFunction) {
-        EntityKeyValue ekv = getDynamicPredicateValue(data, value.getDynamicValue());
-        if (ekv != null) {
-            T result = transformFunction.apply(ekv);
-            if (result != null) {
-                return result;
-            }
-        }
-        if (filter.getKey().getType() != AlarmConditionKeyType.CONSTANT) {
-            return value.getDefaultValue();
-        } else {
-            return null;
-        }
-    }
-
-    private <T> EntityKeyValue getDynamicPredicateValue(DataSnapshot data, DynamicValue<T> value) {
-        EntityKeyValue ekv = null;
-        if (value != null) {
-            switch (value.getSourceType()) {
-                case CURRENT_DEVICE:
-                    ekv = data.getValue(new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, value.getSourceAttribute()));
-                    if (ekv != null || !value.isInherit()) {
-                        break;
-                    }
-                case CURRENT_CUSTOMER:
-                    ekv = dynamicPredicateValueCtx.getCustomerValue(value.getSourceAttribute());
-                    if (ekv != null || !value.isInherit()) {
-                        break;
-                    }
-                case CURRENT_TENANT:
-                    ekv = dynamicPredicateValueCtx.getTenantValue(value.getSourceAttribute());
-            }
-        }
-        return ekv;
-    }
-
-    private static String getStrValue(EntityKeyValue ekv) {
-        switch (ekv.getDataType()) {
-            case LONG:
-                return ekv.getLngValue() != null ? ekv.getLngValue().toString() : null;
-            case DOUBLE:
-                return ekv.getDblValue() != null ? ekv.getDblValue().toString() : null;
-            case BOOLEAN:
-                return ekv.getBoolValue() != null ? ekv.getBoolValue().toString() : null;
-            case STRING:
-                return ekv.getStrValue();
-            case JSON:
-                return ekv.getJsonValue();
-            default:
-                return null;
-        }
-    }
-
-    private static Double getDblValue(EntityKeyValue ekv) {
-        switch (ekv.getDataType()) {
-            case LONG:
-                return ekv.getLngValue() != null ? ekv.getLngValue().doubleValue() : null;
-            case DOUBLE:
-                return ekv.getDblValue() != null ? ekv.getDblValue() : null;
-            case BOOLEAN:
-                return ekv.getBoolValue() != null ? (ekv.getBoolValue() ? 1.0 : 0.0) : null;
-            case STRING:
-                try {
-                    return Double.parseDouble(ekv.getStrValue());
-                } catch (RuntimeException e) {
-                    return null;
-                }
-            case JSON:
-                try {
-                    return Double.parseDouble(ekv.getJsonValue());
-                } catch (RuntimeException e) {
-                    return null;
-                }
-            default:
-                return null;
-        }
-    }
-
-    private static Boolean getBoolValue(EntityKeyValue ekv) {
-        switch (ekv.getDataType()) {
-            case LONG:
-                return ekv.getLngValue() != null ? ekv.getLngValue() > 0 : null;
-            case DOUBLE:
-                return ekv.getDblValue() != null ? ekv.getDblValue() > 0 : null;
-            case BOOLEAN:
-                return ekv.getBoolValue();
-            case STRING:
-                try {
-                    return Boolean.parseBoolean(ekv.getStrValue());
-                } catch (RuntimeException e) {
-                    return null;
-                }
-            case JSON:
-                try {
-                    return Boolean.parseBoolean(ekv.getJsonValue());
-                } catch (RuntimeException e) {
-                    return null;
-                }
-            default:
-                return null;
-        }
-    }
-
-    private static Long getLongValue(EntityKeyValue ekv) {
-        switch (ekv.getDataType()) {
-            case LONG:
-                return ekv.getLngValue();
-            case DOUBLE:
-                return ekv.getDblValue() != null ? ekv.getDblValue().longValue() : null;
-            case BOOLEAN:
-                return ekv.getBoolValue() != null ? (ekv.getBoolValue() ? 1 : 0L) : null;
-            case STRING:
-                try {
-                    return Long.parseLong(ekv.getStrValue());
-                } catch (RuntimeException e) {
-                    return null;
-                }
-            case JSON:
-                try {
-                    return Long.parseLong(ekv.getJsonValue());
-                } catch (RuntimeException e) {
-                    return null;
-                }
-            default:
-                return null;
-        }
+    private EntityKeyValue getDynamicPredicateValue(DataSnapshot data, DynamicValue<?> value) {
+        return AlarmConditionEvaluator.getDynamicPredicateValue(data, dynamicPredicateValueCtx, value);
     }
 }
@@ -17,6 +17,8 @@ package org.thingsboard.rule.engine.profile;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.JacksonUtil;
@@ -34,6 +36,7 @@ import org.thingsboard.server.common.data.alarm.AlarmUpdateRequest;
 import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
 import org.thingsboard.server.common.data.device.profile.AlarmConditionSpecType;
 import org.thingsboard.server.common.data.device.profile.DeviceProfileAlarm;
+import org.thingsboard.server.common.data.id.AlarmId;
 import org.thingsboard.server.common.data.id.DashboardId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
@@ -43,7 +46,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
 @Data
@@ -70,28 +73,35 @@ class AlarmState {
         this.updateState(alarmDefinition, alarmState);
     }
 
-    public boolean process(TbContext ctx, TbMsg msg, DataSnapshot data, SnapshotUpdate update) throws ExecutionException, InterruptedException {
-        initCurrentAlarm(ctx);
-        lastMsgMetaData = msg.getMetaData();
-        lastMsgQueueName = msg.getQueueName();
-        this.dataSnapshot = data;
-        try {
-            return createOrClearAlarms(ctx, msg, data, update, AlarmRuleState::eval);
-        } catch (NumericParseException e) {
-            throw new RuntimeException(String.format(ERROR_MSG, originator.getId().toString(), e.getMessage()));
-        }
+    /*
+     * The alarm service calls are executed on the db callback executor and the evaluation is continued on the given executor,
+     * so that the caller does not block on the database while the state of the device is locked.
+     */
+    public ListenableFuture<Boolean> process(TbContext ctx, TbMsg msg, DataSnapshot data, SnapshotUpdate update, Executor executor) {
+        return Futures.transformAsync(initCurrentAlarm(ctx, executor), ignored -> {
+            lastMsgMetaData = msg.getMetaData();
+            lastMsgQueueName = msg.getQueueName();
+            this.dataSnapshot = data;
+            try {
+                return createOrClearAlarms(ctx, msg, data, update, AlarmRuleState::eval, executor);
+            } catch (NumericParseException e) {
+                throw new RuntimeException(String.format(ERROR_MSG, originator.getId().toString(), e.getMessage()));
+            }
+        }, executor);
     }
 
-    public boolean process(TbContext ctx, long ts) throws ExecutionException, InterruptedException {
-        initCurrentAlarm(ctx);
-        try {
-            return createOrClearAlarms(ctx, null, ts, null, (alarmState, tsParam) -> alarmState.eval(tsParam, dataSnapshot));
-        } catch (NumericParseException e) {
-            throw new RuntimeException(String.format(ERROR_MSG, originator.getId().toString(), e.getMessage()));
-        }
+    public ListenableFuture<Boolean> process(TbContext ctx, long ts, Executor executor) {
+        return Futures.transformAsync(initCurrentAlarm(ctx, executor), ignored -> {
+            try {
+                return createOrClearAlarms(ctx, null, ts, null, (alarmState, tsParam) -> alarmState.eval(tsParam, dataSnapshot), executor);
+            } catch (NumericParseException e) {
+                throw new RuntimeException(String.format(ERROR_MSG, originator.getId().toString(), e.getMessage()));
+            }
+        }, executor);
     }
 
-    public <T> boolean createOrClearAlarms(TbContext ctx, TbMsg msg, T data, SnapshotUpdate update, BiFunction<AlarmRuleState, T, AlarmEvalResult> evalFunction) {
+    public <T> ListenableFuture<Boolean> createOrClearAlarms(TbContext ctx, TbMsg msg, T data, SnapshotUpdate update,
+                                                             BiFunction<AlarmRuleState, T, AlarmEvalResult> evalFunction, Executor executor) {
         boolean stateUpdate = false;
         AlarmRuleState resultState = null;
         log.debug("[{}] processing update: {}", alarmDefinition.getId(), data);
@@ -110,15 +120,18 @@ class AlarmState {
             }
         }
         if (resultState != null) {
-            TbAlarmResult result = calculateAlarmResult(ctx, resultState);
-            if (result != null) {
-                pushMsg(ctx, msg, result, resultState);
-            }
-            stateUpdate = clearAlarmState(stateUpdate, clearState);
+            AlarmRuleState ruleState = resultState;
+            boolean stateUpdateBeforeAlarm = stateUpdate;
+            return Futures.transform(calculateAlarmResult(ctx, ruleState, executor), result -> {
+                if (result != null) {
+                    pushMsg(ctx, msg, result, ruleState);
+                }
+                return clearAlarmState(stateUpdateBeforeAlarm, clearState);
+            }, executor);
         } else if (currentAlarm != null && clearState != null) {
             if (!validateUpdate(update, clearState)) {
                 log.debug("[{}] Update is not valid for current clear state", alarmDefinition.getId());
-                return stateUpdate;
+                return Futures.immediateFuture(stateUpdate);
             }
             AlarmEvalResult evalResult = evalFunction.apply(clearState, data);
             if (AlarmEvalResult.TRUE.equals(evalResult)) {
@@ -126,18 +139,24 @@ class AlarmState {
                 for (AlarmRuleState state : createRulesSortedBySeverityDesc) {
                     stateUpdate = clearAlarmState(stateUpdate, state);
                 }
-                AlarmApiCallResult result = ctx.getAlarmService().clearAlarm(
-                        ctx.getTenantId(), currentAlarm.getId(), System.currentTimeMillis(), createDetails(clearState)
-                );
-                if (result.isCleared()) {
-                    pushMsg(ctx, msg, new TbAlarmResult(false, false, true, result.getAlarm()), clearState);
-                }
-                currentAlarm = null;
+                AlarmRuleState ruleState = clearState;
+                AlarmId alarmId = currentAlarm.getId();
+                JsonNode details = createDetails(ruleState);
+                boolean stateUpdateBeforeClear = stateUpdate;
+                ListenableFuture<AlarmApiCallResult> clearFuture = ctx.getDbCallbackExecutor().executeAsync(() ->
+                        ctx.getAlarmService().clearAlarm(ctx.getTenantId(), alarmId, System.currentTimeMillis(), details));
+                return Futures.transform(clearFuture, result -> {
+                    if (result.isCleared()) {
+                        pushMsg(ctx, msg, new TbAlarmResult(false, false, true, result.getAlarm()), ruleState);
+                    }
+                    currentAlarm = null;
+                    return stateUpdateBeforeClear;
+                }, executor);
             } else if (AlarmEvalResult.FALSE.equals(evalResult)) {
                 stateUpdate = clearAlarmState(stateUpdate, clearState);
             }
         }
-        return stateUpdate;
+        return Futures.immediateFuture(stateUpdate);
     }
 
     public boolean clearAlarmState(boolean stateUpdate, AlarmRuleState state) {
@@ -160,14 +179,22 @@ class AlarmState {
         return true;
     }
 
-    public void initCurrentAlarm(TbContext ctx) {
-        if (!initialFetchDone) {
-            Alarm alarm = ctx.getAlarmService().findLatestActiveByOriginatorAndType(ctx.getTenantId(), originator, alarmDefinition.getAlarmType());
-            if (alarm != null && !alarm.getStatus().isCleared()) {
-                currentAlarm = alarm;
-            }
-            initialFetchDone = true;
+    public ListenableFuture<Void> initCurrentAlarm(TbContext ctx, Executor executor) {
+        if (initialFetchDone) {
+            return Futures.immediateVoidFuture();
         }
+        String alarmType = alarmDefinition.getAlarmType();
+        ListenableFuture<Alarm> alarmFuture = ctx.getDbCallbackExecutor().executeAsync(() ->
+                ctx.getAlarmService().findLatestActiveByOriginatorAndType(ctx.getTenantId(), originator, alarmType));
+        return Futures.transform(alarmFuture, alarm -> {
+            if (!initialFetchDone) {
+                if (alarm != null && !alarm.getStatus().isCleared()) {
+                    currentAlarm = alarm;
+                }
+                initialFetchDone = true;
+            }
+            return null;
+        }, executor);
     }
 
     public void pushMsg(TbContext ctx, TbMsg msg, TbAlarmResult alarmResult, AlarmRuleState ruleState) {
@@ -226,7 +253,7 @@ class AlarmState {
         }
     }
 
-    private TbAlarmResult calculateAlarmResult(TbContext ctx, AlarmRuleState ruleState) {
+    private ListenableFuture<TbAlarmResult> calculateAlarmResult(TbContext ctx, AlarmRuleState ruleState, Executor executor) {
         AlarmSeverity severity = ruleState.getSeverity();
         if (currentAlarm != null) {
             // TODO: In some extremely rare cases, we might miss the event of alarm clear (If one use in-mem queue and restarted the server) or (if one manipulated the rule chain).
@@ -237,11 +264,13 @@ class AlarmState {
             if (severity.ordinal() <= oldSeverity.ordinal()) {
                 currentAlarm.setDetails(createDetails(ruleState));
                 currentAlarm.setSeverity(severity);
-                AlarmApiCallResult result = ctx.getAlarmService().updateAlarm(AlarmUpdateRequest.fromAlarm(currentAlarm));
-                currentAlarm = result.getAlarm();
-                return TbAlarmResult.fromAlarmResult(result);
+                AlarmUpdateRequest request = AlarmUpdateRequest.fromAlarm(currentAlarm);
+                return Futures.transform(ctx.getDbCallbackExecutor().executeAsync(() -> ctx.getAlarmService().updateAlarm(request)), result -> {
+                    currentAlarm = result.getAlarm();
+                    return TbAlarmResult.fromAlarmResult(result);
+                }, executor);
             } else {
-                return null;
+                return Futures.immediateFuture(null);
             }
         } else {
             currentAlarm = new Alarm();
@@ -264,9 +293,11 @@ class AlarmState {
             if (alarmDefinition.getPropagateRelationTypes() != null) {
                 currentAlarm.setPropagateRelationTypes(alarmDefinition.getPropagateRelationTypes());
             }
-            AlarmApiCallResult result = ctx.getAlarmService().createAlarm(AlarmCreateOrUpdateActiveRequest.fromAlarm(currentAlarm));
-            currentAlarm = result.getAlarm();
-            return TbAlarmResult.fromAlarmResult(result);
+            AlarmCreateOrUpdateActiveRequest request = AlarmCreateOrUpdateActiveRequest.fromAlarm(currentAlarm);
+            return Futures.transform(ctx.getDbCallbackExecutor().executeAsync(() -> ctx.getAlarmService().createAlarm(request)), result -> {
+                currentAlarm = result.getAlarm();
+                return TbAlarmResult.fromAlarmResult(result);
+            }, executor);
         }
     }
 
@@ -34,6 +34,7 @@ class DataSnapshot {
     private long ts;
     private final Set<AlarmConditionFilterKey> keys;
     private final Map<AlarmConditionFilterKey, EntityKeyValue> values = new ConcurrentHashMap<>();
+    private final Map<AlarmConditionFilterKey, Long> valueTs = new ConcurrentHashMap<>();
 
     DataSnapshot(Set<AlarmConditionFilterKey> entityKeysToFetch) {
         this.keys = entityKeysToFetch;
@@ -60,16 +61,19 @@ class DataSnapshot {
     }
 
     void removeValue(EntityKey key) {
-        values.remove(toConditionKey(key));
+        AlarmConditionFilterKey conditionKey = toConditionKey(key);
+        values.remove(conditionKey);
+        valueTs.remove(conditionKey);
     }
 
     boolean putValue(AlarmConditionFilterKey key, long newTs, EntityKeyValue value) {
-        return putIfKeyExists(key, value, ts != newTs);
+        return putIfKeyExists(key, newTs, value, ts != newTs);
     }
 
-    private boolean putIfKeyExists(AlarmConditionFilterKey key, EntityKeyValue value, boolean updateOfTs) {
+    private boolean putIfKeyExists(AlarmConditionFilterKey key, long newTs, EntityKeyValue value, boolean updateOfTs) {
         if (keys.contains(key)) {
             EntityKeyValue oldValue = values.put(key, value);
+            valueTs.put(key, newTs);
             if (updateOfTs) {
                 return true;
             } else {
@@ -83,4 +87,9 @@ class DataSnapshot {
     EntityKeyValue getValue(AlarmConditionFilterKey key) {
         return values.get(key);
     }
+
+    long getValueTs(AlarmConditionFilterKey key) {
+        Long valueTs = this.valueTs.get(key);
+        return valueTs != null ? valueTs : 0L;
+    }
 }
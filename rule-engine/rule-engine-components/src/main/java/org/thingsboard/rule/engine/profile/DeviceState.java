@@ -15,6 +15,10 @@
  */
 package org.thingsboard.rule.engine.profile;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.JsonParser;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.JacksonUtil;
@@ -44,15 +48,20 @@ import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.adaptor.JsonConverter;
 import org.thingsboard.server.dao.sql.query.EntityKeyMapping;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.thingsboard.server.common.data.msg.TbMsgType.ACTIVITY_EVENT;
@@ -70,6 +79,8 @@ import static org.thingsboard.server.common.data.msg.TbMsgType.POST_TELEMETRY_RE
 @Slf4j
 class DeviceState {
 
+    static final int MAX_PENDING_MSGS = 1000;
+
     private final boolean persistState;
     private final DeviceId deviceId;
     private final ProfileState deviceProfile;
@@ -78,9 +89,32 @@ class DeviceState {
     private DataSnapshot latestValues;
     private final ConcurrentMap<String, AlarmState> alarmStates = new ConcurrentHashMap<>();
     private final DynamicPredicateValueCtx dynamicPredicateValueCtx;
+    private final Consumer<DeviceId> stateChangeListener;
+    private final Queue<TbMsg> pendingMsgs = new ArrayDeque<>();
+    // the continuations of the asynchronous calls are executed under the same lock as the synchronized methods
+    private final Executor lockedExecutor = command -> {
+        synchronized (this) {
+            command.run();
+        }
+    };
+    private ListenableFuture<DataSnapshot> latestValuesFuture;
+    private boolean processing;
+    private long pendingHarvestTs;
+    private boolean stateChanged;
+    private boolean removed;
 
     DeviceState(TbContext ctx, TbDeviceProfileNodeConfiguration config, DeviceId deviceId, ProfileState deviceProfile, RuleNodeState state) {
+        this(ctx, config, deviceId, deviceProfile, state, null);
+    }
+
+    /*
+     * If the state change listener is set, the changed state is not saved right away.
+     * The listener is notified instead and the state is saved later by calling persistState.
+     */
+    DeviceState(TbContext ctx, TbDeviceProfileNodeConfiguration config, DeviceId deviceId, ProfileState deviceProfile, RuleNodeState state,
+                Consumer<DeviceId> stateChangeListener) {
         this.persistState = config.isPersistAlarmRulesState();
+        this.stateChangeListener = stateChangeListener;
         this.deviceId = deviceId;
         this.deviceProfile = deviceProfile;
 
@@ -110,14 +144,14 @@ class DeviceState {
         }
     }
 
-    public void updateProfile(TbContext ctx, DeviceProfile deviceProfile) throws ExecutionException, InterruptedException {
+    public synchronized void updateProfile(TbContext ctx, DeviceProfile deviceProfile) {
         Set<AlarmConditionFilterKey> oldKeys = Set.copyOf(this.deviceProfile.getEntityKeys());
         this.deviceProfile.updateDeviceProfile(deviceProfile);
         if (latestValues != null) {
             Set<AlarmConditionFilterKey> keysToFetch = new HashSet<>(this.deviceProfile.getEntityKeys());
             keysToFetch.removeAll(oldKeys);
             if (!keysToFetch.isEmpty()) {
-                addEntityKeysToSnapshot(ctx, deviceId, keysToFetch, latestValues);
+                fetchNewKeys(ctx, keysToFetch);
             }
         }
         Set<String> newAlarmStateIds = this.deviceProfile.getAlarmSettings().stream().map(DeviceProfileAlarm::getId).collect(Collectors.toSet());
@@ -131,35 +165,147 @@ class DeviceState {
         }
     }
 
-    public void harvestAlarms(TbContext ctx, long ts) throws ExecutionException, InterruptedException {
+    public synchronized void harvestAlarms(TbContext ctx, long ts) {
+        if (processing || !pendingMsgs.isEmpty()) {
+            pendingHarvestTs = ts;
+            return;
+        }
+        execute(ctx, null, () -> doHarvestAlarms(ctx, ts));
+    }
+
+    private ListenableFuture<Boolean> doHarvestAlarms(TbContext ctx, long ts) {
         log.debug("[{}] Going to harvest alarms: {}", ctx.getSelfId(), ts);
-        boolean stateChanged = false;
-        for (AlarmState state : alarmStates.values()) {
-            stateChanged |= state.process(ctx, ts);
+        List<AlarmState> states = new ArrayList<>(alarmStates.values());
+        if (states.isEmpty()) {
+            return Futures.immediateFuture(false);
         }
-        if (persistState && stateChanged) {
-            state.setStateData(JacksonUtil.toString(pds));
-            state = ctx.saveRuleNodeState(state);
+        return Futures.transformAsync(fetchDynamicValues(), ignored -> {
+            ListenableFuture<Boolean> result = Futures.immediateFuture(false);
+            for (AlarmState state : states) {
+                result = Futures.transformAsync(result, stateChanged ->
+                        Futures.transform(state.process(ctx, ts, lockedExecutor), changed -> stateChanged | changed, MoreExecutors.directExecutor()), lockedExecutor);
+            }
+            return result;
+        }, lockedExecutor);
+    }
+
+    /*
+     * The latest values of the device are fetched asynchronously on the first message.
+     * The messages are processed one by one in the order they are received, while the alarm service calls are executed asynchronously.
+     * Messages received in the meantime are queued, and the messages that do not fit into the queue are failed.
+     */
+    public synchronized void process(TbContext ctx, TbMsg msg) {
+        if (pendingMsgs.size() >= MAX_PENDING_MSGS) {
+            log.debug("[{}][{}] Too many pending messages, failing msg: {}", ctx.getSelfId(), deviceId, msg.getId());
+            ctx.tellFailure(msg, new RuntimeException("Too many pending messages for device [" + deviceId.getId() + "]"));
+            return;
         }
+        pendingMsgs.add(msg);
+        if (latestValues == null && latestValuesFuture == null) {
+            ListenableFuture<DataSnapshot> future = fetchLatestValues(ctx, deviceId);
+            latestValuesFuture = future;
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(DataSnapshot snapshot) {
+                    onLatestValuesFetched(ctx, snapshot);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    onLatestValuesFetchFailure(ctx, t);
+                }
+            }, future.isDone() ? MoreExecutors.directExecutor() : ctx.getDbCallbackExecutor());
+        }
+        processPending(ctx);
+    }
+
+    private synchronized void onLatestValuesFetched(TbContext ctx, DataSnapshot snapshot) {
+        latestValuesFuture = null;
+        latestValues = snapshot;
+        processPending(ctx);
     }
 
-    public void process(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
-        if (latestValues == null) {
-            latestValues = fetchLatestValues(ctx, deviceId);
+    private synchronized void onLatestValuesFetchFailure(TbContext ctx, Throwable t) {
+        log.debug("[{}][{}] Failed to fetch latest values", ctx.getSelfId(), deviceId, t);
+        latestValuesFuture = null;
+        TbMsg msg;
+        while ((msg = pendingMsgs.poll()) != null) {
+            ctx.tellFailure(msg, t);
         }
-        boolean stateChanged = false;
+        processPending(ctx);
+    }
+
+    private void processPending(TbContext ctx) {
+        while (!processing) {
+            if (pendingHarvestTs > 0) {
+                long ts = pendingHarvestTs;
+                pendingHarvestTs = 0;
+                execute(ctx, null, () -> doHarvestAlarms(ctx, ts));
+                continue;
+            }
+            if (latestValues == null) {
+                return;
+            }
+            TbMsg msg = pendingMsgs.poll();
+            if (msg == null) {
+                return;
+            }
+            execute(ctx, msg, () -> doProcess(ctx, msg));
+        }
+    }
+
+    private void execute(TbContext ctx, TbMsg msg, Callable<ListenableFuture<Boolean>> task) {
+        processing = true;
+        ListenableFuture<Boolean> future;
+        try {
+            future = task.call();
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        // the next pending task is started by the caller if this one is completed right away
+        boolean completedInPlace = future.isDone();
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(Boolean stateChanged) {
+                if (Boolean.TRUE.equals(stateChanged)) {
+                    onStateChanged(ctx);
+                }
+                onTaskCompleted(ctx, completedInPlace);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (msg != null) {
+                    log.debug("[{}][{}] Failed to process msg: {}", ctx.getSelfId(), deviceId, msg.getId(), t);
+                    ctx.tellFailure(msg, t);
+                } else {
+                    log.warn("[{}][{}] Failed to harvest alarms", ctx.getSelfId(), deviceId, t);
+                }
+                onTaskCompleted(ctx, completedInPlace);
+            }
+        }, lockedExecutor);
+    }
+
+    private void onTaskCompleted(TbContext ctx, boolean completedInPlace) {
+        processing = false;
+        if (!completedInPlace) {
+            processPending(ctx);
+        }
+    }
+
+    private ListenableFuture<Boolean> doProcess(TbContext ctx, TbMsg msg) {
         if (msg.isTypeOf(POST_TELEMETRY_REQUEST)) {
-            stateChanged = processTelemetry(ctx, msg);
+            return processTelemetry(ctx, msg);
         } else if (msg.isTypeOf(POST_ATTRIBUTES_REQUEST)) {
-            stateChanged = processAttributesUpdateRequest(ctx, msg);
+            return processAttributesUpdateRequest(ctx, msg);
         } else if (msg.isTypeOneOf(ACTIVITY_EVENT, INACTIVITY_EVENT)) {
-            stateChanged = processDeviceActivityEvent(ctx, msg);
+            return processDeviceActivityEvent(ctx, msg);
         } else if (msg.isTypeOf(ATTRIBUTES_UPDATED)) {
-            stateChanged = processAttributesUpdateNotification(ctx, msg);
+            return processAttributesUpdateNotification(ctx, msg);
         } else if (msg.isTypeOf(ATTRIBUTES_DELETED)) {
-            stateChanged = processAttributesDeleteNotification(ctx, msg);
+            return processAttributesDeleteNotification(ctx, msg);
         } else if (msg.isTypeOf(ALARM_CLEAR)) {
-            stateChanged = processAlarmClearNotification(ctx, msg);
+            return Futures.immediateFuture(processAlarmClearNotification(ctx, msg));
         } else if (msg.isTypeOf(ALARM_ACK)) {
             processAlarmAckNotification(ctx, msg);
         } else if (msg.isTypeOf(ALARM_DELETE)) {
@@ -170,13 +316,38 @@ class DeviceState {
             }
             ctx.tellSuccess(msg);
         }
-        if (persistState && stateChanged) {
-            state.setStateData(JacksonUtil.toString(pds));
-            state = ctx.saveRuleNodeState(state);
+        return Futures.immediateFuture(false);
+    }
+
+    private void onStateChanged(TbContext ctx) {
+        if (!persistState) {
+            return;
+        }
+        if (stateChangeListener != null) {
+            this.stateChanged = true;
+            stateChangeListener.accept(deviceId);
+        } else {
+            saveState(ctx);
+        }
+    }
+
+    synchronized void persistState(TbContext ctx) {
+        if (stateChanged && !removed) {
+            saveState(ctx);
         }
     }
 
-    private boolean processDeviceActivityEvent(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
+    synchronized void onRemoved() {
+        removed = true;
+    }
+
+    private void saveState(TbContext ctx) {
+        stateChanged = false;
+        state.setStateData(JacksonUtil.toString(pds));
+        state = ctx.saveRuleNodeState(state);
+    }
+
+    private ListenableFuture<Boolean> processDeviceActivityEvent(TbContext ctx, TbMsg msg) {
         String scope = msg.getMetaData().getValue(DataConstants.SCOPE);
         if (StringUtils.isEmpty(scope)) {
             return processTelemetry(ctx, msg);
@@ -214,7 +385,7 @@ class DeviceState {
         ctx.tellSuccess(msg);
     }
 
-    private boolean processAttributesUpdateNotification(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
+    private ListenableFuture<Boolean> processAttributesUpdateNotification(TbContext ctx, TbMsg msg) {
         String scope = msg.getMetaData().getValue(DataConstants.SCOPE);
         if (StringUtils.isEmpty(scope)) {
             scope = DataConstants.CLIENT_SCOPE;
@@ -222,73 +393,89 @@ class DeviceState {
         return processAttributes(ctx, msg, scope);
     }
 
-    private boolean processAttributesDeleteNotification(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
-        boolean stateChanged = false;
+    private ListenableFuture<Boolean> processAttributesDeleteNotification(TbContext ctx, TbMsg msg) {
         List<String> keys = new ArrayList<>();
         JsonParser.parseString(msg.getData()).getAsJsonObject().get("attributes").getAsJsonArray().forEach(e -> keys.add(e.getAsString()));
         String scope = msg.getMetaData().getValue(DataConstants.SCOPE);
         if (StringUtils.isEmpty(scope)) {
             scope = DataConstants.CLIENT_SCOPE;
         }
+        ListenableFuture<Boolean> result = Futures.immediateFuture(false);
         if (!keys.isEmpty()) {
             EntityKeyType keyType = getKeyTypeFromScope(scope);
             Set<AlarmConditionFilterKey> removedKeys = keys.stream().map(key -> new EntityKey(keyType, key))
                     .peek(latestValues::removeValue)
                     .map(DataSnapshot::toConditionKey).collect(Collectors.toSet());
             SnapshotUpdate update = new SnapshotUpdate(AlarmConditionKeyType.ATTRIBUTE, removedKeys);
-
-            for (DeviceProfileAlarm alarm : deviceProfile.getAlarmSettings()) {
-                AlarmState alarmState = alarmStates.computeIfAbsent(alarm.getId(),
-                        a -> new AlarmState(this.deviceProfile, deviceId, alarm, getOrInitPersistedAlarmState(alarm), dynamicPredicateValueCtx));
-                stateChanged |= alarmState.process(ctx, msg, latestValues, update);
-            }
+            result = Futures.transformAsync(fetchDynamicValues(), ignored -> processAlarmStates(ctx, msg, update), lockedExecutor);
         }
-        ctx.tellSuccess(msg);
-        return stateChanged;
+        return onProcessed(ctx, msg, result);
     }
 
-    protected boolean processAttributesUpdateRequest(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
+    protected ListenableFuture<Boolean> processAttributesUpdateRequest(TbContext ctx, TbMsg msg) {
         return processAttributes(ctx, msg, DataConstants.CLIENT_SCOPE);
     }
 
-    private boolean processAttributes(TbContext ctx, TbMsg msg, String scope) throws ExecutionException, InterruptedException {
-        boolean stateChanged = false;
+    private ListenableFuture<Boolean> processAttributes(TbContext ctx, TbMsg msg, String scope) {
+        ListenableFuture<Boolean> result = Futures.immediateFuture(false);
         Set<AttributeKvEntry> attributes = JsonConverter.convertToAttributes(JsonParser.parseString(msg.getData()));
         if (!attributes.isEmpty()) {
             SnapshotUpdate update = merge(latestValues, attributes, scope);
-            for (DeviceProfileAlarm alarm : deviceProfile.getAlarmSettings()) {
-                AlarmState alarmState = alarmStates.computeIfAbsent(alarm.getId(),
-                        a -> new AlarmState(this.deviceProfile, deviceId, alarm, getOrInitPersistedAlarmState(alarm), dynamicPredicateValueCtx));
-                stateChanged |= alarmState.process(ctx, msg, latestValues, update);
-            }
+            result = Futures.transformAsync(fetchDynamicValues(), ignored -> processAlarmStates(ctx, msg, update), lockedExecutor);
         }
-        ctx.tellSuccess(msg);
-        return stateChanged;
+        return onProcessed(ctx, msg, result);
     }
 
-    protected boolean processTelemetry(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
-        boolean stateChanged = false;
+    protected ListenableFuture<Boolean> processTelemetry(TbContext ctx, TbMsg msg) {
         Map<Long, List<KvEntry>> tsKvMap = JsonConverter.convertToSortedTelemetry(JsonParser.parseString(msg.getData()), msg.getMetaDataTs());
-        // iterate over data by ts (ASC order).
-        for (Map.Entry<Long, List<KvEntry>> entry : tsKvMap.entrySet()) {
-            Long ts = entry.getKey();
-            List<KvEntry> data = entry.getValue();
-            SnapshotUpdate update = merge(latestValues, ts, data);
-            if (update.hasUpdate()) {
-                for (DeviceProfileAlarm alarm : deviceProfile.getAlarmSettings()) {
-                    AlarmState alarmState = alarmStates.computeIfAbsent(alarm.getId(),
-                            a -> new AlarmState(this.deviceProfile, deviceId, alarm, getOrInitPersistedAlarmState(alarm), dynamicPredicateValueCtx));
-                    try {
-                        stateChanged |= alarmState.process(ctx, msg, latestValues, update);
-                    } catch (ApiUsageLimitsExceededException e) {
-                        alarmStates.remove(alarm.getId());
-                        throw e;
+        ListenableFuture<Boolean> result = Futures.immediateFuture(false);
+        if (!tsKvMap.isEmpty()) {
+            result = Futures.transform(fetchDynamicValues(), ignored -> false, MoreExecutors.directExecutor());
+            // iterate over data by ts (ASC order).
+            for (Map.Entry<Long, List<KvEntry>> entry : tsKvMap.entrySet()) {
+                result = Futures.transformAsync(result, stateChanged -> {
+                    SnapshotUpdate update = merge(latestValues, entry.getKey(), entry.getValue());
+                    if (!update.hasUpdate()) {
+                        return Futures.immediateFuture(stateChanged);
                     }
-                }
+                    return Futures.transform(processAlarmStates(ctx, msg, update), changed -> stateChanged | changed, MoreExecutors.directExecutor());
+                }, lockedExecutor);
             }
         }
-        ctx.tellSuccess(msg);
-        return stateChanged;
+        return onProcessed(ctx, msg, result);
+    }
+
+    private ListenableFuture<Boolean> processAlarmStates(TbContext ctx, TbMsg msg, SnapshotUpdate update) {
+        ListenableFuture<Boolean> result = Futures.immediateFuture(false);
+        for (DeviceProfileAlarm alarm : deviceProfile.getAlarmSettings()) {
+            result = Futures.transformAsync(result, stateChanged -> {
+                AlarmState alarmState = alarmStates.computeIfAbsent(alarm.getId(),
+                        a -> new AlarmState(this.deviceProfile, deviceId, alarm, getOrInitPersistedAlarmState(alarm), dynamicPredicateValueCtx));
+                ListenableFuture<Boolean> future = Futures.catchingAsync(alarmState.process(ctx, msg, latestValues, update, lockedExecutor),
+                        ApiUsageLimitsExceededException.class, e -> {
+                            alarmStates.remove(alarm.getId());
+                            return Futures.immediateFailedFuture(e);
+                        }, lockedExecutor);
+                return Futures.transform(future, changed -> stateChanged | changed, MoreExecutors.directExecutor());
+            }, lockedExecutor);
+        }
+        return result;
+    }
+
+    private ListenableFuture<Boolean> onProcessed(TbContext ctx, TbMsg msg, ListenableFuture<Boolean> result) {
+        return Futures.transform(result, stateChanged -> {
+            ctx.tellSuccess(msg);
+            return stateChanged;
+        }, lockedExecutor);
+    }
+
+    private ListenableFuture<Void> fetchDynamicValues() {
+        Set<String> tenantKeys = new HashSet<>(deviceProfile.getTenantDynamicValueKeys());
+        Set<String> customerKeys = new HashSet<>(deviceProfile.getCustomerDynamicValueKeys());
+        if (tenantKeys.isEmpty() && customerKeys.isEmpty()) {
+            return Futures.immediateVoidFuture();
+        }
+        return dynamicPredicateValueCtx.fetchValues(tenantKeys, customerKeys);
     }
 
     private SnapshotUpdate merge(DataSnapshot latestValues, Long newTs, List<KvEntry> data) {
@@ -329,14 +516,39 @@ class DeviceState {
         return EntityKeyType.ATTRIBUTE;
     }
 
-    private DataSnapshot fetchLatestValues(TbContext ctx, EntityId originator) throws ExecutionException, InterruptedException {
+    private ListenableFuture<DataSnapshot> fetchLatestValues(TbContext ctx, EntityId originator) {
         Set<AlarmConditionFilterKey> entityKeysToFetch = deviceProfile.getEntityKeys();
         DataSnapshot result = new DataSnapshot(entityKeysToFetch);
-        addEntityKeysToSnapshot(ctx, originator, entityKeysToFetch, result);
-        return result;
+        return addEntityKeysToSnapshot(ctx, originator, entityKeysToFetch, result);
+    }
+
+    private void fetchNewKeys(TbContext ctx, Set<AlarmConditionFilterKey> keysToFetch) {
+        ListenableFuture<DataSnapshot> future = addEntityKeysToSnapshot(ctx, deviceId, keysToFetch, new DataSnapshot(keysToFetch));
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(DataSnapshot snapshot) {
+                synchronized (DeviceState.this) {
+                    if (latestValues == null) {
+                        return;
+                    }
+                    // values received with the messages while the keys were fetched are newer than the fetched ones
+                    for (AlarmConditionFilterKey key : keysToFetch) {
+                        EntityKeyValue value = snapshot.getValue(key);
+                        if (value != null && latestValues.getValue(key) == null) {
+                            latestValues.putValue(key, snapshot.getValueTs(key), value);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}][{}] Failed to fetch values of the new alarm rule keys: {}", ctx.getSelfId(), deviceId, keysToFetch, t);
+            }
+        }, future.isDone() ? MoreExecutors.directExecutor() : ctx.getDbCallbackExecutor());
     }
 
-    private void addEntityKeysToSnapshot(TbContext ctx, EntityId originator, Set<AlarmConditionFilterKey> entityKeysToFetch, DataSnapshot result) throws InterruptedException, ExecutionException {
+    private ListenableFuture<DataSnapshot> addEntityKeysToSnapshot(TbContext ctx, EntityId originator, Set<AlarmConditionFilterKey> entityKeysToFetch, DataSnapshot result) {
         Set<String> attributeKeys = new HashSet<>();
         Set<String> latestTsKeys = new HashSet<>();
 
@@ -374,19 +586,26 @@ class DeviceState {
             }
         }
 
-        if (!latestTsKeys.isEmpty()) {
-            List<TsKvEntry> data = ctx.getTimeseriesService().findLatest(ctx.getTenantId(), originator, latestTsKeys).get();
-            for (TsKvEntry entry : data) {
+        ListenableFuture<List<TsKvEntry>> latestTsFuture = latestTsKeys.isEmpty() ? Futures.immediateFuture(Collections.emptyList()) :
+                ctx.getTimeseriesService().findLatest(ctx.getTenantId(), originator, latestTsKeys);
+        List<ListenableFuture<List<AttributeKvEntry>>> attributeFutures = new ArrayList<>();
+        if (!attributeKeys.isEmpty()) {
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.CLIENT_SCOPE, attributeKeys));
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SHARED_SCOPE, attributeKeys));
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SERVER_SCOPE, attributeKeys));
+        }
+        return Futures.whenAllSucceed(Futures.allAsList(attributeFutures), latestTsFuture).call(() -> {
+            for (TsKvEntry entry : Futures.getDone(latestTsFuture)) {
                 if (entry.getValue() != null) {
                     result.putValue(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, entry.getKey()), entry.getTs(), toEntityValue(entry));
                 }
             }
-        }
-        if (!attributeKeys.isEmpty()) {
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.CLIENT_SCOPE, attributeKeys).get());
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SHARED_SCOPE, attributeKeys).get());
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, AttributeScope.SERVER_SCOPE, attributeKeys).get());
-        }
+            // the scopes are applied in the fixed order, so the server scope value has priority as before
+            for (ListenableFuture<List<AttributeKvEntry>> attributeFuture : attributeFutures) {
+                addToSnapshot(result, Futures.getDone(attributeFuture));
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
     }
 
     private void addToSnapshot(DataSnapshot snapshot, List<AttributeKvEntry> data) {
@@ -15,8 +15,18 @@
  */
 package org.thingsboard.rule.engine.profile;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Set;
+
 public interface DynamicPredicateValueCtx {
 
+    /*
+     * Fetches the server attributes of the tenant and the customer of the device,
+     * so that the alarm rules are evaluated without blocking on the database.
+     */
+    ListenableFuture<Void> fetchValues(Set<String> tenantKeys, Set<String> customerKeys);
+
     EntityKeyValue getTenantValue(String key);
 
     EntityKeyValue getCustomerValue(String key);
@@ -15,10 +15,12 @@
  */
 package org.thingsboard.rule.engine.profile;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.server.common.data.AttributeScope;
-import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
@@ -26,8 +28,11 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 public class DynamicPredicateValueCtxImpl implements DynamicPredicateValueCtx {
@@ -35,6 +40,8 @@ public class DynamicPredicateValueCtxImpl implements DynamicPredicateValueCtx {
     private CustomerId customerId;
     private final DeviceId deviceId;
     private final TbContext ctx;
+    private volatile Map<String, EntityKeyValue> tenantValues = Collections.emptyMap();
+    private volatile Map<String, EntityKeyValue> customerValues = Collections.emptyMap();
 
     public DynamicPredicateValueCtxImpl(TenantId tenantId, DeviceId deviceId, TbContext ctx) {
         this.tenantId = tenantId;
@@ -43,14 +50,27 @@ public class DynamicPredicateValueCtxImpl implements DynamicPredicateValueCtx {
         resetCustomer();
     }
 
+    @Override
+    public ListenableFuture<Void> fetchValues(Set<String> tenantKeys, Set<String> customerKeys) {
+        CustomerId customerId = this.customerId;
+        ListenableFuture<Map<String, EntityKeyValue>> tenantFuture = fetchValues(tenantId, tenantKeys);
+        ListenableFuture<Map<String, EntityKeyValue>> customerFuture = customerId == null || customerId.isNullUid() ?
+                Futures.immediateFuture(Collections.emptyMap()) : fetchValues(customerId, customerKeys);
+        return Futures.whenAllComplete(tenantFuture, customerFuture).call(() -> {
+            tenantValues = Futures.getDone(tenantFuture);
+            customerValues = Futures.getDone(customerFuture);
+            return null;
+        }, MoreExecutors.directExecutor());
+    }
+
     @Override
     public EntityKeyValue getTenantValue(String key) {
-        return getValue(tenantId, key);
+        return tenantValues.get(key);
     }
 
     @Override
     public EntityKeyValue getCustomerValue(String key) {
-        return customerId == null || customerId.isNullUid() ? null : getValue(customerId, key);
+        return customerId == null || customerId.isNullUid() ? null : customerValues.get(key);
     }
 
     @Override
@@ -61,15 +81,23 @@ public class DynamicPredicateValueCtxImpl implements DynamicPredicateValueCtx {
         }
     }
 
-    private EntityKeyValue getValue(EntityId entityId, String key) {
-        try {
-            Optional<AttributeKvEntry> entry = ctx.getAttributesService().find(tenantId, entityId, AttributeScope.SERVER_SCOPE, key).get();
-            if (entry.isPresent()) {
-                return DeviceState.toEntityValue(entry.get());
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            log.warn("Failed to get attribute by key: {} for {}: [{}]", key, entityId.getEntityType(), entityId.getId());
+    private ListenableFuture<Map<String, EntityKeyValue>> fetchValues(EntityId entityId, Set<String> keys) {
+        if (keys.isEmpty()) {
+            return Futures.immediateFuture(Collections.emptyMap());
         }
-        return null;
+        ListenableFuture<List<AttributeKvEntry>> future = ctx.getAttributesService().find(tenantId, entityId, AttributeScope.SERVER_SCOPE, keys);
+        ListenableFuture<Map<String, EntityKeyValue>> values = Futures.transform(future, entries -> {
+            Map<String, EntityKeyValue> result = new HashMap<>();
+            for (AttributeKvEntry entry : entries) {
+                if (entry.getValue() != null) {
+                    result.put(entry.getKey(), DeviceState.toEntityValue(entry));
+                }
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+        return Futures.catching(values, Throwable.class, t -> {
+            log.warn("Failed to get attributes by keys: {} for {}: [{}]", keys, entityId.getEntityType(), entityId.getId(), t);
+            return Collections.emptyMap();
+        }, MoreExecutors.directExecutor());
     }
 }
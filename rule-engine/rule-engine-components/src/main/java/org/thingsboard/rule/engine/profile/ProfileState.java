@@ -52,6 +52,10 @@ class ProfileState {
     private final List<DeviceProfileAlarm> alarmSettings = new CopyOnWriteArrayList<>();
     @Getter(AccessLevel.PACKAGE)
     private final Set<AlarmConditionFilterKey> entityKeys = ConcurrentHashMap.newKeySet();
+    @Getter(AccessLevel.PACKAGE)
+    private final Set<String> tenantDynamicValueKeys = ConcurrentHashMap.newKeySet();
+    @Getter(AccessLevel.PACKAGE)
+    private final Set<String> customerDynamicValueKeys = ConcurrentHashMap.newKeySet();
 
     private final Map<String, Map<AlarmSeverity, Set<AlarmConditionFilterKey>>> alarmCreateKeys = new HashMap<>();
     private final Map<String, Set<AlarmConditionFilterKey>> alarmClearKeys = new HashMap<>();
@@ -66,6 +70,8 @@ class ProfileState {
         alarmCreateKeys.clear();
         alarmClearKeys.clear();
         entityKeys.clear();
+        tenantDynamicValueKeys.clear();
+        customerDynamicValueKeys.clear();
         if (deviceProfile.getProfileData().getAlarms() != null) {
             alarmSettings.addAll(deviceProfile.getProfileData().getAlarms());
             for (DeviceProfileAlarm alarm : deviceProfile.getProfileData().getAlarms()) {
@@ -99,6 +105,7 @@ class ProfileState {
     private void addScheduleDynamicValues(AlarmSchedule schedule) {
         DynamicValue<String> dynamicValue = schedule.getDynamicValue();
         if (dynamicValue != null) {
+            addDynamicValueSource(dynamicValue);
             entityKeys.add(
                     new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE,
                             dynamicValue.getSourceAttribute())
@@ -117,6 +124,7 @@ class ProfileState {
                 DurationAlarmConditionSpec duration = (DurationAlarmConditionSpec) spec;
                 if(duration.getPredicate().getDynamicValue() != null
                         && duration.getPredicate().getDynamicValue().getSourceAttribute() != null) {
+                    addDynamicValueSource(duration.getPredicate().getDynamicValue());
                     entityKeys.add(
                             new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE,
                                     duration.getPredicate().getDynamicValue().getSourceAttribute())
@@ -127,6 +135,7 @@ class ProfileState {
                 RepeatingAlarmConditionSpec repeating = (RepeatingAlarmConditionSpec) spec;
                 if(repeating.getPredicate().getDynamicValue() != null
                         && repeating.getPredicate().getDynamicValue().getSourceAttribute() != null) {
+                    addDynamicValueSource(repeating.getPredicate().getDynamicValue());
                     entityKeys.add(
                             new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE,
                                     repeating.getPredicate().getDynamicValue().getSourceAttribute())
@@ -149,6 +158,7 @@ class ProfileState {
                     AlarmConditionFilterKey entityKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, value.getSourceAttribute());
                     entityKeys.add(entityKey);
                     ruleKeys.add(entityKey);
+                    addDynamicValueSource(value);
                 }
                 break;
             case COMPLEX:
@@ -159,6 +169,34 @@ class ProfileState {
         }
     }
 
+    /*
+     * Collects the tenant and customer attributes that the dynamic value may be resolved from,
+     * following the same inheritance chain as AlarmConditionEvaluator.getDynamicPredicateValue.
+     */
+    private void addDynamicValueSource(DynamicValue<?> value) {
+        String key = value.getSourceAttribute();
+        if (key == null || value.getSourceType() == null) {
+            return;
+        }
+        switch (value.getSourceType()) {
+            case CURRENT_DEVICE:
+                if (value.isInherit()) {
+                    customerDynamicValueKeys.add(key);
+                    tenantDynamicValueKeys.add(key);
+                }
+                break;
+            case CURRENT_CUSTOMER:
+                customerDynamicValueKeys.add(key);
+                if (value.isInherit()) {
+                    tenantDynamicValueKeys.add(key);
+                }
+                break;
+            case CURRENT_TENANT:
+                tenantDynamicValueKeys.add(key);
+                break;
+        }
+    }
+
     DeviceProfileId getProfileId() {
         return deviceProfile.getId();
     }
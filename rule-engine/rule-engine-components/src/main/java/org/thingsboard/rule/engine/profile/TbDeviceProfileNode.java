@@ -41,6 +41,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -61,10 +62,14 @@ import java.util.concurrent.TimeUnit;
 )
 public class TbDeviceProfileNode implements TbNode {
 
+    static final long STATE_PERSIST_INTERVAL_MS = 1000;
+
     private TbDeviceProfileNodeConfiguration config;
     private RuleEngineDeviceProfileCache cache;
     private TbContext ctx;
     private final Map<DeviceId, DeviceState> deviceStates = new ConcurrentHashMap<>();
+    private final Set<DeviceId> changedStates = ConcurrentHashMap.newKeySet();
+    private volatile boolean destroyed;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
@@ -74,30 +79,51 @@ public class TbDeviceProfileNode implements TbNode {
         scheduleAlarmHarvesting(ctx, null);
         ctx.addDeviceProfileListeners(this::onProfileUpdate, this::onDeviceUpdate);
         initAlarmRuleState(false);
+        if (config.isPersistAlarmRulesState()) {
+            scheduleStatePersistence();
+        }
+    }
+
+    /*
+     * Changed alarm rule states are saved in batches, so that the devices with frequently changing states
+     * are saved at most once per interval and the rule engine thread does not wait for the database.
+     */
+    private void scheduleStatePersistence() {
+        ctx.schedule(() -> ctx.getDbCallbackExecutor().execute(() -> {
+            try {
+                persistChangedStates();
+            } catch (Exception e) {
+                log.warn("[{}] Failed to persist alarm rule states", ctx.getSelfId(), e);
+            }
+            if (!destroyed) {
+                scheduleStatePersistence();
+            }
+        }), STATE_PERSIST_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
+    void persistChangedStates() {
+        for (DeviceId deviceId : changedStates) {
+            changedStates.remove(deviceId);
+            DeviceState state = deviceStates.get(deviceId);
+            if (state != null) {
+                state.persistState(ctx);
+            }
+        }
+    }
+
+    /*
+     * Persisted alarm rule states are fetched in the background, so the node starts processing messages right away.
+     * The state of the device that is not fetched yet is loaded on the first message from the device.
+     */
     private void initAlarmRuleState(boolean printNewlyAddedDeviceStates) {
         if (config.isFetchAlarmRulesStateOnStart()) {
-            log.info("[{}] Fetching alarm rule state", ctx.getSelfId());
-            int fetchCount = 0;
-            PageLink pageLink = new PageLink(1024);
-            while (true) {
-                PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
-                if (!states.getData().isEmpty()) {
-                    for (RuleNodeState rns : states.getData()) {
-                        fetchCount++;
-                        if (rns.getEntityId().getEntityType().equals(EntityType.DEVICE) && ctx.isLocalEntity(rns.getEntityId())) {
-                            getOrCreateDeviceState(ctx, new DeviceId(rns.getEntityId().getId()), rns, printNewlyAddedDeviceStates);
-                        }
-                    }
-                }
-                if (!states.hasNext()) {
-                    break;
-                } else {
-                    pageLink = pageLink.nextPageLink();
+            ctx.getDbCallbackExecutor().execute(() -> {
+                try {
+                    fetchAlarmRuleState(printNewlyAddedDeviceStates);
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to fetch alarm rule state", ctx.getSelfId(), e);
                 }
-            }
-            log.info("[{}] Fetched alarm rule state for {} entities", ctx.getSelfId(), fetchCount);
+            });
         }
         if (!config.isPersistAlarmRulesState() && ctx.isLocalEntity(ctx.getSelfId())) {
             log.debug("[{}] Going to cleanup rule node states", ctx.getSelfId());
@@ -105,6 +131,28 @@ public class TbDeviceProfileNode implements TbNode {
         }
     }
 
+    void fetchAlarmRuleState(boolean printNewlyAddedDeviceStates) {
+        log.info("[{}] Fetching alarm rule state", ctx.getSelfId());
+        long startTs = System.currentTimeMillis();
+        int fetchCount = 0;
+        PageLink pageLink = new PageLink(1024);
+        while (!destroyed) {
+            PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
+            for (RuleNodeState rns : states.getData()) {
+                fetchCount++;
+                if (rns.getEntityId().getEntityType().equals(EntityType.DEVICE) && ctx.isLocalEntity(rns.getEntityId())) {
+                    getOrCreateDeviceState(ctx, new DeviceId(rns.getEntityId().getId()), rns, printNewlyAddedDeviceStates);
+                }
+            }
+            if (!states.hasNext()) {
+                break;
+            } else {
+                pageLink = pageLink.nextPageLink();
+            }
+        }
+        log.info("[{}] Fetched alarm rule state for {} entities in {} ms", ctx.getSelfId(), fetchCount, System.currentTimeMillis() - startTs);
+    }
+
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
         EntityType originatorType = msg.getOriginator().getEntityType();
@@ -148,13 +196,23 @@ public class TbDeviceProfileNode implements TbNode {
     @Override
     public void onPartitionChangeMsg(TbContext ctx, PartitionChangeMsg msg) {
         // Cleanup the cache for all entities that are no longer assigned to current server partitions
-        deviceStates.entrySet().removeIf(entry -> !ctx.isLocalEntity(entry.getKey()));
+        deviceStates.entrySet().removeIf(entry -> {
+            if (ctx.isLocalEntity(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().persistState(ctx);
+            return true;
+        });
         initAlarmRuleState(true);
     }
 
     @Override
     public void destroy() {
+        destroyed = true;
         ctx.removeListeners();
+        if (config.isPersistAlarmRulesState()) {
+            persistChangedStates();
+        }
         deviceStates.clear();
     }
 
@@ -163,8 +221,12 @@ public class TbDeviceProfileNode implements TbNode {
         if (deviceState == null) {
             DeviceProfile deviceProfile = cache.get(ctx.getTenantId(), deviceId);
             if (deviceProfile != null) {
-                deviceState = new DeviceState(ctx, config, deviceId, new ProfileState(deviceProfile), rns);
-                deviceStates.put(deviceId, deviceState);
+                deviceState = new DeviceState(ctx, config, deviceId, new ProfileState(deviceProfile), rns, changedStates::add);
+                DeviceState existingState = deviceStates.putIfAbsent(deviceId, deviceState);
+                if (existingState != null) {
+                    // the state was created concurrently by the message processing or by the alarm rule state fetching
+                    return existingState;
+                }
                 if (printNewlyAddedDeviceStates) {
                     log.info("[{}][{}] Device [{}] was added during PartitionChangeMsg", ctx.getTenantId(), ctx.getSelfId(), deviceId);
                 }
@@ -178,7 +240,7 @@ public class TbDeviceProfileNode implements TbNode {
         ctx.tellSelf(periodicCheck, TimeUnit.MINUTES.toMillis(1));
     }
 
-    protected void harvestAlarms(TbContext ctx, long ts) throws ExecutionException, InterruptedException {
+    protected void harvestAlarms(TbContext ctx, long ts) {
         for (DeviceState state : deviceStates.values()) {
             state.harvestAlarms(ctx, ts);
         }
@@ -237,6 +299,10 @@ public class TbDeviceProfileNode implements TbNode {
 
     private void removeDeviceState(DeviceId deviceId) {
         DeviceState state = deviceStates.remove(deviceId);
+        changedStates.remove(deviceId);
+        if (state != null) {
+            state.onRemoved();
+        }
         if (config.isPersistAlarmRulesState() && (state != null || !config.isFetchAlarmRulesStateOnStart())) {
             ctx.removeRuleNodeStateForEntity(deviceId);
         }
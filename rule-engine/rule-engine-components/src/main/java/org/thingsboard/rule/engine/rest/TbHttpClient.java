@@ -15,6 +15,7 @@
  */
 package org.thingsboard.rule.engine.rest;
 
+import io.micrometer.core.instrument.Timer;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.ssl.SslContext;
@@ -42,6 +43,7 @@ import org.thingsboard.rule.engine.credentials.CredentialsType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.StatsFactory;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.transport.ProxyProvider;
 
@@ -52,8 +54,10 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.Semaphore;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -81,18 +85,28 @@ public class TbHttpClient {
     public static final String PROXY_USER = "tb.proxy.user";
     public static final String PROXY_PASSWORD = "tb.proxy.password";
 
+    static final int DEFAULT_MAX_QUEUED_REQUESTS_COUNT = 10000;
+    private static final String IN_FLIGHT_REQUESTS_GAUGE = "ruleNodeRestApiCall.inFlightRequests";
+    private static final String QUEUED_REQUESTS_GAUGE = "ruleNodeRestApiCall.queuedRequests";
+    private static final String REQUEST_TIME_TIMER = "ruleNodeRestApiCall.requestTime";
+
     private final TbRestApiCallNodeConfiguration config;
 
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+    private final Queue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final int maxQueuedRequests;
+
     private EventLoopGroup eventLoopGroup;
     private WebClient webClient;
-    private Semaphore semaphore;
+    private StatsFactory statsFactory;
+    private String[] statsTags;
+    private Timer requestTimer;
 
     TbHttpClient(TbRestApiCallNodeConfiguration config, EventLoopGroup eventLoopGroupShared) throws TbNodeException {
         try {
             this.config = config;
-            if (config.getMaxParallelRequestsCount() > 0) {
-                semaphore = new Semaphore(config.getMaxParallelRequestsCount());
-            }
+            this.maxQueuedRequests = config.getMaxQueuedRequestsCount() > 0 ? config.getMaxQueuedRequestsCount() : DEFAULT_MAX_QUEUED_REQUESTS_COUNT;
 
             HttpClient httpClient = HttpClient.create()
                     .runOn(getSharedOrCreateEventLoopGroup(eventLoopGroupShared))
@@ -160,25 +174,108 @@ public class TbHttpClient {
     }
 
     void destroy() {
+        PendingRequest request;
+        while ((request = pendingRequests.poll()) != null) {
+            queuedRequests.decrementAndGet();
+            onFailure(request.msg(), request.onFailure(), new RuntimeException("Rest API call node is destroyed!"));
+        }
         if (this.eventLoopGroup != null) {
             this.eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
         }
+        if (this.statsFactory != null) {
+            statsFactory.removeMeters(IN_FLIGHT_REQUESTS_GAUGE, statsTags);
+            statsFactory.removeMeters(QUEUED_REQUESTS_GAUGE, statsTags);
+            statsFactory.removeMeters(REQUEST_TIME_TIMER, statsTags);
+        }
+    }
+
+    void initStats(TbContext ctx) {
+        StatsFactory statsFactory = ctx.getStatsFactory();
+        if (statsFactory == null) {
+            return;
+        }
+        this.statsFactory = statsFactory;
+        this.statsTags = new String[]{"ruleNodeId", ctx.getSelfId().toString()};
+        statsFactory.createGauge(IN_FLIGHT_REQUESTS_GAUGE, inFlightRequests, statsTags);
+        statsFactory.createGauge(QUEUED_REQUESTS_GAUGE, queuedRequests, statsTags);
+        requestTimer = statsFactory.createTimer(REQUEST_TIME_TIMER, statsTags);
     }
 
     public void processMessage(TbContext ctx, TbMsg msg,
                                Consumer<TbMsg> onSuccess,
                                BiConsumer<TbMsg, Throwable> onFailure) {
-        try {
-            if (semaphore != null && !semaphore.tryAcquire(config.getReadTimeoutMs(), TimeUnit.MILLISECONDS)) {
-                ctx.tellFailure(msg, new RuntimeException("Timeout during waiting for reply!"));
+        if (config.getMaxParallelRequestsCount() <= 0) {
+            try {
+                sendRequest(ctx, msg, onSuccess, onFailure);
+            } catch (Exception e) {
+                log.debug("[{}] Failed to send request", msg.getId(), e);
+                onFailure(msg, onFailure, e);
+            }
+            return;
+        }
+        if (queuedRequests.incrementAndGet() > maxQueuedRequests) {
+            queuedRequests.decrementAndGet();
+            onFailure(msg, onFailure, new RuntimeException("Max queued requests count of " + maxQueuedRequests + " reached!"));
+            return;
+        }
+        pendingRequests.add(new PendingRequest(ctx, msg, onSuccess, onFailure, System.nanoTime()));
+        processPendingRequests();
+    }
+
+    /*
+     * Messages that exceed the parallel requests limit are parked in the queue instead of blocking the rule node thread.
+     * The queue is drained by the caller and by the completion of the in-flight requests.
+     */
+    private void processPendingRequests() {
+        while (!pendingRequests.isEmpty()) {
+            int inFlight = inFlightRequests.get();
+            if (inFlight >= config.getMaxParallelRequestsCount()) {
                 return;
             }
+            if (!inFlightRequests.compareAndSet(inFlight, inFlight + 1)) {
+                continue;
+            }
+            PendingRequest request = pendingRequests.poll();
+            if (request == null) {
+                inFlightRequests.decrementAndGet();
+                continue;
+            }
+            queuedRequests.decrementAndGet();
+            if (System.nanoTime() - request.enqueuedTs() > TimeUnit.MILLISECONDS.toNanos(config.getReadTimeoutMs())) {
+                inFlightRequests.decrementAndGet();
+                onFailure(request.msg(), request.onFailure(), new RuntimeException("Timeout during waiting for reply!"));
+                continue;
+            }
+            try {
+                sendRequest(request.ctx(), request.msg(), request.onSuccess(), request.onFailure());
+            } catch (Exception e) {
+                log.debug("[{}] Failed to send request", request.msg().getId(), e);
+                onFailure(request.msg(), request.onFailure(), e);
+            }
+        }
+    }
+
+    private void onRequestCompleted(long startTs) {
+        if (requestTimer != null) {
+            requestTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+        }
+        if (config.getMaxParallelRequestsCount() > 0) {
+            inFlightRequests.decrementAndGet();
+            processPendingRequests();
+        }
+    }
 
+    private void sendRequest(TbContext ctx, TbMsg msg,
+                             Consumer<TbMsg> onSuccess,
+                             BiConsumer<TbMsg, Throwable> onFailure) {
+        long startTs = System.nanoTime();
+        RequestBodySpec request;
+        try {
             String endpointUrl = TbNodeUtils.processPattern(config.getRestEndpointUrlPattern(), msg);
             HttpMethod method = HttpMethod.valueOf(config.getRequestMethod());
             URI uri = buildEncodedUri(endpointUrl);
 
-            RequestBodySpec request = webClient
+            request = webClient
                     .method(method)
                     .uri(uri)
                     .headers(headers -> prepareHeaders(headers, msg));
@@ -188,30 +285,34 @@ public class TbHttpClient {
                     !config.isIgnoreRequestBody()) {
                 request.body(BodyInserters.fromValue(getData(msg, config.isIgnoreRequestBody(), config.isParseToPlainText())));
             }
+        } catch (RuntimeException e) {
+            onRequestCompleted(startTs);
+            throw e;
+        }
 
-            request
-                    .retrieve()
-                    .toEntity(String.class)
-                    .subscribe(responseEntity -> {
-                        if (semaphore != null) {
-                            semaphore.release();
-                        }
-
-                        if (responseEntity.getStatusCode().is2xxSuccessful()) {
-                            onSuccess.accept(processResponse(ctx, msg, responseEntity));
-                        } else {
-                            onFailure.accept(processFailureResponse(msg, responseEntity), null);
-                        }
-                    }, throwable -> {
-                        if (semaphore != null) {
-                            semaphore.release();
-                        }
+        request
+                .retrieve()
+                .toEntity(String.class)
+                .subscribe(responseEntity -> {
+                    onRequestCompleted(startTs);
+
+                    if (responseEntity.getStatusCode().is2xxSuccessful()) {
+                        onSuccess.accept(processResponse(ctx, msg, responseEntity));
+                    } else {
+                        onFailure.accept(processFailureResponse(msg, responseEntity), null);
+                    }
+                }, throwable -> {
+                    onRequestCompleted(startTs);
+
+                    onFailure(msg, onFailure, throwable);
+                });
+    }
 
-                        onFailure.accept(processException(msg, throwable), throwable);
-                    });
-        } catch (InterruptedException e) {
-            log.warn("Timeout during waiting for reply!", e);
-        }
+    /*
+     * Every failure that is not a response of the server is reported the same way, with the error in the metadata.
+     */
+    private void onFailure(TbMsg msg, BiConsumer<TbMsg, Throwable> onFailure, Throwable e) {
+        onFailure.accept(processException(msg, e), e);
     }
 
     public URI buildEncodedUri(String endpointUrl) {
@@ -381,4 +482,10 @@ public class TbHttpClient {
         }
     }
 
+    private record PendingRequest(TbContext ctx, TbMsg msg,
+                                  Consumer<TbMsg> onSuccess,
+                                  BiConsumer<TbMsg, Throwable> onFailure,
+                                  long enqueuedTs) {
+    }
+
 }
@@ -58,6 +58,7 @@ public class TbRestApiCallNode extends TbAbstractExternalNode {
         super.init(ctx);
         TbRestApiCallNodeConfiguration config = TbNodeUtils.convert(configuration, TbRestApiCallNodeConfiguration.class);
         httpClient = new TbHttpClient(config, ctx.getSharedEventLoop());
+        httpClient.initStats(ctx);
         if (config.isUseRedisQueueForMsgPersistence()) {
             log.warn("[{}][{}] Usage of Redis Template is deprecated starting 2.5 and will have no affect", ctx.getTenantId(), ctx.getSelfId());
         }
@@ -36,6 +36,7 @@ public class TbRestApiCallNodeConfiguration implements NodeConfiguration<TbRestA
     private boolean useSimpleClientHttpFactory;
     private int readTimeoutMs;
     private int maxParallelRequestsCount;
+    private int maxQueuedRequestsCount;
     private boolean useRedisQueueForMsgPersistence;
     private boolean parseToPlainText;
     private boolean enableProxy;
@@ -57,6 +58,7 @@ public class TbRestApiCallNodeConfiguration implements NodeConfiguration<TbRestA
         configuration.setUseSimpleClientHttpFactory(false);
         configuration.setReadTimeoutMs(0);
         configuration.setMaxParallelRequestsCount(0);
+        configuration.setMaxQueuedRequestsCount(TbHttpClient.DEFAULT_MAX_QUEUED_REQUESTS_COUNT);
         configuration.setUseRedisQueueForMsgPersistence(false);
         configuration.setParseToPlainText(false);
         configuration.setEnableProxy(false);
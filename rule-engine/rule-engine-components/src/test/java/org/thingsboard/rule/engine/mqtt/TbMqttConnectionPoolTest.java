@@ -0,0 +1,176 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.mqtt.MqttClient;
+import org.thingsboard.mqtt.MqttClientConfig;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbMqttConnectionPoolTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+
+    @Test
+    public void givenSameConnectionSettings_whenAcquire_thenConnectionIsShared() throws Exception {
+        TbMqttConnectionPool pool = new TbMqttConnectionPool();
+        MqttClient client = newClient();
+        AtomicInteger created = new AtomicInteger();
+
+        var first = pool.acquire(newKey("localhost"), "first", () -> {
+            created.incrementAndGet();
+            return client;
+        });
+        var second = pool.acquire(newKey("localhost"), "second", () -> {
+            created.incrementAndGet();
+            return client;
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(pool.getConnectionsCount()).isEqualTo(1);
+        assertThat(first.getOwnerId()).isEqualTo("first,second");
+
+        pool.release(first, "first");
+        verify(client, never()).disconnect();
+        assertThat(second.getOwnerId()).isEqualTo("second");
+        pool.release(second, "second");
+        verify(client, times(1)).disconnect();
+        assertThat(pool.getConnectionsCount()).isZero();
+    }
+
+    @Test
+    public void givenDifferentConnectionSettings_whenAcquire_thenSeparateConnectionsAreCreated() throws Exception {
+        TbMqttConnectionPool pool = new TbMqttConnectionPool();
+
+        var first = pool.acquire(newKey("host-a"), "first", this::newClient);
+        var second = pool.acquire(newKey("host-b"), "second", this::newClient);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(pool.getConnectionsCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenConnectFailure_whenAcquire_thenConnectionIsNotKept() {
+        TbMqttConnectionPool pool = new TbMqttConnectionPool();
+
+        assertThatThrownBy(() -> pool.acquire(newKey("localhost"), "first", () -> {
+            throw new RuntimeException("Failed to connect to MQTT broker");
+        })).isInstanceOf(RuntimeException.class);
+        assertThat(pool.getConnectionsCount()).isZero();
+    }
+
+    @Test
+    public void givenInFlightWindowIsFull_whenPublish_thenMessageIsSentAfterAck() throws Exception {
+        TbMqttConnectionPool pool = new TbMqttConnectionPool(2, TbMqttConnectionPool.DEFAULT_MAX_PENDING_PUBLISHES);
+        MqttClient client = newClient();
+        List<Promise<Void>> brokerAcks = new ArrayList<>();
+        when(client.publish(anyString(), any(), any(), anyBoolean())).then(invocation -> {
+            Promise<Void> ack = ImmediateEventExecutor.INSTANCE.newPromise();
+            brokerAcks.add(ack);
+            return ack;
+        });
+        var connection = pool.acquire(newKey("localhost"), "first", () -> client);
+
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(connection.publish("topic", Unpooled.wrappedBuffer(new byte[]{1}), MqttQoS.AT_LEAST_ONCE, false));
+        }
+
+        assertThat(brokerAcks).hasSize(2);
+        assertThat(connection.getInFlightPublishes()).isEqualTo(2);
+        assertThat(connection.getPendingPublishes()).isEqualTo(1);
+
+        brokerAcks.get(0).setSuccess(null);
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(brokerAcks).hasSize(3);
+        assertThat(connection.getPendingPublishes()).isZero();
+
+        brokerAcks.get(1).setSuccess(null);
+        brokerAcks.get(2).setFailure(new RuntimeException("Channel closed"));
+        assertThat(results.get(1).isSuccess()).isTrue();
+        assertThat(results.get(2).isSuccess()).isFalse();
+        assertThat(connection.getInFlightPublishes()).isZero();
+    }
+
+    @Test
+    public void givenPendingQueueIsFull_whenPublish_thenPublishIsRejected() throws Exception {
+        TbMqttConnectionPool pool = new TbMqttConnectionPool(1, 1);
+        MqttClient client = newClient();
+        when(client.publish(anyString(), any(), any(), anyBoolean())).then(invocation -> ImmediateEventExecutor.INSTANCE.newPromise());
+        var connection = pool.acquire(newKey("localhost"), "first", () -> client);
+
+        connection.publish("topic", Unpooled.wrappedBuffer(new byte[]{1}), MqttQoS.AT_LEAST_ONCE, false);
+        connection.publish("topic", Unpooled.wrappedBuffer(new byte[]{1}), MqttQoS.AT_LEAST_ONCE, false);
+        ByteBuf payload = Unpooled.wrappedBuffer(new byte[]{1});
+        Future<Void> rejected = connection.publish("topic", payload, MqttQoS.AT_LEAST_ONCE, false);
+
+        assertThat(rejected.isDone()).isTrue();
+        assertThat(rejected.cause()).isInstanceOf(IllegalStateException.class);
+        assertThat(payload.refCnt()).isZero();
+        assertThat(connection.getInFlightPublishes()).isEqualTo(1);
+        assertThat(connection.getPendingPublishes()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenDifferentConnectTimeout_whenAcquire_thenSeparateConnectionsAreCreated() throws Exception {
+        TbMqttConnectionPool pool = new TbMqttConnectionPool();
+
+        var first = pool.acquire(newKey("localhost", 10), "first", this::newClient);
+        var second = pool.acquire(newKey("localhost", 30), "second", this::newClient);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(pool.getConnectionsCount()).isEqualTo(2);
+    }
+
+    private TbMqttConnectionPool.ConnectionKey newKey(String host) {
+        return newKey(host, 10);
+    }
+
+    private TbMqttConnectionPool.ConnectionKey newKey(String host, int connectTimeoutSec) {
+        return new TbMqttConnectionPool.ConnectionKey(tenantId, TbMqttNode.class.getName(), host, 1883, connectTimeoutSec, null,
+                true, false, "{\"type\":\"anonymous\"}");
+    }
+
+    private MqttClient newClient() {
+        MqttClient client = mock(MqttClient.class);
+        when(client.getClientConfig()).thenReturn(new MqttClientConfig());
+        return client;
+    }
+
+}
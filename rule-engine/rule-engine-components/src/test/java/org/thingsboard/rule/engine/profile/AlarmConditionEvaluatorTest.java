@@ -0,0 +1,150 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.device.profile.AlarmCondition;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilter;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.DynamicValue;
+import org.thingsboard.server.common.data.query.DynamicValueSourceType;
+import org.thingsboard.server.common.data.query.EntityKeyValueType;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AlarmConditionEvaluatorTest {
+
+    private final AlarmConditionFilterKey temperatureKey = new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature");
+    private final AlarmConditionFilterKey stateKey = new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "state");
+    private final AlarmConditionFilterKey thresholdKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, "threshold");
+
+    @Test
+    public void givenNumericAndStringConditions_whenEval_thenAllFiltersMustMatch() {
+        StringFilterPredicate statePredicate = new StringFilterPredicate();
+        statePredicate.setOperation(StringFilterPredicate.StringOperation.IN);
+        statePredicate.setValue(new FilterPredicateValue<>("Overheated,Failed"));
+        statePredicate.setIgnoreCase(true);
+        AlarmConditionEvaluator evaluator = AlarmConditionEvaluator.compile(newCondition(
+                newFilter(temperatureKey, EntityKeyValueType.NUMERIC, numericPredicate(NumericFilterPredicate.NumericOperation.GREATER, new FilterPredicateValue<>(30.0))),
+                newFilter(stateKey, EntityKeyValueType.STRING, statePredicate)));
+
+        DataSnapshot data = newSnapshot();
+        data.putValue(temperatureKey, 1L, EntityKeyValue.fromLong(35));
+        assertThat(evaluator.eval(data, null)).isFalse();
+
+        data.putValue(stateKey, 1L, EntityKeyValue.fromString("OVERHEATED"));
+        assertThat(evaluator.eval(data, null)).isTrue();
+
+        data.putValue(temperatureKey, 2L, EntityKeyValue.fromString("25.5"));
+        assertThat(evaluator.eval(data, null)).isFalse();
+    }
+
+    @Test
+    public void givenComplexPredicate_whenEval_thenChildPredicatesAreCombined() {
+        ComplexFilterPredicate predicate = new ComplexFilterPredicate();
+        predicate.setOperation(ComplexFilterPredicate.ComplexOperation.OR);
+        predicate.setPredicates(List.of(
+                numericPredicate(NumericFilterPredicate.NumericOperation.LESS, new FilterPredicateValue<>(0.0)),
+                numericPredicate(NumericFilterPredicate.NumericOperation.GREATER_OR_EQUAL, new FilterPredicateValue<>(40.0))));
+        AlarmConditionEvaluator evaluator = AlarmConditionEvaluator.compile(newCondition(newFilter(temperatureKey, EntityKeyValueType.NUMERIC, predicate)));
+
+        DataSnapshot data = newSnapshot();
+        data.putValue(temperatureKey, 1L, EntityKeyValue.fromDouble(20.0));
+        assertThat(evaluator.eval(data, null)).isFalse();
+        data.putValue(temperatureKey, 2L, EntityKeyValue.fromDouble(40.0));
+        assertThat(evaluator.eval(data, null)).isTrue();
+        data.putValue(temperatureKey, 3L, EntityKeyValue.fromDouble(-1.0));
+        assertThat(evaluator.eval(data, null)).isTrue();
+    }
+
+    @Test
+    public void givenDynamicValue_whenEval_thenDeviceTenantAndDefaultValuesAreUsed() {
+        DynamicValue<Double> dynamicValue = new DynamicValue<>(DynamicValueSourceType.CURRENT_DEVICE, "threshold", true);
+        AlarmConditionEvaluator evaluator = AlarmConditionEvaluator.compile(newCondition(newFilter(temperatureKey, EntityKeyValueType.NUMERIC,
+                numericPredicate(NumericFilterPredicate.NumericOperation.GREATER, new FilterPredicateValue<>(50.0, null, dynamicValue)))));
+        DynamicPredicateValueCtx ctx = mock(DynamicPredicateValueCtx.class);
+
+        DataSnapshot data = newSnapshot();
+        data.putValue(temperatureKey, 1L, EntityKeyValue.fromDouble(45.0));
+        assertThat(evaluator.eval(data, ctx)).isFalse();
+
+        when(ctx.getTenantValue("threshold")).thenReturn(EntityKeyValue.fromDouble(40.0));
+        assertThat(evaluator.eval(data, ctx)).isTrue();
+
+        data.putValue(thresholdKey, 1L, EntityKeyValue.fromLong(48));
+        assertThat(evaluator.eval(data, ctx)).isFalse();
+    }
+
+    @Test
+    public void givenConstantKey_whenEval_thenConstantValueIsCompared() {
+        AlarmConditionFilter filter = newFilter(new AlarmConditionFilterKey(AlarmConditionKeyType.CONSTANT, "limit"), EntityKeyValueType.NUMERIC,
+                numericPredicate(NumericFilterPredicate.NumericOperation.LESS, new FilterPredicateValue<>(null, null,
+                        new DynamicValue<>(DynamicValueSourceType.CURRENT_DEVICE, "threshold"))));
+        filter.setValue(100);
+        AlarmConditionEvaluator evaluator = AlarmConditionEvaluator.compile(newCondition(filter));
+
+        DataSnapshot data = newSnapshot();
+        assertThat(evaluator.eval(data, null)).isFalse();
+        data.putValue(thresholdKey, 1L, EntityKeyValue.fromLong(150));
+        assertThat(evaluator.eval(data, null)).isTrue();
+    }
+
+    @Test
+    public void givenSameCondition_whenGetEvaluator_thenEvaluatorIsShared() {
+        AlarmCondition condition = newCondition(newFilter(temperatureKey, EntityKeyValueType.NUMERIC,
+                numericPredicate(NumericFilterPredicate.NumericOperation.GREATER, new FilterPredicateValue<>(30.0))));
+
+        assertThat(AlarmConditionEvaluator.of(condition)).isSameAs(AlarmConditionEvaluator.of(condition));
+        assertThat(AlarmConditionEvaluator.of(condition)).isNotSameAs(AlarmConditionEvaluator.of(newCondition(condition.getCondition().get(0))));
+    }
+
+    private DataSnapshot newSnapshot() {
+        return new DataSnapshot(Set.of(temperatureKey, stateKey, thresholdKey));
+    }
+
+    private static NumericFilterPredicate numericPredicate(NumericFilterPredicate.NumericOperation operation, FilterPredicateValue<Double> value) {
+        NumericFilterPredicate predicate = new NumericFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(value);
+        return predicate;
+    }
+
+    private static AlarmConditionFilter newFilter(AlarmConditionFilterKey key, EntityKeyValueType valueType, KeyFilterPredicate predicate) {
+        AlarmConditionFilter filter = new AlarmConditionFilter();
+        filter.setKey(key);
+        filter.setValueType(valueType);
+        filter.setPredicate(predicate);
+        return filter;
+    }
+
+    private static AlarmCondition newCondition(AlarmConditionFilter... filters) {
+        AlarmCondition condition = new AlarmCondition();
+        condition.setCondition(List.of(filters));
+        return condition;
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.server.common.data.device.profile.AlarmCondition;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilter;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionSpec;
+import org.thingsboard.server.common.data.device.profile.AlarmRule;
+import org.thingsboard.server.common.data.device.profile.DurationAlarmConditionSpec;
+import org.thingsboard.server.common.data.device.profile.SimpleAlarmConditionSpec;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.EntityKeyValueType;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of the device profile alarm rules.
+ * <p>
+ * Run with {@code mvn test-compile} in rule-engine-components and the {@link #main(String[])} method
+ * from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main AlarmRuleStateBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmRuleStateBenchmark {
+
+    @Param({"10", "50"})
+    private int rulesCount;
+
+    @Param({"200"})
+    private int keysCount;
+
+    private DataSnapshot snapshot;
+    private AlarmRuleState numericRule;
+    private AlarmRuleState stringRule;
+    private AlarmRuleState durationRule;
+    private List<AlarmRuleState> profileRules;
+    private Set<AlarmConditionFilterKey> changedKeys;
+    private long ts;
+
+    @Setup
+    public void setup() {
+        Set<AlarmConditionFilterKey> keys = new HashSet<>();
+        for (int i = 0; i < keysCount; i++) {
+            keys.add(tsKey("temperature" + i));
+        }
+        keys.add(tsKey("state"));
+        snapshot = new DataSnapshot(keys);
+        ts = System.currentTimeMillis();
+        for (int i = 0; i < keysCount; i++) {
+            snapshot.putValue(tsKey("temperature" + i), ts, EntityKeyValue.fromDouble(20 + i % 30));
+        }
+        snapshot.putValue(tsKey("state"), ts, EntityKeyValue.fromString("Overheated"));
+        snapshot.setTs(ts);
+
+        numericRule = newRuleState(new SimpleAlarmConditionSpec(), numericFilter("temperature0", NumericFilterPredicate.NumericOperation.GREATER, 10));
+        stringRule = newRuleState(new SimpleAlarmConditionSpec(), stringFilter("state", StringFilterPredicate.StringOperation.IN, "overloaded,overheated,failed"));
+        DurationAlarmConditionSpec durationSpec = new DurationAlarmConditionSpec();
+        durationSpec.setUnit(TimeUnit.MINUTES);
+        durationSpec.setPredicate(new FilterPredicateValue<>(5L));
+        durationRule = newRuleState(durationSpec, numericFilter("temperature1", NumericFilterPredicate.NumericOperation.GREATER_OR_EQUAL, 10));
+
+        profileRules = new ArrayList<>(rulesCount);
+        for (int i = 0; i < rulesCount; i++) {
+            String key = "temperature" + (i * 7 % keysCount);
+            profileRules.add(newRuleState(new SimpleAlarmConditionSpec(), rangeFilter(key, 0, 40)));
+        }
+        changedKeys = Set.of(tsKey("temperature0"), tsKey("temperature1"));
+    }
+
+    @Benchmark
+    public AlarmEvalResult numericCondition() {
+        return numericRule.eval(snapshot);
+    }
+
+    @Benchmark
+    public AlarmEvalResult stringCondition() {
+        return stringRule.eval(snapshot);
+    }
+
+    @Benchmark
+    public AlarmEvalResult durationCondition() {
+        snapshot.setTs(++ts);
+        return durationRule.eval(snapshot);
+    }
+
+    @Benchmark
+    public void profileUpdate(Blackhole blackhole) {
+        for (AlarmRuleState ruleState : profileRules) {
+            if (ruleState.validateTsUpdate(changedKeys)) {
+                blackhole.consume(ruleState.eval(snapshot));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AlarmRuleStateBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static AlarmRuleState newRuleState(AlarmConditionSpec spec, AlarmConditionFilter filter) {
+        AlarmCondition condition = new AlarmCondition();
+        condition.setSpec(spec);
+        condition.setCondition(List.of(filter));
+        AlarmRule rule = new AlarmRule();
+        rule.setCondition(condition);
+        return new AlarmRuleState(null, rule, Set.of(filter.getKey()), null, null);
+    }
+
+    private static AlarmConditionFilter numericFilter(String key, NumericFilterPredicate.NumericOperation operation, double value) {
+        return newFilter(key, EntityKeyValueType.NUMERIC, numericPredicate(operation, value));
+    }
+
+    private static AlarmConditionFilter rangeFilter(String key, double min, double max) {
+        ComplexFilterPredicate predicate = new ComplexFilterPredicate();
+        predicate.setOperation(ComplexFilterPredicate.ComplexOperation.OR);
+        predicate.setPredicates(List.of(
+                numericPredicate(NumericFilterPredicate.NumericOperation.LESS, min),
+                numericPredicate(NumericFilterPredicate.NumericOperation.GREATER, max)));
+        return newFilter(key, EntityKeyValueType.NUMERIC, predicate);
+    }
+
+    private static AlarmConditionFilter stringFilter(String key, StringFilterPredicate.StringOperation operation, String value) {
+        StringFilterPredicate predicate = new StringFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(new FilterPredicateValue<>(value));
+        predicate.setIgnoreCase(true);
+        return newFilter(key, EntityKeyValueType.STRING, predicate);
+    }
+
+    private static NumericFilterPredicate numericPredicate(NumericFilterPredicate.NumericOperation operation, double value) {
+        NumericFilterPredicate predicate = new NumericFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(new FilterPredicateValue<>(value));
+        return predicate;
+    }
+
+    private static AlarmConditionFilter newFilter(String key, EntityKeyValueType valueType, KeyFilterPredicate predicate) {
+        AlarmConditionFilter filter = new AlarmConditionFilter();
+        filter.setKey(tsKey(key));
+        filter.setValueType(valueType);
+        filter.setPredicate(predicate);
+        return filter;
+    }
+
+    private static AlarmConditionFilterKey tsKey(String key) {
+        return new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, key);
+    }
+
+}
@@ -16,10 +16,14 @@
 package org.thingsboard.rule.engine.profile;
 
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ListeningExecutor;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.server.common.data.AttributeScope;
@@ -36,9 +40,11 @@ import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
 import org.thingsboard.server.common.data.device.profile.AlarmRule;
 import org.thingsboard.server.common.data.device.profile.DeviceProfileAlarm;
 import org.thingsboard.server.common.data.device.profile.DeviceProfileData;
+import org.thingsboard.server.common.data.device.profile.RepeatingAlarmConditionSpec;
 import org.thingsboard.server.common.data.device.profile.SimpleAlarmConditionSpec;
 import org.thingsboard.server.common.data.id.AlarmId;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
 import org.thingsboard.server.common.data.query.EntityKeyValueType;
@@ -48,20 +54,25 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -91,6 +102,7 @@ public class DeviceStateTest {
                     .build();
         });
         when(ctx.getAlarmService()).thenReturn(alarmService);
+        when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
 
         when(ctx.newMsg(any(), any(TbMsgType.class), any(), any(), any(), any())).thenAnswer(invocationOnMock -> {
             TbMsgType type = invocationOnMock.getArgument(1);
@@ -147,15 +159,121 @@ public class DeviceStateTest {
     }
 
 
+    @Test
+    public void whenLatestValuesAreFetched_thenMessagesAreQueuedAndProcessedInOrder() throws Exception {
+        SettableFuture<List<AttributeKvEntry>> attributesFuture = SettableFuture.create();
+        when(ctx.getAttributesService().find(any(), any(), any(AttributeScope.class), anyCollection())).thenReturn(attributesFuture);
+
+        DeviceProfileAlarm alarmConfig = createAlarmConfigWithBoolAttrCondition("enabled", false);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        DeviceState deviceState = createDeviceState(deviceId, alarmConfig);
+
+        TbMsg firstMsg = TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": true }");
+        TbMsg secondMsg = TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": false }");
+        deviceState.process(ctx, firstMsg);
+        deviceState.process(ctx, secondMsg);
+        verify(ctx, never()).tellSuccess(any());
+
+        attributesFuture.set(Collections.emptyList());
+
+        InOrder inOrder = inOrder(ctx);
+        inOrder.verify(ctx).tellSuccess(firstMsg);
+        inOrder.verify(ctx).enqueueForTellNext(any(), eq("Alarm Created"));
+        inOrder.verify(ctx).tellSuccess(secondMsg);
+        verify(ctx, never()).tellFailure(any(), any());
+    }
+
+    @Test
+    public void whenPendingMsgsLimitIsReached_thenNewMsgsAreFailed() throws Exception {
+        SettableFuture<List<AttributeKvEntry>> attributesFuture = SettableFuture.create();
+        when(ctx.getAttributesService().find(any(), any(), any(AttributeScope.class), anyCollection())).thenReturn(attributesFuture);
+
+        DeviceProfileAlarm alarmConfig = createAlarmConfigWithBoolAttrCondition("enabled", false);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        DeviceState deviceState = createDeviceState(deviceId, alarmConfig);
+
+        for (int i = 0; i < DeviceState.MAX_PENDING_MSGS; i++) {
+            deviceState.process(ctx, TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": true }"));
+        }
+        TbMsg overflowMsg = TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": true }");
+        deviceState.process(ctx, overflowMsg);
+        verify(ctx).tellFailure(eq(overflowMsg), any());
+
+        attributesFuture.set(Collections.emptyList());
+        verify(ctx, times(DeviceState.MAX_PENDING_MSGS)).tellSuccess(any());
+        verify(ctx, times(1)).tellFailure(any(), any());
+    }
+
+    @Test
+    public void whenAlarmIsCreatedAsynchronously_thenNextMsgIsProcessedAfterIt() throws Exception {
+        SettableFuture<AlarmApiCallResult> createFuture = SettableFuture.create();
+        ListeningExecutor dbCallbackExecutor = mock(ListeningExecutor.class);
+        when(dbCallbackExecutor.executeAsync(any(Callable.class))).thenAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            Object result = task.call();
+            return result instanceof AlarmApiCallResult ? createFuture : Futures.immediateFuture(result);
+        });
+        when(ctx.getDbCallbackExecutor()).thenReturn(dbCallbackExecutor);
+
+        DeviceProfileAlarm alarmConfig = createAlarmConfigWithBoolAttrCondition("enabled", false);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        DeviceState deviceState = createDeviceState(deviceId, alarmConfig);
+
+        TbMsg firstMsg = TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": false }");
+        TbMsg secondMsg = TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": true }");
+        deviceState.process(ctx, firstMsg);
+        deviceState.process(ctx, secondMsg);
+        verify(ctx, never()).tellSuccess(any());
+
+        createFuture.set(AlarmApiCallResult.builder()
+                .successful(true)
+                .created(true)
+                .modified(true)
+                .alarm(new AlarmInfo(new Alarm(new AlarmId(UUID.randomUUID()))))
+                .build());
+
+        InOrder inOrder = inOrder(ctx);
+        inOrder.verify(ctx).enqueueForTellNext(any(), eq("Alarm Created"));
+        inOrder.verify(ctx).tellSuccess(firstMsg);
+        inOrder.verify(ctx).tellSuccess(secondMsg);
+        verify(ctx, never()).tellFailure(any(), any());
+    }
+
+    @Test
+    public void whenStateChangeListenerIsSet_thenStateIsSavedOnPersist() throws Exception {
+        TbDeviceProfileNodeConfiguration config = new TbDeviceProfileNodeConfiguration();
+        config.setPersistAlarmRulesState(true);
+        when(ctx.saveRuleNodeState(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DeviceProfileAlarm alarmConfig = createAlarmConfigWithBoolAttrCondition("enabled", false);
+        RepeatingAlarmConditionSpec repeatingSpec = new RepeatingAlarmConditionSpec();
+        repeatingSpec.setPredicate(new FilterPredicateValue<>(2));
+        alarmConfig.getCreateRules().get(AlarmSeverity.CRITICAL).getCondition().setSpec(repeatingSpec);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<DeviceId> changedStates = new ArrayList<>();
+        DeviceState deviceState = new DeviceState(ctx, config, deviceId, createProfileState(alarmConfig), null, changedStates::add);
+
+        deviceState.process(ctx, TbMsg.newMsg(TbMsgType.POST_ATTRIBUTES_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{ \"enabled\": false }"));
+        verify(ctx, never()).enqueueForTellNext(any(), eq("Alarm Created"));
+        assertThat(changedStates).containsExactly(deviceId);
+        verify(ctx, never()).saveRuleNodeState(any());
+
+        deviceState.persistState(ctx);
+        deviceState.persistState(ctx);
+        verify(ctx, times(1)).saveRuleNodeState(any());
+    }
+
     private DeviceState createDeviceState(DeviceId deviceId, DeviceProfileAlarm... alarmConfigs) {
+        return new DeviceState(ctx, new TbDeviceProfileNodeConfiguration(),
+                deviceId, createProfileState(alarmConfigs), null);
+    }
+
+    private ProfileState createProfileState(DeviceProfileAlarm... alarmConfigs) {
         DeviceProfile deviceProfile = new DeviceProfile();
         DeviceProfileData profileData = new DeviceProfileData();
         profileData.setAlarms(List.of(alarmConfigs));
         deviceProfile.setProfileData(profileData);
-
-        ProfileState profileState = new ProfileState(deviceProfile);
-        return new DeviceState(ctx, new TbDeviceProfileNodeConfiguration(),
-                deviceId, profileState, null);
+        return new ProfileState(deviceProfile);
     }
 
     private DeviceProfileAlarm createAlarmConfigWithBoolAttrCondition(String key, boolean value) {
@@ -20,10 +20,13 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ListeningExecutor;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceProfileCache;
 import org.thingsboard.rule.engine.api.TbContext;
@@ -55,12 +58,14 @@ import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
 import org.thingsboard.server.common.data.query.DynamicValue;
 import org.thingsboard.server.common.data.query.DynamicValueSourceType;
 import org.thingsboard.server.common.data.query.EntityKeyValueType;
 import org.thingsboard.server.common.data.query.FilterPredicateValue;
 import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
@@ -76,7 +81,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -412,7 +416,7 @@ public class TbDeviceProfileNodeTest {
         attributeKvEntity.setLastUpdateTs(System.currentTimeMillis());
 
         AttributeKvEntry entry = attributeKvEntity.toData();
-        ListenableFuture<Optional<AttributeKvEntry>> attrListListenableFuture = Futures.immediateFuture(Optional.of(entry));
+        ListenableFuture<List<AttributeKvEntry>> attrListListenableFuture = Futures.immediateFuture(Collections.singletonList(entry));
 
         AlarmConditionFilter alarmEnabledFilter = new AlarmConditionFilter();
         alarmEnabledFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.CONSTANT, "alarmEnabled"));
@@ -457,9 +461,9 @@ public class TbDeviceProfileNodeTest {
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(Futures.immediateFuture(Collections.emptyList()));
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(Futures.immediateFuture(Optional.empty()));
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anySet()))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(attrListListenableFuture);
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
@@ -696,12 +700,12 @@ public class TbDeviceProfileNodeTest {
 
         AttributeKvEntry alarmDelayAttributeKvEntry = alarmDelayAttributeKvEntity.toData();
 
-        ListenableFuture<Optional<AttributeKvEntry>> optionalDurationAttribute =
-                Futures.immediateFuture(Optional.of(alarmDelayAttributeKvEntry));
+        ListenableFuture<List<AttributeKvEntry>> optionalDurationAttribute =
+                Futures.immediateFuture(Collections.singletonList(alarmDelayAttributeKvEntry));
         ListenableFuture<List<AttributeKvEntry>> listNoDurationAttribute =
                 Futures.immediateFuture(Collections.singletonList(entry));
-        ListenableFuture<Optional<AttributeKvEntry>> emptyOptional =
-                Futures.immediateFuture(Optional.empty());
+        ListenableFuture<List<AttributeKvEntry>> emptyList =
+                Futures.immediateFuture(Collections.emptyList());
 
         AlarmConditionFilter highTempFilter = new AlarmConditionFilter();
         highTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
@@ -745,12 +749,12 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(null);
         registerCreateAlarmMock(alarmService.createAlarm(any()), true);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(optionalDurationAttribute);
         Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
                 .thenReturn(device);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(emptyOptional);
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anySet()))
+                .thenReturn(emptyList);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listNoDurationAttribute);
 
@@ -926,12 +930,12 @@ public class TbDeviceProfileNodeTest {
 
         AttributeKvEntry alarmDelayAttributeKvEntry = alarmDelayAttributeKvEntity.toData();
 
-        ListenableFuture<Optional<AttributeKvEntry>> optionalDurationAttribute =
-                Futures.immediateFuture(Optional.of(alarmDelayAttributeKvEntry));
+        ListenableFuture<List<AttributeKvEntry>> optionalDurationAttribute =
+                Futures.immediateFuture(Collections.singletonList(alarmDelayAttributeKvEntry));
         ListenableFuture<List<AttributeKvEntry>> listNoDurationAttribute =
                 Futures.immediateFuture(Collections.singletonList(entry));
-        ListenableFuture<Optional<AttributeKvEntry>> emptyOptional =
-                Futures.immediateFuture(Optional.empty());
+        ListenableFuture<List<AttributeKvEntry>> emptyList =
+                Futures.immediateFuture(Collections.emptyList());
 
         AlarmConditionFilter highTempFilter = new AlarmConditionFilter();
         highTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
@@ -974,12 +978,12 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(null);
         registerCreateAlarmMock(alarmService.createAlarm(any()), true);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(optionalDurationAttribute);
         Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
                 .thenReturn(device);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
-                .thenReturn(emptyOptional);
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anySet()))
+                .thenReturn(emptyList);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listNoDurationAttribute);
 
@@ -1397,8 +1401,8 @@ public class TbDeviceProfileNodeTest {
         AttributeKvEntry entry = attributeKvEntity.toData();
         ListenableFuture<List<AttributeKvEntry>> listListenableFutureWithLess =
                 Futures.immediateFuture(Collections.emptyList());
-        ListenableFuture<Optional<AttributeKvEntry>> optionalListenableFutureWithLess =
-                Futures.immediateFuture(Optional.of(entry));
+        ListenableFuture<List<AttributeKvEntry>> optionalListenableFutureWithLess =
+                Futures.immediateFuture(Collections.singletonList(entry));
 
         AlarmConditionFilter lowTempFilter = new AlarmConditionFilter();
         lowTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
@@ -1435,7 +1439,7 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(listListenableFutureWithLess);
         Mockito.when(ctx.getDeviceService().findDeviceById(tenantId, deviceId))
                 .thenReturn(device);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), eq(AttributeScope.SERVER_SCOPE), Mockito.anySet()))
                 .thenReturn(optionalListenableFutureWithLess);
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
@@ -1473,8 +1477,8 @@ public class TbDeviceProfileNodeTest {
         AttributeKvEntry entry = attributeKvEntity.toData();
         ListenableFuture<List<AttributeKvEntry>> listListenableFutureWithLess =
                 Futures.immediateFuture(Collections.emptyList());
-        ListenableFuture<Optional<AttributeKvEntry>> optionalListenableFutureWithLess =
-                Futures.immediateFuture(Optional.of(entry));
+        ListenableFuture<List<AttributeKvEntry>> optionalListenableFutureWithLess =
+                Futures.immediateFuture(Collections.singletonList(entry));
 
         AlarmConditionFilter lowTempFilter = new AlarmConditionFilter();
         lowTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
@@ -1509,7 +1513,7 @@ public class TbDeviceProfileNodeTest {
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anySet()))
                 .thenReturn(optionalListenableFutureWithLess);
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
@@ -1551,10 +1555,10 @@ public class TbDeviceProfileNodeTest {
         AttributeKvEntry entry = attributeKvEntity.toData();
         ListenableFuture<List<AttributeKvEntry>> listListenableFutureWithLess =
                 Futures.immediateFuture(Collections.emptyList());
-        ListenableFuture<Optional<AttributeKvEntry>> emptyOptionalFuture =
-                Futures.immediateFuture(Optional.empty());
-        ListenableFuture<Optional<AttributeKvEntry>> optionalListenableFutureWithLess =
-                Futures.immediateFuture(Optional.of(entry));
+        ListenableFuture<List<AttributeKvEntry>> emptyListFuture =
+                Futures.immediateFuture(Collections.emptyList());
+        ListenableFuture<List<AttributeKvEntry>> optionalListenableFutureWithLess =
+                Futures.immediateFuture(Collections.singletonList(entry));
 
         AlarmConditionFilter lowTempFilter = new AlarmConditionFilter();
         lowTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
@@ -1591,9 +1595,9 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(device);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId),  Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(emptyOptionalFuture);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId),  Mockito.any(AttributeScope.class), Mockito.anySet()))
+                .thenReturn(emptyListFuture);
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anySet()))
                 .thenReturn(optionalListenableFutureWithLess);
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
@@ -1637,10 +1641,10 @@ public class TbDeviceProfileNodeTest {
         AttributeKvEntry entry = attributeKvEntity.toData();
         ListenableFuture<List<AttributeKvEntry>> listListenableFutureWithLess =
                 Futures.immediateFuture(Collections.emptyList());
-        ListenableFuture<Optional<AttributeKvEntry>> emptyOptionalFuture =
-                Futures.immediateFuture(Optional.empty());
-        ListenableFuture<Optional<AttributeKvEntry>> optionalListenableFutureWithLess =
-                Futures.immediateFuture(Optional.of(entry));
+        ListenableFuture<List<AttributeKvEntry>> emptyListFuture =
+                Futures.immediateFuture(Collections.emptyList());
+        ListenableFuture<List<AttributeKvEntry>> optionalListenableFutureWithLess =
+                Futures.immediateFuture(Collections.singletonList(entry));
 
         AlarmConditionFilter lowTempFilter = new AlarmConditionFilter();
         lowTempFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature"));
@@ -1677,9 +1681,9 @@ public class TbDeviceProfileNodeTest {
                 .thenReturn(device);
         Mockito.when(attributesService.find(eq(tenantId), eq(deviceId), Mockito.any(AttributeScope.class), Mockito.anySet()))
                 .thenReturn(listListenableFutureWithLess);
-        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anyString()))
-                .thenReturn(emptyOptionalFuture);
-        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anyString()))
+        Mockito.when(attributesService.find(eq(tenantId), eq(customerId), Mockito.any(AttributeScope.class), Mockito.anySet()))
+                .thenReturn(emptyListFuture);
+        Mockito.when(attributesService.find(eq(tenantId), eq(tenantId), eq(AttributeScope.SERVER_SCOPE), Mockito.anySet()))
                 .thenReturn(optionalListenableFutureWithLess);
 
         TbMsg theMsg = TbMsg.newMsg(TbMsgType.ALARM, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
@@ -1697,6 +1701,44 @@ public class TbDeviceProfileNodeTest {
         verify(ctx, Mockito.never()).tellFailure(Mockito.any(), Mockito.any());
     }
 
+    @Test
+    public void testAlarmRuleStateIsFetchedInBackground() throws Exception {
+        DeviceProfile deviceProfile = new DeviceProfile();
+        deviceProfile.setId(deviceProfileId);
+        DeviceProfileData deviceProfileData = new DeviceProfileData();
+        deviceProfileData.setAlarms(Collections.emptyList());
+        deviceProfile.setProfileData(deviceProfileData);
+        RuleNodeState persistedState = new RuleNodeState();
+        persistedState.setEntityId(deviceId);
+        persistedState.setStateData("{\"alarmStates\":{}}");
+
+        ListeningExecutor dbCallbackExecutor = Mockito.mock(ListeningExecutor.class);
+        Mockito.when(ctx.getDbCallbackExecutor()).thenReturn(dbCallbackExecutor);
+        Mockito.when(ctx.getTenantId()).thenReturn(tenantId);
+        Mockito.when(ctx.getDeviceProfileCache()).thenReturn(cache);
+        Mockito.when(ctx.getDeviceService()).thenReturn(deviceService);
+        Mockito.when(ctx.isLocalEntity(deviceId)).thenReturn(true);
+        Mockito.when(ctx.findRuleNodeStates(any())).thenReturn(new PageData<>(List.of(persistedState), 1, 1, false));
+        Mockito.when(cache.get(tenantId, deviceId)).thenReturn(deviceProfile);
+
+        ObjectNode configuration = JacksonUtil.newObjectNode();
+        configuration.put("persistAlarmRulesState", true);
+        configuration.put("fetchAlarmRulesStateOnStart", true);
+        node = new TbDeviceProfileNode();
+        node.init(ctx, new TbNodeConfiguration(configuration));
+
+        ArgumentCaptor<Runnable> fetchTask = ArgumentCaptor.forClass(Runnable.class);
+        verify(dbCallbackExecutor).execute(fetchTask.capture());
+        verify(ctx, Mockito.never()).findRuleNodeStates(any());
+
+        fetchTask.getValue().run();
+
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{\"temperature\":42}");
+        node.onMsg(ctx, msg);
+        verify(ctx).tellSuccess(msg);
+        verify(ctx, Mockito.never()).findRuleNodeStateForEntity(any());
+    }
+
     private void init() throws TbNodeException {
         Mockito.when(ctx.getTenantId()).thenReturn(tenantId);
         Mockito.when(ctx.getDeviceProfileCache()).thenReturn(cache);
@@ -1704,6 +1746,7 @@ public class TbDeviceProfileNodeTest {
         Mockito.when(ctx.getAlarmService()).thenReturn(alarmService);
         Mockito.when(ctx.getDeviceService()).thenReturn(deviceService);
         Mockito.when(ctx.getAttributesService()).thenReturn(attributesService);
+        Mockito.lenient().when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
         TbNodeConfiguration nodeConfiguration = new TbNodeConfiguration(JacksonUtil.newObjectNode());
         node = new TbDeviceProfileNode();
         node.init(ctx, nodeConfiguration);
@@ -16,6 +16,8 @@
 package org.thingsboard.rule.engine.rest;
 
 
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import org.junit.jupiter.api.AfterEach;
@@ -25,18 +27,27 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockserver.integration.ClientAndServer;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -47,6 +58,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -180,6 +192,139 @@ public class TbHttpClientTest {
         Assertions.assertEquals(successResponseBody, capturedData.getValue());
     }
 
+    @Test
+    public void givenMaxParallelRequestsReached_whenProcessMessage_thenRequestIsQueuedWithoutBlocking() throws Exception {
+        CountDownLatch responseLatch = new CountDownLatch(1);
+        HttpServer server = startBlockingServer(responseLatch);
+        try {
+            var httpClient = new TbHttpClient(blockingServerConfig(server, 1, 0), eventLoop);
+            var ctx = mock(TbContext.class);
+            when(ctx.transformMsg(any(), any(), any())).then(invocation -> invocation.getArgument(0));
+
+            int msgCount = 3;
+            CountDownLatch latch = new CountDownLatch(msgCount);
+            for (int i = 0; i < msgCount; i++) {
+                var msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, TbMsg.EMPTY_JSON_OBJECT);
+                httpClient.processMessage(ctx, msg, m -> latch.countDown(), (m, t) -> ctx.tellFailure(m, t));
+            }
+            // the server does not respond until released, so the calls above returned without waiting for a reply
+            Assertions.assertEquals(msgCount, latch.getCount());
+            Assertions.assertEquals(1, httpClient.getInFlightRequests().get());
+            Assertions.assertEquals(msgCount - 1, httpClient.getQueuedRequests().get());
+
+            responseLatch.countDown();
+            Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            verify(ctx, times(0)).tellFailure(any(), any());
+            Assertions.assertEquals(0, httpClient.getQueuedRequests().get());
+        } finally {
+            responseLatch.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void givenMaxQueuedRequestsReached_whenProcessMessage_thenMessageIsFailed() throws Exception {
+        CountDownLatch responseLatch = new CountDownLatch(1);
+        HttpServer server = startBlockingServer(responseLatch);
+        try {
+            var httpClient = new TbHttpClient(blockingServerConfig(server, 1, 1), eventLoop);
+            var ctx = mock(TbContext.class);
+            when(ctx.transformMsg(any(), any(), any())).then(invocation -> invocation.getArgument(0));
+
+            CountDownLatch successLatch = new CountDownLatch(2);
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                var msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, TbMsg.EMPTY_JSON_OBJECT);
+                httpClient.processMessage(ctx, msg, m -> successLatch.countDown(), (m, t) -> failures.add(t));
+            }
+            Assertions.assertEquals(1, failures.size());
+            Assertions.assertEquals("Max queued requests count of 1 reached!", failures.get(0).getMessage());
+            Assertions.assertEquals(1, httpClient.getQueuedRequests().get());
+
+            responseLatch.countDown();
+            Assertions.assertTrue(successLatch.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, failures.size());
+        } finally {
+            responseLatch.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void givenQueuedRequests_whenDestroy_thenQueuedMessagesAreFailed() throws Exception {
+        CountDownLatch responseLatch = new CountDownLatch(1);
+        HttpServer server = startBlockingServer(responseLatch);
+        try {
+            var httpClient = new TbHttpClient(blockingServerConfig(server, 1, 10), eventLoop);
+            var ctx = mock(TbContext.class);
+
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                var msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, TbMsg.EMPTY_JSON_OBJECT);
+                httpClient.processMessage(ctx, msg, m -> {}, (m, t) -> failures.add(t));
+            }
+            Assertions.assertEquals(2, httpClient.getQueuedRequests().get());
+
+            httpClient.destroy();
+
+            Assertions.assertEquals(2, failures.size());
+            Assertions.assertEquals("Rest API call node is destroyed!", failures.get(0).getMessage());
+            Assertions.assertEquals(0, httpClient.getQueuedRequests().get());
+            verify(ctx, never()).tellFailure(any(), any());
+        } finally {
+            responseLatch.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void givenStatsInitialized_whenDestroy_thenMetersAreRemoved() throws Exception {
+        var meterRegistry = new SimpleMeterRegistry();
+        var statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", meterRegistry);
+        var ctx = mock(TbContext.class);
+        when(ctx.getStatsFactory()).thenReturn(statsFactory);
+        when(ctx.getSelfId()).thenReturn(new RuleNodeId(UUID.randomUUID()));
+
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setUseSimpleClientHttpFactory(true);
+        var httpClient = new TbHttpClient(config, eventLoop);
+        httpClient.initStats(ctx);
+        Assertions.assertEquals(3, meterRegistry.getMeters().size());
+
+        httpClient.destroy();
+        Assertions.assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+
+    private HttpServer startBlockingServer(CountDownLatch responseLatch) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api", exchange -> {
+            try {
+                responseLatch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "SUCCESS".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private TbRestApiCallNodeConfiguration blockingServerConfig(HttpServer server, int maxParallelRequestsCount, int maxQueuedRequestsCount) {
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setRequestMethod("GET");
+        config.setRestEndpointUrlPattern("http://localhost:" + server.getAddress().getPort() + "/api");
+        config.setUseSimpleClientHttpFactory(true);
+        config.setMaxParallelRequestsCount(maxParallelRequestsCount);
+        config.setMaxQueuedRequestsCount(maxQueuedRequestsCount);
+        config.setReadTimeoutMs(10000);
+        return config;
+    }
+
     private ClientAndServer setUpDummyServer(String host, String path, String paramKey, String paramVal, String successResponseBody) {
         var server = startClientAndServer(host, 1080);
         createGetMethodExpectations(server, path, paramKey, paramVal, successResponseBody);
@@ -31,6 +31,7 @@ import org.mockito.stubbing.Answer;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.rule.engine.AbstractRuleNodeUpgradeTest;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
@@ -45,11 +46,14 @@ import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -60,6 +64,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -408,6 +414,81 @@ public class TbMsgDeduplicationNodeTest extends AbstractRuleNodeUpgradeTest {
         Assertions.assertEquals(msgWithLatestTsInSecondPack.getType(), actualMsg.getType());
     }
 
+    @Test
+    public void given_messages_from_many_originators_then_single_timer_is_used() throws TbNodeException, ExecutionException, InterruptedException {
+        int wantedNumberOfTellSelfInvocation = 2;
+        int originatorsCount = 10;
+        awaitTellSelfLatch = new CountDownLatch(wantedNumberOfTellSelfInvocation);
+        invokeTellSelf(wantedNumberOfTellSelfInvocation);
+
+        config.setInterval(deduplicationInterval);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        long currentTimeMillis = System.currentTimeMillis();
+        List<TbMsg> firstMsgs = new ArrayList<>();
+        for (int i = 0; i < originatorsCount; i++) {
+            List<TbMsg> inputMsgs = getTbMsgs(new DeviceId(UUID.randomUUID()), 10, currentTimeMillis, 500);
+            firstMsgs.add(inputMsgs.get(0));
+            for (TbMsg msg : inputMsgs) {
+                node.onMsg(ctx, msg);
+            }
+        }
+
+        awaitTellSelfLatch.await();
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(wantedNumberOfTellSelfInvocation)).tellSelf(any(), ArgumentMatchers.anyLong());
+        verify(ctx, times(originatorsCount)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        Map<EntityId, TbMsg> resultMsgs = newMsgCaptor.getAllValues().stream().collect(Collectors.toMap(TbMsg::getOriginator, Function.identity()));
+        for (TbMsg firstMsg : firstMsgs) {
+            Assertions.assertEquals(firstMsg.getMetaData(), resultMsgs.get(firstMsg.getOriginator()).getMetaData());
+        }
+    }
+
+    @Test
+    public void given_persistPendingMsgs_then_pendingMessagesAreRestoredAfterRestart() throws TbNodeException, ExecutionException, InterruptedException {
+        when(ctx.isLocalEntity(any())).thenReturn(true);
+        when(ctx.getDbCallbackExecutor()).thenReturn(new TestDbCallbackExecutor());
+        when(ctx.findRuleNodeStates(any())).thenReturn(new PageData<>());
+        when(ctx.saveRuleNodeState(any())).then(invocation -> invocation.getArgument(0));
+
+        config.setInterval(deduplicationInterval);
+        config.setPersistPendingMsgs(true);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<TbMsg> inputMsgs = getTbMsgs(deviceId, 5, System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1), 500);
+        for (TbMsg msg : inputMsgs) {
+            node.onMsg(ctx, msg);
+        }
+        node.onMsg(ctx, newTickMsg());
+
+        ArgumentCaptor<RuleNodeState> stateCaptor = ArgumentCaptor.forClass(RuleNodeState.class);
+        verify(ctx, times(1)).saveRuleNodeState(stateCaptor.capture());
+        verify(ctx, times(0)).enqueueForTellNext(any(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        RuleNodeState state = stateCaptor.getValue();
+        Assertions.assertEquals(deviceId, state.getEntityId());
+        node.destroy();
+
+        TbMsgDeduplicationNode restartedNode = new TbMsgDeduplicationNode();
+        when(ctx.findRuleNodeStates(any())).thenReturn(new PageData<>(List.of(state), 1, 1, false));
+        restartedNode.init(ctx, nodeConfiguration);
+        Thread.sleep(5);
+        restartedNode.onMsg(ctx, newTickMsg());
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(1)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        TbMsg actualMsg = newMsgCaptor.getValue();
+        Assertions.assertEquals(inputMsgs.get(0).getOriginator(), actualMsg.getOriginator());
+        Assertions.assertEquals(inputMsgs.get(0).getData(), actualMsg.getData());
+        Assertions.assertEquals(inputMsgs.get(0).getMetaData(), actualMsg.getMetaData());
+        Assertions.assertEquals(inputMsgs.get(0).getQueueName(), actualMsg.getQueueName());
+        verify(ctx, times(1)).removeRuleNodeStateForEntity(deviceId);
+        restartedNode.destroy();
+    }
+
     // Rule nodes upgrade
     private static Stream<Arguments> givenFromVersionAndConfig_whenUpgrade_thenVerifyHasChangesAndConfig() {
         return Stream.of(
@@ -449,6 +530,10 @@ public class TbMsgDeduplicationNodeTest extends AbstractRuleNodeUpgradeTest {
         return inputMsgs;
     }
 
+    private TbMsg newTickMsg() {
+        return TbMsg.newMsg(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG, ctx.getSelfId(), TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
+    }
+
     private TbMsg createMsg(DeviceId deviceId, long ts) {
         ObjectNode dataNode = JacksonUtil.newObjectNode();
         dataNode.put("deviceId", deviceId.getId().toString());
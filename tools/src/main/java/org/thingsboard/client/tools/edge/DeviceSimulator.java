@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.edge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the telemetry of the simulated devices to the edge transport at the fixed total rate.
+ * The publish time of each device is shifted, so the load is spread evenly over the period.
+ */
+public abstract class DeviceSimulator {
+
+    protected final List<SimulatedDevice> devices;
+    protected final EdgeLoadStats stats;
+    private final int keysCount;
+    private final ScheduledExecutorService scheduler;
+    private final List<ScheduledFuture<?>> publishTasks = new ArrayList<>();
+
+    protected DeviceSimulator(List<SimulatedDevice> devices, int keysCount, EdgeLoadStats stats, ScheduledExecutorService scheduler) {
+        this.devices = devices;
+        this.keysCount = keysCount;
+        this.stats = stats;
+        this.scheduler = scheduler;
+    }
+
+    public void start(int msgPerSec) throws Exception {
+        connect();
+        long periodMicros = Math.max(devices.size() * 1_000_000L / msgPerSec, 1);
+        for (int i = 0; i < devices.size(); i++) {
+            SimulatedDevice device = devices.get(i);
+            long initialDelayMicros = periodMicros * i / devices.size();
+            publishTasks.add(scheduler.scheduleAtFixedRate(() -> publish(device, createPayload()),
+                    initialDelayMicros, periodMicros, TimeUnit.MICROSECONDS));
+        }
+    }
+
+    public void stop() {
+        publishTasks.forEach(task -> task.cancel(false));
+        publishTasks.clear();
+        disconnect();
+    }
+
+    protected abstract void connect() throws Exception;
+
+    protected abstract void publish(SimulatedDevice device, String payload);
+
+    protected abstract void disconnect();
+
+    private String createPayload() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder payload = new StringBuilder("{");
+        for (int i = 0; i < keysCount; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("\"key").append(i).append("\":").append(random.nextInt(1000) / 10.0);
+        }
+        return payload.append('}').toString();
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.edge;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the load run. The cloud_event backlog is estimated as the difference between
+ * the telemetry messages accepted by the edge transport and the telemetry messages acknowledged by the cloud.
+ */
+@Slf4j
+public class EdgeLoadStats {
+
+    final LongAdder published = new LongAdder();
+    final LongAdder publishFailed = new LongAdder();
+    final LongAdder uplinksReceived = new LongAdder();
+    final LongAdder uplinksAcked = new LongAdder();
+    final LongAdder uplinksLost = new LongAdder();
+    final LongAdder uplinksRateLimited = new LongAdder();
+    final LongAdder telemetryDrained = new LongAdder();
+
+    private final long startTs = System.currentTimeMillis();
+    private long lastReportTs = startTs;
+    private long lastPublished;
+    private long lastUplinksReceived;
+    private long lastTelemetryDrained;
+    private long lastBacklog;
+
+    public long getBacklog() {
+        return published.sum() - telemetryDrained.sum();
+    }
+
+    public synchronized void report() {
+        long ts = System.currentTimeMillis();
+        double intervalSec = Math.max(ts - lastReportTs, 1) / 1000.0;
+        long published = this.published.sum();
+        long uplinksReceived = this.uplinksReceived.sum();
+        long telemetryDrained = this.telemetryDrained.sum();
+        long backlog = published - telemetryDrained;
+        log.info("[{}s] Ingest: {} msg/s (total: {}, failed: {}). Uplinks: {} msg/s (acked: {}, lost: {}, rate limited: {}). " +
+                        "Drain: {} msg/s. Backlog: {} ({} msg/s)",
+                (ts - startTs) / 1000, rate(published - lastPublished, intervalSec), published, publishFailed.sum(),
+                rate(uplinksReceived - lastUplinksReceived, intervalSec), uplinksAcked.sum(), uplinksLost.sum(), uplinksRateLimited.sum(),
+                rate(telemetryDrained - lastTelemetryDrained, intervalSec), backlog, rate(backlog - lastBacklog, intervalSec));
+        lastReportTs = ts;
+        lastPublished = published;
+        lastUplinksReceived = uplinksReceived;
+        lastTelemetryDrained = telemetryDrained;
+        lastBacklog = backlog;
+    }
+
+    public void reportTotal() {
+        double durationSec = Math.max(System.currentTimeMillis() - startTs, 1) / 1000.0;
+        log.info("Total in {}s. Ingest: {} msg/s (total: {}, failed: {}). Uplinks: {} (acked: {}, lost: {}, rate limited: {}). " +
+                        "Drain: {} msg/s. Backlog: {}",
+                (long) durationSec, rate(published.sum(), durationSec), published.sum(), publishFailed.sum(),
+                uplinksReceived.sum(), uplinksAcked.sum(), uplinksLost.sum(), uplinksRateLimited.sum(),
+                rate(telemetryDrained.sum(), durationSec), getBacklog());
+    }
+
+    private static long rate(long count, double intervalSec) {
+        return Math.round(count / intervalSec);
+    }
+
+}
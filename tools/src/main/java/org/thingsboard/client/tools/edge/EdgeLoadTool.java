@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.edge;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test of the edge without the cloud. Starts the {@link FakeCloudRpcService} that the edge connects to
+ * instead of the cloud (cloud.rpc.host and cloud.rpc.port of the edge), waits until the simulated devices are provisioned
+ * to the edge, publishes their telemetry over MQTT or HTTP and reports the ingest rate, uplink drain rate and cloud_event backlog.
+ */
+@Slf4j
+public class EdgeLoadTool {
+
+    public static void main(String[] args) throws Exception {
+        CommandLine cmd = parseArgs(args);
+
+        int rpcPort = Integer.parseInt(cmd.getOptionValue("rpcPort", "7070"));
+        String routingKey = cmd.getOptionValue("routingKey");
+        String secret = cmd.getOptionValue("secret");
+        String host = cmd.getOptionValue("host", "localhost");
+        String protocol = cmd.getOptionValue("protocol", "mqtt");
+        int devicesCount = Integer.parseInt(cmd.getOptionValue("devices", "100"));
+        int msgPerSec = Integer.parseInt(cmd.getOptionValue("rate", "1000"));
+        int keysCount = Integer.parseInt(cmd.getOptionValue("keys", "10"));
+        long durationSec = Long.parseLong(cmd.getOptionValue("duration", "300"));
+        long drainTimeoutSec = Long.parseLong(cmd.getOptionValue("drainTimeout", "300"));
+        long provisionTimeoutSec = Long.parseLong(cmd.getOptionValue("provisionTimeout", "300"));
+        long reportIntervalSec = Long.parseLong(cmd.getOptionValue("reportInterval", "10"));
+        long ackLatencyMs = Long.parseLong(cmd.getOptionValue("ackLatency", "0"));
+        double lossProbability = Double.parseDouble(cmd.getOptionValue("lossProbability", "0"));
+        double rateLimitProbability = Double.parseDouble(cmd.getOptionValue("rateLimitProbability", "0"));
+
+        EdgeLoadStats stats = new EdgeLoadStats();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()),
+                ThingsBoardThreadFactory.forName("edge-load"));
+        List<SimulatedDevice> devices = createDevices(devicesCount);
+        FakeCloudRpcService cloudRpcService = new FakeCloudRpcService(createEdgeConfiguration(routingKey, secret), devices,
+                ackLatencyMs, lossProbability, rateLimitProbability, stats, scheduler);
+        Server server = NettyServerBuilder.forPort(rpcPort).addService(cloudRpcService).build().start();
+        log.info("Fake cloud started on port {}, waiting for the edge [{}] to connect and provision {} devices", rpcPort, routingKey, devicesCount);
+
+        DeviceSimulator simulator = null;
+        try {
+            long provisionDeadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(provisionTimeoutSec);
+            while (cloudRpcService.getProvisionedDevicesCount() < devicesCount) {
+                if (System.currentTimeMillis() > provisionDeadline) {
+                    log.error("Provisioned {} of {} devices in {}s, stopping", cloudRpcService.getProvisionedDevicesCount(), devicesCount, provisionTimeoutSec);
+                    return;
+                }
+                TimeUnit.SECONDS.sleep(1);
+            }
+            log.info("Provisioned {} devices, publishing {} msg/s with {} keys over {} for {}s", devicesCount, msgPerSec, keysCount, protocol, durationSec);
+
+            simulator = switch (protocol) {
+                case "mqtt" -> new MqttDeviceSimulator(host, Integer.parseInt(cmd.getOptionValue("mqttPort", "1883")), devices, keysCount, stats, scheduler);
+                case "http" -> new HttpDeviceSimulator(host, Integer.parseInt(cmd.getOptionValue("httpPort", "8080")), devices, keysCount, stats, scheduler);
+                default -> throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+            };
+            scheduler.scheduleAtFixedRate(stats::report, reportIntervalSec, reportIntervalSec, TimeUnit.SECONDS);
+            simulator.start(msgPerSec);
+            TimeUnit.SECONDS.sleep(durationSec);
+            simulator.stop();
+            simulator = null;
+
+            log.info("Publishing stopped, waiting up to {}s for the backlog of {} msgs to drain", drainTimeoutSec, stats.getBacklog());
+            long drainDeadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(drainTimeoutSec);
+            while (stats.getBacklog() > 0 && System.currentTimeMillis() < drainDeadline) {
+                TimeUnit.SECONDS.sleep(1);
+            }
+            stats.reportTotal();
+        } finally {
+            if (simulator != null) {
+                simulator.stop();
+            }
+            server.shutdownNow();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static List<SimulatedDevice> createDevices(int devicesCount) {
+        List<SimulatedDevice> devices = new ArrayList<>(devicesCount);
+        for (int i = 0; i < devicesCount; i++) {
+            UUID id = Uuids.timeBased();
+            devices.add(new SimulatedDevice(id, "Edge Load Device " + i, id.toString().replace("-", "")));
+        }
+        return devices;
+    }
+
+    private static EdgeConfiguration createEdgeConfiguration(String routingKey, String secret) {
+        UUID edgeId = Uuids.timeBased();
+        UUID tenantId = Uuids.timeBased();
+        return EdgeConfiguration.newBuilder()
+                .setEdgeIdMSB(edgeId.getMostSignificantBits())
+                .setEdgeIdLSB(edgeId.getLeastSignificantBits())
+                .setTenantIdMSB(tenantId.getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getLeastSignificantBits())
+                .setName("Edge Load")
+                .setType("default")
+                .setRoutingKey(routingKey)
+                .setSecret(secret)
+                .setCloudType("CE")
+                .build();
+    }
+
+    private static CommandLine parseArgs(String[] args) {
+        Options options = new Options();
+
+        Option routingKeyOpt = new Option("routingKey", "routingKey", true, "edge routing key, cloud.routingKey of the edge");
+        routingKeyOpt.setRequired(true);
+        options.addOption(routingKeyOpt);
+
+        Option secretOpt = new Option("secret", "secret", true, "edge secret, cloud.secret of the edge");
+        secretOpt.setRequired(true);
+        options.addOption(secretOpt);
+
+        options.addOption(new Option("rpcPort", "rpcPort", true, "port of the fake cloud, cloud.rpc.port of the edge, 7070 by default"));
+        options.addOption(new Option("host", "host", true, "edge host, localhost by default"));
+        options.addOption(new Option("protocol", "protocol", true, "device protocol: mqtt or http, mqtt by default"));
+        options.addOption(new Option("mqttPort", "mqttPort", true, "edge MQTT transport port, 1883 by default"));
+        options.addOption(new Option("httpPort", "httpPort", true, "edge HTTP port, 8080 by default"));
+        options.addOption(new Option("devices", "devices", true, "number of simulated devices, 100 by default"));
+        options.addOption(new Option("rate", "rate", true, "total telemetry messages per second of all devices, 1000 by default"));
+        options.addOption(new Option("keys", "keys", true, "telemetry keys per message, 10 by default"));
+        options.addOption(new Option("duration", "duration", true, "publishing duration in seconds, 300 by default"));
+        options.addOption(new Option("drainTimeout", "drainTimeout", true, "max seconds to wait for the backlog to drain after publishing, 300 by default"));
+        options.addOption(new Option("provisionTimeout", "provisionTimeout", true, "max seconds to wait for the edge to connect and create the devices, 300 by default"));
+        options.addOption(new Option("reportInterval", "reportInterval", true, "stats report interval in seconds, 10 by default"));
+        options.addOption(new Option("ackLatency", "ackLatency", true, "delay of the uplink acknowledgement in milliseconds, 0 by default"));
+        options.addOption(new Option("lossProbability", "lossProbability", true, "probability of the uplink to be lost without acknowledgement, 0 by default"));
+        options.addOption(new Option("rateLimitProbability", "rateLimitProbability", true, "probability of the uplink to be rejected with the rate limit error, 0 by default"));
+
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLineParser parser = new BasicParser();
+
+        try {
+            return parser.parse(options, args);
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("edge-load", options);
+
+            System.exit(1);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,422 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.edge;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.QueueId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.queue.ProcessingStrategy;
+import org.thingsboard.server.common.data.queue.ProcessingStrategyType;
+import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.data.queue.SubmitStrategy;
+import org.thingsboard.server.common.data.queue.SubmitStrategyType;
+import org.thingsboard.server.common.data.rule.RuleChain;
+import org.thingsboard.server.common.data.rule.RuleChainMetaData;
+import org.thingsboard.server.common.data.rule.RuleChainType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.data.security.DeviceCredentials;
+import org.thingsboard.server.common.data.security.DeviceCredentialsType;
+import org.thingsboard.server.gen.edge.v1.ConnectRequestMsg;
+import org.thingsboard.server.gen.edge.v1.ConnectResponseCode;
+import org.thingsboard.server.gen.edge.v1.ConnectResponseMsg;
+import org.thingsboard.server.gen.edge.v1.DeviceCredentialsRequestMsg;
+import org.thingsboard.server.gen.edge.v1.DeviceCredentialsUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.DeviceUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
+import org.thingsboard.server.gen.edge.v1.DownlinkResponseMsg;
+import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
+import org.thingsboard.server.gen.edge.v1.EdgeRpcServiceGrpc;
+import org.thingsboard.server.gen.edge.v1.EntityDataProto;
+import org.thingsboard.server.gen.edge.v1.QueueUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.RequestMsg;
+import org.thingsboard.server.gen.edge.v1.ResponseMsg;
+import org.thingsboard.server.gen.edge.v1.RuleChainMetadataRequestMsg;
+import org.thingsboard.server.gen.edge.v1.RuleChainMetadataUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.RuleChainUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.SyncCompletedMsg;
+import org.thingsboard.server.gen.edge.v1.UpdateMsgType;
+import org.thingsboard.server.gen.edge.v1.UplinkMsg;
+import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stand-in for the cloud side of the edge gRPC stream. Accepts the edge, pushes the main queue, the root rule chain
+ * and the simulated devices on sync and acknowledges the uplinks with the configured latency,
+ * loss and rate limit errors. Any other uplink content is acknowledged and ignored.
+ */
+@Slf4j
+public class FakeCloudRpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase {
+
+    static final String RATE_LIMIT_REACHED = "Rate limit reached";
+    private static final int DEVICES_PER_DOWNLINK = 100;
+
+    private final EdgeConfiguration edgeConfiguration;
+    private final Map<UUID, SimulatedDevice> devices;
+    private final long ackLatencyMs;
+    private final double lossProbability;
+    private final double rateLimitProbability;
+    private final EdgeLoadStats stats;
+    private final ScheduledExecutorService scheduler;
+
+    private final TenantId tenantId;
+    private final QueueId mainQueueId = new QueueId(Uuids.timeBased());
+    private final RuleChainId rootRuleChainId = new RuleChainId(Uuids.timeBased());
+    private final AtomicInteger downlinkMsgIdSeq = new AtomicInteger();
+    private final Set<UUID> provisionedDevices = ConcurrentHashMap.newKeySet();
+
+    public FakeCloudRpcService(EdgeConfiguration edgeConfiguration, List<SimulatedDevice> devices,
+                               long ackLatencyMs, double lossProbability, double rateLimitProbability,
+                               EdgeLoadStats stats, ScheduledExecutorService scheduler) {
+        this.edgeConfiguration = edgeConfiguration;
+        this.devices = devices.stream().collect(Collectors.toMap(SimulatedDevice::id, Function.identity()));
+        this.ackLatencyMs = ackLatencyMs;
+        this.lossProbability = lossProbability;
+        this.rateLimitProbability = rateLimitProbability;
+        this.stats = stats;
+        this.scheduler = scheduler;
+        this.tenantId = TenantId.fromUUID(new UUID(edgeConfiguration.getTenantIdMSB(), edgeConfiguration.getTenantIdLSB()));
+    }
+
+    public int getProvisionedDevicesCount() {
+        return provisionedDevices.size();
+    }
+
+    @Override
+    public StreamObserver<RequestMsg> handleMsgs(StreamObserver<ResponseMsg> outputStream) {
+        return new EdgeSession(outputStream);
+    }
+
+    private class EdgeSession implements StreamObserver<RequestMsg> {
+
+        private final StreamObserver<ResponseMsg> outputStream;
+        private final ConcurrentLinkedQueue<DownlinkMsg> pendingDownlinks = new ConcurrentLinkedQueue<>();
+        private final Map<Integer, List<UUID>> credentialsDownlinks = new ConcurrentHashMap<>();
+        private final Cache<Integer, Boolean> ackedUplinkMsgIds = CacheBuilder.newBuilder().maximumSize(10000).build();
+        private volatile boolean connected;
+        private Integer inFlightDownlinkMsgId;
+
+        EdgeSession(StreamObserver<ResponseMsg> outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void onNext(RequestMsg requestMsg) {
+            try {
+                switch (requestMsg.getMsgType()) {
+                    case CONNECT_RPC_MESSAGE -> onConnect(requestMsg.getConnectRequestMsg());
+                    case SYNC_REQUEST_RPC_MESSAGE -> onSyncRequest();
+                    case UPLINK_RPC_MESSAGE -> {
+                        if (requestMsg.hasUplinkMsg()) {
+                            onUplink(requestMsg.getUplinkMsg());
+                        }
+                        if (requestMsg.hasDownlinkResponseMsg()) {
+                            onDownlinkResponse(requestMsg.getDownlinkResponseMsg());
+                        }
+                    }
+                    default -> log.warn("[{}] Unsupported request msg type {}", edgeConfiguration.getRoutingKey(), requestMsg.getMsgType());
+                }
+            } catch (Exception e) {
+                log.warn("[{}] Failed to process request msg {}", edgeConfiguration.getRoutingKey(), requestMsg, e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            connected = false;
+            log.warn("[{}] Edge stream was terminated due to error: {}", edgeConfiguration.getRoutingKey(), t.getMessage());
+        }
+
+        @Override
+        public void onCompleted() {
+            connected = false;
+            log.info("[{}] Edge stream was closed", edgeConfiguration.getRoutingKey());
+            outputStream.onCompleted();
+        }
+
+        private void onConnect(ConnectRequestMsg connectRequestMsg) {
+            if (edgeConfiguration.getRoutingKey().equals(connectRequestMsg.getEdgeRoutingKey())
+                    && edgeConfiguration.getSecret().equals(connectRequestMsg.getEdgeSecret())) {
+                log.info("[{}] Edge connected, version {}", connectRequestMsg.getEdgeRoutingKey(), connectRequestMsg.getEdgeVersion());
+                connected = true;
+                send(ResponseMsg.newBuilder()
+                        .setConnectResponseMsg(ConnectResponseMsg.newBuilder()
+                                .setResponseCode(ConnectResponseCode.ACCEPTED)
+                                .setConfiguration(edgeConfiguration)
+                                .build())
+                        .build());
+            } else {
+                log.warn("[{}] Edge connection rejected: routing key or secret doesn't match", connectRequestMsg.getEdgeRoutingKey());
+                send(ResponseMsg.newBuilder()
+                        .setConnectResponseMsg(ConnectResponseMsg.newBuilder()
+                                .setResponseCode(ConnectResponseCode.BAD_CREDENTIALS)
+                                .setErrorMsg("Failed to validate the edge!")
+                                .build())
+                        .build());
+            }
+        }
+
+        private void onSyncRequest() {
+            log.info("[{}] Sync requested, pushing main queue, root rule chain and {} devices", edgeConfiguration.getRoutingKey(), devices.size());
+            pendingDownlinks.add(DownlinkMsg.newBuilder()
+                    .setDownlinkMsgId(downlinkMsgIdSeq.incrementAndGet())
+                    .addQueueUpdateMsg(QueueUpdateMsg.newBuilder()
+                            .setMsgType(UpdateMsgType.ENTITY_UPDATED_RPC_MESSAGE)
+                            .setIdMSB(mainQueueId.getId().getMostSignificantBits())
+                            .setIdLSB(mainQueueId.getId().getLeastSignificantBits())
+                            .setEntity(JacksonUtil.toString(createMainQueue()))
+                            .build())
+                    .addRuleChainUpdateMsg(RuleChainUpdateMsg.newBuilder()
+                            .setMsgType(UpdateMsgType.ENTITY_UPDATED_RPC_MESSAGE)
+                            .setIdMSB(rootRuleChainId.getId().getMostSignificantBits())
+                            .setIdLSB(rootRuleChainId.getId().getLeastSignificantBits())
+                            .setEntity(JacksonUtil.toString(createRootRuleChain()))
+                            .build())
+                    .build());
+            DownlinkMsg.Builder devicesDownlink = null;
+            for (SimulatedDevice device : devices.values()) {
+                if (devicesDownlink == null) {
+                    devicesDownlink = DownlinkMsg.newBuilder().setDownlinkMsgId(downlinkMsgIdSeq.incrementAndGet());
+                }
+                devicesDownlink.addDeviceUpdateMsg(DeviceUpdateMsg.newBuilder()
+                        .setMsgType(UpdateMsgType.ENTITY_UPDATED_RPC_MESSAGE)
+                        .setIdMSB(device.id().getMostSignificantBits())
+                        .setIdLSB(device.id().getLeastSignificantBits())
+                        .setEntity(JacksonUtil.toString(createDevice(device)))
+                        .build());
+                if (devicesDownlink.getDeviceUpdateMsgCount() == DEVICES_PER_DOWNLINK) {
+                    pendingDownlinks.add(devicesDownlink.build());
+                    devicesDownlink = null;
+                }
+            }
+            if (devicesDownlink != null) {
+                pendingDownlinks.add(devicesDownlink.build());
+            }
+            pendingDownlinks.add(DownlinkMsg.newBuilder()
+                    .setDownlinkMsgId(downlinkMsgIdSeq.incrementAndGet())
+                    .setSyncCompletedMsg(SyncCompletedMsg.newBuilder().build())
+                    .build());
+            sendNextDownlink();
+        }
+
+        private void onUplink(UplinkMsg uplinkMsg) {
+            stats.uplinksReceived.increment();
+            double random = ThreadLocalRandom.current().nextDouble();
+            if (random < lossProbability) {
+                stats.uplinksLost.increment();
+                return;
+            }
+            boolean rateLimited = random < lossProbability + rateLimitProbability;
+            if (ackLatencyMs > 0) {
+                scheduler.schedule(() -> ackUplink(uplinkMsg, rateLimited), ackLatencyMs, TimeUnit.MILLISECONDS);
+            } else {
+                ackUplink(uplinkMsg, rateLimited);
+            }
+        }
+
+        private void ackUplink(UplinkMsg uplinkMsg, boolean rateLimited) {
+            if (!connected) {
+                return;
+            }
+            UplinkResponseMsg.Builder response = UplinkResponseMsg.newBuilder().setUplinkMsgId(uplinkMsg.getUplinkMsgId());
+            if (rateLimited) {
+                stats.uplinksRateLimited.increment();
+                response.setSuccess(false).setErrorMsg(RATE_LIMIT_REACHED);
+            } else {
+                stats.uplinksAcked.increment();
+                if (ackedUplinkMsgIds.asMap().putIfAbsent(uplinkMsg.getUplinkMsgId(), Boolean.TRUE) == null) {
+                    stats.telemetryDrained.add(uplinkMsg.getEntityDataList().stream().filter(EntityDataProto::hasPostTelemetryMsg).count());
+                    processRequests(uplinkMsg);
+                }
+                response.setSuccess(true);
+            }
+            send(ResponseMsg.newBuilder().setUplinkResponseMsg(response).build());
+        }
+
+        private void processRequests(UplinkMsg uplinkMsg) {
+            for (RuleChainMetadataRequestMsg request : uplinkMsg.getRuleChainMetadataRequestMsgList()) {
+                if (rootRuleChainId.getId().equals(new UUID(request.getRuleChainIdMSB(), request.getRuleChainIdLSB()))) {
+                    pendingDownlinks.add(DownlinkMsg.newBuilder()
+                            .setDownlinkMsgId(downlinkMsgIdSeq.incrementAndGet())
+                            .addRuleChainMetadataUpdateMsg(RuleChainMetadataUpdateMsg.newBuilder()
+                                    .setMsgType(UpdateMsgType.ENTITY_UPDATED_RPC_MESSAGE)
+                                    .setEntity(JacksonUtil.toString(createRootRuleChainMetaData()))
+                                    .build())
+                            .build());
+                }
+            }
+            if (uplinkMsg.getDeviceCredentialsRequestMsgCount() > 0) {
+                DownlinkMsg.Builder credentialsDownlink = DownlinkMsg.newBuilder().setDownlinkMsgId(downlinkMsgIdSeq.incrementAndGet());
+                List<UUID> deviceIds = new ArrayList<>();
+                for (DeviceCredentialsRequestMsg request : uplinkMsg.getDeviceCredentialsRequestMsgList()) {
+                    SimulatedDevice device = devices.get(new UUID(request.getDeviceIdMSB(), request.getDeviceIdLSB()));
+                    if (device != null) {
+                        credentialsDownlink.addDeviceCredentialsUpdateMsg(DeviceCredentialsUpdateMsg.newBuilder()
+                                .setEntity(JacksonUtil.toString(createDeviceCredentials(device)))
+                                .build());
+                        deviceIds.add(device.id());
+                    }
+                }
+                if (!deviceIds.isEmpty()) {
+                    credentialsDownlinks.put(credentialsDownlink.getDownlinkMsgId(), deviceIds);
+                    pendingDownlinks.add(credentialsDownlink.build());
+                }
+            }
+            sendNextDownlink();
+        }
+
+        private void onDownlinkResponse(DownlinkResponseMsg downlinkResponseMsg) {
+            synchronized (this) {
+                if (inFlightDownlinkMsgId != null && inFlightDownlinkMsgId == downlinkResponseMsg.getDownlinkMsgId()) {
+                    inFlightDownlinkMsgId = null;
+                }
+            }
+            List<UUID> deviceIds = credentialsDownlinks.remove(downlinkResponseMsg.getDownlinkMsgId());
+            if (downlinkResponseMsg.getSuccess()) {
+                if (deviceIds != null) {
+                    provisionedDevices.addAll(deviceIds);
+                }
+            } else {
+                log.warn("[{}] Edge failed to process downlink {}: {}", edgeConfiguration.getRoutingKey(),
+                        downlinkResponseMsg.getDownlinkMsgId(), downlinkResponseMsg.getErrorMsg());
+            }
+            sendNextDownlink();
+        }
+
+        private void sendNextDownlink() {
+            DownlinkMsg downlinkMsg;
+            synchronized (this) {
+                if (inFlightDownlinkMsgId != null) {
+                    return;
+                }
+                downlinkMsg = pendingDownlinks.poll();
+                if (downlinkMsg == null) {
+                    return;
+                }
+                inFlightDownlinkMsgId = downlinkMsg.getDownlinkMsgId();
+            }
+            send(ResponseMsg.newBuilder().setDownlinkMsg(downlinkMsg).build());
+        }
+
+        private void send(ResponseMsg responseMsg) {
+            synchronized (outputStream) {
+                try {
+                    outputStream.onNext(responseMsg);
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to send response msg to the edge: {}", edgeConfiguration.getRoutingKey(), e.getMessage());
+                }
+            }
+        }
+
+    }
+
+    private Queue createMainQueue() {
+        Queue queue = new Queue(mainQueueId);
+        queue.setTenantId(TenantId.SYS_TENANT_ID);
+        queue.setName(DataConstants.MAIN_QUEUE_NAME);
+        queue.setTopic(DataConstants.MAIN_QUEUE_TOPIC);
+        queue.setPollInterval(25);
+        queue.setPartitions(10);
+        queue.setConsumerPerPartition(true);
+        queue.setPackProcessingTimeout(2000);
+        SubmitStrategy submitStrategy = new SubmitStrategy();
+        submitStrategy.setType(SubmitStrategyType.BURST);
+        submitStrategy.setBatchSize(1000);
+        queue.setSubmitStrategy(submitStrategy);
+        ProcessingStrategy processingStrategy = new ProcessingStrategy();
+        processingStrategy.setType(ProcessingStrategyType.SKIP_ALL_FAILURES);
+        processingStrategy.setRetries(3);
+        processingStrategy.setPauseBetweenRetries(3);
+        processingStrategy.setMaxPauseBetweenRetries(3);
+        queue.setProcessingStrategy(processingStrategy);
+        return queue;
+    }
+
+    private RuleChain createRootRuleChain() {
+        RuleChain ruleChain = new RuleChain(rootRuleChainId);
+        ruleChain.setTenantId(tenantId);
+        ruleChain.setName("Edge Load Root Rule Chain");
+        ruleChain.setType(RuleChainType.EDGE);
+        ruleChain.setRoot(true);
+        return ruleChain;
+    }
+
+    private RuleChainMetaData createRootRuleChainMetaData() {
+        RuleChainMetaData metaData = new RuleChainMetaData();
+        metaData.setRuleChainId(rootRuleChainId);
+        metaData.setFirstNodeIndex(0);
+        metaData.setNodes(List.of(
+                createRuleNode("org.thingsboard.rule.engine.filter.TbMsgTypeSwitchNode", "Message Type Switch", 0, "{\"version\":0}"),
+                createRuleNode("org.thingsboard.rule.engine.telemetry.TbMsgTimeseriesNode", "Save Timeseries", 0, "{\"defaultTTL\":0}"),
+                createRuleNode("org.thingsboard.rule.engine.telemetry.TbMsgAttributesNode", "Save Client Attributes", 2,
+                        "{\"scope\":\"CLIENT_SCOPE\",\"notifyDevice\":false,\"sendAttributesUpdatedNotification\":false,\"updateAttributesOnlyOnValueChange\":true}"),
+                createRuleNode("org.thingsboard.rule.engine.edge.TbMsgPushToCloudNode", "Push to cloud", 0, "{\"scope\":\"SERVER_SCOPE\"}")));
+        metaData.setConnections(new ArrayList<>());
+        metaData.addConnectionInfo(0, 1, "Post telemetry");
+        metaData.addConnectionInfo(0, 2, "Post attributes");
+        metaData.addConnectionInfo(1, 3, "Success");
+        metaData.addConnectionInfo(2, 3, "Success");
+        return metaData;
+    }
+
+    private static RuleNode createRuleNode(String type, String name, int configurationVersion, String configuration) {
+        RuleNode ruleNode = new RuleNode();
+        ruleNode.setType(type);
+        ruleNode.setName(name);
+        ruleNode.setConfigurationVersion(configurationVersion);
+        ruleNode.setConfiguration(JacksonUtil.toJsonNode(configuration));
+        return ruleNode;
+    }
+
+    private Device createDevice(SimulatedDevice simulatedDevice) {
+        Device device = new Device(new DeviceId(simulatedDevice.id()));
+        device.setTenantId(tenantId);
+        device.setName(simulatedDevice.name());
+        device.setType("default");
+        device.setCreatedTime(System.currentTimeMillis());
+        return device;
+    }
+
+    private static DeviceCredentials createDeviceCredentials(SimulatedDevice simulatedDevice) {
+        DeviceCredentials credentials = new DeviceCredentials();
+        credentials.setDeviceId(new DeviceId(simulatedDevice.id()));
+        credentials.setCredentialsType(DeviceCredentialsType.ACCESS_TOKEN);
+        credentials.setCredentialsId(simulatedDevice.accessToken());
+        return credentials;
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.edge;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Slf4j
+public class HttpDeviceSimulator extends DeviceSimulator {
+
+    private final String baseUrl;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    public HttpDeviceSimulator(String host, int port, List<SimulatedDevice> devices, int keysCount,
+                               EdgeLoadStats stats, ScheduledExecutorService scheduler) {
+        super(devices, keysCount, stats, scheduler);
+        this.baseUrl = "http://" + host + ":" + port + "/api/v1/";
+    }
+
+    @Override
+    protected void connect() {
+        log.info("[{}] Publishing telemetry of {} HTTP devices", baseUrl, devices.size());
+    }
+
+    @Override
+    protected void publish(SimulatedDevice device, String payload) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + device.accessToken() + "/telemetry"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+            if (e == null && response.statusCode() == 200) {
+                stats.published.increment();
+            } else {
+                stats.publishFailed.increment();
+                log.debug("[{}] Failed to publish telemetry, status: {}", device.name(), response != null ? response.statusCode() : null, e);
+            }
+        });
+    }
+
+    @Override
+    protected void disconnect() {
+    }
+
+}
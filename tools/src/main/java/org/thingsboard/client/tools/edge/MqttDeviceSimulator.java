@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.edge;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Slf4j
+public class MqttDeviceSimulator extends DeviceSimulator {
+
+    private static final String TELEMETRY_TOPIC = "v1/devices/me/telemetry";
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+
+    private final String serverUri;
+    private final Map<UUID, MqttAsyncClient> clients = new ConcurrentHashMap<>();
+
+    public MqttDeviceSimulator(String host, int port, List<SimulatedDevice> devices, int keysCount,
+                               EdgeLoadStats stats, ScheduledExecutorService scheduler) {
+        super(devices, keysCount, stats, scheduler);
+        this.serverUri = "tcp://" + host + ":" + port;
+    }
+
+    @Override
+    protected void connect() throws MqttException {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(true);
+        options.setMaxInflight(1000);
+        for (SimulatedDevice device : devices) {
+            MqttAsyncClient client = new MqttAsyncClient(serverUri, device.accessToken(), new MemoryPersistence());
+            options.setUserName(device.accessToken());
+            client.connect(options).waitForCompletion(CONNECT_TIMEOUT_MS);
+            clients.put(device.id(), client);
+        }
+        log.info("[{}] Connected {} MQTT devices", serverUri, clients.size());
+    }
+
+    @Override
+    protected void publish(SimulatedDevice device, String payload) {
+        MqttAsyncClient client = clients.get(device.id());
+        if (client == null || !client.isConnected()) {
+            stats.publishFailed.increment();
+            return;
+        }
+        try {
+            client.publish(TELEMETRY_TOPIC, payload.getBytes(StandardCharsets.UTF_8), 1, false, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    stats.published.increment();
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    stats.publishFailed.increment();
+                }
+            });
+        } catch (MqttException e) {
+            stats.publishFailed.increment();
+            log.debug("[{}] Failed to publish telemetry", device.name(), e);
+        }
+    }
+
+    @Override
+    protected void disconnect() {
+        clients.values().forEach(client -> {
+            try {
+                client.disconnect();
+                client.close();
+            } catch (MqttException e) {
+                log.debug("[{}] Failed to disconnect MQTT client", client.getClientId(), e);
+            }
+        });
+        clients.clear();
+    }
+
+}